@@ -3,6 +3,7 @@ package org.blitzortung.android.alert;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+import android.content.res.Resources;
 import android.location.Location;
 import android.media.AudioManager;
 import android.media.Ringtone;
@@ -14,11 +15,15 @@ import org.blitzortung.android.alert.event.AlertResultEvent;
 import org.blitzortung.android.alert.event.AlertCancelEvent;
 import org.blitzortung.android.alert.event.AlertEvent;
 import org.blitzortung.android.alert.factory.AlertObjectFactory;
+import org.blitzortung.android.alert.handler.AlertHistory;
 import org.blitzortung.android.alert.handler.AlertStatusHandler;
+import org.blitzortung.android.alert.handler.WatchPointRegistry;
 import org.blitzortung.android.alert.object.AlertSector;
 import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.alert.object.WatchPoint;
 import org.blitzortung.android.app.Main;
 import org.blitzortung.android.app.R;
+import org.blitzortung.android.data.Parameters;
 import org.blitzortung.android.data.beans.Strike;
 import org.blitzortung.android.data.provider.result.ClearDataEvent;
 import org.blitzortung.android.data.provider.result.DataEvent;
@@ -28,52 +33,109 @@ import org.blitzortung.android.location.LocationHandler;
 import org.blitzortung.android.app.controller.NotificationHandler;
 import org.blitzortung.android.app.view.PreferenceKey;
 import org.blitzortung.android.protocol.Consumer;
+import org.blitzortung.android.protocol.ConsumerContainer;
 import org.blitzortung.android.util.MeasurementSystem;
 
+import java.util.ArrayList;
 import java.util.Collection;
-
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * evaluates the alerts on a single background thread, the alert status, the strike queues and the watch points are only
+ * accessed there, results are copied and handed to the main thread for the ui, vibration and notification
+ */
 public class AlertHandler implements OnSharedPreferenceChangeListener {
 
     public static final AlertCancelEvent ALERT_CANCEL_EVENT = new AlertCancelEvent();
+    private static final String ALERT_HISTORY_KEY = "history";
     private final Vibrator vibrator;
     private final NotificationHandler notificationHandler;
     private Context context;
-    private Collection<? extends Strike> lastStrikes;
     private int vibrationSignalDuration;
     private Uri alarmSoundNotificationSignal;
 
     private final AlertParameters alertParameters;
 
-    private Location location;
+    private final ExecutorService alertExecutor;
 
-    private boolean alertEnabled;
+    private final Executor resultExecutor;
 
-    private boolean alarmValid;
+    private final SharedPreferences preferences;
+
+    private final SharedPreferences historyPreferences;
+
+    private Location location;
+
+    private volatile boolean alertEnabled;
 
     protected Consumer<AlertEvent> alertEventConsumer;
 
+    private AlertEvent alertEvent = ALERT_CANCEL_EVENT;
+
+    private AlertStatus alertStatusSnapshot;
+
+    // state below is only accessed on the alert executor
+
+    private Location evaluationLocation;
+
+    private boolean strikesAvailable;
+
+    private boolean alarmValid;
+
     private final AlertStatus alertStatus;
 
     private final AlertStatusHandler alertStatusHandler;
 
-    private final LocationHandler locationHandler;
+    private final AlertObjectFactory alertObjectFactory;
 
-    private float notificationDistanceLimit;
+    private final WatchPointRegistry watchPointRegistry;
 
-    private long notificationLastTimestamp;
+    private final ConsumerContainer<AlertResultEvent> watchPointConsumerContainer = new ConsumerContainer<AlertResultEvent>() {
+        @Override
+        public void addedFirstConsumer() {
+            Log.d(Main.LOG_TAG, "added first watch point consumer");
+        }
 
-    private float signalingDistanceLimit;
+        @Override
+        public void removedLastConsumer() {
+            Log.d(Main.LOG_TAG, "removed last watch point consumer");
+        }
+    };
+
+    private final LocationHandler locationHandler;
+
+    private long notificationLastTimestamp;
 
     private long signalingLastTimestamp;
 
+    private volatile float notificationDistanceLimit;
+
+    private volatile float signalingDistanceLimit;
+
     public AlertHandler(LocationHandler locationHandler, SharedPreferences preferences, Context context, Vibrator vibrator, NotificationHandler notificationHandler, AlertObjectFactory alertObjectFactory, AlertParameters alertParameters) {
         this.locationHandler = locationHandler;
+        this.preferences = preferences;
         this.context = context;
         this.vibrator = vibrator;
         this.notificationHandler = notificationHandler;
         this.alertStatus = alertObjectFactory.createAlarmStatus(alertParameters);
+        this.alertStatusSnapshot = alertStatus.copy();
         this.alertStatusHandler = alertObjectFactory.createAlarmStatusHandler(alertParameters);
+        this.alertObjectFactory = alertObjectFactory;
+        this.watchPointRegistry = alertObjectFactory.createWatchPointRegistry(alertParameters);
         this.alertParameters = alertParameters;
+        this.alertExecutor = alertObjectFactory.createAlertExecutor();
+        this.resultExecutor = alertObjectFactory.createResultExecutor();
+        this.historyPreferences = alertObjectFactory.createHistoryPreferences(context);
+
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                alertStatusHandler.getAlertHistory().decode(historyPreferences.getString(ALERT_HISTORY_KEY, null));
+            }
+        });
 
         preferences.registerOnSharedPreferenceChangeListener(this);
         onSharedPreferenceChanged(preferences, PreferenceKey.ALERT_ENABLED);
@@ -82,8 +144,10 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
         onSharedPreferenceChanged(preferences, PreferenceKey.ALERT_SIGNALING_DISTANCE_LIMIT);
         onSharedPreferenceChanged(preferences, PreferenceKey.ALERT_VIBRATION_SIGNAL);
         onSharedPreferenceChanged(preferences, PreferenceKey.ALERT_SOUND_SIGNAL);
-
-        alarmValid = false;
+        onSharedPreferenceChanged(preferences, PreferenceKey.ALERT_SECTOR_COUNT);
+        onSharedPreferenceChanged(preferences, PreferenceKey.ALERT_RANGE_STEPS);
+        onSharedPreferenceChanged(preferences, PreferenceKey.ALERT_WATCH_POINTS);
+        onSharedPreferenceChanged(preferences, PreferenceKey.QUERY_PERIOD);
     }
 
     @Override
@@ -100,7 +164,13 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
             case MEASUREMENT_UNIT:
                 String measurementSystemName = sharedPreferences.getString(key.toString(), MeasurementSystem.METRIC.toString());
 
-                alertParameters.setMeasurementSystem(MeasurementSystem.valueOf(measurementSystemName));
+                final MeasurementSystem measurementSystem = MeasurementSystem.valueOf(measurementSystemName);
+                submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        alertParameters.setMeasurementSystem(measurementSystem);
+                    }
+                });
                 break;
 
             case ALERT_NOTIFICATION_DISTANCE_LIMIT:
@@ -119,6 +189,74 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
                 final String signalUri = sharedPreferences.getString(key.toString(), "");
                 alarmSoundNotificationSignal = !signalUri.isEmpty() ? Uri.parse(signalUri) : null;
                 break;
+
+            case ALERT_SECTOR_COUNT:
+                final int sectorCount = parseSectorCount(sharedPreferences.getString(key.toString(), String.valueOf(AlertParameters.DEFAULT_SECTOR_COUNT)));
+                submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        alertParameters.setSectorCount(sectorCount);
+                        updateGeometry();
+                    }
+                });
+                break;
+
+            case ALERT_RANGE_STEPS:
+                final float[] rangeSteps = parseRangeSteps(sharedPreferences.getString(key.toString(), ""));
+                submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        alertParameters.setRangeSteps(rangeSteps);
+                        updateGeometry();
+                    }
+                });
+                break;
+
+            case ALERT_WATCH_POINTS:
+                final List<WatchPoint> watchPoints = parseWatchPoints(sharedPreferences.getString(key.toString(), ""));
+                submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        watchPointRegistry.setWatchPoints(watchPoints);
+                        checkWatchPoints();
+                    }
+                });
+                break;
+
+            case QUERY_PERIOD:
+            case BACKGROUND_QUERY_PERIOD:
+                final int queryPeriod = Math.max(
+                        parsePeriod(sharedPreferences.getString(PreferenceKey.QUERY_PERIOD.toString(), "60")),
+                        parsePeriod(sharedPreferences.getString(PreferenceKey.BACKGROUND_QUERY_PERIOD.toString(), "0")));
+                submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        alertStatusHandler.getAlertHistory().setQueryPeriod(queryPeriod * 1000L);
+                    }
+                });
+                break;
+        }
+    }
+
+    /**
+     * the alert status is reconfigured by the next evaluation, a valid result is evaluated again right away
+     */
+    private void updateGeometry() {
+        watchPointRegistry.updateCells();
+        checkWatchPoints();
+        if (alarmValid) {
+            updateLocation();
+        }
+    }
+
+    /**
+     * evaluates the watch points with all strikes of the current window, the registry only receives the added strikes
+     * of incremental results, which misses the older strikes for new watch points and for larger ranges
+     */
+    private void checkWatchPoints() {
+        if (strikesAvailable && !watchPointRegistry.isEmpty()) {
+            watchPointRegistry.checkStrikes(alertStatusHandler.getStrikes());
+            processWatchPointResults();
         }
     }
 
@@ -128,6 +266,12 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
         } else {
             locationHandler.removeUpdates(locationEventConsumer);
             location = null;
+            submit(new Runnable() {
+                @Override
+                public void run() {
+                    evaluationLocation = null;
+                }
+            });
             broadcastClear();
         }
     }
@@ -137,7 +281,15 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
         public void consume(LocationEvent event) {
             Log.v(Main.LOG_TAG, "AlertHandler received location " + location);
             location = event.getLocation();
-            checkStrikes(lastStrikes);
+
+            final Location locationSnapshot = location != null ? new Location(location) : null;
+            submit(new Runnable() {
+                @Override
+                public void run() {
+                    evaluationLocation = locationSnapshot;
+                    updateLocation();
+                }
+            });
         }
     };
 
@@ -151,43 +303,121 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
             if (event instanceof ResultEvent) {
                 ResultEvent resultEvent = (ResultEvent) event;
                 if (!resultEvent.hasFailed() && resultEvent.containsRealtimeData()) {
-                    checkStrikes(resultEvent.getStrikes());
+                    final List<Strike> strikes = copyStrikes(resultEvent.getStrikes());
+                    final boolean incremental = resultEvent.containsIncrementalData();
+                    final long windowStart = incremental ? getWindowStart(resultEvent) : 0;
+                    submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (incremental && strikesAvailable) {
+                                updateStrikes(strikes, windowStart);
+                                watchPointRegistry.updateStrikes(strikes, windowStart);
+                            } else {
+                                evaluateStrikes(strikes);
+                                watchPointRegistry.checkStrikes(strikes);
+                            }
+                            processWatchPointResults();
+                        }
+                    });
                 } else {
-                    invalidateAlert();
+                    clearStrikes();
                 }
             } else if (event instanceof ClearDataEvent) {
-                invalidateAlert();
+                clearStrikes();
             }
         }
     };
 
+    private static long getWindowStart(ResultEvent resultEvent) {
+        final Parameters parameters = resultEvent.getParameters();
+        return resultEvent.getReferenceTime()
+                - (parameters.getIntervalDuration() - parameters.getIntervalOffset()) * 60 * 1000;
+    }
+
+    private static List<Strike> copyStrikes(Collection<? extends Strike> strikes) {
+        return strikes != null ? new ArrayList<Strike>(strikes) : null;
+    }
+
+    private void clearStrikes() {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                watchPointRegistry.clearResults();
+                strikesAvailable = false;
+                invalidate();
+            }
+        });
+    }
+
     public Consumer<DataEvent> getDataEventConsumer() {
         return dataEventConsumer;
     }
 
+    public void addWatchPointConsumer(Consumer<AlertResultEvent> watchPointConsumer) {
+        watchPointConsumerContainer.addConsumer(watchPointConsumer);
+    }
+
+    public void removeWatchPointConsumer(Consumer<AlertResultEvent> watchPointConsumer) {
+        watchPointConsumerContainer.removeConsumer(watchPointConsumer);
+    }
+
     public boolean isAlertEnabled() {
         return alertEnabled;
     }
 
     public void checkStrikes(Collection<? extends Strike> strikes) {
-        boolean currentAlarmIsValid = isAlertEnabled() && location != null && strikes != null;
-        lastStrikes = strikes;
+        final List<Strike> strikeSnapshot = copyStrikes(strikes);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                evaluateStrikes(strikeSnapshot);
+            }
+        });
+    }
+
+    private void evaluateStrikes(Collection<? extends Strike> strikes) {
+        boolean currentAlarmIsValid = isAlertEnabled() && evaluationLocation != null && strikes != null;
+        strikesAvailable = strikes != null;
 
         if (currentAlarmIsValid) {
             alarmValid = true;
-            alertStatusHandler.checkStrikes(alertStatus, strikes, location);
-            processResult(getAlarmResult());
+            alertStatusHandler.checkStrikes(alertStatus, strikes, evaluationLocation);
+            processResult();
         } else {
-            invalidateAlert();
+            if (strikes != null) {
+                alertStatusHandler.setStrikes(strikes);
+            }
+            invalidate();
+        }
+    }
+
+    private void updateStrikes(Collection<? extends Strike> addedStrikes, long windowStart) {
+        if (isAlertEnabled() && evaluationLocation != null) {
+            alarmValid = true;
+            alertStatusHandler.updateStrikes(alertStatus, addedStrikes, windowStart, evaluationLocation);
+            processResult();
+        } else {
+            alertStatusHandler.addStrikes(addedStrikes, windowStart);
+            invalidate();
+        }
+    }
+
+    private void updateLocation() {
+        if (isAlertEnabled() && evaluationLocation != null && strikesAvailable) {
+            alarmValid = true;
+            alertStatusHandler.updateLocation(alertStatus, evaluationLocation);
+            processResult();
+        } else {
+            invalidate();
         }
     }
 
     public AlertResult getAlarmResult() {
-        return alarmValid ? alertStatusHandler.getCurrentActivity(alertStatus) : null;
+        return alertEvent instanceof AlertResultEvent ? ((AlertResultEvent) alertEvent).getAlertResult() : null;
     }
 
     public String getTextMessage(float notificationDistanceLimit) {
-        return alertStatusHandler.getTextMessage(alertStatus, notificationDistanceLimit);
+        return alertStatusHandler.getTextMessage(alertStatusSnapshot, notificationDistanceLimit);
     }
 
     public void setAlertEventConsumer(Consumer<AlertEvent> alertEventConsumer) {
@@ -201,30 +431,49 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
     }
 
     public Collection<AlertSector> getAlarmSectors() {
-        return alertStatus.getSectors();
+        return alertStatusSnapshot.getSectors();
     }
 
+    /**
+     * returns the parameters of the latest published results, the live parameters are only accessed on the alert executor
+     */
     public AlertParameters getAlertParameters() {
-        return alertParameters;
+        return alertStatusSnapshot.getAlertParameters();
     }
 
     public AlertStatus getAlertStatus() {
-        return alarmValid ? alertStatus : null;
+        return alertEvent instanceof AlertResultEvent ? ((AlertResultEvent) alertEvent).getAlertStatus() : null;
     }
 
     public float getMaxDistance() {
-        final float[] ranges = alertParameters.getRangeSteps();
+        final float[] ranges = alertStatusSnapshot.getRangeSteps();
         return ranges[ranges.length - 1];
     }
 
     public void invalidateAlert() {
-        lastStrikes = null;
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                invalidate();
+            }
+        });
+    }
+
+    private void invalidate() {
         boolean previousAlarmValidState = alarmValid;
         alarmValid = false;
 
         if (previousAlarmValidState) {
             alertStatus.clearResults();
-            broadcastClear();
+            final AlertStatus statusSnapshot = alertStatus.copy();
+            resultExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    alertStatusSnapshot = statusSnapshot;
+                    alertEvent = ALERT_CANCEL_EVENT;
+                    broadcastClear();
+                }
+            });
         }
     }
 
@@ -234,23 +483,42 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
         }
     }
 
-    private void broadcastResult(AlertResult alertResult) {
+    private void broadcastResult(AlertStatus statusSnapshot, AlertResult alertResult) {
+        alertStatusSnapshot = statusSnapshot;
+        alertEvent = new AlertResultEvent(statusSnapshot, alertResult);
+
+        Log.v(Main.LOG_TAG, String.format("AlertHandler.broadcastResult() broadcast result %s", alertResult));
+
         if (alertEventConsumer != null) {
-            alertEventConsumer.consume(new AlertResultEvent(alertStatus, alertResult));
+            alertEventConsumer.consume(alertEvent);
         }
     }
 
-    private void processResult(AlertResult alertResult) {
+    /**
+     * decides on signaling and notification for the current results and posts these together with a copy of the
+     * results to the main thread
+     */
+    private void processResult() {
+        if (alertStatusHandler.getAlertHistory().hasNewEntries()) {
+            saveHistory();
+        }
+
+        final AlertStatus statusSnapshot = alertStatus.copy();
+        final AlertResult alertResult = alertStatusHandler.getCurrentActivity(statusSnapshot);
+
+        boolean signal = false;
+        String notificationText = null;
+        boolean clearNotification = true;
+
         if (alertResult != null) {
 
             alertParameters.updateSectorLabels(context);
 
             if (alertResult.getClosestStrikeDistance() <= signalingDistanceLimit) {
-                long signalingLatestTimestamp = alertStatusHandler.getLatestTimstampWithin(signalingDistanceLimit, alertStatus);
+                long signalingLatestTimestamp = alertStatusHandler.getLatestTimstampWithin(signalingDistanceLimit, statusSnapshot);
                 if (signalingLatestTimestamp > signalingLastTimestamp) {
                     Log.v(Main.LOG_TAG, "AlertHandler.processResult() perform alarm");
-                    vibrateIfEnabled();
-                    playSoundIfEnabled();
+                    signal = true;
                     signalingLastTimestamp = signalingLatestTimestamp;
                 } else {
                     Log.d(Main.LOG_TAG, String.format("old signaling event: %d vs %d", signalingLatestTimestamp, signalingLastTimestamp));
@@ -258,24 +526,210 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
             }
 
             if (alertResult.getClosestStrikeDistance() <= notificationDistanceLimit) {
-                long notificationLatestTimestamp = alertStatusHandler.getLatestTimstampWithin(notificationDistanceLimit, alertStatus);
+                clearNotification = false;
+                long notificationLatestTimestamp = alertStatusHandler.getLatestTimstampWithin(notificationDistanceLimit, statusSnapshot);
                 if (notificationLatestTimestamp > notificationLastTimestamp) {
                     Log.v(Main.LOG_TAG, "AlertHandler.processResult() perform notification");
-                    notificationHandler.sendNotification(context.getResources().getString(R.string.activity) + ": " + getTextMessage(notificationDistanceLimit));
+                    notificationText = context.getResources().getString(R.string.activity) + ": "
+                            + alertStatusHandler.getTextMessage(statusSnapshot, notificationDistanceLimit)
+                            + getTrendText(alertResult);
                     notificationLastTimestamp = notificationLatestTimestamp;
                 } else {
                     Log.d(Main.LOG_TAG, String.format("AlertHandler.processResult() previous signaling event: %d vs %d", notificationLatestTimestamp, signalingLastTimestamp));
                 }
+            }
+        }
+
+        final boolean performSignal = signal;
+        final String performNotificationText = notificationText;
+        final boolean performClearNotification = clearNotification;
+        resultExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                performSideEffects(null, performSignal, performNotificationText, performClearNotification);
+                broadcastResult(statusSnapshot, alertResult);
+            }
+        });
+    }
+
+    private void processWatchPointResults() {
+        if (!isAlertEnabled()) {
+            return;
+        }
+
+        for (final WatchPoint watchPoint : watchPointRegistry.getWatchPoints()) {
+            final AlertStatus watchPointStatus = watchPoint.getAlertStatus().copy();
+            final AlertStatusHandler watchPointStatusHandler = watchPoint.getAlertStatusHandler();
+            final AlertResult alertResult = watchPointStatusHandler.getCurrentActivity(watchPointStatus);
+
+            boolean signal = false;
+            String notificationText = null;
+            boolean clearNotification = true;
+
+            if (alertResult != null && alertResult.getClosestStrikeDistance() <= watchPoint.getSignalingDistanceLimit()) {
+                long signalingLatestTimestamp = watchPointStatusHandler.getLatestTimstampWithin(watchPoint.getSignalingDistanceLimit(), watchPointStatus);
+                if (signalingLatestTimestamp > watchPoint.getSignalingLastTimestamp()) {
+                    Log.v(Main.LOG_TAG, "AlertHandler.processWatchPointResults() perform alarm for " + watchPoint);
+                    signal = true;
+                    watchPoint.setSignalingLastTimestamp(signalingLatestTimestamp);
+                }
+            }
+
+            if (alertResult != null && alertResult.getClosestStrikeDistance() <= watchPoint.getNotificationDistanceLimit()) {
+                clearNotification = false;
+                long notificationLatestTimestamp = watchPointStatusHandler.getLatestTimstampWithin(watchPoint.getNotificationDistanceLimit(), watchPointStatus);
+                if (notificationLatestTimestamp > watchPoint.getNotificationLastTimestamp()) {
+                    Log.v(Main.LOG_TAG, "AlertHandler.processWatchPointResults() perform notification for " + watchPoint);
+                    notificationText = watchPoint.getName() + ": "
+                            + watchPointStatusHandler.getTextMessage(watchPointStatus, watchPoint.getNotificationDistanceLimit())
+                            + getTrendText(alertResult);
+                    watchPoint.setNotificationLastTimestamp(notificationLatestTimestamp);
+                }
+            }
+
+            final boolean performSignal = signal;
+            final String performNotificationText = notificationText;
+            final boolean performClearNotification = clearNotification;
+            resultExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    performSideEffects(watchPoint.getName(), performSignal, performNotificationText, performClearNotification);
+                    watchPointConsumerContainer.broadcast(new AlertResultEvent(watchPoint, watchPointStatus, alertResult));
+                }
+            });
+        }
+    }
+
+    /**
+     * describes the trend of the closest strikes for notifications, empty if the trend is not known yet
+     */
+    private String getTrendText(AlertResult alertResult) {
+        final Resources resources = context.getResources();
+        final AlertHistory.Trend trend = alertResult.getTrend();
+        if (trend == AlertHistory.Trend.APPROACHING) {
+            return ", " + resources.getString(R.string.alert_trend_approaching, alertResult.getApproachRate(), alertResult.getDistanceUnitName());
+        } else if (trend == AlertHistory.Trend.RECEDING) {
+            return ", " + resources.getString(R.string.alert_trend_receding, -alertResult.getApproachRate(), alertResult.getDistanceUnitName());
+        } else if (trend == AlertHistory.Trend.STEADY) {
+            return ", " + resources.getString(R.string.alert_trend_steady);
+        }
+        return "";
+    }
+
+    /**
+     * runs a task on the alert executor, tasks arriving after shutdown() are dropped
+     */
+    private void submit(Runnable task) {
+        if (alertExecutor.isShutdown()) {
+            Log.v(Main.LOG_TAG, "AlertHandler.submit() dropped task after shutdown");
+            return;
+        }
+        alertExecutor.execute(task);
+    }
+
+    private void saveHistory() {
+        historyPreferences.edit().putString(ALERT_HISTORY_KEY, alertStatusHandler.getAlertHistory().encode()).apply();
+    }
+
+    /**
+     * runs on the main thread, a notification tag of null refers to the notification of the device location
+     */
+    private void performSideEffects(String notificationTag, boolean signal, String notificationText, boolean clearNotification) {
+        if (signal) {
+            vibrateIfEnabled();
+            playSoundIfEnabled();
+        }
+
+        if (notificationText != null) {
+            if (notificationTag != null) {
+                notificationHandler.sendNotification(notificationTag, notificationText);
+            } else {
+                notificationHandler.sendNotification(notificationText);
+            }
+        } else if (clearNotification) {
+            if (notificationTag != null) {
+                notificationHandler.clearNotification(notificationTag);
             } else {
                 notificationHandler.clearNotification();
             }
-        } else {
-            notificationHandler.clearNotification();
+        }
+    }
+
+    private int parsePeriod(String periodString) {
+        try {
+            return Math.max(0, Integer.parseInt(periodString));
+        } catch (NumberFormatException e) {
+            Log.w(Main.LOG_TAG, "AlertHandler.parsePeriod() invalid period '" + periodString + "'");
+            return 0;
+        }
+    }
+
+    private int parseSectorCount(String sectorCountString) {
+        try {
+            final int sectorCount = Integer.parseInt(sectorCountString);
+            if (sectorCount > 0) {
+                return sectorCount;
+            }
+        } catch (NumberFormatException e) {
+            // use default below
+        }
+        Log.w(Main.LOG_TAG, "AlertHandler.parseSectorCount() invalid sector count '" + sectorCountString + "'");
+        return AlertParameters.DEFAULT_SECTOR_COUNT;
+    }
+
+    /**
+     * parses increasing range limits separated by ',', the default steps are used if the string is empty or invalid
+     */
+    private float[] parseRangeSteps(String rangeStepsString) {
+        if (rangeStepsString == null || rangeStepsString.trim().isEmpty()) {
+            return AlertParameters.getDefaultRangeSteps();
         }
 
-        Log.v(Main.LOG_TAG, String.format("AlertHandler.processResult() broadcast result %s", alertResult));
+        final String[] fields = rangeStepsString.split(",");
+        final float[] rangeSteps = new float[fields.length];
+        try {
+            for (int index = 0; index < fields.length; index++) {
+                rangeSteps[index] = Float.parseFloat(fields[index].trim());
+                if (rangeSteps[index] <= (index > 0 ? rangeSteps[index - 1] : 0f)) {
+                    throw new NumberFormatException("range steps are not increasing");
+                }
+            }
+        } catch (NumberFormatException e) {
+            Log.w(Main.LOG_TAG, "AlertHandler.parseRangeSteps() invalid range steps '" + rangeStepsString + "'");
+            return AlertParameters.getDefaultRangeSteps();
+        }
+        return rangeSteps;
+    }
+
+    /**
+     * parses entries of the form name,longitude,latitude[,notification limit,signaling limit] separated by ';'
+     */
+    private List<WatchPoint> parseWatchPoints(String watchPointsString) {
+        final List<WatchPoint> watchPoints = new ArrayList<WatchPoint>();
+        if (watchPointsString == null) {
+            return watchPoints;
+        }
 
-        broadcastResult(alertResult);
+        for (String entry : watchPointsString.split(";")) {
+            final String[] fields = entry.trim().split(",");
+            if (fields.length != 3 && fields.length != 5) {
+                if (!entry.trim().isEmpty()) {
+                    Log.w(Main.LOG_TAG, "AlertHandler.parseWatchPoints() invalid entry '" + entry + "'");
+                }
+                continue;
+            }
+            try {
+                final double longitude = Double.parseDouble(fields[1].trim());
+                final double latitude = Double.parseDouble(fields[2].trim());
+                final float watchPointNotificationLimit = fields.length == 5 ? Float.parseFloat(fields[3].trim()) : notificationDistanceLimit;
+                final float watchPointSignalingLimit = fields.length == 5 ? Float.parseFloat(fields[4].trim()) : signalingDistanceLimit;
+                watchPoints.add(alertObjectFactory.createWatchPoint(alertParameters, fields[0].trim(), longitude, latitude,
+                        watchPointNotificationLimit, watchPointSignalingLimit));
+            } catch (NumberFormatException e) {
+                Log.w(Main.LOG_TAG, "AlertHandler.parseWatchPoints() invalid entry '" + entry + "'");
+            }
+        }
+        return watchPoints;
     }
 
     private void vibrateIfEnabled() {
@@ -300,7 +754,24 @@ public class AlertHandler implements OnSharedPreferenceChangeListener {
     }
 
     public AlertEvent getAlertEvent() {
-        return alarmValid ? new AlertResultEvent(alertStatus, getAlarmResult()) : ALERT_CANCEL_EVENT;
+        return alertEvent;
+    }
+
+    /**
+     * detaches the handler from preferences and location updates, saves the history and stops the alert executor
+     */
+    public void shutdown() {
+        preferences.unregisterOnSharedPreferenceChangeListener(this);
+        locationHandler.removeUpdates(locationEventConsumer);
+        alertEventConsumer = null;
+
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                saveHistory();
+            }
+        });
+        alertExecutor.shutdown();
     }
 
     public void reconfigureLocationHandler() {
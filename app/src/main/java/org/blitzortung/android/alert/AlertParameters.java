@@ -4,25 +4,79 @@ import android.content.Context;
 import org.blitzortung.android.app.R;
 import org.blitzortung.android.util.MeasurementSystem;
 
+import java.util.Arrays;
+
 public class AlertParameters {
-    private static String[] SECTOR_LABELS;
 
-    private static final float[] RANGE_STEPS = {10, 25, 50, 100, 250, 500};
+    public static final int DEFAULT_SECTOR_COUNT = 8;
+
+    private static final float[] DEFAULT_RANGE_STEPS = {10, 25, 50, 100, 250, 500};
 
     private static final long alarmInterval = 10 * 60 * 1000;
 
     private MeasurementSystem measurementSystem;
-    
+
+    private String[] directionNames;
+
+    private int sectorCount = DEFAULT_SECTOR_COUNT;
+
+    private String[] sectorLabels = createSectorLabels(null, DEFAULT_SECTOR_COUNT);
+
+    private float[] rangeSteps = DEFAULT_RANGE_STEPS.clone();
+
+    public AlertParameters() {
+    }
+
+    private AlertParameters(AlertParameters alertParameters) {
+        measurementSystem = alertParameters.measurementSystem;
+        directionNames = alertParameters.directionNames;
+        sectorCount = alertParameters.sectorCount;
+        sectorLabels = alertParameters.sectorLabels;
+        rangeSteps = alertParameters.rangeSteps;
+    }
+
+    /**
+     * returns a snapshot for readers on other threads, the arrays are shared as they are replaced instead of modified
+     */
+    public AlertParameters copy() {
+        return new AlertParameters(this);
+    }
+
     public void updateSectorLabels(Context context) {
-        SECTOR_LABELS = context.getResources().getStringArray(R.array.direction_names);
+        final String[] directionNames = context.getResources().getStringArray(R.array.direction_names);
+        if (!Arrays.equals(directionNames, this.directionNames)) {
+            this.directionNames = directionNames;
+            sectorLabels = createSectorLabels(directionNames, sectorCount);
+        }
     }
 
     public String[] getSectorLabels() {
-        return SECTOR_LABELS;
+        return sectorLabels;
+    }
+
+    public void setSectorCount(int sectorCount) {
+        if (sectorCount != this.sectorCount) {
+            this.sectorCount = sectorCount;
+            sectorLabels = createSectorLabels(directionNames, sectorCount);
+        }
     }
 
     public float[] getRangeSteps() {
-        return RANGE_STEPS;
+        return rangeSteps;
+    }
+
+    /**
+     * sets the upper limits of the ranges in the current measurement unit, the array is replaced only if the steps
+     * differ, so that users can detect changes by reference
+     */
+    public void setRangeSteps(float[] rangeSteps) {
+        if (!Arrays.equals(rangeSteps, this.rangeSteps)) {
+            this.rangeSteps = rangeSteps.clone();
+        }
+    }
+
+    public static float[] getDefaultRangeSteps() {
+        return DEFAULT_RANGE_STEPS.clone();
     }
 
     public long getAlarmInterval() {
@@ -36,4 +90,21 @@ public class AlertParameters {
     public void setMeasurementSystem(MeasurementSystem measurementSystem) {
         this.measurementSystem = measurementSystem;
     }
+
+    /**
+     * uses the direction names if every sector center has one and the compass bearing of the sector center otherwise,
+     * the first sector is centered at south
+     */
+    private static String[] createSectorLabels(String[] directionNames, int sectorCount) {
+        final String[] labels = new String[sectorCount];
+        final boolean useDirectionNames = directionNames != null && directionNames.length % sectorCount == 0;
+        for (int sectorIndex = 0; sectorIndex < sectorCount; sectorIndex++) {
+            if (useDirectionNames) {
+                labels[sectorIndex] = directionNames[sectorIndex * directionNames.length / sectorCount];
+            } else {
+                labels[sectorIndex] = Math.round(180f + sectorIndex * 360f / sectorCount) % 360 + "°";
+            }
+        }
+        return labels;
+    }
 }
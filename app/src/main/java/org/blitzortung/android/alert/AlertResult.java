@@ -1,6 +1,8 @@
 package org.blitzortung.android.alert;
 
+import org.blitzortung.android.alert.handler.AlertHistory;
 import org.blitzortung.android.alert.object.AlertSector;
+import org.blitzortung.android.alert.object.StormCell;
 
 public class AlertResult {
 	
@@ -8,9 +10,47 @@ public class AlertResult {
     
     private final String distanceUnitName;
 
+    private final StormCell approachingStormCell;
+
+    private final AlertHistory.Trend trend;
+
+    private final float approachRate;
+
     public AlertResult(AlertSector sector, String distanceUnitName) {
+        this(sector, distanceUnitName, null);
+    }
+
+    public AlertResult(AlertSector sector, String distanceUnitName, StormCell approachingStormCell) {
+        this(sector, distanceUnitName, approachingStormCell, AlertHistory.Trend.UNKNOWN, Float.NaN);
+    }
+
+    public AlertResult(AlertSector sector, String distanceUnitName, StormCell approachingStormCell, AlertHistory.Trend trend, float approachRate) {
 		this.sector = sector;
         this.distanceUnitName = distanceUnitName;
+        this.approachingStormCell = approachingStormCell;
+        this.trend = trend;
+        this.approachRate = approachRate;
+    }
+
+    /**
+     * returns the trend of the closest strike distance in the sector of the result
+     */
+    public AlertHistory.Trend getTrend() {
+        return trend;
+    }
+
+    /**
+     * returns the approach rate in distance units per hour, negative if receding or NaN if unknown
+     */
+    public float getApproachRate() {
+        return approachRate;
+    }
+
+    /**
+     * returns the storm cell with the earliest estimated closest approach or null if no cell is approaching
+     */
+    public StormCell getApproachingStormCell() {
+        return approachingStormCell;
     }
 
 	public float getClosestStrikeDistance() {
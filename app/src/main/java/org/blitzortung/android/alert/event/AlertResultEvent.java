@@ -2,17 +2,31 @@ package org.blitzortung.android.alert.event;
 
 import org.blitzortung.android.alert.AlertResult;
 import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.alert.object.WatchPoint;
 
 public class AlertResultEvent implements AlertEvent {
 
+    private final WatchPoint watchPoint;
     private final AlertStatus alertStatus;
     private final AlertResult alertResult;
 
     public AlertResultEvent(AlertStatus alertStatus, AlertResult alertResult) {
+        this(null, alertStatus, alertResult);
+    }
+
+    public AlertResultEvent(WatchPoint watchPoint, AlertStatus alertStatus, AlertResult alertResult) {
+        this.watchPoint = watchPoint;
         this.alertStatus = alertStatus;
         this.alertResult = alertResult;
     }
 
+    /**
+     * returns the watch point of the result or null if it refers to the device location
+     */
+    public WatchPoint getWatchPoint() {
+        return watchPoint;
+    }
+
     public AlertStatus getAlertStatus() {
         return alertStatus;
     }
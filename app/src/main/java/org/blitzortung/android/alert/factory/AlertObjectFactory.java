@@ -1,13 +1,26 @@
 package org.blitzortung.android.alert.factory;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
 import org.blitzortung.android.alert.AlertParameters;
 import org.blitzortung.android.alert.handler.AlertSectorHandler;
 import org.blitzortung.android.alert.handler.AlertStatusHandler;
+import org.blitzortung.android.alert.handler.WatchPointRegistry;
 import org.blitzortung.android.alert.object.AlertSector;
 import org.blitzortung.android.alert.object.AlertSectorRange;
 import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.alert.object.WatchPoint;
+import org.blitzortung.android.util.GeoCalculator;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AlertObjectFactory {
+
+    private static final String HISTORY_PREFERENCES_NAME = "alert_history";
     
     public AlertObjectFactory() {
     }
@@ -16,8 +29,8 @@ public class AlertObjectFactory {
         return new AlertStatus(this, alertParameters);
     }
 
-    public AlertSector createAlarmSector(AlertParameters alertParameters, String sectorLabel, float minimumSectorBearing, float maximumSectorBearing) {
-        return new AlertSector(this, alertParameters, sectorLabel, minimumSectorBearing, maximumSectorBearing);
+    public AlertSector createAlarmSector(float[] rangeSteps, String sectorLabel, float minimumSectorBearing, float maximumSectorBearing) {
+        return new AlertSector(this, rangeSteps, sectorLabel, minimumSectorBearing, maximumSectorBearing);
     }
 
     public AlertSectorRange createAlarmSectorRange(float rangeMinimum, float rangeMaximum) {
@@ -25,10 +38,46 @@ public class AlertObjectFactory {
     }
 
     public AlertStatusHandler createAlarmStatusHandler(AlertParameters alertParameters) {
-        return new AlertStatusHandler(createAlarmSectorHandler(alertParameters), alertParameters);
+        return new AlertStatusHandler(createAlarmSectorHandler(alertParameters), new GeoCalculator(), alertParameters);
     }
 
     public AlertSectorHandler createAlarmSectorHandler(AlertParameters alertParameters) {
         return new AlertSectorHandler(alertParameters);
     }
+
+    public WatchPoint createWatchPoint(AlertParameters alertParameters, String name, double longitude, double latitude,
+                                       float notificationDistanceLimit, float signalingDistanceLimit) {
+        return new WatchPoint(this, alertParameters, name, longitude, latitude, notificationDistanceLimit, signalingDistanceLimit);
+    }
+
+    public WatchPointRegistry createWatchPointRegistry(AlertParameters alertParameters) {
+        return new WatchPointRegistry(alertParameters);
+    }
+
+    /**
+     * creates the single thread on which all alert evaluations are performed in order
+     */
+    public ExecutorService createAlertExecutor() {
+        return Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * creates the private preferences in which the alert history is kept across restarts of the service
+     */
+    public SharedPreferences createHistoryPreferences(Context context) {
+        return context.getSharedPreferences(HISTORY_PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * creates the executor which runs the side effects of alert results on the main thread
+     */
+    public Executor createResultExecutor() {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                handler.post(runnable);
+            }
+        };
+    }
 }
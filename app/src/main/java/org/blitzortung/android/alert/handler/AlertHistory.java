@@ -0,0 +1,327 @@
+package org.blitzortung.android.alert.handler;
+
+import android.util.Base64;
+import org.blitzortung.android.alert.object.AlertSector;
+import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.util.MeasurementSystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ring buffer of the per check summaries of an alert status, the approach rate of each sector is the slope of a linear
+ * regression of its closest strike distances, the regression sums are updated when entries are added or evicted
+ */
+public class AlertHistory {
+
+    public enum Trend {
+        UNKNOWN, APPROACHING, STEADY, RECEDING
+    }
+
+    public static final int CAPACITY = 20;
+
+    // minimum time between two entries, later checks replace the newest entry
+    public static final long MINIMUM_INTERVAL = 60 * 1000;
+
+    // the history is restarted if there was no check for this time, longer query periods extend it
+    public static final long MAXIMUM_GAP = 5 * 60 * 1000;
+
+    // number of query periods without a check after which the history is restarted
+    private static final int MAXIMUM_MISSED_PERIODS = 3;
+
+    private static final int MINIMUM_SAMPLES = 3;
+
+    private static final long MINIMUM_SPAN = 3 * 60 * 1000;
+
+    // rates in distance units per hour below this are considered steady
+    private static final float STEADY_RATE = 2f;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final double MILLISECONDS_PER_HOUR = 60 * 60 * 1000;
+
+    private final long[] timestamps = new long[CAPACITY];
+    private float[] closestDistances = new float[0];
+    private int[] strikeCounts = new int[0];
+
+    private int sectorCount;
+    private int rangeCount;
+    private MeasurementSystem measurementSystem;
+
+    private long maximumGap = MAXIMUM_GAP;
+
+    private int start;
+    private int size;
+    private boolean newEntries;
+
+    private long baseTimestamp;
+    private int[] sampleCounts = new int[0];
+    private double[] timeSums = new double[0];
+    private double[] distanceSums = new double[0];
+    private double[] squaredTimeSums = new double[0];
+    private double[] productSums = new double[0];
+
+    /**
+     * adds the closest distance of each sector and the strike counts of each range summed over all sectors
+     */
+    public void record(AlertStatus alertStatus, MeasurementSystem measurementSystem, long timestamp) {
+        final List<AlertSector> sectors = alertStatus.getSectors();
+        final int rangeCount = sectors.isEmpty() ? 0 : sectors.get(0).getRanges().size();
+
+        if (sectors.size() != sectorCount || rangeCount != this.rangeCount || measurementSystem != this.measurementSystem) {
+            configure(sectors.size(), rangeCount, measurementSystem);
+        } else if (size > 0 && (timestamp < getTimestamp(size - 1) || timestamp - getTimestamp(size - 1) > maximumGap)) {
+            clear();
+        }
+
+        if (size > 1 && getTimestamp(size - 1) - getTimestamp(size - 2) < MINIMUM_INTERVAL) {
+            removeEntry(size - 1);
+            size--;
+        } else if (size == CAPACITY) {
+            removeEntry(0);
+            start = (start + 1) % CAPACITY;
+            size--;
+            newEntries = true;
+        } else {
+            newEntries = true;
+        }
+
+        final int slot = (start + size) % CAPACITY;
+        timestamps[slot] = timestamp;
+        Arrays.fill(strikeCounts, slot * rangeCount, (slot + 1) * rangeCount, 0);
+        for (int sectorIndex = 0; sectorIndex < sectorCount; sectorIndex++) {
+            final AlertSector sector = sectors.get(sectorIndex);
+            closestDistances[slot * sectorCount + sectorIndex] = sector.getClosestStrikeDistance();
+            for (int rangeIndex = 0; rangeIndex < rangeCount; rangeIndex++) {
+                strikeCounts[slot * rangeCount + rangeIndex] += sector.getRanges().get(rangeIndex).getStrikeCount();
+            }
+        }
+        size++;
+        addEntry(size - 1);
+    }
+
+    /**
+     * sets the longest period between two regular checks, so that delayed checks in background mode keep the history
+     */
+    public void setQueryPeriod(long queryPeriod) {
+        maximumGap = Math.max(MAXIMUM_GAP, MAXIMUM_MISSED_PERIODS * queryPeriod);
+    }
+
+    public long getMaximumGap() {
+        return maximumGap;
+    }
+
+    public void clear() {
+        start = 0;
+        size = 0;
+        newEntries = true;
+        for (int sectorIndex = 0; sectorIndex < sectorCount; sectorIndex++) {
+            resetSums(sectorIndex);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getSectorCount() {
+        return sectorCount;
+    }
+
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    /**
+     * returns the timestamp of an entry, the oldest entry has index 0
+     */
+    public long getTimestamp(int index) {
+        return timestamps[(start + index) % CAPACITY];
+    }
+
+    public float getClosestStrikeDistance(int index, int sectorIndex) {
+        return closestDistances[((start + index) % CAPACITY) * sectorCount + sectorIndex];
+    }
+
+    public int getStrikeCount(int index, int rangeIndex) {
+        return strikeCounts[((start + index) % CAPACITY) * rangeCount + rangeIndex];
+    }
+
+    /**
+     * returns the rate in distance units per hour at which the closest strikes of a sector approach, negative values
+     * are receding, NaN if there are not enough samples
+     */
+    public float getApproachRate(int sectorIndex) {
+        if (sectorIndex < 0 || sectorIndex >= sectorCount || sampleCounts[sectorIndex] < MINIMUM_SAMPLES
+                || getTimestamp(size - 1) - getTimestamp(0) < MINIMUM_SPAN) {
+            return Float.NaN;
+        }
+
+        final int count = sampleCounts[sectorIndex];
+        final double denominator = count * squaredTimeSums[sectorIndex] - timeSums[sectorIndex] * timeSums[sectorIndex];
+        if (denominator <= 0) {
+            return Float.NaN;
+        }
+        final double slope = (count * productSums[sectorIndex] - timeSums[sectorIndex] * distanceSums[sectorIndex]) / denominator;
+        return (float) -slope;
+    }
+
+    public Trend getTrend(int sectorIndex) {
+        final float approachRate = getApproachRate(sectorIndex);
+        if (Float.isNaN(approachRate)) {
+            return Trend.UNKNOWN;
+        } else if (approachRate > STEADY_RATE) {
+            return Trend.APPROACHING;
+        } else if (approachRate < -STEADY_RATE) {
+            return Trend.RECEDING;
+        }
+        return Trend.STEADY;
+    }
+
+    /**
+     * returns true if entries were added or removed since the last call of encode()
+     */
+    public boolean hasNewEntries() {
+        return newEntries;
+    }
+
+    /**
+     * returns the entries in a compact binary form as base64 string
+     */
+    public String encode() {
+        final ByteArrayOutputStream byteStream = new ByteArrayOutputStream(16 + size * (8 + 4 * sectorCount + 4 * rangeCount));
+        final DataOutputStream output = new DataOutputStream(byteStream);
+        try {
+            output.writeByte(FORMAT_VERSION);
+            output.writeByte(measurementSystem != null ? measurementSystem.ordinal() : -1);
+            output.writeShort(sectorCount);
+            output.writeShort(rangeCount);
+            output.writeByte(size);
+            for (int index = 0; index < size; index++) {
+                output.writeLong(getTimestamp(index));
+                for (int sectorIndex = 0; sectorIndex < sectorCount; sectorIndex++) {
+                    output.writeFloat(getClosestStrikeDistance(index, sectorIndex));
+                }
+                for (int rangeIndex = 0; rangeIndex < rangeCount; rangeIndex++) {
+                    output.writeInt(getStrikeCount(index, rangeIndex));
+                }
+            }
+            output.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        newEntries = false;
+        return Base64.encodeToString(byteStream.toByteArray(), Base64.NO_WRAP);
+    }
+
+    /**
+     * replaces the entries with the encoded ones, returns false and leaves the history empty if the data is invalid
+     */
+    public boolean decode(String encoded) {
+        clear();
+        newEntries = false;
+        if (encoded == null || encoded.isEmpty()) {
+            return false;
+        }
+
+        try {
+            final DataInputStream input = new DataInputStream(new ByteArrayInputStream(Base64.decode(encoded, Base64.NO_WRAP)));
+            if (input.readByte() != FORMAT_VERSION) {
+                return false;
+            }
+            final int measurementSystemIndex = input.readByte();
+            final int sectorCount = input.readShort();
+            final int rangeCount = input.readShort();
+            final int size = input.readByte();
+            if (measurementSystemIndex < 0 || measurementSystemIndex >= MeasurementSystem.values().length
+                    || sectorCount < 0 || rangeCount < 0 || size < 0 || size > CAPACITY) {
+                return false;
+            }
+
+            configure(sectorCount, rangeCount, MeasurementSystem.values()[measurementSystemIndex]);
+            for (int index = 0; index < size; index++) {
+                timestamps[index] = input.readLong();
+                for (int sectorIndex = 0; sectorIndex < sectorCount; sectorIndex++) {
+                    closestDistances[index * sectorCount + sectorIndex] = input.readFloat();
+                }
+                for (int rangeIndex = 0; rangeIndex < rangeCount; rangeIndex++) {
+                    strikeCounts[index * rangeCount + rangeIndex] = input.readInt();
+                }
+            }
+            for (int index = 0; index < size; index++) {
+                this.size++;
+                addEntry(index);
+            }
+            newEntries = false;
+            return true;
+        } catch (IOException e) {
+            clear();
+        } catch (IllegalArgumentException e) {
+            clear();
+        }
+        newEntries = false;
+        return false;
+    }
+
+    private void configure(int sectorCount, int rangeCount, MeasurementSystem measurementSystem) {
+        this.sectorCount = sectorCount;
+        this.rangeCount = rangeCount;
+        this.measurementSystem = measurementSystem;
+        closestDistances = new float[CAPACITY * sectorCount];
+        strikeCounts = new int[CAPACITY * rangeCount];
+        sampleCounts = new int[sectorCount];
+        timeSums = new double[sectorCount];
+        distanceSums = new double[sectorCount];
+        squaredTimeSums = new double[sectorCount];
+        productSums = new double[sectorCount];
+        clear();
+    }
+
+    private void addEntry(int index) {
+        if (size == 1) {
+            baseTimestamp = getTimestamp(index);
+        }
+        final double time = (getTimestamp(index) - baseTimestamp) / MILLISECONDS_PER_HOUR;
+        for (int sectorIndex = 0; sectorIndex < sectorCount; sectorIndex++) {
+            final float distance = getClosestStrikeDistance(index, sectorIndex);
+            if (!Float.isInfinite(distance)) {
+                sampleCounts[sectorIndex]++;
+                timeSums[sectorIndex] += time;
+                distanceSums[sectorIndex] += distance;
+                squaredTimeSums[sectorIndex] += time * time;
+                productSums[sectorIndex] += time * distance;
+            }
+        }
+    }
+
+    private void removeEntry(int index) {
+        final double time = (getTimestamp(index) - baseTimestamp) / MILLISECONDS_PER_HOUR;
+        for (int sectorIndex = 0; sectorIndex < sectorCount; sectorIndex++) {
+            final float distance = getClosestStrikeDistance(index, sectorIndex);
+            if (!Float.isInfinite(distance)) {
+                if (--sampleCounts[sectorIndex] == 0) {
+                    // avoids accumulating rounding errors over long sessions
+                    resetSums(sectorIndex);
+                } else {
+                    timeSums[sectorIndex] -= time;
+                    distanceSums[sectorIndex] -= distance;
+                    squaredTimeSums[sectorIndex] -= time * time;
+                    productSums[sectorIndex] -= time * distance;
+                }
+            }
+        }
+    }
+
+    private void resetSums(int sectorIndex) {
+        sampleCounts[sectorIndex] = 0;
+        timeSums[sectorIndex] = 0;
+        distanceSums[sectorIndex] = 0;
+        squaredTimeSums[sectorIndex] = 0;
+        productSums[sectorIndex] = 0;
+    }
+}
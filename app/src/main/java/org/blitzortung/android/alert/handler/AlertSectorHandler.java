@@ -1,54 +1,35 @@
 package org.blitzortung.android.alert.handler;
 
-import android.location.Location;
 import org.blitzortung.android.alert.AlertParameters;
 import org.blitzortung.android.alert.object.AlertSector;
 import org.blitzortung.android.alert.object.AlertSectorRange;
-import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.alert.object.AlertStatus;
 
 public class AlertSectorHandler {
 
     private final AlertParameters alertParameters;
     
-    private final Location strikeLocation;
-    
-    private Location location;
-    
     private long thresholdTime;
 
     public AlertSectorHandler(AlertParameters alertParameters) {
         this.alertParameters = alertParameters;
-        strikeLocation = new Location("");
     }
 
-    protected void setCheckStrikeParameters(Location location, long thresholdTime) {
-        this.location = location;
+    protected void setCheckStrikeParameters(long thresholdTime) {
         this.thresholdTime = thresholdTime;
     }
 
-    protected void checkStrike(AlertSector sector, Strike strike) {
-        if (sector != null) {
-            float distance = calculateDistanceTo(strike);
-
-            for (AlertSectorRange range : sector.getRanges()) {
-                if (distance <= range.getRangeMaximum()) {
-                    range.addStrike(strike);
+    /**
+     * adds the strike to the given range of the sector, the range has been selected by the caller
+     */
+    protected void addStrike(AlertStatus alertStatus, int sectorIndex, int rangeIndex, long timestamp, int multiplicity, float distanceInMeters) {
+        alertStatus.addStrike(sectorIndex, rangeIndex, multiplicity, timestamp);
 
-                    if (strike.getTimestamp() >= thresholdTime) {
-                        sector.updateClosestStrikeDistance(distance);
-                    }
-                    
-                    break;
-                }
-            }
+        if (timestamp >= thresholdTime) {
+            alertStatus.updateClosestStrikeDistance(sectorIndex, alertParameters.getMeasurementSystem().calculateDistance(distanceInMeters));
         }
     }
 
-    private float calculateDistanceTo(Strike strike) {
-        float distanceInMeters = location.distanceTo(strike.getLocation(strikeLocation));
-        return alertParameters.getMeasurementSystem().calculateDistance(distanceInMeters);
-    }
-
     public long getLatestTimestampWithin(float distanceLimit, AlertSector sector) {
         long latestTimestamp = 0;
         
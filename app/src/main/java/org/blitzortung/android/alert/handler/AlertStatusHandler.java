@@ -1,48 +1,335 @@
 package org.blitzortung.android.alert.handler;
 
 import android.location.Location;
-import android.util.Log;
 import org.blitzortung.android.alert.AlertParameters;
 import org.blitzortung.android.alert.AlertResult;
 import org.blitzortung.android.alert.object.AlertSector;
 import org.blitzortung.android.alert.object.AlertStatus;
-import org.blitzortung.android.app.Main;
+import org.blitzortung.android.alert.object.StormCell;
 import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.util.GeoCalculator;
+import org.blitzortung.android.util.MeasurementSystem;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Locale;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 public class AlertStatusHandler {
 
+    // distance in meters the observer may move before all strikes are classified again
+    public static final float REBUILD_DISTANCE = 500f;
+
     private final AlertSectorHandler alertSectorHandler;
+    private final GeoCalculator geoCalculator;
     private final AlertParameters alertParameters;
 
-    public AlertStatusHandler(AlertSectorHandler alertSectorHandler, AlertParameters alertParameters) {
+    private static final Comparator<Strike> TIME_ORDER = new Comparator<Strike>() {
+        @Override
+        public int compare(Strike strike1, Strike strike2) {
+            return strike1.getTimestamp() < strike2.getTimestamp() ? -1 : (strike1.getTimestamp() == strike2.getTimestamp() ? 0 : 1);
+        }
+    };
+
+    private final AlertStrikeQueue strikeQueue = new AlertStrikeQueue();
+
+    private boolean classified;
+    private double observerLongitude;
+    private double observerLatitude;
+    private MeasurementSystem measurementSystem;
+    private double[] rangeThresholds = new double[0];
+    private long thresholdTime;
+    private boolean[] dirtySectors = new boolean[0];
+
+    private final StormCellTracker stormCellTracker = new StormCellTracker();
+    private long trackingStart;
+
+    private final AlertHistory alertHistory = new AlertHistory();
+
+    public AlertStatusHandler(AlertSectorHandler alertSectorHandler, GeoCalculator geoCalculator, AlertParameters alertParameters) {
         this.alertSectorHandler = alertSectorHandler;
+        this.geoCalculator = geoCalculator;
         this.alertParameters = alertParameters;
     }
 
+    /**
+     * replaces all strikes and classifies them for the given location
+     */
     public AlertStatus checkStrikes(AlertStatus alertStatus, Collection<? extends Strike> strikes, Location location) {
+        setStrikes(strikes);
+        rebuild(alertStatus, location);
+        return alertStatus;
+    }
 
-        alertStatus.clearResults();
+    /**
+     * replaces all strikes without classifying them, e.g. while there is no location
+     */
+    public void setStrikes(Collection<? extends Strike> strikes) {
+        strikeQueue.clear();
+        addStrikes(strikes, Long.MIN_VALUE);
+    }
+
+    /**
+     * removes the strikes older than the window start and adds the given strikes without classifying them
+     */
+    public void addStrikes(Collection<? extends Strike> addedStrikes, long windowStart) {
+        while (!strikeQueue.isEmpty() && strikeQueue.getTimestamp(strikeQueue.getStart()) < windowStart) {
+            strikeQueue.removeFirst();
+        }
+        for (Strike strike : inTimeOrder(addedStrikes)) {
+            if (strike.getTimestamp() >= windowStart) {
+                strikeQueue.add(strike.getTimestamp(), strike.getLongitude(), strike.getLatitude(), strike.getMultiplicity());
+            }
+        }
+        classified = false;
+    }
 
-        long thresholdTime = System.currentTimeMillis() - alertParameters.getAlarmInterval();
+    /**
+     * retracts the strikes older than the window start, retires strikes from the closest distances when they leave the
+     * alarm interval and adds the given strikes, so that the cost depends on the number of changed strikes only,
+     * all strikes are classified again if the observer has moved beyond the rebuild distance
+     */
+    public AlertStatus updateStrikes(AlertStatus alertStatus, Collection<? extends Strike> addedStrikes, long windowStart, Location location) {
+        if (requiresRebuild(alertStatus, location)) {
+            addStrikes(addedStrikes, windowStart);
+            rebuild(alertStatus, location);
+            return alertStatus;
+        }
 
-        alertSectorHandler.setCheckStrikeParameters(location, thresholdTime);
+        if (dirtySectors.length != alertStatus.getSectorCount()) {
+            dirtySectors = new boolean[alertStatus.getSectorCount()];
+        }
 
-        Location strikeLocation = new Location("");
+        final long now = System.currentTimeMillis();
+        final long previousThresholdTime = thresholdTime;
+        thresholdTime = now - alertParameters.getAlarmInterval();
 
-        for (Strike strike : strikes) {
-            float bearingToStrike = location.bearingTo(strike.getLocation(strikeLocation));
+        while (!strikeQueue.isEmpty() && strikeQueue.getTimestamp(strikeQueue.getStart()) < windowStart) {
+            final int index = strikeQueue.getStart();
+            if (strikeQueue.getRangeIndex(index) >= 0) {
+                alertStatus.removeStrike(strikeQueue.getSectorIndex(index), strikeQueue.getRangeIndex(index), strikeQueue.getMultiplicity(index));
+                if (strikeQueue.getTimestamp(index) >= previousThresholdTime) {
+                    retireClosestStrike(alertStatus, index);
+                }
+                if (strikeQueue.getTimestamp(index) >= trackingStart) {
+                    untrack(index);
+                }
+            }
+            strikeQueue.removeFirst();
+        }
+
+        final long previousTrackingStart = trackingStart;
+        trackingStart = now - StormCellTracker.WINDOW;
+        final int trackingStartIndex = strikeQueue.indexOf(trackingStart);
+        for (int index = strikeQueue.indexOf(previousTrackingStart); index < trackingStartIndex; index++) {
+            if (strikeQueue.getRangeIndex(index) >= 0) {
+                untrack(index);
+            }
+        }
+
+        final int thresholdIndex = strikeQueue.indexOf(thresholdTime);
+        for (int index = strikeQueue.indexOf(previousThresholdTime); index < thresholdIndex; index++) {
+            if (strikeQueue.getRangeIndex(index) >= 0) {
+                retireClosestStrike(alertStatus, index);
+            }
+        }
+        updateClosestStrikeDistances(alertStatus, thresholdIndex);
 
-            AlertSector alertSector = getSectorForBearing(alertStatus, bearingToStrike);
-            alertSectorHandler.checkStrike(alertSector, strike);
+        alertSectorHandler.setCheckStrikeParameters(thresholdTime);
+        geoCalculator.setObserver(observerLongitude, observerLatitude);
+        for (Strike strike : inTimeOrder(addedStrikes)) {
+            if (strike.getTimestamp() >= windowStart) {
+                classify(alertStatus, strikeQueue.add(strike.getTimestamp(), strike.getLongitude(), strike.getLatitude(), strike.getMultiplicity()));
+            }
         }
+        stormCellTracker.update(observerLongitude, observerLatitude, now);
+        alertHistory.record(alertStatus, measurementSystem, now);
         return alertStatus;
     }
 
+    /**
+     * updates the observer location and the alarm interval of the current strikes
+     */
+    public AlertStatus updateLocation(AlertStatus alertStatus, Location location) {
+        return updateStrikes(alertStatus, Collections.<Strike>emptyList(), Long.MIN_VALUE, location);
+    }
+
+    /**
+     * returns the strikes of the current window in time order, e.g. to evaluate watch points which have been added
+     */
+    public List<Strike> getStrikes() {
+        final ArrayList<Strike> strikes = new ArrayList<Strike>(strikeQueue.size());
+        for (int index = strikeQueue.getStart(); index < strikeQueue.getEnd(); index++) {
+            strikes.add(new QueuedStrike(strikeQueue.getTimestamp(index), strikeQueue.getLongitude(index),
+                    strikeQueue.getLatitude(index), strikeQueue.getMultiplicity(index)));
+        }
+        return strikes;
+    }
+
+    /**
+     * returns the strikes ordered by time, so that they are appended to the queue instead of being inserted
+     */
+    private Collection<? extends Strike> inTimeOrder(Collection<? extends Strike> strikes) {
+        long previousTimestamp = Long.MIN_VALUE;
+        for (Strike strike : strikes) {
+            if (strike.getTimestamp() < previousTimestamp) {
+                final ArrayList<Strike> sortedStrikes = new ArrayList<Strike>(strikes);
+                Collections.sort(sortedStrikes, TIME_ORDER);
+                return sortedStrikes;
+            }
+            previousTimestamp = strike.getTimestamp();
+        }
+        return strikes;
+    }
+
+    private boolean requiresRebuild(AlertStatus alertStatus, Location location) {
+        if (!classified || measurementSystem != alertParameters.getMeasurementSystem() || alertStatus.isGeometryOutdated()) {
+            return true;
+        }
+        geoCalculator.setObserver(observerLongitude, observerLatitude);
+        geoCalculator.update(location.getLongitude(), location.getLatitude());
+        return geoCalculator.getDistance() > REBUILD_DISTANCE;
+    }
+
+    private void rebuild(AlertStatus alertStatus, Location location) {
+        alertStatus.updateGeometry();
+        alertStatus.clearResults();
+
+        observerLongitude = location.getLongitude();
+        observerLatitude = location.getLatitude();
+        measurementSystem = alertParameters.getMeasurementSystem();
+        final long now = System.currentTimeMillis();
+        thresholdTime = now - alertParameters.getAlarmInterval();
+        trackingStart = now - StormCellTracker.WINDOW;
+        stormCellTracker.clear();
+
+        alertSectorHandler.setCheckStrikeParameters(thresholdTime);
+        final float[] rangeSteps = alertParameters.getRangeSteps();
+        updateRangeThresholds(rangeSteps);
+        geoCalculator.setMaximumDistance(measurementSystem.calculateMeters(rangeSteps[rangeSteps.length - 1]));
+        geoCalculator.setObserver(observerLongitude, observerLatitude);
+
+        for (int index = strikeQueue.getStart(); index < strikeQueue.getEnd(); index++) {
+            classify(alertStatus, index);
+        }
+        classified = true;
+        stormCellTracker.update(observerLongitude, observerLatitude, now);
+        alertHistory.record(alertStatus, measurementSystem, now);
+    }
+
+    private void classify(AlertStatus alertStatus, int index) {
+        final float longitude = strikeQueue.getLongitude(index);
+        final float latitude = strikeQueue.getLatitude(index);
+        if (!geoCalculator.isWithinBoundingBox(longitude, latitude)) {
+            // outside of the largest range, no trigonometry needed
+            strikeQueue.setClassification(index, 0, -1, Float.POSITIVE_INFINITY);
+            return;
+        }
+
+        geoCalculator.update(longitude, latitude);
+        final int rangeIndex = getRangeIndex(geoCalculator.getSquaredChordLength());
+        if (rangeIndex < 0) {
+            strikeQueue.setClassification(index, 0, -1, Float.POSITIVE_INFINITY);
+            return;
+        }
+
+        final int sectorIndex = alertStatus.getSectorIndex(geoCalculator.getBearing());
+        final float distance = geoCalculator.getDistance();
+        alertSectorHandler.addStrike(alertStatus, sectorIndex, rangeIndex, strikeQueue.getTimestamp(index),
+                strikeQueue.getMultiplicity(index), distance);
+        strikeQueue.setClassification(index, sectorIndex, rangeIndex, distance);
+
+        if (strikeQueue.getTimestamp(index) >= trackingStart) {
+            stormCellTracker.add(strikeQueue.getTimestamp(index), longitude, latitude, strikeQueue.getMultiplicity(index));
+        }
+    }
+
+    /**
+     * converts the range steps to squared chord lengths, so that the range of a strike is found by comparisons only
+     */
+    private void updateRangeThresholds(float[] rangeSteps) {
+        if (rangeThresholds.length != rangeSteps.length) {
+            rangeThresholds = new double[rangeSteps.length];
+        }
+        for (int rangeIndex = 0; rangeIndex < rangeSteps.length; rangeIndex++) {
+            rangeThresholds[rangeIndex] = GeoCalculator.toSquaredChordLength(measurementSystem.calculateMeters(rangeSteps[rangeIndex]));
+        }
+    }
+
+    /**
+     * returns the index of the innermost range containing the given squared chord length or -1 if it is outside of all
+     * ranges
+     */
+    private int getRangeIndex(double squaredChordLength) {
+        for (int rangeIndex = 0; rangeIndex < rangeThresholds.length; rangeIndex++) {
+            if (squaredChordLength <= rangeThresholds[rangeIndex]) {
+                return rangeIndex;
+            }
+        }
+        return -1;
+    }
+
+    private void untrack(int index) {
+        stormCellTracker.remove(strikeQueue.getTimestamp(index), strikeQueue.getLongitude(index), strikeQueue.getLatitude(index),
+                strikeQueue.getMultiplicity(index));
+    }
+
+    public List<StormCell> getStormCells() {
+        return stormCellTracker.getStormCells();
+    }
+
+    /**
+     * returns the approaching storm cell with the earliest closest approach within the largest range or null
+     */
+    public StormCell getApproachingStormCell() {
+        if (stormCellTracker.getStormCells().isEmpty()) {
+            return null;
+        }
+
+        final float[] rangeSteps = alertParameters.getRangeSteps();
+        final float maximumDistance = alertParameters.getMeasurementSystem().calculateMeters(rangeSteps[rangeSteps.length - 1]);
+
+        StormCell approachingCell = null;
+        for (StormCell cell : stormCellTracker.getStormCells()) {
+            if (cell.isApproaching() && cell.getClosestApproachDistance() <= maximumDistance
+                    && (approachingCell == null || cell.getTimeToClosestApproach() < approachingCell.getTimeToClosestApproach())) {
+                approachingCell = cell;
+            }
+        }
+        return approachingCell;
+    }
+
+    private void retireClosestStrike(AlertStatus alertStatus, int index) {
+        final int sectorIndex = strikeQueue.getSectorIndex(index);
+        if (measurementSystem.calculateDistance(strikeQueue.getDistance(index)) <= alertStatus.getClosestStrikeDistance(sectorIndex)) {
+            dirtySectors[sectorIndex] = true;
+        }
+    }
+
+    private void updateClosestStrikeDistances(AlertStatus alertStatus, int thresholdIndex) {
+        boolean dirty = false;
+        for (int sectorIndex = 0; sectorIndex < dirtySectors.length; sectorIndex++) {
+            if (dirtySectors[sectorIndex]) {
+                alertStatus.setClosestStrikeDistance(sectorIndex, Float.POSITIVE_INFINITY);
+                dirty = true;
+            }
+        }
+        if (!dirty) {
+            return;
+        }
+
+        for (int index = thresholdIndex; index < strikeQueue.getEnd(); index++) {
+            final int sectorIndex = strikeQueue.getSectorIndex(index);
+            if (dirtySectors[sectorIndex] && strikeQueue.getRangeIndex(index) >= 0) {
+                alertStatus.updateClosestStrikeDistance(sectorIndex, measurementSystem.calculateDistance(strikeQueue.getDistance(index)));
+            }
+        }
+        Arrays.fill(dirtySectors, false);
+    }
 
     public long getLatestTimstampWithin(float distanceLimit, AlertStatus alertStatus) {
         long latestTimestamp = 0;
@@ -67,10 +354,19 @@ public class AlertStatusHandler {
         return sectorWithClosestStrike;
     }
 
+    public AlertHistory getAlertHistory() {
+        return alertHistory;
+    }
+
     public AlertResult getCurrentActivity(AlertStatus alertStatus) {
         AlertSector sector = getSectorWithClosestStrike(alertStatus);
+        if (sector == null) {
+            return null;
+        }
 
-        return sector != null ? new AlertResult(sector, alertParameters.getMeasurementSystem().getUnitName()) : null;
+        final int sectorIndex = alertStatus.getSectors().indexOf(sector);
+        return new AlertResult(sector, alertParameters.getMeasurementSystem().getUnitName(), getApproachingStormCell(),
+                alertHistory.getTrend(sectorIndex), alertHistory.getApproachRate(sectorIndex));
     }
 
     public String getTextMessage(AlertStatus alertStatus, float notificationDistanceLimit) {
@@ -102,24 +398,48 @@ public class AlertStatusHandler {
         return distanceSectors;
     }
 
-    private AlertSector getSectorForBearing(AlertStatus alertStatus, double bearing) {
-        for (AlertSector sector : alertStatus.getSectors()) {
-            if (sectorContainsBearing(sector, bearing)) {
-                return sector;
-            }
+    private static class QueuedStrike implements Strike {
+
+        private final long timestamp;
+
+        private final float longitude;
+
+        private final float latitude;
+
+        private final int multiplicity;
+
+        private QueuedStrike(long timestamp, float longitude, float latitude, int multiplicity) {
+            this.timestamp = timestamp;
+            this.longitude = longitude;
+            this.latitude = latitude;
+            this.multiplicity = multiplicity;
+        }
+
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public float getLongitude() {
+            return longitude;
         }
-        Log.w(Main.LOG_TAG, String.format(Locale.ENGLISH, "AlarmStatusHandler.getSectorForBearing(): no sector for bearing %.2f found", bearing));
-        return null;
-    }
 
-    private boolean sectorContainsBearing(AlertSector sector, double bearing) {
-        float minimumSectorBearing = sector.getMinimumSectorBearing();
-        float maximumSectorBearing = sector.getMaximumSectorBearing();
+        @Override
+        public float getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public Location getLocation(Location location) {
+            location.setLongitude(longitude);
+            location.setLatitude(latitude);
+            return location;
+        }
 
-        if (maximumSectorBearing > minimumSectorBearing) {
-            return bearing < maximumSectorBearing && bearing >= minimumSectorBearing;
-        } else {
-            return bearing >= minimumSectorBearing || bearing < maximumSectorBearing;
+        @Override
+        public int getMultiplicity() {
+            return multiplicity;
         }
     }
 }
@@ -0,0 +1,170 @@
+package org.blitzortung.android.alert.handler;
+
+/**
+ * time ordered store of the classified strikes of an alert status, so that strikes can be retracted in time order and
+ * reclassified without the original strike objects
+ */
+public class AlertStrikeQueue {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private float[] longitudes = new float[INITIAL_CAPACITY];
+    private float[] latitudes = new float[INITIAL_CAPACITY];
+    private int[] multiplicities = new int[INITIAL_CAPACITY];
+    private int[] sectorIndices = new int[INITIAL_CAPACITY];
+    private int[] rangeIndices = new int[INITIAL_CAPACITY];
+    private float[] distances = new float[INITIAL_CAPACITY];
+
+    private int start;
+
+    private int end;
+
+    /**
+     * adds a strike and returns its index, the strike is inserted behind all strikes which are not newer
+     */
+    public int add(long timestamp, float longitude, float latitude, int multiplicity) {
+        ensureCapacity();
+
+        int index = end++;
+        while (index > start && timestamps[index - 1] > timestamp) {
+            move(index - 1, index);
+            index--;
+        }
+
+        timestamps[index] = timestamp;
+        longitudes[index] = longitude;
+        latitudes[index] = latitude;
+        multiplicities[index] = multiplicity;
+        return index;
+    }
+
+    public void setClassification(int index, int sectorIndex, int rangeIndex, float distance) {
+        sectorIndices[index] = sectorIndex;
+        rangeIndices[index] = rangeIndex;
+        distances[index] = distance;
+    }
+
+    /**
+     * returns the index of the first strike which is not older than the given timestamp
+     */
+    public int indexOf(long timestamp) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (timestamps[middle] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public void removeFirst() {
+        start++;
+    }
+
+    public void clear() {
+        start = 0;
+        end = 0;
+    }
+
+    public boolean isEmpty() {
+        return start == end;
+    }
+
+    public int size() {
+        return end - start;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public float getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    public float getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public int getMultiplicity(int index) {
+        return multiplicities[index];
+    }
+
+    public int getSectorIndex(int index) {
+        return sectorIndices[index];
+    }
+
+    public int getRangeIndex(int index) {
+        return rangeIndices[index];
+    }
+
+    public float getDistance(int index) {
+        return distances[index];
+    }
+
+    private void move(int from, int to) {
+        timestamps[to] = timestamps[from];
+        longitudes[to] = longitudes[from];
+        latitudes[to] = latitudes[from];
+        multiplicities[to] = multiplicities[from];
+        sectorIndices[to] = sectorIndices[from];
+        rangeIndices[to] = rangeIndices[from];
+        distances[to] = distances[from];
+    }
+
+    private void ensureCapacity() {
+        if (end < timestamps.length) {
+            return;
+        }
+
+        final int size = size();
+        if (size * 2 < timestamps.length) {
+            // reuse the space of the retracted strikes
+            for (int index = 0; index < size; index++) {
+                move(start + index, index);
+            }
+        } else {
+            final int capacity = timestamps.length * 2;
+            timestamps = copyOf(timestamps, start, size, capacity);
+            longitudes = copyOf(longitudes, start, size, capacity);
+            latitudes = copyOf(latitudes, start, size, capacity);
+            multiplicities = copyOf(multiplicities, start, size, capacity);
+            sectorIndices = copyOf(sectorIndices, start, size, capacity);
+            rangeIndices = copyOf(rangeIndices, start, size, capacity);
+            distances = copyOf(distances, start, size, capacity);
+        }
+        start = 0;
+        end = size;
+    }
+
+    private static long[] copyOf(long[] array, int start, int size, int capacity) {
+        final long[] copy = new long[capacity];
+        System.arraycopy(array, start, copy, 0, size);
+        return copy;
+    }
+
+    private static float[] copyOf(float[] array, int start, int size, int capacity) {
+        final float[] copy = new float[capacity];
+        System.arraycopy(array, start, copy, 0, size);
+        return copy;
+    }
+
+    private static int[] copyOf(int[] array, int start, int size, int capacity) {
+        final int[] copy = new int[capacity];
+        System.arraycopy(array, start, copy, 0, size);
+        return copy;
+    }
+}
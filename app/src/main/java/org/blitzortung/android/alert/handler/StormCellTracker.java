@@ -0,0 +1,408 @@
+package org.blitzortung.android.alert.handler;
+
+import org.blitzortung.android.alert.object.StormCell;
+import org.blitzortung.android.util.GeoCalculator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * clusters the strikes of a time window into storm cells, strikes are accumulated in grid bins when they are added or
+ * removed, an update only joins the dense bins which have changed since the last update and the bins of the cells they
+ * belong to, the new cells are matched to the cells they replace to estimate their motion
+ */
+public class StormCellTracker {
+
+    // duration of the window of strikes which are clustered
+    public static final long WINDOW = 30 * 60 * 1000;
+
+    // size of the grid bins in degrees
+    public static final float BIN_SIZE = 0.1f;
+
+    public static final int MIN_BIN_STRIKES = 2;
+
+    public static final int MIN_CELL_STRIKES = 8;
+
+    public static final int MAX_STORM_CELLS = 32;
+
+    // maximum distance in meters of the centroids of a cell in consecutive updates
+    private static final float MATCH_DISTANCE = 30000f;
+
+    // minimum time in milliseconds between the centroids used for a velocity estimate
+    private static final long MINIMUM_TRACKING_INTERVAL = 60 * 1000;
+
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    // speed in meters per second below which a cell is considered stationary
+    private static final float MINIMUM_SPEED = 1.0f;
+
+    private static final int LONGITUDE_BINS = Math.round(360 / BIN_SIZE);
+
+    private static final int LATITUDE_BINS = Math.round(180 / BIN_SIZE);
+
+    private static final Comparator<StormCell> STRIKE_COUNT_ORDER = new Comparator<StormCell>() {
+        @Override
+        public int compare(StormCell cell1, StormCell cell2) {
+            return cell2.getStrikeCount() - cell1.getStrikeCount();
+        }
+    };
+
+    private static class Bin {
+        private int count;
+        private double sumLongitude;
+        private double sumLatitude;
+        private double sumTime;
+        private int visit;
+        // cluster of the last update which contains the bin
+        private Cluster cluster;
+    }
+
+    /**
+     * connected dense bins which form a storm cell, a cluster is replaced as soon as one of its bins has changed
+     */
+    private static class Cluster {
+        private final ArrayList<Integer> keys = new ArrayList<Integer>();
+        private StormCell cell;
+        private boolean valid = true;
+    }
+
+    private final HashMap<Integer, Bin> bins = new HashMap<Integer, Bin>();
+
+    private final HashSet<Integer> changedBins = new HashSet<Integer>();
+
+    private final ArrayList<Cluster> clusters = new ArrayList<Cluster>();
+
+    private final ArrayList<Integer> seedBins = new ArrayList<Integer>();
+
+    private final ArrayList<Integer> pendingBins = new ArrayList<Integer>();
+
+    private final ArrayList<Integer> clusterBins = new ArrayList<Integer>();
+
+    private final ArrayList<StormCell> replacedCells = new ArrayList<StormCell>();
+
+    private int visit;
+
+    private final GeoCalculator geoCalculator = new GeoCalculator();
+
+    private List<StormCell> stormCells = new ArrayList<StormCell>();
+
+    private long timeOrigin = Long.MIN_VALUE;
+
+    public void add(long timestamp, float longitude, float latitude, int multiplicity) {
+        if (timeOrigin == Long.MIN_VALUE) {
+            timeOrigin = timestamp;
+        }
+
+        final Integer key = getBinKey(longitude, latitude);
+        Bin bin = bins.get(key);
+        if (bin == null) {
+            bin = new Bin();
+            bins.put(key, bin);
+        }
+        bin.count += multiplicity;
+        bin.sumLongitude += (double) longitude * multiplicity;
+        bin.sumLatitude += (double) latitude * multiplicity;
+        bin.sumTime += (timestamp - timeOrigin) / 1000.0 * multiplicity;
+
+        onBinChanged(key, bin);
+    }
+
+    /**
+     * removes a strike which was added before with the same values
+     */
+    public void remove(long timestamp, float longitude, float latitude, int multiplicity) {
+        final Integer key = getBinKey(longitude, latitude);
+        final Bin bin = bins.get(key);
+        if (bin == null) {
+            return;
+        }
+
+        bin.count -= multiplicity;
+        if (bin.count <= 0) {
+            bins.remove(key);
+        } else {
+            bin.sumLongitude -= (double) longitude * multiplicity;
+            bin.sumLatitude -= (double) latitude * multiplicity;
+            bin.sumTime -= (timestamp - timeOrigin) / 1000.0 * multiplicity;
+        }
+        onBinChanged(key, bin);
+    }
+
+    private void onBinChanged(Integer key, Bin bin) {
+        changedBins.add(key);
+        if (bin.cluster != null) {
+            bin.cluster.valid = false;
+        }
+    }
+
+    /**
+     * removes all strikes, the cells of the last update are kept to continue the tracking
+     */
+    public void clear() {
+        bins.clear();
+        changedBins.clear();
+        for (Cluster cluster : clusters) {
+            cluster.valid = false;
+        }
+    }
+
+    public void reset() {
+        bins.clear();
+        changedBins.clear();
+        clusters.clear();
+        stormCells = new ArrayList<StormCell>();
+        timeOrigin = Long.MIN_VALUE;
+    }
+
+    public int getBinCount() {
+        return bins.size();
+    }
+
+    public List<StormCell> getStormCells() {
+        return stormCells;
+    }
+
+    /**
+     * joins the changed dense bins and the bins of the cells they belong to into new storm cells, estimates the
+     * velocities of the new cells from the cells they replace and computes the closest approach of the largest cells
+     * to the observer
+     */
+    public List<StormCell> update(double observerLongitude, double observerLatitude, long now) {
+        seedBins.clear();
+        seedBins.addAll(changedBins);
+        changedBins.clear();
+
+        replacedCells.clear();
+        for (Cluster cluster : clusters) {
+            if (!cluster.valid) {
+                replacedCells.add(cluster.cell);
+                seedBins.addAll(cluster.keys);
+            }
+        }
+
+        visit++;
+        final ArrayList<StormCell> createdCells = new ArrayList<StormCell>();
+        for (Integer key : seedBins) {
+            final Bin bin = bins.get(key);
+            if (bin == null || bin.visit == visit) {
+                continue;
+            }
+            if (bin.count < MIN_BIN_STRIKES) {
+                bin.cluster = null;
+                continue;
+            }
+            final Cluster cluster = createCluster(key, bin);
+            if (cluster != null) {
+                clusters.add(cluster);
+                createdCells.add(cluster.cell);
+            }
+        }
+
+        // the replaced clusters are removed after the new clusters have been created, as a new cluster may join clusters
+        // which were valid before
+        int validCount = 0;
+        for (int index = 0; index < clusters.size(); index++) {
+            final Cluster cluster = clusters.get(index);
+            if (cluster.valid) {
+                clusters.set(validCount++, cluster);
+            }
+        }
+        while (clusters.size() > validCount) {
+            clusters.remove(clusters.size() - 1);
+        }
+
+        trackCells(replacedCells, createdCells);
+        replacedCells.clear();
+
+        final ArrayList<StormCell> cells = new ArrayList<StormCell>(clusters.size());
+        for (Cluster cluster : clusters) {
+            cells.add(cluster.cell);
+        }
+        Collections.sort(cells, STRIKE_COUNT_ORDER);
+
+        // the cells are copied, as the cells of unchanged clusters are kept for the next update
+        final int cellCount = Math.min(cells.size(), MAX_STORM_CELLS);
+        final ArrayList<StormCell> stormCells = new ArrayList<StormCell>(cellCount);
+        for (int index = 0; index < cellCount; index++) {
+            final StormCell cell = cells.get(index).copy();
+            updateObserverRelation(cell, observerLongitude, observerLatitude, now);
+            stormCells.add(cell);
+        }
+
+        this.stormCells = stormCells;
+        return stormCells;
+    }
+
+    /**
+     * collects the dense bins connected to the seed bin, a cluster of the last update which is reached is replaced
+     */
+    private Cluster createCluster(Integer seedKey, Bin seedBin) {
+        int count = 0;
+        double sumLongitude = 0.0;
+        double sumLatitude = 0.0;
+        double sumTime = 0.0;
+        final int seedLongitudeBin = seedKey % LONGITUDE_BINS;
+
+        clusterBins.clear();
+        pendingBins.clear();
+        pendingBins.add(seedKey);
+        seedBin.visit = visit;
+        while (!pendingBins.isEmpty()) {
+            final Integer key = pendingBins.remove(pendingBins.size() - 1);
+            final Bin bin = bins.get(key);
+            clusterBins.add(key);
+            if (bin.cluster != null && bin.cluster.valid) {
+                bin.cluster.valid = false;
+                replacedCells.add(bin.cluster.cell);
+            }
+            final int longitudeBin = key % LONGITUDE_BINS;
+            final int latitudeBin = key / LONGITUDE_BINS;
+
+            // longitudes are unwrapped relative to the seed so that cells at the date line get a proper centroid
+            double longitudeOffset = 0.0;
+            if (longitudeBin - seedLongitudeBin > LONGITUDE_BINS / 2) {
+                longitudeOffset = -360.0;
+            } else if (seedLongitudeBin - longitudeBin > LONGITUDE_BINS / 2) {
+                longitudeOffset = 360.0;
+            }
+
+            count += bin.count;
+            sumLongitude += bin.sumLongitude + longitudeOffset * bin.count;
+            sumLatitude += bin.sumLatitude;
+            sumTime += bin.sumTime;
+
+            for (int latitudeDelta = -1; latitudeDelta <= 1; latitudeDelta++) {
+                final int neighbourLatitudeBin = latitudeBin + latitudeDelta;
+                if (neighbourLatitudeBin < 0 || neighbourLatitudeBin >= LATITUDE_BINS) {
+                    continue;
+                }
+                for (int longitudeDelta = -1; longitudeDelta <= 1; longitudeDelta++) {
+                    final int neighbourLongitudeBin = (longitudeBin + longitudeDelta + LONGITUDE_BINS) % LONGITUDE_BINS;
+                    final Integer neighbourKey = neighbourLatitudeBin * LONGITUDE_BINS + neighbourLongitudeBin;
+                    final Bin neighbourBin = bins.get(neighbourKey);
+                    if (neighbourBin != null && neighbourBin.count >= MIN_BIN_STRIKES && neighbourBin.visit != visit) {
+                        neighbourBin.visit = visit;
+                        pendingBins.add(neighbourKey);
+                    }
+                }
+            }
+        }
+
+        if (count < MIN_CELL_STRIKES) {
+            for (Integer key : clusterBins) {
+                bins.get(key).cluster = null;
+            }
+            return null;
+        }
+
+        double longitude = sumLongitude / count;
+        if (longitude >= 180.0) {
+            longitude -= 360.0;
+        } else if (longitude < -180.0) {
+            longitude += 360.0;
+        }
+
+        final Cluster cluster = new Cluster();
+        cluster.keys.addAll(clusterBins);
+        cluster.cell = new StormCell((float) longitude, (float) (sumLatitude / count), timeOrigin + Math.round(sumTime / count * 1000.0), count);
+        for (Integer key : clusterBins) {
+            bins.get(key).cluster = cluster;
+        }
+        return cluster;
+    }
+
+    private void trackCells(List<StormCell> previousCells, List<StormCell> cells) {
+        final boolean[] matched = new boolean[previousCells.size()];
+
+        for (StormCell cell : cells) {
+            geoCalculator.setObserver(cell.getLongitude(), cell.getLatitude());
+
+            int bestIndex = -1;
+            float bestDistance = MATCH_DISTANCE;
+            for (int index = 0; index < previousCells.size(); index++) {
+                if (!matched[index]) {
+                    final StormCell previousCell = previousCells.get(index);
+                    geoCalculator.update(previousCell.getLongitude(), previousCell.getLatitude());
+                    if (geoCalculator.getDistance() < bestDistance) {
+                        bestDistance = geoCalculator.getDistance();
+                        bestIndex = index;
+                    }
+                }
+            }
+
+            if (bestIndex >= 0) {
+                matched[bestIndex] = true;
+                updateVelocity(previousCells.get(bestIndex), cell);
+            }
+        }
+    }
+
+    private void updateVelocity(StormCell previousCell, StormCell cell) {
+        final long interval = cell.getMeanTimestamp() - previousCell.getMeanTimestamp();
+        if (interval < MINIMUM_TRACKING_INTERVAL) {
+            // the centroid has not moved on in time enough, keep the previous estimate
+            if (previousCell.isVelocityKnown()) {
+                cell.setVelocity(previousCell.getVelocityEast(), previousCell.getVelocityNorth());
+            }
+            return;
+        }
+
+        final double seconds = interval / 1000.0;
+        final double latitude = Math.toRadians((cell.getLatitude() + previousCell.getLatitude()) * 0.5);
+        double deltaLongitude = cell.getLongitude() - previousCell.getLongitude();
+        if (deltaLongitude > 180.0) {
+            deltaLongitude -= 360.0;
+        } else if (deltaLongitude < -180.0) {
+            deltaLongitude += 360.0;
+        }
+        float velocityEast = (float) (Math.toRadians(deltaLongitude) * Math.cos(latitude) * GeoCalculator.EARTH_RADIUS / seconds);
+        float velocityNorth = (float) (Math.toRadians(cell.getLatitude() - previousCell.getLatitude()) * GeoCalculator.EARTH_RADIUS / seconds);
+
+        if (previousCell.isVelocityKnown()) {
+            velocityEast = previousCell.getVelocityEast() + VELOCITY_SMOOTHING * (velocityEast - previousCell.getVelocityEast());
+            velocityNorth = previousCell.getVelocityNorth() + VELOCITY_SMOOTHING * (velocityNorth - previousCell.getVelocityNorth());
+        }
+        cell.setVelocity(velocityEast, velocityNorth);
+    }
+
+    private void updateObserverRelation(StormCell cell, double observerLongitude, double observerLatitude, long now) {
+        final double cosLatitude = Math.cos(Math.toRadians(observerLatitude));
+        double deltaLongitude = cell.getLongitude() - observerLongitude;
+        if (deltaLongitude > 180.0) {
+            deltaLongitude -= 360.0;
+        } else if (deltaLongitude < -180.0) {
+            deltaLongitude += 360.0;
+        }
+
+        // position relative to the observer in meters, extrapolated from the time of the centroid to now
+        final double elapsed = (now - cell.getMeanTimestamp()) / 1000.0;
+        final double east = Math.toRadians(deltaLongitude) * cosLatitude * GeoCalculator.EARTH_RADIUS + cell.getVelocityEast() * elapsed;
+        final double north = Math.toRadians(cell.getLatitude() - observerLatitude) * GeoCalculator.EARTH_RADIUS + cell.getVelocityNorth() * elapsed;
+
+        final float distance = (float) Math.sqrt(east * east + north * north);
+        final float bearing = (float) Math.toDegrees(Math.atan2(east, north));
+
+        final double speedSquared = cell.getVelocityEast() * cell.getVelocityEast() + cell.getVelocityNorth() * cell.getVelocityNorth();
+        if (cell.isVelocityKnown() && speedSquared >= MINIMUM_SPEED * MINIMUM_SPEED) {
+            final double timeToClosestApproach = -(east * cell.getVelocityEast() + north * cell.getVelocityNorth()) / speedSquared;
+            if (timeToClosestApproach > 0) {
+                final double closestEast = east + cell.getVelocityEast() * timeToClosestApproach;
+                final double closestNorth = north + cell.getVelocityNorth() * timeToClosestApproach;
+                cell.setObserverRelation(distance, bearing, (float) Math.sqrt(closestEast * closestEast + closestNorth * closestNorth),
+                        Math.round(timeToClosestApproach * 1000.0));
+                return;
+            }
+        }
+        cell.setObserverRelation(distance, bearing, distance, -1);
+    }
+
+    private static Integer getBinKey(float longitude, float latitude) {
+        final int longitudeBin = ((int) Math.floor((longitude + 180f) / BIN_SIZE) % LONGITUDE_BINS + LONGITUDE_BINS) % LONGITUDE_BINS;
+        final int latitudeBin = Math.max(0, Math.min((int) Math.floor((latitude + 90f) / BIN_SIZE), LATITUDE_BINS - 1));
+        return latitudeBin * LONGITUDE_BINS + longitudeBin;
+    }
+}
@@ -0,0 +1,190 @@
+package org.blitzortung.android.alert.handler;
+
+import org.blitzortung.android.alert.AlertParameters;
+import org.blitzortung.android.alert.object.WatchPoint;
+import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.util.GeoCalculator;
+import org.blitzortung.android.util.MeasurementSystem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * evaluates several watch points in one pass over each strike batch, strikes are assigned to the watch points through
+ * a coarse grid so that only the points near a strike are checked
+ */
+public class WatchPointRegistry {
+
+    // size of the grid cells in degrees
+    public static final int CELL_SIZE = 5;
+
+    private static final int LONGITUDE_CELLS = 360 / CELL_SIZE;
+
+    private static final int LATITUDE_CELLS = 180 / CELL_SIZE;
+
+    private final AlertParameters alertParameters;
+
+    private final ArrayList<WatchPoint> watchPoints = new ArrayList<WatchPoint>();
+
+    private final HashMap<Integer, List<WatchPointFilter>> cells = new HashMap<Integer, List<WatchPointFilter>>();
+
+    public WatchPointRegistry(AlertParameters alertParameters) {
+        this.alertParameters = alertParameters;
+    }
+
+    /**
+     * replaces the watch points, they are evaluated by the next call of checkStrikes
+     */
+    public void setWatchPoints(Collection<WatchPoint> watchPoints) {
+        this.watchPoints.clear();
+        this.watchPoints.addAll(watchPoints);
+        updateCells();
+    }
+
+    /**
+     * assigns the watch points to the grid cells again, this is required when the largest range has changed
+     */
+    public void updateCells() {
+        cells.clear();
+        if (watchPoints.isEmpty()) {
+            return;
+        }
+
+        final double maximumDistance = getMaximumDistance();
+        for (WatchPoint watchPoint : watchPoints) {
+            final GeoCalculator geoCalculator = new GeoCalculator();
+            geoCalculator.setMaximumDistance(maximumDistance);
+            geoCalculator.setObserver(watchPoint.getLocation());
+            addToCells(new WatchPointFilter(watchPoint, geoCalculator));
+        }
+    }
+
+    public List<WatchPoint> getWatchPoints() {
+        return Collections.unmodifiableList(watchPoints);
+    }
+
+    public boolean isEmpty() {
+        return watchPoints.isEmpty();
+    }
+
+    /**
+     * replaces the strikes of all watch points
+     */
+    public void checkStrikes(Collection<? extends Strike> strikes) {
+        assignStrikes(strikes);
+
+        for (WatchPoint watchPoint : watchPoints) {
+            watchPoint.getAlertStatusHandler().checkStrikes(watchPoint.getAlertStatus(), watchPoint.getPendingStrikes(), watchPoint.getLocation());
+            watchPoint.getPendingStrikes().clear();
+        }
+    }
+
+    /**
+     * adds the given strikes to and removes the strikes older than the window start from all watch points
+     */
+    public void updateStrikes(Collection<? extends Strike> addedStrikes, long windowStart) {
+        assignStrikes(addedStrikes);
+
+        for (WatchPoint watchPoint : watchPoints) {
+            watchPoint.getAlertStatusHandler().updateStrikes(watchPoint.getAlertStatus(), watchPoint.getPendingStrikes(), windowStart, watchPoint.getLocation());
+            watchPoint.getPendingStrikes().clear();
+        }
+    }
+
+    public void clearResults() {
+        for (WatchPoint watchPoint : watchPoints) {
+            watchPoint.getAlertStatus().clearResults();
+        }
+    }
+
+    private void assignStrikes(Collection<? extends Strike> strikes) {
+        if (cells.isEmpty()) {
+            return;
+        }
+
+        for (Strike strike : strikes) {
+            final float longitude = strike.getLongitude();
+            final float latitude = strike.getLatitude();
+            final List<WatchPointFilter> filters = cells.get(getCellKey(getLongitudeCell(longitude), getLatitudeCell(latitude)));
+            if (filters != null) {
+                for (WatchPointFilter filter : filters) {
+                    if (filter.geoCalculator.isWithinBoundingBox(longitude, latitude)) {
+                        filter.watchPoint.getPendingStrikes().add(strike);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addToCells(WatchPointFilter filter) {
+        final GeoCalculator geoCalculator = filter.geoCalculator;
+        final int minimumLatitudeCell = getLatitudeCell(geoCalculator.getMinimumLatitude());
+        final int maximumLatitudeCell = getLatitudeCell(geoCalculator.getMaximumLatitude());
+
+        final double longitudeDelta = geoCalculator.getMaximumLongitudeDelta();
+        final int minimumLongitudeCell;
+        final int longitudeCellCount;
+        if (longitudeDelta >= 180.0) {
+            minimumLongitudeCell = 0;
+            longitudeCellCount = LONGITUDE_CELLS;
+        } else {
+            final double longitude = filter.watchPoint.getLongitude();
+            minimumLongitudeCell = (int) Math.floor((longitude - longitudeDelta + 180.0) / CELL_SIZE);
+            final int maximumLongitudeCell = (int) Math.floor((longitude + longitudeDelta + 180.0) / CELL_SIZE);
+            longitudeCellCount = Math.min(maximumLongitudeCell - minimumLongitudeCell + 1, LONGITUDE_CELLS);
+        }
+
+        for (int latitudeCell = minimumLatitudeCell; latitudeCell <= maximumLatitudeCell; latitudeCell++) {
+            for (int offset = 0; offset < longitudeCellCount; offset++) {
+                final int longitudeCell = ((minimumLongitudeCell + offset) % LONGITUDE_CELLS + LONGITUDE_CELLS) % LONGITUDE_CELLS;
+                final Integer key = getCellKey(longitudeCell, latitudeCell);
+                List<WatchPointFilter> filters = cells.get(key);
+                if (filters == null) {
+                    filters = new ArrayList<WatchPointFilter>();
+                    cells.put(key, filters);
+                }
+                filters.add(filter);
+            }
+        }
+    }
+
+    /**
+     * largest range in meters over all measurement systems, so that a change of the unit does not lose strikes
+     */
+    private double getMaximumDistance() {
+        final float[] rangeSteps = alertParameters.getRangeSteps();
+        double maximumDistance = 0.0;
+        for (MeasurementSystem measurementSystem : MeasurementSystem.values()) {
+            maximumDistance = Math.max(maximumDistance, measurementSystem.calculateMeters(rangeSteps[rangeSteps.length - 1]));
+        }
+        return maximumDistance;
+    }
+
+    private static int getLongitudeCell(double longitude) {
+        final int cell = (int) Math.floor((longitude + 180.0) / CELL_SIZE);
+        return (cell % LONGITUDE_CELLS + LONGITUDE_CELLS) % LONGITUDE_CELLS;
+    }
+
+    private static int getLatitudeCell(double latitude) {
+        return Math.max(0, Math.min((int) Math.floor((latitude + 90.0) / CELL_SIZE), LATITUDE_CELLS - 1));
+    }
+
+    private static Integer getCellKey(int longitudeCell, int latitudeCell) {
+        return latitudeCell * LONGITUDE_CELLS + longitudeCell;
+    }
+
+    private static class WatchPointFilter {
+
+        private final WatchPoint watchPoint;
+
+        private final GeoCalculator geoCalculator;
+
+        private WatchPointFilter(WatchPoint watchPoint, GeoCalculator geoCalculator) {
+            this.watchPoint = watchPoint;
+            this.geoCalculator = geoCalculator;
+        }
+    }
+}
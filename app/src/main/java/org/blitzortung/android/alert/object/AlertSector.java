@@ -1,6 +1,5 @@
 package org.blitzortung.android.alert.object;
 
-import org.blitzortung.android.alert.AlertParameters;
 import org.blitzortung.android.alert.factory.AlertObjectFactory;
 
 import java.util.ArrayList;
@@ -18,13 +17,12 @@ public class AlertSector {
 
     private float closestStrikeDistance;
 
-    public AlertSector(AlertObjectFactory alertObjectFactory, AlertParameters alertParameters, String label, float minimumSectorBearing, float maximumSectorBearing) {
+    public AlertSector(AlertObjectFactory alertObjectFactory, float[] rangeSteps, String label, float minimumSectorBearing, float maximumSectorBearing) {
         this.label = label;
         this.minimumSectorBearing = minimumSectorBearing;
         this.maximumSectorBearing = maximumSectorBearing;
         this.closestStrikeDistance = Float.POSITIVE_INFINITY;
 
-        final float[] rangeSteps = alertParameters.getRangeSteps();
         ranges = new ArrayList<AlertSectorRange>();
         float rangeMinimum = 0.0f;
         for (float rangeMaximum : rangeSteps) {
@@ -42,6 +40,17 @@ public class AlertSector {
         }
     }
 
+    /**
+     * copies the results accumulated per range
+     */
+    public void setResults(int[] strikeCounts, long[] latestStrikeTimestamps, float closestStrikeDistance) {
+        this.closestStrikeDistance = closestStrikeDistance;
+
+        for (int rangeIndex = 0; rangeIndex < ranges.size(); rangeIndex++) {
+            ranges.get(rangeIndex).setResults(strikeCounts[rangeIndex], latestStrikeTimestamps[rangeIndex]);
+        }
+    }
+
     public List<AlertSectorRange> getRanges() {
         return ranges;
     }
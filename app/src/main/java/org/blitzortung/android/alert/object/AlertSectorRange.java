@@ -23,6 +23,11 @@ public class AlertSectorRange {
         latestStrikeTimestamp = 0;
     }
 
+    public void setResults(int strikeCount, long latestStrikeTimestamp) {
+        this.strikeCount = strikeCount;
+        this.latestStrikeTimestamp = latestStrikeTimestamp;
+    }
+
     public float getRangeMinimum() {
         return rangeMinimum;
     }
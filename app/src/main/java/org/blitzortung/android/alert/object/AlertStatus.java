@@ -4,41 +4,175 @@ import org.blitzortung.android.alert.AlertParameters;
 import org.blitzortung.android.alert.factory.AlertObjectFactory;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.List;
 
+/**
+ * holds the alert sectors, the results of a check are accumulated in tables indexed by sector and range and only
+ * copied to the sector and range objects when these are read
+ */
 public class AlertStatus {
 
-    private final Collection<AlertSector> sectors;
+    private final List<AlertSector> sectors;
+    private final AlertObjectFactory alertObjectFactory;
     private final AlertParameters alertParameters;
 
+    private float sectorWidth;
+    private float[] rangeSteps;
+
+    private int[][] strikeCounts;
+    private long[][] latestStrikeTimestamps;
+    private float[] closestStrikeDistances;
+    private boolean resultsChanged;
+
     public AlertStatus(AlertObjectFactory alertObjectFactory, AlertParameters alertParameters) {
+        this.alertObjectFactory = alertObjectFactory;
         this.alertParameters = alertParameters;
-        final String[] sectorLabels = alertParameters.getSectorLabels();
-        float sectorWidth = 360f / sectorLabels.length;
-        
         sectors = new ArrayList<AlertSector>();
+        configure();
+    }
+
+    private AlertStatus(AlertStatus alertStatus) {
+        alertObjectFactory = alertStatus.alertObjectFactory;
+        alertParameters = alertStatus.alertParameters.copy();
+        sectorWidth = alertStatus.sectorWidth;
+        rangeSteps = alertStatus.rangeSteps;
+
+        sectors = new ArrayList<AlertSector>();
+        for (AlertSector sector : alertStatus.sectors) {
+            sectors.add(alertObjectFactory.createAlarmSector(rangeSteps, sector.getLabel(),
+                    sector.getMinimumSectorBearing(), sector.getMaximumSectorBearing()));
+        }
+
+        strikeCounts = new int[alertStatus.strikeCounts.length][];
+        latestStrikeTimestamps = new long[alertStatus.latestStrikeTimestamps.length][];
+        for (int sectorIndex = 0; sectorIndex < strikeCounts.length; sectorIndex++) {
+            strikeCounts[sectorIndex] = alertStatus.strikeCounts[sectorIndex].clone();
+            latestStrikeTimestamps[sectorIndex] = alertStatus.latestStrikeTimestamps[sectorIndex].clone();
+        }
+        closestStrikeDistances = alertStatus.closestStrikeDistances.clone();
+        resultsChanged = true;
+    }
+
+    private void configure() {
+        final String[] sectorLabels = alertParameters.getSectorLabels();
+        sectorWidth = 360f / sectorLabels.length;
+        rangeSteps = alertParameters.getRangeSteps().clone();
 
+        sectors.clear();
         float bearing = -180;
         for (String sectorLabel : sectorLabels) {
             float minimumSectorBearing = bearing - sectorWidth / 2.0f;
             minimumSectorBearing += (minimumSectorBearing < -180f ? 360f : 0f);
             final float maximumSectorBearing = bearing + sectorWidth / 2.0f;
-            AlertSector alertSector = alertObjectFactory.createAlarmSector(alertParameters, sectorLabel, minimumSectorBearing, maximumSectorBearing);
+            AlertSector alertSector = alertObjectFactory.createAlarmSector(rangeSteps, sectorLabel, minimumSectorBearing, maximumSectorBearing);
             sectors.add(alertSector);
             bearing += sectorWidth;
         }
+
+        strikeCounts = new int[sectorLabels.length][rangeSteps.length];
+        latestStrikeTimestamps = new long[sectorLabels.length][rangeSteps.length];
+        closestStrikeDistances = new float[sectorLabels.length];
+        clearResults();
+    }
+
+    /**
+     * returns true if the sector count or the range steps of the alert parameters differ from the current geometry
+     */
+    public boolean isGeometryOutdated() {
+        return alertParameters.getSectorLabels().length != sectors.size() || !Arrays.equals(rangeSteps, alertParameters.getRangeSteps());
+    }
+
+    /**
+     * recreates sectors and result tables for the geometry of the alert parameters, all results are cleared
+     */
+    public void updateGeometry() {
+        if (isGeometryOutdated()) {
+            configure();
+        }
+    }
+
+    /**
+     * returns a copy of the current results which is not affected by later checks
+     */
+    public AlertStatus copy() {
+        return new AlertStatus(this);
     }
 
     public void clearResults() {
-        for (AlertSector sector : sectors) {
-            sector.clearResults();
+        for (int sectorIndex = 0; sectorIndex < strikeCounts.length; sectorIndex++) {
+            Arrays.fill(strikeCounts[sectorIndex], 0);
+            Arrays.fill(latestStrikeTimestamps[sectorIndex], 0);
+        }
+        Arrays.fill(closestStrikeDistances, Float.POSITIVE_INFINITY);
+        resultsChanged = true;
+    }
+
+    /**
+     * returns the index of the sector containing the given bearing in degrees
+     */
+    public int getSectorIndex(float bearing) {
+        // sector i is centered at -180 + i * sectorWidth
+        final int sectorIndex = (int) Math.floor((bearing + 180f) / sectorWidth + 0.5f) % closestStrikeDistances.length;
+        return sectorIndex < 0 ? sectorIndex + closestStrikeDistances.length : sectorIndex;
+    }
+
+    public int getSectorCount() {
+        return closestStrikeDistances.length;
+    }
+
+    public void addStrike(int sectorIndex, int rangeIndex, int multiplicity, long timestamp) {
+        strikeCounts[sectorIndex][rangeIndex] += multiplicity;
+        final long[] latestTimestamps = latestStrikeTimestamps[sectorIndex];
+        latestTimestamps[rangeIndex] = Math.max(latestTimestamps[rangeIndex], timestamp);
+        resultsChanged = true;
+    }
+
+    /**
+     * retracts a strike which was added before, strikes have to be removed in time order so that the latest timestamp
+     * of the range only has to be reset when it becomes empty
+     */
+    public void removeStrike(int sectorIndex, int rangeIndex, int multiplicity) {
+        final int[] counts = strikeCounts[sectorIndex];
+        counts[rangeIndex] = Math.max(0, counts[rangeIndex] - multiplicity);
+        if (counts[rangeIndex] == 0) {
+            latestStrikeTimestamps[sectorIndex][rangeIndex] = 0;
         }
+        resultsChanged = true;
     }
 
-    public Collection<AlertSector> getSectors() {
+    public float getClosestStrikeDistance(int sectorIndex) {
+        return closestStrikeDistances[sectorIndex];
+    }
+
+    public void setClosestStrikeDistance(int sectorIndex, float distance) {
+        closestStrikeDistances[sectorIndex] = distance;
+        resultsChanged = true;
+    }
+
+    public void updateClosestStrikeDistance(int sectorIndex, float distance) {
+        closestStrikeDistances[sectorIndex] = Math.min(closestStrikeDistances[sectorIndex], distance);
+        resultsChanged = true;
+    }
+
+    public List<AlertSector> getSectors() {
+        if (resultsChanged) {
+            for (int sectorIndex = 0; sectorIndex < sectors.size(); sectorIndex++) {
+                sectors.get(sectorIndex).setResults(strikeCounts[sectorIndex], latestStrikeTimestamps[sectorIndex],
+                        closestStrikeDistances[sectorIndex]);
+            }
+            resultsChanged = false;
+        }
         return sectors;
     }
 
+    /**
+     * returns the upper limits of the ranges in the measurement unit of the alert parameters
+     */
+    public float[] getRangeSteps() {
+        return rangeSteps;
+    }
+
     public AlertParameters getAlertParameters() {
         return alertParameters;
     }
@@ -0,0 +1,139 @@
+package org.blitzortung.android.alert.object;
+
+/**
+ * cluster of recent strikes with its estimated motion relative to an observer
+ */
+public class StormCell {
+
+    private final float longitude;
+
+    private final float latitude;
+
+    private final long meanTimestamp;
+
+    private final int strikeCount;
+
+    private float velocityEast;
+
+    private float velocityNorth;
+
+    private boolean velocityKnown;
+
+    private float distance;
+
+    private float bearing;
+
+    private float closestApproachDistance;
+
+    private long timeToClosestApproach = -1;
+
+    public StormCell(float longitude, float latitude, long meanTimestamp, int strikeCount) {
+        this.longitude = longitude;
+        this.latitude = latitude;
+        this.meanTimestamp = meanTimestamp;
+        this.strikeCount = strikeCount;
+    }
+
+    public StormCell copy() {
+        final StormCell copy = new StormCell(longitude, latitude, meanTimestamp, strikeCount);
+        copy.velocityEast = velocityEast;
+        copy.velocityNorth = velocityNorth;
+        copy.velocityKnown = velocityKnown;
+        copy.distance = distance;
+        copy.bearing = bearing;
+        copy.closestApproachDistance = closestApproachDistance;
+        copy.timeToClosestApproach = timeToClosestApproach;
+        return copy;
+    }
+
+    public float getLongitude() {
+        return longitude;
+    }
+
+    public float getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * returns the mean timestamp of the strikes of the cell, i.e. the time the centroid refers to
+     */
+    public long getMeanTimestamp() {
+        return meanTimestamp;
+    }
+
+    public int getStrikeCount() {
+        return strikeCount;
+    }
+
+    public boolean isVelocityKnown() {
+        return velocityKnown;
+    }
+
+    /**
+     * returns the eastward velocity in meters per second
+     */
+    public float getVelocityEast() {
+        return velocityEast;
+    }
+
+    /**
+     * returns the northward velocity in meters per second
+     */
+    public float getVelocityNorth() {
+        return velocityNorth;
+    }
+
+    public float getSpeed() {
+        return (float) Math.sqrt(velocityEast * velocityEast + velocityNorth * velocityNorth);
+    }
+
+    public void setVelocity(float velocityEast, float velocityNorth) {
+        this.velocityEast = velocityEast;
+        this.velocityNorth = velocityNorth;
+        velocityKnown = true;
+    }
+
+    /**
+     * returns the current distance from the observer in meters
+     */
+    public float getDistance() {
+        return distance;
+    }
+
+    /**
+     * returns the current bearing from the observer in degrees between -180 and 180
+     */
+    public float getBearing() {
+        return bearing;
+    }
+
+    /**
+     * returns the estimated smallest distance from the observer in meters
+     */
+    public float getClosestApproachDistance() {
+        return closestApproachDistance;
+    }
+
+    /**
+     * returns the estimated time until the closest approach in milliseconds or -1 if the cell is not approaching
+     */
+    public long getTimeToClosestApproach() {
+        return timeToClosestApproach;
+    }
+
+    public boolean isApproaching() {
+        return timeToClosestApproach >= 0;
+    }
+
+    public void setObserverRelation(float distance, float bearing, float closestApproachDistance, long timeToClosestApproach) {
+        this.distance = distance;
+        this.bearing = bearing;
+        this.closestApproachDistance = closestApproachDistance;
+        this.timeToClosestApproach = timeToClosestApproach;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StormCell(%.3f, %.3f, #%d, %.1f m/s)", longitude, latitude, strikeCount, getSpeed());
+    }
+}
@@ -0,0 +1,108 @@
+package org.blitzortung.android.alert.object;
+
+import android.location.Location;
+import org.blitzortung.android.alert.AlertParameters;
+import org.blitzortung.android.alert.factory.AlertObjectFactory;
+import org.blitzortung.android.alert.handler.AlertStatusHandler;
+import org.blitzortung.android.data.beans.Strike;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * fixed site with its own alert status and distance limits
+ */
+public class WatchPoint {
+
+    private final String name;
+
+    private final Location location;
+
+    private final float notificationDistanceLimit;
+
+    private final float signalingDistanceLimit;
+
+    private final AlertStatus alertStatus;
+
+    private final AlertStatusHandler alertStatusHandler;
+
+    private final ArrayList<Strike> pendingStrikes = new ArrayList<Strike>();
+
+    private long notificationLastTimestamp;
+
+    private long signalingLastTimestamp;
+
+    public WatchPoint(AlertObjectFactory alertObjectFactory, AlertParameters alertParameters, String name, double longitude, double latitude,
+                      float notificationDistanceLimit, float signalingDistanceLimit) {
+        this.name = name;
+        this.notificationDistanceLimit = notificationDistanceLimit;
+        this.signalingDistanceLimit = signalingDistanceLimit;
+
+        location = new Location("");
+        location.setLongitude(longitude);
+        location.setLatitude(latitude);
+
+        alertStatus = alertObjectFactory.createAlarmStatus(alertParameters);
+        alertStatusHandler = alertObjectFactory.createAlarmStatusHandler(alertParameters);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    public double getLongitude() {
+        return location.getLongitude();
+    }
+
+    public double getLatitude() {
+        return location.getLatitude();
+    }
+
+    public float getNotificationDistanceLimit() {
+        return notificationDistanceLimit;
+    }
+
+    public float getSignalingDistanceLimit() {
+        return signalingDistanceLimit;
+    }
+
+    public AlertStatus getAlertStatus() {
+        return alertStatus;
+    }
+
+    public AlertStatusHandler getAlertStatusHandler() {
+        return alertStatusHandler;
+    }
+
+    /**
+     * strikes of the current batch which passed the prefilter of the registry
+     */
+    public List<Strike> getPendingStrikes() {
+        return pendingStrikes;
+    }
+
+    public long getNotificationLastTimestamp() {
+        return notificationLastTimestamp;
+    }
+
+    public void setNotificationLastTimestamp(long notificationLastTimestamp) {
+        this.notificationLastTimestamp = notificationLastTimestamp;
+    }
+
+    public long getSignalingLastTimestamp() {
+        return signalingLastTimestamp;
+    }
+
+    public void setSignalingLastTimestamp(long signalingLastTimestamp) {
+        this.signalingLastTimestamp = signalingLastTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WatchPoint(%s, %.4f, %.4f)", name, getLongitude(), getLatitude());
+    }
+}
@@ -21,6 +21,7 @@ import org.blitzortung.android.data.provider.result.ResultEvent;
 import org.blitzortung.android.location.LocationEvent;
 import org.blitzortung.android.location.LocationHandler;
 import org.blitzortung.android.app.controller.NotificationHandler;
+import org.blitzortung.android.app.controller.WidgetUpdateHandler;
 import org.blitzortung.android.app.view.PreferenceKey;
 import org.blitzortung.android.data.DataChannel;
 import org.blitzortung.android.data.DataHandler;
@@ -36,6 +37,7 @@ import java.util.Set;
 public class AppService extends Service implements Runnable, SharedPreferences.OnSharedPreferenceChangeListener {
 
     public static final String RETRIEVE_DATA_ACTION = "retrieveData";
+    public static final String UPDATE_WIDGETS_ACTION = "updateWidgets";
     public static final String WAKE_LOCK_TAG = "boAndroidWakeLock";
 
     private final Handler handler;
@@ -56,6 +58,7 @@ public class AppService extends Service implements Runnable, SharedPreferences.O
     private AlertHandler alertHandler;
     private boolean alertEnabled;
     private LocationHandler locationHandler;
+    private WidgetUpdateHandler widgetUpdateHandler;
 
     private final IBinder binder = new DataServiceBinder();
 
@@ -160,6 +163,7 @@ public class AppService extends Service implements Runnable, SharedPreferences.O
         @Override
         public void consume(AlertEvent event) {
             alertConsumerContainer.storeAndBroadcast(event);
+            widgetUpdateHandler.getAlertEventConsumer().consume(event);
         }
     };
 
@@ -224,6 +228,7 @@ public class AppService extends Service implements Runnable, SharedPreferences.O
                 (Vibrator) this.getSystemService(Context.VIBRATOR_SERVICE),
                 new NotificationHandler(this),
                 new AlertObjectFactory(), alertParameters);
+        widgetUpdateHandler = new WidgetUpdateHandler(this, preferences, handler, dataHandler);
 
         onSharedPreferenceChanged(preferences, PreferenceKey.QUERY_PERIOD);
         onSharedPreferenceChanged(preferences, PreferenceKey.ALERT_ENABLED);
@@ -243,6 +248,8 @@ public class AppService extends Service implements Runnable, SharedPreferences.O
             enabled = false;
             handler.removeCallbacks(this);
             handler.post(this);
+        } else if (intent != null && UPDATE_WIDGETS_ACTION.equals(intent.getAction())) {
+            widgetUpdateHandler.requestUpdate(alertHandler.getAlertEvent());
         }
 
         return START_STICKY;
@@ -318,6 +325,14 @@ public class AppService extends Service implements Runnable, SharedPreferences.O
     public void onDestroy() {
         super.onDestroy();
         Log.v(Main.LOG_TAG, "AppService.onDestroy()");
+
+        if (alertHandler != null) {
+            alertHandler.shutdown();
+        }
+
+        if (widgetUpdateHandler != null) {
+            widgetUpdateHandler.shutdown();
+        }
     }
 
     public boolean isEnabled() {
@@ -356,6 +371,11 @@ public class AppService extends Service implements Runnable, SharedPreferences.O
             case SHOW_PARTICIPANTS:
                 updateParticipants = sharedPreferences.getBoolean(key.toString(), true);
                 break;
+
+            case MAP_TYPE:
+            case COLOR_SCHEME:
+                widgetUpdateHandler.updateColorTarget();
+                break;
         }
     }
 
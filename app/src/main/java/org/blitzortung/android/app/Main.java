@@ -37,21 +37,25 @@ import org.blitzortung.android.app.view.HistogramView;
 import org.blitzortung.android.app.view.LegendView;
 import org.blitzortung.android.app.view.PreferenceKey;
 import org.blitzortung.android.app.view.components.StatusComponent;
-import org.blitzortung.android.data.Parameters;
 import org.blitzortung.android.data.beans.RasterParameters;
 import org.blitzortung.android.data.provider.result.*;
 import org.blitzortung.android.dialogs.*;
 import org.blitzortung.android.map.OwnMapActivity;
 import org.blitzortung.android.map.OwnMapView;
 import org.blitzortung.android.map.overlay.FadeOverlay;
+import org.blitzortung.android.map.overlay.FrameProfilerOverlay;
 import org.blitzortung.android.map.overlay.OwnLocationOverlay;
 import org.blitzortung.android.map.overlay.ParticipantsOverlay;
 import org.blitzortung.android.map.overlay.StrikesOverlay;
 import org.blitzortung.android.map.overlay.color.ParticipantColorHandler;
 import org.blitzortung.android.map.overlay.color.StrikeColorHandler;
 import org.blitzortung.android.protocol.Consumer;
+import org.blitzortung.android.util.FrameProfiler;
 import org.blitzortung.android.util.optional.Optional;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -60,6 +64,8 @@ public class Main extends OwnMapActivity implements OnSharedPreferenceChangeList
 
     public static final String LOG_TAG = "BO_ANDROID";
 
+    private static final String FRAME_TIMES_FILE_NAME = "frame_times.txt";
+
     protected StatusComponent statusComponent;
 
     private FadeOverlay fadeOverlay;
@@ -214,7 +220,38 @@ public class Main extends OwnMapActivity implements OnSharedPreferenceChangeList
                     reloadData();
                 }
             });
+            rasterToggle.setOnLongClickListener(new View.OnLongClickListener() {
+                @Override
+                public boolean onLongClick(View v) {
+                    dumpFrameTimes();
+                    return true;
+                }
+            });
             buttonColumnHandler.addElement(rasterToggle);
+
+            FrameProfiler.setEnabled(true);
+            addOverlay(new FrameProfilerOverlay());
+            updateOverlays();
+        }
+    }
+
+    private void dumpFrameTimes() {
+        File directory = getExternalFilesDir(null);
+        if (directory == null) {
+            directory = getFilesDir();
+        }
+        final File file = new File(directory, FRAME_TIMES_FILE_NAME);
+
+        try {
+            final FileWriter writer = new FileWriter(file, true);
+            try {
+                FrameProfiler.dump(writer);
+            } finally {
+                writer.close();
+            }
+            Toast.makeText(this, file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (IOException e) {
+            Log.e(Main.LOG_TAG, "Main.dumpFrameTimes() failed", e);
         }
     }
 
@@ -358,6 +395,9 @@ public class Main extends OwnMapActivity implements OnSharedPreferenceChangeList
 
         setupService();
 
+        participantsOverlay.startStateTransitions();
+        strikesOverlay.startColorTransitions();
+
         Log.d(Main.LOG_TAG, "Main.onStart() service: " + appService);
     }
 
@@ -385,6 +425,9 @@ public class Main extends OwnMapActivity implements OnSharedPreferenceChangeList
     public void onStop() {
         super.onStop();
 
+        participantsOverlay.stopStateTransitions();
+        strikesOverlay.stopColorTransitions();
+
         if (appService != null) {
             Log.v(Main.LOG_TAG, "Main.onStop() remove listeners");
 
@@ -409,6 +452,8 @@ public class Main extends OwnMapActivity implements OnSharedPreferenceChangeList
         super.onDestroy();
         Log.i(LOG_TAG, "Main: onDestroy() unbind service");
 
+        participantsOverlay.stopStateTransitions();
+        strikesOverlay.stopColorTransitions();
         unbindService(serviceConnection);
     }
 
@@ -424,7 +469,7 @@ public class Main extends OwnMapActivity implements OnSharedPreferenceChangeList
                 buttonColumnHandler.lockButtonColumn();
                 statusComponent.startProgress();
             } else if (event instanceof ResultEvent) {
-                ResultEvent result = (ResultEvent) event;
+                final ResultEvent result = (ResultEvent) event;
 
                 if (result.hasFailed()) {
                     statusComponent.indicateError(true);
@@ -439,29 +484,26 @@ public class Main extends OwnMapActivity implements OnSharedPreferenceChangeList
 
                     Log.d(Main.LOG_TAG, "Main.onDataUpdate() " + result);
 
-                    Parameters resultParameters = result.getParameters();
-
                     clearDataIfRequested();
 
                     if (result.containsStrikes()) {
-                        strikesOverlay.setParameters(resultParameters);
-                        strikesOverlay.setRasterParameters(result.getRasterParameters());
-                        strikesOverlay.setReferenceTime(result.getReferenceTime());
-
-                        if (result.containsIncrementalData()) {
-                            strikesOverlay.expireStrikes();
-                        } else {
-                            strikesOverlay.clear();
-                        }
-                        strikesOverlay.addStrikes(result.getStrikes());
-
-                        alertView.setColorHandler(strikesOverlay.getColorHandler(), strikesOverlay.getIntervalDuration());
+                        strikesOverlay.updateStrikes(result, new Runnable() {
+                            @Override
+                            public void run() {
+                                alertView.setColorHandler(strikesOverlay.getColorHandler(), strikesOverlay.getIntervalDuration());
 
-                        strikesOverlay.refresh();
-                        legendView.requestLayout();
-                    }
+                                strikesOverlay.refresh();
+                                legendView.requestLayout();
+                                legendView.invalidate();
+                                getMapView().invalidate();
 
-                    if (!result.containsRealtimeData()) {
+                                // the overlay holds the parameters of the result only after the model is applied
+                                if (!result.containsRealtimeData()) {
+                                    setHistoricStatusString();
+                                }
+                            }
+                        });
+                    } else if (!result.containsRealtimeData()) {
                         setHistoricStatusString();
                     }
 
@@ -542,9 +584,9 @@ public class Main extends OwnMapActivity implements OnSharedPreferenceChangeList
             case MAP_TYPE:
                 String mapTypeString = sharedPreferences.getString(key.toString(), "SATELLITE");
                 getMapView().setSatellite(mapTypeString.equals("SATELLITE"));
-                strikesOverlay.refresh();
+                strikesOverlay.updateColorTarget();
                 if (participantsOverlay != null) {
-                    participantsOverlay.refresh();
+                    participantsOverlay.updateColorTarget();
                 }
                 break;
 
@@ -555,9 +597,9 @@ public class Main extends OwnMapActivity implements OnSharedPreferenceChangeList
                 break;
 
             case COLOR_SCHEME:
-                strikesOverlay.refresh();
+                strikesOverlay.updateColorTarget();
                 if (participantsOverlay != null) {
-                    participantsOverlay.refresh();
+                    participantsOverlay.updateColorTarget();
                 }
                 break;
 
@@ -22,25 +22,44 @@ public class NotificationHandler {
 
     public void sendNotification(String notificationText) {
         if (notificationService != null) {
-            Intent intent = new Intent(context, Main.class);
-            intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-            PendingIntent contentIntent = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_CANCEL_CURRENT);
-
-            Notification.Builder notificationBuilder =
-                    new Notification.Builder(context)
-                            .setSmallIcon(R.drawable.icon)
-                            .setContentTitle(context.getResources().getText(R.string.app_name))
-                            .setContentText(notificationText)
-                            .setContentIntent(contentIntent)
-                            .setAutoCancel(true);
-
-            notificationService.notify(R.id.alarm_notification_id, notificationBuilder.getNotification());
+            notificationService.notify(R.id.alarm_notification_id, createNotification(notificationText));
         }
     }
 
+    /**
+     * sends a notification which is replaced only by notifications with the same tag
+     */
+    public void sendNotification(String tag, String notificationText) {
+        if (notificationService != null) {
+            notificationService.notify(tag, R.id.alarm_notification_id, createNotification(notificationText));
+        }
+    }
+
+    private Notification createNotification(String notificationText) {
+        Intent intent = new Intent(context, Main.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        PendingIntent contentIntent = PendingIntent.getActivity(context, 0, intent, PendingIntent.FLAG_CANCEL_CURRENT);
+
+        Notification.Builder notificationBuilder =
+                new Notification.Builder(context)
+                        .setSmallIcon(R.drawable.icon)
+                        .setContentTitle(context.getResources().getText(R.string.app_name))
+                        .setContentText(notificationText)
+                        .setContentIntent(contentIntent)
+                        .setAutoCancel(true);
+
+        return notificationBuilder.getNotification();
+    }
+
     public void clearNotification() {
         if (notificationService != null) {
             notificationService.cancel(R.id.alarm_notification_id);
         }
     }
+
+    public void clearNotification(String tag) {
+        if (notificationService != null) {
+            notificationService.cancel(tag, R.id.alarm_notification_id);
+        }
+    }
 }
@@ -0,0 +1,258 @@
+package org.blitzortung.android.app.controller;
+
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.util.Log;
+import android.view.View;
+import android.widget.RemoteViews;
+import org.blitzortung.android.alert.event.AlertEvent;
+import org.blitzortung.android.alert.event.AlertResultEvent;
+import org.blitzortung.android.alert.object.AlertSector;
+import org.blitzortung.android.alert.object.AlertSectorRange;
+import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.app.Main;
+import org.blitzortung.android.app.R;
+import org.blitzortung.android.app.WidgetProvider;
+import org.blitzortung.android.app.view.AlertView;
+import org.blitzortung.android.data.DataHandler;
+import org.blitzortung.android.map.overlay.color.ColorHandler;
+import org.blitzortung.android.map.overlay.color.StrikeColorHandler;
+import org.blitzortung.android.protocol.Consumer;
+import org.blitzortung.android.util.FrameProfiler;
+import org.blitzortung.android.util.MeasurementSystem;
+
+import java.util.List;
+
+/**
+ * renders the alert status for the home screen widgets in the background and pushes it to all widgets at once,
+ * rendering is skipped if the displayed state has not changed and updates are throttled to a minimum interval
+ */
+public class WidgetUpdateHandler {
+
+    public static final long MINIMUM_UPDATE_INTERVAL = 60 * 1000;
+
+    private static final int DIAGRAM_SIZE_DP = 100;
+
+    private final AppWidgetManager appWidgetManager;
+
+    private final ComponentName widgetComponent;
+
+    private final String packageName;
+
+    private final Handler handler;
+
+    private final DataHandler dataHandler;
+
+    private final ColorHandler colorHandler;
+
+    private final AlertView alertView;
+
+    private final int diagramSize;
+
+    private AlertEvent alertEvent;
+
+    private boolean updateForced;
+
+    private boolean updateRunning;
+
+    private boolean colorTargetChanged;
+
+    private boolean rendered;
+
+    private boolean shutdown;
+
+    private long renderedFingerprint;
+
+    private long lastUpdateTime = -MINIMUM_UPDATE_INTERVAL;
+
+    private Bitmap bitmap;
+
+    private final Runnable updateTask = new Runnable() {
+        @Override
+        public void run() {
+            startUpdate(System.currentTimeMillis());
+        }
+    };
+
+    private final Consumer<AlertEvent> alertEventConsumer = new Consumer<AlertEvent>() {
+        @Override
+        public void consume(AlertEvent event) {
+            alertEvent = event;
+            scheduleUpdate();
+        }
+    };
+
+    public WidgetUpdateHandler(Context context, SharedPreferences preferences, Handler handler, DataHandler dataHandler) {
+        appWidgetManager = AppWidgetManager.getInstance(context);
+        widgetComponent = new ComponentName(context, WidgetProvider.class);
+        packageName = context.getPackageName();
+        this.handler = handler;
+        this.dataHandler = dataHandler;
+
+        colorHandler = new StrikeColorHandler(preferences);
+        alertView = new AlertView(context);
+        alertView.setFrameTimer(FrameProfiler.getTimer("WidgetAlertView"));
+        diagramSize = Math.round(DIAGRAM_SIZE_DP * context.getResources().getDisplayMetrics().density);
+    }
+
+    public Consumer<AlertEvent> getAlertEventConsumer() {
+        return alertEventConsumer;
+    }
+
+    /**
+     * the color handler is used by the rendering task, so the target is only changed while no update is running
+     */
+    public void updateColorTarget() {
+        if (updateRunning) {
+            colorTargetChanged = true;
+        } else {
+            colorHandler.updateTarget();
+        }
+        updateForced = true;
+        scheduleUpdate();
+    }
+
+    /**
+     * pushes the given state to the widgets even if it has not changed, used when widgets are added
+     */
+    public void requestUpdate(AlertEvent event) {
+        alertEvent = event;
+        updateForced = true;
+        scheduleUpdate();
+    }
+
+    /**
+     * removes the pending update, a rendering task which is still running does not push its result
+     */
+    public void shutdown() {
+        shutdown = true;
+        handler.removeCallbacks(updateTask);
+    }
+
+    private void scheduleUpdate() {
+        handler.removeCallbacks(updateTask);
+        if (shutdown) {
+            return;
+        }
+        final long delay = lastUpdateTime + MINIMUM_UPDATE_INTERVAL - System.currentTimeMillis();
+        handler.postDelayed(updateTask, Math.max(0, delay));
+    }
+
+    // VisibleForTesting
+    protected void startUpdate(long now) {
+        if (updateRunning || shutdown) {
+            return;
+        }
+
+        final int[] widgetIds = appWidgetManager.getAppWidgetIds(widgetComponent);
+        if (widgetIds == null || widgetIds.length == 0) {
+            return;
+        }
+
+        final AlertEvent event = alertEvent;
+        final int intervalDuration = dataHandler.getIntervalDuration();
+        final long fingerprint = getFingerprint(event, now, intervalDuration);
+        if (rendered && !updateForced && fingerprint == renderedFingerprint) {
+            Log.v(Main.LOG_TAG, "WidgetUpdateHandler.startUpdate() unchanged");
+            return;
+        }
+
+        updateRunning = true;
+        updateForced = false;
+        lastUpdateTime = now;
+
+        alertView.setColorHandler(colorHandler, intervalDuration);
+        alertView.getAlertEventConsumer().consume(createPrivateCopy(event));
+
+        new AsyncTask<Void, Void, Bitmap>() {
+            @Override
+            protected Bitmap doInBackground(Void... params) {
+                return render();
+            }
+
+            @Override
+            protected void onPostExecute(Bitmap result) {
+                if (shutdown) {
+                    return;
+                }
+                pushUpdate(widgetIds, result);
+                renderedFingerprint = fingerprint;
+                rendered = true;
+                updateRunning = false;
+                if (colorTargetChanged) {
+                    colorTargetChanged = false;
+                    colorHandler.updateTarget();
+                }
+                if (alertEvent != event || updateForced) {
+                    scheduleUpdate();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * the alert status of an event is shared with the views on the main thread, the rendering task gets its own copy
+     */
+    private static AlertEvent createPrivateCopy(AlertEvent event) {
+        if (event instanceof AlertResultEvent) {
+            final AlertResultEvent resultEvent = (AlertResultEvent) event;
+            return new AlertResultEvent(resultEvent.getWatchPoint(), resultEvent.getAlertStatus().copy(), resultEvent.getAlertResult());
+        }
+        return event;
+    }
+
+    // VisibleForTesting
+    protected Bitmap render() {
+        if (bitmap == null || bitmap.getWidth() != diagramSize) {
+            bitmap = Bitmap.createBitmap(diagramSize, diagramSize, Bitmap.Config.ARGB_8888);
+        }
+        bitmap.eraseColor(Color.TRANSPARENT);
+
+        final int measureSpec = View.MeasureSpec.makeMeasureSpec(diagramSize, View.MeasureSpec.EXACTLY);
+        alertView.measure(measureSpec, measureSpec);
+        alertView.layout(0, 0, diagramSize, diagramSize);
+        alertView.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    private void pushUpdate(int[] widgetIds, Bitmap bitmap) {
+        Log.v(Main.LOG_TAG, String.format("WidgetUpdateHandler.pushUpdate() #%d", widgetIds.length));
+        final RemoteViews remoteViews = new RemoteViews(packageName, R.layout.widget);
+        remoteViews.setImageViewBitmap(R.id.alarm_diagram, bitmap);
+        appWidgetManager.updateAppWidget(widgetIds, remoteViews);
+    }
+
+    /**
+     * returns a hash of the colors of all sector ranges as they would be rendered at the given time
+     */
+    // VisibleForTesting
+    protected long getFingerprint(AlertEvent event, long now, int intervalDuration) {
+        if (!(event instanceof AlertResultEvent) || intervalDuration == 0) {
+            return 0;
+        }
+
+        final AlertStatus alertStatus = ((AlertResultEvent) event).getAlertStatus();
+        final MeasurementSystem measurementSystem = alertStatus.getAlertParameters().getMeasurementSystem();
+
+        long fingerprint = measurementSystem != null ? measurementSystem.ordinal() + 1 : 17;
+        final List<AlertSector> sectors = alertStatus.getSectors();
+        for (int sectorIndex = 0; sectorIndex < sectors.size(); sectorIndex++) {
+            final List<AlertSectorRange> ranges = sectors.get(sectorIndex).getRanges();
+            for (int rangeIndex = 0; rangeIndex < ranges.size(); rangeIndex++) {
+                final AlertSectorRange range = ranges.get(rangeIndex);
+                final int color = range.getStrikeCount() > 0
+                        ? colorHandler.getColor(now, range.getLatestStrikeTimestamp(), intervalDuration) : 0;
+                fingerprint = 31 * fingerprint + color;
+            }
+            fingerprint = 31 * fingerprint + ranges.size();
+        }
+        return fingerprint;
+    }
+}
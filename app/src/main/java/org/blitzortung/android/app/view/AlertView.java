@@ -8,16 +8,21 @@ import android.location.Location;
 import android.util.AttributeSet;
 import android.view.View;
 import org.blitzortung.android.alert.AlertParameters;
+import org.blitzortung.android.alert.AlertResult;
 import org.blitzortung.android.alert.event.AlertEvent;
 import org.blitzortung.android.alert.event.AlertResultEvent;
 import org.blitzortung.android.alert.object.AlertSector;
 import org.blitzortung.android.alert.object.AlertSectorRange;
 import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.alert.object.StormCell;
 import org.blitzortung.android.app.R;
 import org.blitzortung.android.app.helper.ViewHelper;
 import org.blitzortung.android.location.LocationEvent;
 import org.blitzortung.android.map.overlay.color.ColorHandler;
 import org.blitzortung.android.protocol.Consumer;
+import org.blitzortung.android.util.FrameProfiler;
+import org.blitzortung.android.util.FrameTimer;
+import org.blitzortung.android.util.MeasurementSystem;
 
 import java.util.List;
 
@@ -25,7 +30,6 @@ public class AlertView extends View {
 
     private static final int TEXT_MINIMUM_SIZE = 300;
     private static final int DEFAULT_FONT_SIZE = 20;
-    private static final PorterDuffXfermode XFERMODE_CLEAR = new PorterDuffXfermode(PorterDuff.Mode.CLEAR);
     private static final PorterDuffXfermode XFERMODE_SRC = new PorterDuffXfermode(PorterDuff.Mode.SRC);
 
     private ColorHandler colorHandler;
@@ -33,18 +37,41 @@ public class AlertView extends View {
     private int intervalDuration;
 
     private final RectF arcArea = new RectF();
-    private final Paint background = new Paint();
     private final Paint sectorPaint = new Paint();
     private final Paint lines = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Paint textStyle = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Paint warnText = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Paint transfer = new Paint();
 
+    private FrameTimer frameTimer = FrameProfiler.getTimer("AlertView");
+
     private final String[] alarmNotAvailableTextLines;
 
-    private Bitmap temporaryBitmap;
-    private Canvas temporaryCanvas;
+    private float[] rangeLabelSteps;
+    private String[] rangeLabels;
+
+    private Bitmap fillBitmap;
+    private Canvas fillCanvas;
+    private int fillSize;
+    private Path[] cellPaths;
+    private int[] cellColors;
+    private boolean cellColorsValid;
+
+    private Bitmap staticBitmap;
+    private Canvas staticCanvas;
+    private int staticSize;
+    private int staticLineColor;
+    private int staticTextColor;
+    private float[] staticRangeSteps;
+    private MeasurementSystem staticMeasurementSystem;
+    private int staticSectorCount;
     private AlertStatus alertStatus;
+    private AlertResult alertResult;
+    private final String stormCellFormat;
+    private String stormCellText;
+    private long stormCellMinutes;
+    private long stormCellDistance;
+    private MeasurementSystem stormCellMeasurementSystem;
 
     @SuppressWarnings("unused")
     public AlertView(Context context, AttributeSet attrs) {
@@ -60,6 +87,7 @@ public class AlertView extends View {
         super(context, attrs, defStyle);
 
         alarmNotAvailableTextLines = context.getString(R.string.alarms_not_available).split("\n");
+        stormCellFormat = context.getString(R.string.storm_cell_approach);
 
         lines.setColor(0xff404040);
         lines.setStyle(Style.STROKE);
@@ -67,7 +95,7 @@ public class AlertView extends View {
         textStyle.setColor(0xff404040);
         textStyle.setTextSize(ViewHelper.pxFromSp(this, 10));
 
-        background.setColor(0xffb0b0b0);
+        sectorPaint.setXfermode(XFERMODE_SRC);
     }
 
     @Override
@@ -90,81 +118,43 @@ public class AlertView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
+        frameTimer.start();
+        drawAlertDiagram(canvas);
+        frameTimer.stop();
+    }
+
+    private void drawAlertDiagram(Canvas canvas) {
         int size = Math.max(getWidth(), getHeight());
         int pad = 4;
 
         float center = size / 2.0f;
         float radius = center - pad;
 
-        prepareTemporaryBitmap(size);
+        prepareFillBitmap(size);
 
         if (alertStatus != null && intervalDuration != 0) {
             AlertParameters alertParameters = alertStatus.getAlertParameters();
-            final float[] rangeSteps = alertParameters.getRangeSteps();
-            final int rangeStepCount = rangeSteps.length;
-            final float radiusIncrement = radius / rangeStepCount;
-            final float sectorWidth = 360 / alertParameters.getSectorLabels().length;
-
-            lines.setColor(colorHandler.getLineColor());
-            lines.setStrokeWidth(size / 150);
-
-            textStyle.setTextAlign(Align.CENTER);
-            textStyle.setColor(colorHandler.getTextColor());
-
-            long actualTime = System.currentTimeMillis();
-
-            for (AlertSector alertSector : alertStatus.getSectors()) {
-
-                float startAngle = alertSector.getMinimumSectorBearing() + 90 + 180;
+            final List<AlertSector> sectors = alertStatus.getSectors();
 
-                final List<AlertSectorRange> ranges = alertSector.getRanges();
-                for (int rangeIndex = ranges.size() - 1; rangeIndex >= 0; rangeIndex--) {
-                    AlertSectorRange alertSectorRange = ranges.get(rangeIndex);
+            updateStaticLayer(size, center, radius, alertStatus.getRangeSteps(), alertParameters.getMeasurementSystem(), sectors);
+            updateSectorFills(sectors);
 
-                    float sectorRadius = (rangeIndex + 1) * radiusIncrement;
-                    float leftTop = center - sectorRadius;
-                    float bottomRight = center + sectorRadius;
-
-                    boolean drawColor = alertSectorRange.getStrikeCount() > 0;
-                    if (drawColor) {
-                        final int color = colorHandler.getColor(actualTime, alertSectorRange.getLatestStrikeTimestamp(), intervalDuration);
-                        sectorPaint.setColor(color);
-                    }
-                    arcArea.set(leftTop, leftTop, bottomRight, bottomRight);
-                    temporaryCanvas.drawArc(arcArea, startAngle, sectorWidth, true, drawColor ? sectorPaint : background);
-                }
-            }
-
-            for (AlertSector alertSector : alertStatus.getSectors()) {
-                double bearing = alertSector.getMinimumSectorBearing();
-                temporaryCanvas.drawLine(center, center, center + (float) (radius * Math.sin(bearing / 180.0f * Math.PI)), center
-                        + (float) (radius * -Math.cos(bearing / 180.0f * Math.PI)), lines);
-
-                if (size > TEXT_MINIMUM_SIZE) {
-                    drawSectorLabel(center, radiusIncrement, alertSector, bearing + sectorWidth / 2.0);
-                }
+            if (transfer.getAlpha() != 0xff) {
+                canvas.saveLayerAlpha(0, 0, size, size, transfer.getAlpha(), Canvas.ALL_SAVE_FLAG);
+                canvas.drawBitmap(fillBitmap, 0, 0, null);
+                canvas.drawBitmap(staticBitmap, 0, 0, null);
+                canvas.restore();
+            } else {
+                canvas.drawBitmap(fillBitmap, 0, 0, null);
+                canvas.drawBitmap(staticBitmap, 0, 0, null);
             }
+            drawApproachingStormCell(canvas, size, alertParameters.getMeasurementSystem());
+            return;
+        }
 
-            textStyle.setTextAlign(Align.RIGHT);
-            float textHeight = textStyle.getFontMetrics(null);
-            for (int radiusIndex = 0; radiusIndex < rangeStepCount; radiusIndex++) {
-                float leftTop = center - (radiusIndex + 1) * radiusIncrement;
-                float bottomRight = center + (radiusIndex + 1) * radiusIncrement;
-                arcArea.set(leftTop, leftTop, bottomRight, bottomRight);
-                temporaryCanvas.drawArc(arcArea, 0, 360, false, lines);
-
-                if (size > TEXT_MINIMUM_SIZE) {
-                    String text = String.format("%.0f", rangeSteps[radiusIndex]);
-                    temporaryCanvas.drawText(text, center + (radiusIndex + 0.85f) * radiusIncrement, center
-                            + textHeight / 3f, textStyle);
-                    if (radiusIndex == rangeStepCount - 1) {
-                        temporaryCanvas.drawText(alertParameters.getMeasurementSystem().getUnitName(), center + (radiusIndex + 0.85f) * radiusIncrement, center
-                                + textHeight * 1.33f, textStyle);
-                    }
-                }
-            }
+        clearFillBitmap();
 
-        } else if (size > TEXT_MINIMUM_SIZE) {
+        if (size > TEXT_MINIMUM_SIZE) {
 
             warnText.setColor(0xffa00000);
             warnText.setTextAlign(Align.CENTER);
@@ -182,32 +172,204 @@ public class AlertView extends View {
             warnText.setTextSize(scale * DEFAULT_FONT_SIZE);
 
             for (int line = 0; line < alarmNotAvailableTextLines.length; line++) {
-                temporaryCanvas.drawText(alarmNotAvailableTextLines[line], center, center + (line - 1) * warnText.getFontMetrics(null), warnText);
+                fillCanvas.drawText(alarmNotAvailableTextLines[line], center, center + (line - 1) * warnText.getFontMetrics(null), warnText);
             }
         }
-        canvas.drawBitmap(temporaryBitmap, 0, 0, transfer);
+        canvas.drawBitmap(fillBitmap, 0, 0, transfer);
+    }
+
+    /**
+     * shows the estimated time and distance of the closest approach of a storm cell below the diagram
+     */
+    private void drawApproachingStormCell(Canvas canvas, int size, MeasurementSystem measurementSystem) {
+        final StormCell stormCell = alertResult != null ? alertResult.getApproachingStormCell() : null;
+        if (stormCell == null || size <= TEXT_MINIMUM_SIZE) {
+            return;
+        }
+
+        final long minutes = Math.round(stormCell.getTimeToClosestApproach() / 60000.0);
+        final long distance = Math.round(measurementSystem.calculateDistance(stormCell.getClosestApproachDistance()));
+        if (stormCellText == null || minutes != stormCellMinutes || distance != stormCellDistance
+                || measurementSystem != stormCellMeasurementSystem) {
+            stormCellText = String.format(stormCellFormat, minutes, (float) distance, measurementSystem.getUnitName());
+            stormCellMinutes = minutes;
+            stormCellDistance = distance;
+            stormCellMeasurementSystem = measurementSystem;
+        }
+
+        textStyle.setTextAlign(Align.CENTER);
+        textStyle.setColor(colorHandler.getTextColor());
+        canvas.drawText(stormCellText, size / 2.0f, size - textStyle.getFontMetrics(null) / 2f, textStyle);
+    }
+
+    /**
+     * renders the grid, the sector dividers and the labels and the outlines of the sector range cells, the layer is only
+     * rebuilt if the size, the colors or the alert geometry have changed
+     */
+    private void updateStaticLayer(int size, float center, float radius, float[] rangeSteps, MeasurementSystem measurementSystem,
+                                   List<AlertSector> sectors) {
+        final int lineColor = colorHandler.getLineColor();
+        final int textColor = colorHandler.getTextColor();
+
+        if (staticBitmap != null && staticSize == size && lineColor == staticLineColor && textColor == staticTextColor
+                && rangeSteps == staticRangeSteps
+                && measurementSystem == staticMeasurementSystem && sectors.size() == staticSectorCount) {
+            return;
+        }
+
+        if (staticBitmap == null || staticSize != size) {
+            staticBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            staticCanvas = new Canvas(staticBitmap);
+            staticSize = size;
+        } else {
+            staticBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        staticLineColor = lineColor;
+        staticTextColor = textColor;
+        staticRangeSteps = rangeSteps;
+        staticMeasurementSystem = measurementSystem;
+        staticSectorCount = sectors.size();
+
+        final int rangeStepCount = rangeSteps.length;
+        final float radiusIncrement = radius / rangeStepCount;
+        final float sectorWidth = 360f / Math.max(1, sectors.size());
+
+        lines.setColor(lineColor);
+        lines.setStrokeWidth(size / 150);
+
+        textStyle.setTextAlign(Align.CENTER);
+        textStyle.setColor(textColor);
+
+        cellPaths = new Path[sectors.size() * rangeStepCount];
+        cellColors = new int[cellPaths.length];
+        cellColorsValid = false;
+
+        for (int sectorIndex = 0; sectorIndex < sectors.size(); sectorIndex++) {
+            final AlertSector alertSector = sectors.get(sectorIndex);
+            final float startAngle = alertSector.getMinimumSectorBearing() + 90 + 180;
+
+            for (int rangeIndex = 0; rangeIndex < rangeStepCount; rangeIndex++) {
+                final Path path = new Path();
+                final float outerRadius = (rangeIndex + 1) * radiusIncrement;
+                arcArea.set(center - outerRadius, center - outerRadius, center + outerRadius, center + outerRadius);
+                if (rangeIndex == 0) {
+                    path.moveTo(center, center);
+                    path.arcTo(arcArea, startAngle, sectorWidth);
+                } else {
+                    path.arcTo(arcArea, startAngle, sectorWidth);
+                    final float innerRadius = rangeIndex * radiusIncrement;
+                    arcArea.set(center - innerRadius, center - innerRadius, center + innerRadius, center + innerRadius);
+                    path.arcTo(arcArea, startAngle + sectorWidth, -sectorWidth);
+                }
+                path.close();
+                cellPaths[sectorIndex * rangeStepCount + rangeIndex] = path;
+            }
+
+            double bearing = alertSector.getMinimumSectorBearing();
+            staticCanvas.drawLine(center, center, center + (float) (radius * Math.sin(bearing / 180.0f * Math.PI)), center
+                    + (float) (radius * -Math.cos(bearing / 180.0f * Math.PI)), lines);
+
+            if (size > TEXT_MINIMUM_SIZE) {
+                drawSectorLabel(center, radiusIncrement, alertSector, bearing + sectorWidth / 2.0);
+            }
+        }
+
+        updateRangeLabels(rangeSteps);
+        textStyle.setTextAlign(Align.RIGHT);
+        float textHeight = textStyle.getFontMetrics(null);
+        final int labelStep = getRangeLabelStep(radiusIncrement);
+        for (int radiusIndex = 0; radiusIndex < rangeStepCount; radiusIndex++) {
+            float leftTop = center - (radiusIndex + 1) * radiusIncrement;
+            float bottomRight = center + (radiusIndex + 1) * radiusIncrement;
+            arcArea.set(leftTop, leftTop, bottomRight, bottomRight);
+            staticCanvas.drawArc(arcArea, 0, 360, false, lines);
+
+            if (size > TEXT_MINIMUM_SIZE && (rangeStepCount - 1 - radiusIndex) % labelStep == 0) {
+                staticCanvas.drawText(rangeLabels[radiusIndex], center + (radiusIndex + 0.85f) * radiusIncrement, center
+                        + textHeight / 3f, textStyle);
+                if (radiusIndex == rangeStepCount - 1) {
+                    staticCanvas.drawText(measurementSystem.getUnitName(), center + (radiusIndex + 0.85f) * radiusIncrement, center
+                            + textHeight * 1.33f, textStyle);
+                }
+            }
+        }
+    }
+
+    /**
+     * repaints only the sector range cells whose color has changed since the last draw
+     */
+    private void updateSectorFills(List<AlertSector> sectors) {
+        final int backgroundColor = colorHandler.getBackgroundColor();
+        final long actualTime = System.currentTimeMillis();
+        final int rangeStepCount = cellPaths.length / Math.max(1, sectors.size());
+
+        if (!cellColorsValid) {
+            fillBitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        for (int sectorIndex = 0; sectorIndex < sectors.size(); sectorIndex++) {
+            final List<AlertSectorRange> ranges = sectors.get(sectorIndex).getRanges();
+            for (int rangeIndex = 0; rangeIndex < rangeStepCount && rangeIndex < ranges.size(); rangeIndex++) {
+                final AlertSectorRange alertSectorRange = ranges.get(rangeIndex);
+                final int color = alertSectorRange.getStrikeCount() > 0
+                        ? colorHandler.getColor(actualTime, alertSectorRange.getLatestStrikeTimestamp(), intervalDuration)
+                        : backgroundColor;
+
+                final int cellIndex = sectorIndex * rangeStepCount + rangeIndex;
+                if (!cellColorsValid || cellColors[cellIndex] != color) {
+                    cellColors[cellIndex] = color;
+                    sectorPaint.setColor(color);
+                    fillCanvas.drawPath(cellPaths[cellIndex], sectorPaint);
+                }
+            }
+        }
+        cellColorsValid = true;
+    }
+
+    private void updateRangeLabels(float[] rangeSteps) {
+        if (rangeSteps != rangeLabelSteps) {
+            rangeLabels = new String[rangeSteps.length];
+            for (int index = 0; index < rangeSteps.length; index++) {
+                rangeLabels[index] = String.format("%.0f", rangeSteps[index]);
+            }
+            rangeLabelSteps = rangeSteps;
+        }
+    }
+
+    /**
+     * returns the distance of labeled rings so that neighbouring range labels do not overlap, the outermost ring is
+     * always labeled
+     */
+    private int getRangeLabelStep(float radiusIncrement) {
+        float labelWidth = 0f;
+        for (String rangeLabel : rangeLabels) {
+            labelWidth = Math.max(labelWidth, textStyle.measureText(rangeLabel));
+        }
+        return Math.max(1, (int) Math.ceil(labelWidth / radiusIncrement));
     }
 
     private void drawSectorLabel(float center, float radiusIncrement, AlertSector sector, double bearing) {
         if (bearing != 90.0) {
             final String text = sector.getLabel();
             float textRadius = (sector.getRanges().size() - 0.5f) * radiusIncrement;
-            temporaryCanvas.drawText(text, center
+            staticCanvas.drawText(text, center
                     + (float) (textRadius * Math.sin(bearing / 180.0 * Math.PI)), center
                     + (float) (textRadius * -Math.cos(bearing / 180.0 * Math.PI)) + textStyle.getFontMetrics(null) / 3f, textStyle);
         }
     }
 
-    private void prepareTemporaryBitmap(int size) {
-        if (temporaryBitmap == null) {
-            temporaryBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
-            temporaryCanvas = new Canvas(temporaryBitmap);
+    private void prepareFillBitmap(int size) {
+        if (fillBitmap == null || fillSize != size) {
+            fillBitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            fillCanvas = new Canvas(fillBitmap);
+            fillSize = size;
+            cellColorsValid = false;
         }
-        background.setColor(colorHandler.getBackgroundColor());
-        background.setXfermode(XFERMODE_CLEAR);
-        temporaryCanvas.drawPaint(background);
+    }
 
-        background.setXfermode(XFERMODE_SRC);
+    private void clearFillBitmap() {
+        fillBitmap.eraseColor(Color.TRANSPARENT);
+        cellColorsValid = false;
     }
 
     private Consumer<AlertEvent> alertEventConsumer = new Consumer<AlertEvent>() {
@@ -217,8 +379,10 @@ public class AlertView extends View {
                 AlertResultEvent alertResultEvent = (AlertResultEvent) event;
 
                 alertStatus = alertResultEvent.getAlertStatus();
+                alertResult = alertResultEvent.getAlertResult();
             } else {
                 alertStatus = null;
+                alertResult = null;
             }
             invalidate();
         }
@@ -242,6 +406,13 @@ public class AlertView extends View {
         return locationEventConsumer;
     }
 
+    /**
+     * replaces the shared timer of the view, e.g. for views which are drawn outside of the main thread
+     */
+    public void setFrameTimer(FrameTimer frameTimer) {
+        this.frameTimer = frameTimer;
+    }
+
     public void setColorHandler(ColorHandler colorHandler, int intervalDuration) {
         this.colorHandler = colorHandler;
         this.intervalDuration = intervalDuration;
@@ -249,7 +420,7 @@ public class AlertView extends View {
 
     @Override
     public void setBackgroundColor(int backgroundColor) {
-        background.setColor(backgroundColor);
+        // the empty sector ranges are filled with the background color of the color handler
     }
 
     public void setAlpha(int alpha) {
@@ -13,6 +13,8 @@ import org.blitzortung.android.data.provider.result.ResultEvent;
 import org.blitzortung.android.map.overlay.StrikesOverlay;
 import org.blitzortung.android.map.overlay.color.ColorHandler;
 import org.blitzortung.android.protocol.Consumer;
+import org.blitzortung.android.util.FrameProfiler;
+import org.blitzortung.android.util.FrameTimer;
 
 public class HistogramView extends View {
 
@@ -33,6 +35,11 @@ public class HistogramView extends View {
     private final int defaultForegroundColor;
     private final RectF backgroundRect;
 
+    private final FrameTimer frameTimer = FrameProfiler.getTimer("HistogramView");
+
+    private int maximumLabelCount = -1;
+    private String maximumLabel;
+
     @SuppressWarnings("unused")
     public HistogramView(Context context, AttributeSet attrs) {
         this(context, attrs, 0);
@@ -76,6 +83,12 @@ public class HistogramView extends View {
 
     @Override
     public void onDraw(Canvas canvas) {
+        frameTimer.start();
+        drawHistogram(canvas);
+        frameTimer.stop();
+    }
+
+    private void drawHistogram(Canvas canvas) {
 
         if (strikesOverlay != null && histogram != null && histogram.length > 0) {
             ColorHandler colorHandler = strikesOverlay.getColorHandler();
@@ -96,7 +109,11 @@ public class HistogramView extends View {
                 }
             }
 
-            canvas.drawText(String.format("%.1f/min _", (float) maximumCount / minutesPerBin), width - 2 * padding, padding + textSize / 1.2f, textPaint);
+            if (maximumCount != maximumLabelCount) {
+                maximumLabel = String.format("%.1f/min _", (float) maximumCount / minutesPerBin);
+                maximumLabelCount = maximumCount;
+            }
+            canvas.drawText(maximumLabel, width - 2 * padding, padding + textSize / 1.2f, textPaint);
 
             int ymax = maximumCount == 0 ? 1 : maximumCount;
 
@@ -13,6 +13,8 @@ import org.blitzortung.android.app.helper.ViewHelper;
 import org.blitzortung.android.data.beans.RasterParameters;
 import org.blitzortung.android.map.overlay.StrikesOverlay;
 import org.blitzortung.android.map.overlay.color.ColorHandler;
+import org.blitzortung.android.util.FrameProfiler;
+import org.blitzortung.android.util.FrameTimer;
 
 public class LegendView extends View {
 
@@ -39,6 +41,20 @@ public class LegendView extends View {
     private final RectF backgroundRect;
     private final RectF legendColorRect;
 
+    private final FrameTimer frameTimer = FrameProfiler.getTimer("LegendView");
+
+    private String[] intervalLabels = new String[0];
+    private int intervalLabelsMinutesPerColor;
+
+    private int regionNameRegion = -1;
+    private String regionName;
+
+    private String rasterInfo;
+    private String rasterLabel;
+
+    private int countThresholdLabelValue = -1;
+    private String countThresholdLabel;
+
     @SuppressWarnings("unused")
     public LegendView(Context context, AttributeSet attrs) {
         this(context, attrs, 0);
@@ -120,6 +136,12 @@ public class LegendView extends View {
 
     @Override
     public void onDraw(Canvas canvas) {
+        frameTimer.start();
+        drawLegend(canvas);
+        frameTimer.stop();
+    }
+
+    private void drawLegend(Canvas canvas) {
         if (strikesOverlay != null) {
             ColorHandler colorHandler = strikesOverlay.getColorHandler();
             int minutesPerColor = strikesOverlay.getIntervalDuration() / colorHandler.getNumberOfColors();
@@ -128,6 +150,7 @@ public class LegendView extends View {
             canvas.drawRect(backgroundRect, backgroundPaint);
 
             int numberOfColors = colorHandler.getNumberOfColors();
+            updateIntervalLabels(numberOfColors, minutesPerColor);
 
             float topCoordinate = padding;
 
@@ -136,10 +159,7 @@ public class LegendView extends View {
                 legendColorRect.set(padding, topCoordinate, padding + colorFieldSize, topCoordinate + colorFieldSize);
                 canvas.drawRect(legendColorRect, foregroundPaint);
 
-                boolean isLastValue = index == numberOfColors - 1;
-                String text = String.format("%c %dmin", isLastValue ? '>' : '<', (index + (isLastValue ? 0 : 1)) * minutesPerColor);
-
-                canvas.drawText(text, 2 * padding + colorFieldSize, topCoordinate + colorFieldSize / 1.1f, textPaint);
+                canvas.drawText(intervalLabels[index], 2 * padding + colorFieldSize, topCoordinate + colorFieldSize / 1.1f, textPaint);
 
                 topCoordinate += colorFieldSize + padding;
             }
@@ -150,21 +170,58 @@ public class LegendView extends View {
             }
 
             if (hasRaster()) {
-                canvas.drawText("Raster: " + getRasterString(), width / 2.0f, topCoordinate + colorFieldSize * RASTER_HEIGHT / 1.1f, rasterTextPaint);
+                canvas.drawText(getRasterLabel(), width / 2.0f, topCoordinate + colorFieldSize * RASTER_HEIGHT / 1.1f, rasterTextPaint);
                 topCoordinate += colorFieldSize * RASTER_HEIGHT + padding;
 
                 if (hasCountThreshold()) {
-                    final int countThreshold = strikesOverlay.getCountThreshold();
-                    canvas.drawText("# > " + countThreshold, width / 2.0f, topCoordinate + colorFieldSize * COUNT_THRESHOLD_HEIGHT / 1.1f, countThresholdTextPaint);
+                    canvas.drawText(getCountThresholdLabel(), width / 2.0f, topCoordinate + colorFieldSize * COUNT_THRESHOLD_HEIGHT / 1.1f, countThresholdTextPaint);
                     topCoordinate += colorFieldSize * COUNT_THRESHOLD_HEIGHT + padding;
                 }
             }
         }
     }
 
+    private void updateIntervalLabels(int numberOfColors, int minutesPerColor) {
+        if (intervalLabels.length == numberOfColors && intervalLabelsMinutesPerColor == minutesPerColor) {
+            return;
+        }
+
+        intervalLabels = new String[numberOfColors];
+        for (int index = 0; index < numberOfColors; index++) {
+            boolean isLastValue = index == numberOfColors - 1;
+            intervalLabels[index] = String.format("%c %dmin", isLastValue ? '>' : '<', (index + (isLastValue ? 0 : 1)) * minutesPerColor);
+        }
+        intervalLabelsMinutesPerColor = minutesPerColor;
+    }
+
+    private String getRasterLabel() {
+        final String info = getRasterString();
+        if (rasterLabel == null || info != rasterInfo) {
+            rasterLabel = "Raster: " + info;
+            rasterInfo = info;
+        }
+        return rasterLabel;
+    }
+
+    private String getCountThresholdLabel() {
+        final int countThreshold = strikesOverlay.getCountThreshold();
+        if (countThreshold != countThresholdLabelValue) {
+            countThresholdLabel = "# > " + countThreshold;
+            countThresholdLabelValue = countThreshold;
+        }
+        return countThresholdLabel;
+    }
+
     private String getRegionName() {
         int regionNumber = strikesOverlay.getRegion();
+        if (regionNumber != regionNameRegion) {
+            regionName = lookupRegionName(regionNumber);
+            regionNameRegion = regionNumber;
+        }
+        return regionName;
+    }
 
+    private String lookupRegionName(int regionNumber) {
         int index = 0;
         for (String region_number : getResources().getStringArray(R.array.regions_values)) {
             if (regionNumber == Integer.parseInt(region_number)) {
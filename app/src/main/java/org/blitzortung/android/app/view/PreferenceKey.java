@@ -20,6 +20,9 @@ public enum PreferenceKey {
     ALERT_VIBRATION_SIGNAL("alarm_vibration_signal"),
     ALERT_NOTIFICATION_DISTANCE_LIMIT("notification_distance_limit"),
     ALERT_SIGNALING_DISTANCE_LIMIT("signaling_distance_limit"),
+    ALERT_WATCH_POINTS("alarm_watch_points"),
+    ALERT_SECTOR_COUNT("alarm_sector_count"),
+    ALERT_RANGE_STEPS("alarm_range_steps"),
     REGION("region"),
     DATA_SOURCE("data_source"),
     MEASUREMENT_UNIT("measurement_unit"),
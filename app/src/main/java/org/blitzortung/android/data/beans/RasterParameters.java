@@ -45,6 +45,30 @@ public class RasterParameters {
 		return lat_start - lat_delta * (offset + 0.5f);
 	}
 
+	public float getLongitudeStart() {
+		return lon_start;
+	}
+
+	public float getLatitudeStart() {
+		return lat_start;
+	}
+
+	public int getLongitudeCount() {
+		return lon_count;
+	}
+
+	public int getLatitudeCount() {
+		return lat_count;
+	}
+
+	public int getLongitudeCellIndex(float longitude) {
+		return Math.max(0, Math.min((int) Math.floor((longitude - lon_start) / lon_delta), lon_count - 1));
+	}
+
+	public int getLatitudeCellIndex(float latitude) {
+		return Math.max(0, Math.min((int) Math.floor((lat_start - latitude) / lat_delta), lat_count - 1));
+	}
+
 	public float getLongitudeDelta() {
 		return lon_delta;
 	}
@@ -8,6 +8,10 @@ public class Station {
 
     public static final long OFFLINE_SINCE_NOT_SET = -1;
 
+    private static final long DELAYED_MINUTES = 15;
+
+    private static final long OFF_MINUTES = 24 * 60;
+
     private String name;
 
     private float longitude;
@@ -40,21 +44,42 @@ public class Station {
     }
 
     public State getState() {
+        return getState(offlineSince, System.currentTimeMillis());
+    }
+
+    public static State getState(long offlineSince, long now) {
         if (offlineSince == OFFLINE_SINCE_NOT_SET) {
             return State.ON;
         } else {
 
-            long now = System.currentTimeMillis();
-
             long minutesAgo = (now - offlineSince) / 1000 / 60;
 
-            if (minutesAgo > 24 * 60) {
+            if (minutesAgo > OFF_MINUTES) {
                 return State.OFF;
-            } else if (minutesAgo > 15) {
+            } else if (minutesAgo > DELAYED_MINUTES) {
                 return State.DELAYED;
             } else {
                 return State.ON;
             }
         }
     }
+
+    /**
+     * returns the first time after now at which the state of a station offline since the given time changes,
+     * Long.MAX_VALUE if it does not change anymore
+     */
+    public static long getNextStateTransitionTime(long offlineSince, long now) {
+        if (offlineSince == OFFLINE_SINCE_NOT_SET) {
+            return Long.MAX_VALUE;
+        }
+
+        switch (getState(offlineSince, now)) {
+            case ON:
+                return offlineSince + (DELAYED_MINUTES + 1) * 60 * 1000;
+            case DELAYED:
+                return offlineSince + (OFF_MINUTES + 1) * 60 * 1000;
+            default:
+                return Long.MAX_VALUE;
+        }
+    }
 }
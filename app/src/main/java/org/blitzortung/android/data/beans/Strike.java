@@ -6,6 +6,10 @@ public interface Strike {
 
     long getTimestamp();
 
+    float getLongitude();
+
+    float getLatitude();
+
     Location getLocation(Location location);
 
     int getMultiplicity();
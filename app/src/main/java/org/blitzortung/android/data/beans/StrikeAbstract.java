@@ -10,6 +10,7 @@ public abstract class StrikeAbstract implements Strike {
 	
 	private float latitude;
 	
+    @Override
 	public float getLongitude() {
 		return longitude;
 	}
@@ -18,6 +19,7 @@ public abstract class StrikeAbstract implements Strike {
 		this.longitude = longitude;
 	}
 
+    @Override
 	public float getLatitude() {
 		return latitude;
 	}
@@ -0,0 +1,206 @@
+package org.blitzortung.android.map.index;
+
+import com.google.android.maps.GeoPoint;
+import com.google.android.maps.OverlayItem;
+import org.blitzortung.android.util.SlidingList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * uniform grid over E6 coordinates, used to restrict drawing and hit testing to items near a given area
+ *
+ * copies share their rows and cells with the original index, rows are copied when they are first modified by an
+ * index, so that an index can be derived from a published one with costs depending on the changes only
+ */
+public class GeoGridIndex<T extends OverlayItem> {
+
+    public static final int LONGITUDE_RANGE_E6 = 360000000;
+
+    public static final int LATITUDE_RANGE_E6 = 180000000;
+
+    private static class Row<T> {
+
+        private final Object owner;
+
+        private final SlidingList<T>[] cells;
+
+        private Row(Object owner, SlidingList<T>[] cells) {
+            this.owner = owner;
+            this.cells = cells;
+        }
+    }
+
+    private final int cellSizeE6;
+
+    private final int longitudeCellCount;
+
+    private final int latitudeCellCount;
+
+    private final Row<T>[] rows;
+
+    // rows created by other owners are shared and have to be copied before they are modified
+    private Object owner;
+
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public GeoGridIndex(int cellSizeE6) {
+        this.cellSizeE6 = cellSizeE6;
+        longitudeCellCount = (LONGITUDE_RANGE_E6 + cellSizeE6 - 1) / cellSizeE6;
+        latitudeCellCount = (LATITUDE_RANGE_E6 + cellSizeE6 - 1) / cellSizeE6;
+        rows = new Row[latitudeCellCount];
+        owner = new Object();
+    }
+
+    private GeoGridIndex(GeoGridIndex<T> other) {
+        cellSizeE6 = other.cellSizeE6;
+        longitudeCellCount = other.longitudeCellCount;
+        latitudeCellCount = other.latitudeCellCount;
+        rows = other.rows.clone();
+        owner = new Object();
+        size = other.size;
+    }
+
+    /**
+     * returns an index with the same items which shares all rows with this index, modifying one of both indices does
+     * not affect the other
+     */
+    public GeoGridIndex<T> copy() {
+        owner = new Object();
+        return new GeoGridIndex<T>(this);
+    }
+
+    public void add(T item) {
+        final GeoPoint point = item.getPoint();
+        final SlidingList<T>[] cells = getModifiableCells(getLatitudeCell(point.getLatitudeE6()));
+        final int column = getLongitudeCell(point.getLongitudeE6());
+
+        final SlidingList<T> cell = cells[column] != null ? cells[column] : new SlidingList<T>();
+        cells[column] = cell.slide(0, Collections.singletonList(item));
+        size++;
+    }
+
+    /**
+     * removes the item, removing the oldest item of a cell takes constant time
+     */
+    public boolean remove(T item) {
+        final GeoPoint point = item.getPoint();
+        final int row = getLatitudeCell(point.getLatitudeE6());
+        final int column = getLongitudeCell(point.getLongitudeE6());
+
+        final SlidingList<T> cell = rows[row] != null ? rows[row].cells[column] : null;
+        if (cell == null) {
+            return false;
+        }
+
+        if (!cell.isEmpty() && cell.get(0) == item) {
+            getModifiableCells(row)[column] = cell.drop(1);
+        } else {
+            final int index = cell.indexOf(item);
+            if (index < 0) {
+                return false;
+            }
+            final ArrayList<T> remainingItems = new ArrayList<T>(cell);
+            remainingItems.remove(index);
+            getModifiableCells(row)[column] = new SlidingList<T>().slide(0, remainingItems);
+        }
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = null;
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCellSizeE6() {
+        return cellSizeE6;
+    }
+
+    /**
+     * collects all items of the cells touching the given area, a minimum longitude larger than the maximum longitude
+     * denotes an area crossing the date line
+     */
+    public void query(int minimumLatitudeE6, int minimumLongitudeE6, int maximumLatitudeE6, int maximumLongitudeE6, List<T> result) {
+        result.clear();
+
+        if (size == 0) {
+            return;
+        }
+
+        final int minimumRow = getLatitudeCell(Math.min(minimumLatitudeE6, maximumLatitudeE6));
+        final int maximumRow = getLatitudeCell(Math.max(minimumLatitudeE6, maximumLatitudeE6));
+
+        if (maximumLongitudeE6 - minimumLongitudeE6 >= LONGITUDE_RANGE_E6) {
+            collect(minimumRow, maximumRow, 0, longitudeCellCount - 1, result);
+        } else {
+            final int minimumColumn = getLongitudeCell(minimumLongitudeE6);
+            final int maximumColumn = getLongitudeCell(maximumLongitudeE6);
+
+            if (normalizeLongitude(minimumLongitudeE6) <= normalizeLongitude(maximumLongitudeE6)) {
+                collect(minimumRow, maximumRow, minimumColumn, maximumColumn, result);
+            } else {
+                collect(minimumRow, maximumRow, minimumColumn, longitudeCellCount - 1, result);
+                collect(minimumRow, maximumRow, 0, maximumColumn, result);
+            }
+        }
+    }
+
+    public void queryAll(List<T> result) {
+        query(-LATITUDE_RANGE_E6 / 2, -LONGITUDE_RANGE_E6 / 2, LATITUDE_RANGE_E6 / 2, LONGITUDE_RANGE_E6 / 2, result);
+    }
+
+    private void collect(int minimumRow, int maximumRow, int minimumColumn, int maximumColumn, List<T> result) {
+        for (int row = minimumRow; row <= maximumRow; row++) {
+            if (rows[row] == null) {
+                continue;
+            }
+            final SlidingList<T>[] cells = rows[row].cells;
+            for (int column = minimumColumn; column <= maximumColumn; column++) {
+                final SlidingList<T> cell = cells[column];
+                if (cell != null) {
+                    for (int index = 0; index < cell.size(); index++) {
+                        result.add(cell.get(index));
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private SlidingList<T>[] getModifiableCells(int row) {
+        final Row<T> currentRow = rows[row];
+        if (currentRow == null) {
+            rows[row] = new Row<T>(owner, new SlidingList[longitudeCellCount]);
+        } else if (currentRow.owner != owner) {
+            rows[row] = new Row<T>(owner, currentRow.cells.clone());
+        }
+        return rows[row].cells;
+    }
+
+    private int getLatitudeCell(int latitudeE6) {
+        final int row = (latitudeE6 + LATITUDE_RANGE_E6 / 2) / cellSizeE6;
+        return Math.max(0, Math.min(row, latitudeCellCount - 1));
+    }
+
+    private int getLongitudeCell(int longitudeE6) {
+        final int column = (normalizeLongitude(longitudeE6) + LONGITUDE_RANGE_E6 / 2) / cellSizeE6;
+        return Math.min(column, longitudeCellCount - 1);
+    }
+
+    private static int normalizeLongitude(int longitudeE6) {
+        int offset = (longitudeE6 + LONGITUDE_RANGE_E6 / 2) % LONGITUDE_RANGE_E6;
+        if (offset < 0) {
+            offset += LONGITUDE_RANGE_E6;
+        }
+        return offset - LONGITUDE_RANGE_E6 / 2;
+    }
+}
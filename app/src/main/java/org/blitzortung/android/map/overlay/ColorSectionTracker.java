@@ -0,0 +1,155 @@
+package org.blitzortung.android.map.overlay;
+
+import org.blitzortung.android.data.TimeIntervalWithOffset;
+import org.blitzortung.android.map.overlay.color.ColorHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * keeps the color sections of time ordered strikes up to date by only advancing the section boundaries,
+ * falls back to a full scan if the strikes are not ordered or the color setup has changed
+ */
+public class ColorSectionTracker {
+
+    private final ArrayList<StrikeOverlayItem> changedItems = new ArrayList<>();
+
+    // first index of a strike with a color section less or equal to the array index
+    private int[] boundaries = new int[0];
+
+    private int trackedCount;
+
+    private boolean chronological = true;
+
+    private boolean invalid = true;
+
+    private int[] colors;
+
+    private int intervalDuration;
+
+    private int intervalOffset;
+
+    private long nextTransitionTime = Long.MAX_VALUE;
+
+    public void invalidate() {
+        invalid = true;
+    }
+
+    public void clear() {
+        trackedCount = 0;
+        chronological = true;
+        invalid = true;
+        nextTransitionTime = Long.MAX_VALUE;
+    }
+
+    public void onStrikesAdded(List<StrikeOverlayItem> strikes, int firstIndex) {
+        for (int index = Math.max(firstIndex, 1); index < strikes.size() && chronological; index++) {
+            if (strikes.get(index).getTimestamp() < strikes.get(index - 1).getTimestamp()) {
+                chronological = false;
+            }
+        }
+    }
+
+    public void onStrikesExpired(int expiredCount) {
+        trackedCount = Math.max(0, trackedCount - expiredCount);
+        for (int section = 0; section < boundaries.length; section++) {
+            boundaries[section] = Math.max(0, boundaries[section] - expiredCount);
+        }
+    }
+
+    /**
+     * updates the color sections and returns the strikes whose section has changed or which were added since the last update
+     */
+    public List<StrikeOverlayItem> update(List<StrikeOverlayItem> strikes, long now, ColorHandler colorHandler, TimeIntervalWithOffset interval) {
+        changedItems.clear();
+
+        final int[] colors = colorHandler.getColors();
+        if (invalid || !chronological || colors != this.colors
+                || interval.getIntervalDuration() != intervalDuration || interval.getIntervalOffset() != intervalOffset) {
+            this.colors = colors;
+            intervalDuration = interval.getIntervalDuration();
+            intervalOffset = interval.getIntervalOffset();
+            updateAll(strikes, now, colorHandler, interval);
+        } else if (now >= nextTransitionTime || trackedCount < strikes.size()) {
+            updateIncremental(strikes, now, colorHandler, interval);
+        }
+
+        return changedItems;
+    }
+
+    public long getNextTransitionTime() {
+        return nextTransitionTime;
+    }
+
+    private void updateAll(List<StrikeOverlayItem> strikes, long now, ColorHandler colorHandler, TimeIntervalWithOffset interval) {
+        for (int index = 0; index < strikes.size(); index++) {
+            final StrikeOverlayItem item = strikes.get(index);
+            item.setColorSection(colorHandler.getColorSection(now, item.getTimestamp(), interval));
+            changedItems.add(item);
+        }
+        trackedCount = strikes.size();
+        invalid = false;
+
+        if (boundaries.length != colors.length) {
+            boundaries = new int[colors.length];
+        }
+
+        if (chronological) {
+            int index = 0;
+            for (int section = colors.length - 1; section >= 0; section--) {
+                while (index < strikes.size() && strikes.get(index).getColorSection() > section) {
+                    index++;
+                }
+                boundaries[section] = index;
+            }
+            updateNextTransitionTime(strikes);
+        } else {
+            nextTransitionTime = Long.MAX_VALUE;
+        }
+    }
+
+    private void updateIncremental(List<StrikeOverlayItem> strikes, long now, ColorHandler colorHandler, TimeIntervalWithOffset interval) {
+        for (int index = trackedCount; index < strikes.size(); index++) {
+            final StrikeOverlayItem item = strikes.get(index);
+            item.setColorSection(colorHandler.getColorSection(now, item.getTimestamp(), interval));
+            changedItems.add(item);
+        }
+        final int addedCount = changedItems.size();
+        trackedCount = strikes.size();
+
+        for (int section = colors.length - 2; section >= 0; section--) {
+            int boundary = boundaries[section];
+            while (boundary < strikes.size()) {
+                final StrikeOverlayItem item = strikes.get(boundary);
+                final int currentSection = colorHandler.getColorSection(now, item.getTimestamp(), interval);
+                if (currentSection <= section) {
+                    break;
+                }
+                if (currentSection != item.getColorSection()) {
+                    item.setColorSection(currentSection);
+                    if (boundary < strikes.size() - addedCount) {
+                        changedItems.add(item);
+                    }
+                }
+                boundary++;
+            }
+            boundaries[section] = boundary;
+        }
+
+        updateNextTransitionTime(strikes);
+    }
+
+    private void updateNextTransitionTime(List<StrikeOverlayItem> strikes) {
+        final long sectionDuration = (long) (intervalDuration / colors.length) * 60 * 1000;
+        final long offset = (long) intervalOffset * 60 * 1000;
+
+        nextTransitionTime = Long.MAX_VALUE;
+        for (int section = 0; section < colors.length - 1; section++) {
+            final int boundary = boundaries[section];
+            if (boundary < strikes.size()) {
+                final long transitionTime = strikes.get(boundary).getTimestamp() - offset + (section + 1) * sectionDuration;
+                nextTransitionTime = Math.min(nextTransitionTime, transitionTime);
+            }
+        }
+    }
+}
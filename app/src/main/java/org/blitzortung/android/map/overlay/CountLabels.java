@@ -0,0 +1,27 @@
+package org.blitzortung.android.map.overlay;
+
+/**
+ * provides the decimal labels of strike counts without allocating a new string on every frame
+ */
+public final class CountLabels {
+
+    private static final int MAX_CACHED_COUNT = 9999;
+
+    private static final String[] labels = new String[MAX_CACHED_COUNT + 1];
+
+    private CountLabels() {
+    }
+
+    public static String get(int count) {
+        if (count < 0 || count > MAX_CACHED_COUNT) {
+            return String.valueOf(count);
+        }
+
+        String label = labels[count];
+        if (label == null) {
+            label = String.valueOf(count);
+            labels[count] = label;
+        }
+        return label;
+    }
+}
@@ -11,6 +11,10 @@ public class FadeOverlay extends Overlay {
 
     private final ColorHandler colorHandler;
 
+    private final Paint paint = new Paint();
+
+    private final Rect clipBounds = new Rect();
+
     private int alphaValue = 0;
 
     public FadeOverlay(ColorHandler colorHandler) {
@@ -20,11 +24,10 @@ public class FadeOverlay extends Overlay {
     @Override
     public void draw(Canvas canvas, MapView mapView, boolean shadow) {
         if (!shadow) {
-            Rect rect = canvas.getClipBounds();
-            Paint paint = new Paint();
+            canvas.getClipBounds(clipBounds);
             paint.setColor(colorHandler.getBackgroundColor());
             paint.setAlpha(alphaValue);
-            canvas.drawRect(rect, paint);
+            canvas.drawRect(clipBounds, paint);
         }
     }
 
@@ -0,0 +1,85 @@
+package org.blitzortung.android.map.overlay;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import com.google.android.maps.MapView;
+import com.google.android.maps.Overlay;
+import org.blitzortung.android.util.FrameProfiler;
+import org.blitzortung.android.util.FrameTimer;
+
+import java.util.List;
+
+/**
+ * shows the rolling draw times of the profiled overlays and views on top of the map
+ */
+public class FrameProfilerOverlay extends Overlay {
+
+    private static final long UPDATE_INTERVAL = 500;
+
+    private static final float TEXT_SIZE = 20f;
+
+    private static final float PADDING = 6f;
+
+    private final Paint backgroundPaint;
+
+    private final Paint textPaint;
+
+    private final RectF backgroundRect = new RectF();
+
+    private String[] lines = new String[0];
+
+    private float linesWidth;
+
+    private long lastUpdateTime;
+
+    public FrameProfilerOverlay() {
+        backgroundPaint = new Paint();
+        backgroundPaint.setColor(0xa0000000);
+
+        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(0xffffffff);
+        textPaint.setTextSize(TEXT_SIZE);
+    }
+
+    @Override
+    public void draw(Canvas canvas, MapView mapView, boolean shadow) {
+        if (!shadow && FrameProfiler.isEnabled()) {
+            final long now = System.currentTimeMillis();
+            if (now - lastUpdateTime >= UPDATE_INTERVAL) {
+                updateLines();
+                lastUpdateTime = now;
+            }
+
+            if (lines.length > 0) {
+                final float left = PADDING;
+                final float top = mapView.getHeight() / 4f;
+                final float lineHeight = TEXT_SIZE * 1.2f;
+
+                backgroundRect.set(left, top, left + linesWidth + 2 * PADDING, top + lines.length * lineHeight + 2 * PADDING);
+                canvas.drawRect(backgroundRect, backgroundPaint);
+
+                for (int index = 0; index < lines.length; index++) {
+                    canvas.drawText(lines[index], left + PADDING, top + PADDING + (index + 1) * lineHeight - 0.2f * TEXT_SIZE, textPaint);
+                }
+            }
+        }
+    }
+
+    // VisibleForTesting
+    protected void updateLines() {
+        final List<FrameTimer> timers = FrameProfiler.getTimers();
+
+        lines = new String[timers.size()];
+        linesWidth = 0;
+        for (int index = 0; index < lines.length; index++) {
+            lines[index] = FrameProfiler.formatSummary(timers.get(index));
+            linesWidth = Math.max(linesWidth, textPaint.measureText(lines[index]));
+        }
+    }
+
+    // VisibleForTesting
+    protected String[] getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,130 @@
+package org.blitzortung.android.map.overlay;
+
+import android.graphics.Point;
+import com.google.android.maps.GeoPoint;
+import com.google.android.maps.Projection;
+import org.blitzortung.android.data.beans.RasterParameters;
+
+/**
+ * Mercator world pixel coordinates calibrated once per zoom level, drawing only needs the current pan offset
+ */
+public class MercatorProjectionCache {
+
+    private static final GeoPoint ORIGIN = new GeoPoint(0, 0);
+
+    private static final int CALIBRATION_LATITUDE_E6 = 60000000;
+
+    private static final int CALIBRATION_LONGITUDE_E6 = 90000000;
+
+    private static final GeoPoint CALIBRATION_POINT = new GeoPoint(CALIBRATION_LATITUDE_E6, CALIBRATION_LONGITUDE_E6);
+
+    private final Point origin = new Point();
+
+    private final Point calibration = new Point();
+
+    private boolean calibrated;
+
+    private int zoomLevel;
+
+    private double pixelsPerLongitudeE6;
+
+    private double pixelsPerMercatorUnit;
+
+    private RasterParameters rasterParameters;
+
+    private double[] longitudeEdges = new double[0];
+
+    private double[] latitudeEdges = new double[0];
+
+    /**
+     * recalibrates the scale if the zoom level has changed, returns true if world coordinates have to be recomputed
+     */
+    public boolean update(Projection projection, int zoomLevel) {
+        if (calibrated && zoomLevel == this.zoomLevel) {
+            return false;
+        }
+
+        projection.toPixels(ORIGIN, origin);
+        projection.toPixels(CALIBRATION_POINT, calibration);
+
+        pixelsPerLongitudeE6 = (double) (calibration.x - origin.x) / CALIBRATION_LONGITUDE_E6;
+        pixelsPerMercatorUnit = (calibration.y - origin.y) / mercator(CALIBRATION_LATITUDE_E6);
+
+        this.zoomLevel = zoomLevel;
+        calibrated = true;
+        rasterParameters = null;
+
+        return true;
+    }
+
+    public void invalidate() {
+        calibrated = false;
+        rasterParameters = null;
+    }
+
+    public void updateOffset(Projection projection) {
+        projection.toPixels(ORIGIN, origin);
+    }
+
+    public double toWorldX(double longitudeE6) {
+        return longitudeE6 * pixelsPerLongitudeE6;
+    }
+
+    public double toWorldY(double latitudeE6) {
+        return mercator(latitudeE6) * pixelsPerMercatorUnit;
+    }
+
+    public float toScreenX(double worldX) {
+        return (float) (origin.x + worldX);
+    }
+
+    public float toScreenY(double worldY) {
+        return (float) (origin.y + worldY);
+    }
+
+    /**
+     * computes the world coordinates of the raster cell edges, index 0 is the left or top edge of the raster
+     */
+    public void updateRaster(RasterParameters rasterParameters) {
+        if (rasterParameters == this.rasterParameters) {
+            return;
+        }
+
+        final int longitudeCount = rasterParameters.getLongitudeCount();
+        final int latitudeCount = rasterParameters.getLatitudeCount();
+
+        if (longitudeEdges.length < longitudeCount + 1) {
+            longitudeEdges = new double[longitudeCount + 1];
+        }
+        if (latitudeEdges.length < latitudeCount + 1) {
+            latitudeEdges = new double[latitudeCount + 1];
+        }
+
+        final double longitudeStart = rasterParameters.getLongitudeStart() * 1e6;
+        final double longitudeDelta = rasterParameters.getLongitudeDelta() * 1e6;
+        for (int index = 0; index <= longitudeCount; index++) {
+            longitudeEdges[index] = toWorldX(longitudeStart + index * longitudeDelta);
+        }
+
+        final double latitudeStart = rasterParameters.getLatitudeStart() * 1e6;
+        final double latitudeDelta = rasterParameters.getLatitudeDelta() * 1e6;
+        for (int index = 0; index <= latitudeCount; index++) {
+            latitudeEdges[index] = toWorldY(latitudeStart - index * latitudeDelta);
+        }
+
+        this.rasterParameters = rasterParameters;
+    }
+
+    public double getLongitudeEdge(int index) {
+        return longitudeEdges[index];
+    }
+
+    public double getLatitudeEdge(int index) {
+        return latitudeEdges[index];
+    }
+
+    private static double mercator(double latitudeE6) {
+        final double latitude = Math.toRadians(latitudeE6 / 1e6);
+        return Math.log(Math.tan(Math.PI / 4 + latitude / 2));
+    }
+}
@@ -0,0 +1,184 @@
+package org.blitzortung.android.map.overlay;
+
+import com.google.android.maps.GeoPoint;
+import org.blitzortung.android.data.beans.Station.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * aggregates participants into clusters on a hierarchy of mercator grids, a level has 2^level cells per axis so every
+ * cell is the parent of four cells of the next finer level and coarser levels are merged from finer ones on demand
+ */
+public class ParticipantClusterIndex {
+
+    public static class ParticipantCluster {
+
+        private final int[] stateCounts = new int[State.values().length];
+
+        private int count;
+
+        private double sumLongitudeE6;
+
+        private double sumLatitudeE6;
+
+        private int listIndex;
+
+        private ParticipantCluster() {
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getCount(State state) {
+            return stateCounts[state.ordinal()];
+        }
+
+        public double getLongitudeE6() {
+            return sumLongitudeE6 / count;
+        }
+
+        public double getLatitudeE6() {
+            return sumLatitudeE6 / count;
+        }
+
+        private void add(ParticipantCluster other) {
+            for (int index = 0; index < stateCounts.length; index++) {
+                stateCounts[index] += other.stateCounts[index];
+            }
+            count += other.count;
+            sumLongitudeE6 += other.sumLongitudeE6;
+            sumLatitudeE6 += other.sumLatitudeE6;
+        }
+    }
+
+    private static class Level {
+
+        private final HashMap<Long, ParticipantCluster> clusterMap = new HashMap<>();
+
+        private final ArrayList<ParticipantCluster> clusters = new ArrayList<>();
+
+        private ParticipantCluster getOrCreate(Long key) {
+            ParticipantCluster cluster = clusterMap.get(key);
+            if (cluster == null) {
+                cluster = new ParticipantCluster();
+                cluster.listIndex = clusters.size();
+                clusterMap.put(key, cluster);
+                clusters.add(cluster);
+            }
+            return cluster;
+        }
+
+        private void remove(Long key, ParticipantCluster cluster) {
+            clusterMap.remove(key);
+            final ParticipantCluster last = clusters.remove(clusters.size() - 1);
+            if (last != cluster) {
+                clusters.set(cluster.listIndex, last);
+                last.listIndex = cluster.listIndex;
+            }
+        }
+    }
+
+    private final int finestLevel;
+
+    private final Level[] levels;
+
+    public ParticipantClusterIndex(int finestLevel) {
+        this.finestLevel = finestLevel;
+        levels = new Level[finestLevel + 1];
+        levels[finestLevel] = new Level();
+    }
+
+    public void add(ParticipantOverlayItem item) {
+        final GeoPoint point = item.getPoint();
+        for (int level = 0; level <= finestLevel; level++) {
+            if (levels[level] != null) {
+                final ParticipantCluster cluster = levels[level].getOrCreate(getKey(point, level));
+                cluster.stateCounts[item.getParticipantState().ordinal()]++;
+                cluster.count++;
+                cluster.sumLongitudeE6 += point.getLongitudeE6();
+                cluster.sumLatitudeE6 += point.getLatitudeE6();
+            }
+        }
+    }
+
+    public void remove(ParticipantOverlayItem item) {
+        final GeoPoint point = item.getPoint();
+        for (int level = 0; level <= finestLevel; level++) {
+            if (levels[level] != null) {
+                final Long key = getKey(point, level);
+                final ParticipantCluster cluster = levels[level].clusterMap.get(key);
+                if (cluster != null) {
+                    cluster.stateCounts[item.getParticipantState().ordinal()]--;
+                    cluster.count--;
+                    cluster.sumLongitudeE6 -= point.getLongitudeE6();
+                    cluster.sumLatitudeE6 -= point.getLatitudeE6();
+                    if (cluster.count <= 0) {
+                        levels[level].remove(key, cluster);
+                    }
+                }
+            }
+        }
+    }
+
+    public void updateState(ParticipantOverlayItem item, State previousState) {
+        final GeoPoint point = item.getPoint();
+        for (int level = 0; level <= finestLevel; level++) {
+            if (levels[level] != null) {
+                final ParticipantCluster cluster = levels[level].clusterMap.get(getKey(point, level));
+                if (cluster != null) {
+                    cluster.stateCounts[previousState.ordinal()]--;
+                    cluster.stateCounts[item.getParticipantState().ordinal()]++;
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        for (int level = 0; level < finestLevel; level++) {
+            levels[level] = null;
+        }
+        levels[finestLevel].clusterMap.clear();
+        levels[finestLevel].clusters.clear();
+    }
+
+    /**
+     * returns the clusters of the given level, a level which has not been used before is merged from the next finer one
+     */
+    public List<ParticipantCluster> getClusters(int level) {
+        return getLevel(Math.max(0, Math.min(level, finestLevel))).clusters;
+    }
+
+    // VisibleForTesting
+    protected boolean isLevelBuilt(int level) {
+        return levels[level] != null;
+    }
+
+    private Level getLevel(int level) {
+        if (levels[level] == null) {
+            final Level finerLevel = getLevel(level + 1);
+            final Level mergedLevel = new Level();
+            for (Map.Entry<Long, ParticipantCluster> entry : finerLevel.clusterMap.entrySet()) {
+                final long key = entry.getKey();
+                final long parentKey = ((key >> 32) >> 1) << 32 | ((key & 0xffffffffL) >> 1);
+                mergedLevel.getOrCreate(parentKey).add(entry.getValue());
+            }
+            levels[level] = mergedLevel;
+        }
+        return levels[level];
+    }
+
+    private static Long getKey(GeoPoint point, int level) {
+        final double cells = 1L << level;
+        final double latitude = Math.toRadians(Math.max(-85.0, Math.min(85.0, point.getLatitudeE6() / 1e6)));
+        final double x = (point.getLongitudeE6() / 1e6 + 180.0) / 360.0;
+        final double y = (1.0 - Math.log(Math.tan(latitude) + 1.0 / Math.cos(latitude)) / Math.PI) / 2.0;
+
+        final long cellX = Math.max(0, Math.min((long) Math.floor(x * cells), (long) cells - 1));
+        final long cellY = Math.max(0, Math.min((long) Math.floor(y * cells), (long) cells - 1));
+        return cellX << 32 | cellY;
+    }
+}
@@ -1,5 +1,6 @@
 package org.blitzortung.android.map.overlay;
 
+import com.google.android.maps.GeoPoint;
 import com.google.android.maps.OverlayItem;
 import org.blitzortung.android.data.Coordsys;
 import org.blitzortung.android.data.beans.Station;
@@ -7,16 +8,55 @@ import org.blitzortung.android.data.beans.Station.State;
 
 public class ParticipantOverlayItem extends OverlayItem {
 
-	private final long lastDataTime;
+	private long lastDataTime;
 	
-	private final State participantState;
+	private State participantState;
+
+	private long nextTransitionTime;
+
+	private int updateGeneration;
+
+	private int transitionQueueIndex = -1;
 
     public ParticipantOverlayItem(Station station) {
+		this(station, System.currentTimeMillis());
+    }
+
+    public ParticipantOverlayItem(Station station, long now) {
 		super(Coordsys.toMapCoords(station.getLongitude(), station.getLatitude()), station.getName(), "");
 
 		lastDataTime = station.getOfflineSince();
-		participantState = station.getState();
+		updateState(now);
     }
+
+	/**
+	 * takes over the data of a station at the same location and returns true if its state has changed
+	 */
+	public boolean update(Station station, long now) {
+		lastDataTime = station.getOfflineSince();
+		return updateState(now);
+	}
+
+	/**
+	 * evaluates the state for the given time and returns true if it has changed
+	 */
+	public boolean updateState(long now) {
+		final State state = Station.getState(lastDataTime, now);
+		nextTransitionTime = Station.getNextStateTransitionTime(lastDataTime, now);
+
+		final boolean stateChanged = state != participantState;
+		participantState = state;
+		return stateChanged;
+	}
+
+	public long getNextTransitionTime() {
+		return nextTransitionTime;
+	}
+
+	public boolean isLocatedAt(Station station) {
+		final GeoPoint point = getPoint();
+		return point.getLongitudeE6() == (int) (station.getLongitude() * 1e6) && point.getLatitudeE6() == (int) (station.getLatitude() * 1e6);
+	}
 	
 	public long getLastDataTime() {
 		return lastDataTime;
@@ -25,4 +65,20 @@ public class ParticipantOverlayItem extends OverlayItem {
 	public State getParticipantState() {
 		return participantState;
 	}
+
+	int getUpdateGeneration() {
+		return updateGeneration;
+	}
+
+	void setUpdateGeneration(int updateGeneration) {
+		this.updateGeneration = updateGeneration;
+	}
+
+	int getTransitionQueueIndex() {
+		return transitionQueueIndex;
+	}
+
+	void setTransitionQueueIndex(int transitionQueueIndex) {
+		this.transitionQueueIndex = transitionQueueIndex;
+	}
 }
@@ -0,0 +1,116 @@
+package org.blitzortung.android.map.overlay;
+
+import java.util.Arrays;
+
+/**
+ * binary heap of the participants ordered by their next state transition time, the items keep their heap index so that
+ * changed or removed items are requeued in logarithmic time
+ */
+public class ParticipantTransitionQueue {
+
+    private ParticipantOverlayItem[] heap = new ParticipantOverlayItem[16];
+
+    private int size;
+
+    /**
+     * adds, moves or removes the item according to its current next transition time, items without further transitions
+     * are not queued
+     */
+    public void update(ParticipantOverlayItem item) {
+        if (item.getNextTransitionTime() == Long.MAX_VALUE) {
+            remove(item);
+            return;
+        }
+
+        int index = item.getTransitionQueueIndex();
+        if (index < 0) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            index = size++;
+            place(item, index);
+        }
+        siftDown(siftUp(index));
+    }
+
+    public void remove(ParticipantOverlayItem item) {
+        final int index = item.getTransitionQueueIndex();
+        if (index < 0) {
+            return;
+        }
+        item.setTransitionQueueIndex(-1);
+
+        final ParticipantOverlayItem last = heap[--size];
+        heap[size] = null;
+        if (index < size) {
+            place(last, index);
+            siftDown(siftUp(index));
+        }
+    }
+
+    public ParticipantOverlayItem peek() {
+        return size > 0 ? heap[0] : null;
+    }
+
+    public ParticipantOverlayItem poll() {
+        final ParticipantOverlayItem first = peek();
+        if (first != null) {
+            remove(first);
+        }
+        return first;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int index = 0; index < size; index++) {
+            heap[index].setTransitionQueueIndex(-1);
+            heap[index] = null;
+        }
+        size = 0;
+    }
+
+    private int siftUp(int index) {
+        final ParticipantOverlayItem item = heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (heap[parent].getNextTransitionTime() <= item.getNextTransitionTime()) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(item, index);
+        return index;
+    }
+
+    private void siftDown(int index) {
+        final ParticipantOverlayItem item = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].getNextTransitionTime() < heap[child].getNextTransitionTime()) {
+                child++;
+            }
+            if (item.getNextTransitionTime() <= heap[child].getNextTransitionTime()) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(item, index);
+    }
+
+    private void place(ParticipantOverlayItem item, int index) {
+        heap[index] = item;
+        item.setTransitionQueueIndex(index);
+    }
+}
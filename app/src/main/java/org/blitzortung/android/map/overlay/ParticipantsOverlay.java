@@ -2,26 +2,62 @@ package org.blitzortung.android.map.overlay;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.ShapeDrawable;
+import android.os.Handler;
 import android.util.Log;
+import com.google.android.maps.GeoPoint;
+import com.google.android.maps.MapView;
+import com.google.android.maps.Projection;
 import org.blitzortung.android.app.Main;
 import org.blitzortung.android.app.R;
 import org.blitzortung.android.data.beans.Station;
 import org.blitzortung.android.data.beans.Station.State;
 import org.blitzortung.android.map.OwnMapActivity;
+import org.blitzortung.android.map.OwnMapView;
 import org.blitzortung.android.map.components.LayerOverlayComponent;
 import org.blitzortung.android.map.overlay.color.ParticipantColorHandler;
+import org.blitzortung.android.util.FrameProfiler;
+import org.blitzortung.android.util.FrameTimer;
 
 import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 
 public class ParticipantsOverlay extends PopupOverlay<ParticipantOverlayItem> implements LayerOverlay {
 
+    private static final int CLUSTER_MAX_ZOOM_LEVEL = 6;
+
+    // a cluster level has 2^(zoom level + offset) cells per axis which are some 30 pixels wide
+    private static final int CLUSTER_LEVEL_OFFSET = 3;
+
+    private static final float CLUSTER_MIN_RADIUS = 3.0f;
+
+    private static final float CLUSTER_MAX_RADIUS = 12.0f;
+
+    private static final State[] STATES = State.values();
+
     // VisibleForTesting
     protected final ArrayList<ParticipantOverlayItem> participants;
 
+    private final HashMap<String, ParticipantOverlayItem> participantsByName;
+
+    private int updateGeneration;
+
+    private final ParticipantTransitionQueue stateTransitions;
+
+    private final Handler handler;
+
+    private final Runnable stateTransitionTask = new Runnable() {
+        @Override
+        public void run() {
+            updateStateTransitions(System.currentTimeMillis());
+        }
+    };
+
     private final ParticipantColorHandler colorHandler;
 
     static private final Drawable DefaultDrawable;
@@ -34,6 +70,19 @@ public class ParticipantsOverlay extends PopupOverlay<ParticipantOverlayItem> im
 
     private final LayerOverlayComponent layerOverlayComponent;
 
+    private final FrameTimer frameTimer = FrameProfiler.getTimer("ParticipantsOverlay");
+
+    // VisibleForTesting
+    protected final ParticipantClusterIndex clusterIndex;
+
+    private final MercatorProjectionCache projectionCache;
+
+    private final Paint clusterPaint;
+
+    private final Paint clusterTextPaint;
+
+    private final RectF clusterRect;
+
     // VisibleForTesting
     private int zoomLevel;
     private ParticipantOverlayItem item;
@@ -50,6 +99,18 @@ public class ParticipantsOverlay extends PopupOverlay<ParticipantOverlayItem> im
         this.colorHandler = colorHandler;
 
         participants = new ArrayList<ParticipantOverlayItem>();
+        participantsByName = new HashMap<String, ParticipantOverlayItem>();
+        stateTransitions = new ParticipantTransitionQueue();
+        handler = new Handler();
+
+        clusterIndex = new ParticipantClusterIndex(CLUSTER_MAX_ZOOM_LEVEL - 1 + CLUSTER_LEVEL_OFFSET);
+        projectionCache = new MercatorProjectionCache();
+        clusterPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        clusterPaint.setStyle(Paint.Style.FILL);
+        clusterTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        clusterTextPaint.setTextAlign(Paint.Align.CENTER);
+        clusterRect = new RectF();
+
         populate();
     }
 
@@ -66,31 +127,207 @@ public class ParticipantsOverlay extends PopupOverlay<ParticipantOverlayItem> im
     @Override
     public void draw(Canvas canvas, com.google.android.maps.MapView mapView, boolean shadow) {
         if (!shadow) {
-            super.draw(canvas, mapView, false);
+            frameTimer.start();
+            if (mapView.getZoomLevel() < CLUSTER_MAX_ZOOM_LEVEL) {
+                drawClusters(canvas, mapView);
+            } else {
+                super.draw(canvas, mapView, false);
+            }
+            frameTimer.stop();
+        }
+    }
+
+    /**
+     * draws the participants aggregated per grid cell as pie charts of their states
+     */
+    private void drawClusters(Canvas canvas, MapView mapView) {
+        final Projection projection = mapView.getProjection();
+        final int zoomLevel = mapView.getZoomLevel();
+        projectionCache.update(projection, zoomLevel);
+        projectionCache.updateOffset(projection);
+
+        final int[] colors = colorHandler.getColors();
+        final float left = -CLUSTER_MAX_RADIUS;
+        final float top = -CLUSTER_MAX_RADIUS;
+        final float right = mapView.getWidth() + CLUSTER_MAX_RADIUS;
+        final float bottom = mapView.getHeight() + CLUSTER_MAX_RADIUS;
+
+        clusterTextPaint.setColor(colorHandler.getTextColor());
+
+        final List<ParticipantClusterIndex.ParticipantCluster> clusters = clusterIndex.getClusters(zoomLevel + CLUSTER_LEVEL_OFFSET);
+        for (int index = 0; index < clusters.size(); index++) {
+            final ParticipantClusterIndex.ParticipantCluster cluster = clusters.get(index);
+            final float x = projectionCache.toScreenX(projectionCache.toWorldX(cluster.getLongitudeE6()));
+            final float y = projectionCache.toScreenY(projectionCache.toWorldY(cluster.getLatitudeE6()));
+            if (x < left || x > right || y < top || y > bottom) {
+                continue;
+            }
+
+            final int count = cluster.getCount();
+            final float radius = Math.min(CLUSTER_MIN_RADIUS * (1.0f + (float) Math.log10(count)), CLUSTER_MAX_RADIUS);
+            clusterRect.set(x - radius, y - radius, x + radius, y + radius);
+
+            float startAngle = -90.0f;
+            for (State state : STATES) {
+                final int stateCount = cluster.getCount(state);
+                if (stateCount > 0) {
+                    final float sweepAngle = 360.0f * stateCount / count;
+                    clusterPaint.setColor(colors[Math.min(state.ordinal(), colors.length - 1)]);
+                    canvas.drawArc(clusterRect, startAngle, sweepAngle, true, clusterPaint);
+                    startAngle += sweepAngle;
+                }
+            }
+
+            final float textSize = radius * 1.2f;
+            if (count > 1 && textSize >= 8.0f) {
+                clusterTextPaint.setTextSize(textSize);
+                canvas.drawText(CountLabels.get(count), x, y + 0.4f * textSize, clusterTextPaint);
+            }
         }
     }
 
+    /**
+     * updates the participants by station name, items are only created or removed for stations which appear or disappear,
+     * only re-marked if their state has changed and only requeued if their next state transition has moved
+     */
     public void setParticipants(List<Station> stations) {
         Log.v(Main.LOG_TAG, String.format("ParticipantsOverlay.setStations() #%d", stations.size()));
         updateShapes();
 
-        participants.clear();
+        final long now = System.currentTimeMillis();
+        final int generation = ++updateGeneration;
+        int addedCount = 0;
+        int changedCount = 0;
+
         for (Station station : stations) {
-            final ParticipantOverlayItem item = new ParticipantOverlayItem(station);
-            item.setMarker(shapes.get(item.getParticipantState()));
-            participants.add(item);
+            final String name = station.getName();
+            ParticipantOverlayItem item = name != null ? participantsByName.get(name) : null;
+
+            if (item != null && item.getUpdateGeneration() != generation && item.isLocatedAt(station)) {
+                final State previousState = item.getParticipantState();
+                final long previousTransitionTime = item.getNextTransitionTime();
+                if (item.update(station, now)) {
+                    item.setMarker(shapes.get(item.getParticipantState()));
+                    clusterIndex.updateState(item, previousState);
+                    changedCount++;
+                }
+                if (item.getNextTransitionTime() != previousTransitionTime) {
+                    stateTransitions.update(item);
+                }
+            } else {
+                item = new ParticipantOverlayItem(station, now);
+                item.setMarker(shapes.get(item.getParticipantState()));
+                participants.add(item);
+                clusterIndex.add(item);
+                stateTransitions.update(item);
+                if (name != null) {
+                    participantsByName.put(name, item);
+                }
+                addedCount++;
+            }
+            item.setUpdateGeneration(generation);
         }
-        Log.v(Main.LOG_TAG, String.format("ParticipantsOverlay.setStations() set"));
-        setLastFocusedIndex(-1);
 
-        populate();
-        Log.v(Main.LOG_TAG, String.format("ParticipantsOverlay.setStations() finished"));
+        final int removedCount = removeParticipantsOutside(generation);
+        Log.v(Main.LOG_TAG, String.format("ParticipantsOverlay.setStations() added %d, removed %d, changed %d", addedCount, removedCount, changedCount));
+
+        if (addedCount > 0 || removedCount > 0) {
+            setLastFocusedIndex(-1);
+            populate();
+        }
+
+        scheduleNextStateTransition();
+    }
+
+    /**
+     * re-marks the participants whose state changes until the given time and schedules the next transition
+     */
+    // VisibleForTesting
+    protected void updateStateTransitions(long now) {
+        int changedCount = 0;
+
+        while (!stateTransitions.isEmpty() && stateTransitions.peek().getNextTransitionTime() <= now) {
+            final ParticipantOverlayItem item = stateTransitions.poll();
+            final State previousState = item.getParticipantState();
+            if (item.updateState(now)) {
+                item.setMarker(shapes.get(item.getParticipantState()));
+                clusterIndex.updateState(item, previousState);
+                changedCount++;
+            }
+            stateTransitions.update(item);
+        }
+
+        scheduleNextStateTransition();
+
+        if (changedCount > 0) {
+            Log.v(Main.LOG_TAG, String.format("ParticipantsOverlay.updateStateTransitions() changed %d", changedCount));
+            final OwnMapView mapView = getActivity().getMapView();
+            if (mapView != null) {
+                mapView.invalidate();
+            }
+        }
+    }
+
+    private void scheduleNextStateTransition() {
+        handler.removeCallbacks(stateTransitionTask);
+        if (!stateTransitions.isEmpty()) {
+            final long delay = stateTransitions.peek().getNextTransitionTime() - System.currentTimeMillis();
+            handler.postDelayed(stateTransitionTask, Math.max(0, delay));
+        }
+    }
+
+    /**
+     * removes the pending state transition task, which would otherwise keep the overlay and its activity alive
+     */
+    public void stopStateTransitions() {
+        handler.removeCallbacks(stateTransitionTask);
+    }
+
+    /**
+     * applies the transitions which became due while stopped and schedules the next one
+     */
+    public void startStateTransitions() {
+        updateStateTransitions(System.currentTimeMillis());
+    }
+
+    // VisibleForTesting
+    protected long getNextStateTransitionTime() {
+        return stateTransitions.isEmpty() ? Long.MAX_VALUE : stateTransitions.peek().getNextTransitionTime();
+    }
+
+    private int removeParticipantsOutside(int generation) {
+        int removedCount = 0;
+        int targetIndex = 0;
+
+        for (int index = 0; index < participants.size(); index++) {
+            final ParticipantOverlayItem item = participants.get(index);
+            if (item.getUpdateGeneration() == generation) {
+                participants.set(targetIndex++, item);
+            } else {
+                final String name = item.getTitle();
+                if (name != null && participantsByName.get(name) == item) {
+                    participantsByName.remove(name);
+                }
+                clusterIndex.remove(item);
+                stateTransitions.remove(item);
+                removedCount++;
+            }
+        }
+
+        for (int index = participants.size() - 1; index >= targetIndex; index--) {
+            participants.remove(index);
+        }
+        return removedCount;
     }
 
     public void clear() {
         setLastFocusedIndex(-1);
         clearPopup();
         participants.clear();
+        participantsByName.clear();
+        clusterIndex.clear();
+        stateTransitions.clear();
+        handler.removeCallbacks(stateTransitionTask);
         populate();
     }
 
@@ -101,17 +338,18 @@ public class ParticipantsOverlay extends PopupOverlay<ParticipantOverlayItem> im
         }
     }
 
+    public void updateColorTarget() {
+        colorHandler.updateTarget();
+        refresh();
+    }
+
     public void refresh() {
+        // the items share the shape drawable of their state, updating the shapes is sufficient
         updateShapes();
-
-        for (ParticipantOverlayItem item : participants) {
-            item.setMarker(shapes.get(item.getParticipantState()));
-        }
     }
 
     private void updateShapes() {
         float shapeSize = (float) Math.max(1, zoomLevel - 3);
-        colorHandler.updateTarget();
 
         int[] colors = colorHandler.getColors();
         updateShape(State.ON, shapeSize, colors[0]);
@@ -123,6 +361,18 @@ public class ParticipantsOverlay extends PopupOverlay<ParticipantOverlayItem> im
         ((ParticipantShape) shapes.get(state).getShape()).update(shapeSize, color);
     }
 
+    /**
+     * only the cluster pies are drawn below the cluster zoom level, so the hidden items are not hit tested
+     */
+    @Override
+    public boolean onTap(GeoPoint geoPoint, MapView mapView) {
+        if (mapView.getZoomLevel() < CLUSTER_MAX_ZOOM_LEVEL) {
+            clearPopup();
+            return false;
+        }
+        return super.onTap(geoPoint, mapView);
+    }
+
     @Override
     protected boolean onTap(int index) {
         ParticipantOverlayItem item = participants.get(index);
@@ -0,0 +1,152 @@
+package org.blitzortung.android.map.overlay;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import org.blitzortung.android.data.beans.RasterParameters;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * draws the strike raster as a bitmap with one pixel per cell which is scaled onto the raster area
+ */
+public class RasterBitmapRenderer {
+
+    private static final float MIN_TEXT_SIZE = 8.0f;
+
+    private final Paint bitmapPaint;
+
+    private final Paint textPaint;
+
+    private final Rect source = new Rect();
+
+    private final RectF destination = new RectF();
+
+    private Bitmap bitmap;
+
+    private int[] pixels = new int[0];
+
+    private int[] multiplicities = new int[0];
+
+    private int longitudeCount;
+
+    private int latitudeCount;
+
+    private RasterParameters rasterParameters;
+
+    private int dataVersion = -1;
+
+    private int colorEpoch = -1;
+
+    public RasterBitmapRenderer() {
+        bitmapPaint = new Paint();
+        bitmapPaint.setFilterBitmap(false);
+
+        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    /**
+     * writes the color and multiplicity of every cell, only if data or colors have changed since the last call
+     */
+    public void update(List<StrikeOverlayItem> strikes, RasterParameters rasterParameters, int[] colors, int dataVersion, int colorEpoch) {
+        if (rasterParameters == this.rasterParameters && dataVersion == this.dataVersion && colorEpoch == this.colorEpoch) {
+            return;
+        }
+
+        longitudeCount = rasterParameters.getLongitudeCount();
+        latitudeCount = rasterParameters.getLatitudeCount();
+        final int cellCount = longitudeCount * latitudeCount;
+
+        if (pixels.length < cellCount) {
+            pixels = new int[cellCount];
+            multiplicities = new int[cellCount];
+        }
+        Arrays.fill(pixels, 0, cellCount, 0);
+        Arrays.fill(multiplicities, 0, cellCount, 0);
+
+        for (int index = 0; index < strikes.size(); index++) {
+            final StrikeOverlayItem item = strikes.get(index);
+            final int cell = rasterParameters.getLatitudeCellIndex(item.getPoint().getLatitudeE6() / 1e6f) * longitudeCount
+                    + rasterParameters.getLongitudeCellIndex(item.getPoint().getLongitudeE6() / 1e6f);
+            pixels[cell] = colors[Math.max(0, Math.min(item.getColorSection(), colors.length - 1))];
+            multiplicities[cell] += item.getMultiplicity();
+        }
+
+        if (cellCount > 0) {
+            if (bitmap == null || bitmap.getWidth() != longitudeCount || bitmap.getHeight() != latitudeCount) {
+                if (bitmap != null) {
+                    bitmap.recycle();
+                }
+                bitmap = Bitmap.createBitmap(longitudeCount, latitudeCount, Bitmap.Config.ARGB_8888);
+            }
+            bitmap.setPixels(pixels, 0, longitudeCount, 0, 0, longitudeCount, latitudeCount);
+        }
+
+        this.rasterParameters = rasterParameters;
+        this.dataVersion = dataVersion;
+        this.colorEpoch = colorEpoch;
+    }
+
+    /**
+     * draws the raster rows within the given bounds and the counts of cells which are large enough for a label
+     */
+    public void draw(Canvas canvas, MercatorProjectionCache projectionCache, int textColor, float minimumX, float minimumY, float maximumX, float maximumY) {
+        if (bitmap == null || longitudeCount * latitudeCount == 0) {
+            return;
+        }
+
+        final float left = projectionCache.toScreenX(projectionCache.getLongitudeEdge(0));
+        final float right = projectionCache.toScreenX(projectionCache.getLongitudeEdge(longitudeCount));
+        final float cellWidth = (right - left) / longitudeCount;
+
+        bitmapPaint.setAlpha(getAlpha(cellWidth));
+        textPaint.setColor(textColor);
+
+        final int firstColumn = Math.max(0, (int) Math.floor((minimumX - left) / cellWidth));
+        final int lastColumn = Math.min(longitudeCount - 1, (int) Math.floor((maximumX - left) / cellWidth));
+
+        for (int row = 0; row < latitudeCount; row++) {
+            final float top = projectionCache.toScreenY(projectionCache.getLatitudeEdge(row));
+            final float bottom = projectionCache.toScreenY(projectionCache.getLatitudeEdge(row + 1));
+            if (bottom < minimumY || top > maximumY) {
+                continue;
+            }
+
+            source.set(0, row, longitudeCount, row + 1);
+            destination.set(left, top, right, bottom);
+            canvas.drawBitmap(bitmap, source, destination, bitmapPaint);
+
+            final float textSize = (bottom - top) / 2.5f;
+            if (textSize >= MIN_TEXT_SIZE) {
+                textPaint.setTextSize(textSize);
+                final float textY = (top + bottom) / 2 + 0.4f * textSize;
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    final int multiplicity = multiplicities[row * longitudeCount + column];
+                    if (multiplicity > 0) {
+                        canvas.drawText(CountLabels.get(multiplicity), left + (column + 0.5f) * cellWidth, textY, textPaint);
+                    }
+                }
+            }
+        }
+    }
+
+    // VisibleForTesting
+    protected int getMultiplicity(int longitudeIndex, int latitudeIndex) {
+        return multiplicities[latitudeIndex * longitudeCount + longitudeIndex];
+    }
+
+    // VisibleForTesting
+    protected int getPixel(int longitudeIndex, int latitudeIndex) {
+        return pixels[latitudeIndex * longitudeCount + longitudeIndex];
+    }
+
+    private static int getAlpha(float cellWidth) {
+        float value = (cellWidth - 10) / 30;
+        value = Math.min(Math.max(value, 0.0f), 1.0f);
+        return 100 + (int) (155 * (1.0 - value));
+    }
+}
@@ -0,0 +1,155 @@
+package org.blitzortung.android.map.overlay;
+
+import org.blitzortung.android.util.LongObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * aggregates strikes into clusters on a grid of world pixel cells, clusters are updated incrementally when strikes
+ * are added or removed
+ */
+public class StrikeClusterIndex {
+
+    public static class StrikeCluster {
+
+        private int count;
+
+        private double sumX;
+
+        private double sumY;
+
+        private StrikeOverlayItem newestItem;
+
+        // position in the cluster list
+        private int index;
+
+        private StrikeCluster() {
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getWorldX() {
+            return sumX / count;
+        }
+
+        public double getWorldY() {
+            return sumY / count;
+        }
+
+        public StrikeOverlayItem getNewestItem() {
+            return newestItem;
+        }
+    }
+
+    private final int cellSize;
+
+    private final LongObjectMap<StrikeCluster> clusterMap;
+
+    private final ArrayList<StrikeCluster> clusters;
+
+    // removed clusters which are reused, so that rebuilding the clusters does not allocate
+    private final ArrayList<StrikeCluster> spareClusters;
+
+    private boolean consistent = true;
+
+    public StrikeClusterIndex(int cellSize) {
+        this.cellSize = cellSize;
+        clusterMap = new LongObjectMap<>();
+        clusters = new ArrayList<>();
+        spareClusters = new ArrayList<>();
+    }
+
+    public void add(StrikeOverlayItem item) {
+        final long key = getKey(item);
+
+        StrikeCluster cluster = clusterMap.get(key);
+        if (cluster == null) {
+            cluster = spareClusters.isEmpty() ? new StrikeCluster() : spareClusters.remove(spareClusters.size() - 1);
+            cluster.index = clusters.size();
+            clusterMap.put(key, cluster);
+            clusters.add(cluster);
+        }
+
+        cluster.count += item.getMultiplicity();
+        cluster.sumX += item.getWorldX() * item.getMultiplicity();
+        cluster.sumY += item.getWorldY() * item.getMultiplicity();
+        if (cluster.newestItem == null || item.getTimestamp() >= cluster.newestItem.getTimestamp()) {
+            cluster.newestItem = item;
+        }
+    }
+
+    public void remove(StrikeOverlayItem item) {
+        final long key = getKey(item);
+
+        final StrikeCluster cluster = clusterMap.get(key);
+        if (cluster == null) {
+            consistent = false;
+            return;
+        }
+
+        cluster.count -= item.getMultiplicity();
+        if (cluster.count <= 0) {
+            clusterMap.remove(key);
+            removeFromList(cluster);
+        } else {
+            cluster.sumX -= item.getWorldX() * item.getMultiplicity();
+            cluster.sumY -= item.getWorldY() * item.getMultiplicity();
+            if (cluster.newestItem == item) {
+                consistent = false;
+            }
+        }
+    }
+
+    public void clear() {
+        clusterMap.clear();
+        for (int index = 0; index < clusters.size(); index++) {
+            recycle(clusters.get(index));
+        }
+        clusters.clear();
+        consistent = true;
+    }
+
+    /**
+     * returns false if strikes have been removed out of order and the clusters have to be rebuilt
+     */
+    public boolean isConsistent() {
+        return consistent;
+    }
+
+    public List<StrikeCluster> getClusters() {
+        return clusters;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * moves the last cluster to the position of the removed one
+     */
+    private void removeFromList(StrikeCluster cluster) {
+        final StrikeCluster lastCluster = clusters.remove(clusters.size() - 1);
+        if (lastCluster != cluster) {
+            clusters.set(cluster.index, lastCluster);
+            lastCluster.index = cluster.index;
+        }
+        recycle(cluster);
+    }
+
+    private void recycle(StrikeCluster cluster) {
+        cluster.count = 0;
+        cluster.sumX = 0;
+        cluster.sumY = 0;
+        cluster.newestItem = null;
+        spareClusters.add(cluster);
+    }
+
+    private long getKey(StrikeOverlayItem item) {
+        final long cellX = (long) Math.floor(item.getWorldX() / cellSize);
+        final long cellY = (long) Math.floor(item.getWorldY() / cellSize);
+        return (cellX << 32) ^ (cellY & 0xffffffffL);
+    }
+}
@@ -0,0 +1,136 @@
+package org.blitzortung.android.map.overlay;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Point;
+import com.google.android.maps.GeoPoint;
+import com.google.android.maps.MapView;
+
+/**
+ * offscreen bitmap of the strike layer which is reused and only translated while the map is panned
+ */
+public class StrikeLayerCache {
+
+    private static final int MARGIN_DIVISOR = 8;
+
+    private Bitmap bitmap;
+
+    private Canvas bitmapCanvas;
+
+    private int bitmapWidth;
+
+    private int bitmapHeight;
+
+    private GeoPoint origin;
+
+    private final Point originPosition = new Point();
+
+    private int marginX;
+
+    private int marginY;
+
+    private int dataVersion;
+
+    private int zoomLevel;
+
+    private int colorEpoch;
+
+    private boolean valid;
+
+    /**
+     * draws the cached layer if it was rendered with the given keys and still covers the whole view
+     */
+    public boolean draw(Canvas canvas, MapView mapView, int dataVersion, int zoomLevel, int colorEpoch) {
+        if (!isValid(mapView, dataVersion, zoomLevel, colorEpoch)) {
+            return false;
+        }
+
+        canvas.drawBitmap(bitmap, originPosition.x, originPosition.y, null);
+        return true;
+    }
+
+    // VisibleForTesting
+    protected boolean isValid(MapView mapView, int dataVersion, int zoomLevel, int colorEpoch) {
+        if (!valid || dataVersion != this.dataVersion || zoomLevel != this.zoomLevel || colorEpoch != this.colorEpoch) {
+            return false;
+        }
+
+        final int width = mapView.getWidth();
+        final int height = mapView.getHeight();
+        if (bitmapWidth != width + 2 * width / MARGIN_DIVISOR || bitmapHeight != height + 2 * height / MARGIN_DIVISOR) {
+            return false;
+        }
+
+        mapView.getProjection().toPixels(origin, originPosition);
+
+        return originPosition.x <= 0 && originPosition.y <= 0
+                && originPosition.x + bitmapWidth >= width && originPosition.y + bitmapHeight >= height;
+    }
+
+    /**
+     * prepares the bitmap for a new rendering pass, the returned canvas uses the pixel coordinates of the map view
+     */
+    public Canvas beginRender(MapView mapView, int dataVersion, int zoomLevel, int colorEpoch) {
+        final int width = mapView.getWidth();
+        final int height = mapView.getHeight();
+
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+
+        marginX = width / MARGIN_DIVISOR;
+        marginY = height / MARGIN_DIVISOR;
+
+        final int bitmapWidth = width + 2 * marginX;
+        final int bitmapHeight = height + 2 * marginY;
+
+        if (bitmap == null || this.bitmapWidth != bitmapWidth || this.bitmapHeight != bitmapHeight) {
+            release();
+            bitmap = Bitmap.createBitmap(bitmapWidth, bitmapHeight, Bitmap.Config.ARGB_8888);
+            bitmapCanvas = new Canvas(bitmap);
+            this.bitmapWidth = bitmapWidth;
+            this.bitmapHeight = bitmapHeight;
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        origin = mapView.getProjection().fromPixels(-marginX, -marginY);
+
+        this.dataVersion = dataVersion;
+        this.zoomLevel = zoomLevel;
+        this.colorEpoch = colorEpoch;
+        valid = false;
+
+        bitmapCanvas.save();
+        bitmapCanvas.translate(marginX, marginY);
+
+        return bitmapCanvas;
+    }
+
+    public void endRender() {
+        bitmapCanvas.restore();
+        valid = true;
+    }
+
+    public int getMarginX() {
+        return marginX;
+    }
+
+    public int getMarginY() {
+        return marginY;
+    }
+
+    public void invalidate() {
+        valid = false;
+    }
+
+    public void release() {
+        valid = false;
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+            bitmapCanvas = null;
+        }
+    }
+}
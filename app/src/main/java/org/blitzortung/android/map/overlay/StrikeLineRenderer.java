@@ -0,0 +1,95 @@
+package org.blitzortung.android.map.overlay;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * collects the crosses of all visible strikes per color section and draws each section with a single drawLines call
+ */
+public class StrikeLineRenderer {
+
+    private static final int COORDINATES_PER_STRIKE = 8;
+
+    private static final int INITIAL_CAPACITY = 64 * COORDINATES_PER_STRIKE;
+
+    private final Paint paint;
+
+    private float[][] coordinates;
+
+    private int[] coordinateCounts;
+
+    private int numberOfSections;
+
+    private float size;
+
+    private float halfSize;
+
+    public StrikeLineRenderer() {
+        paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+
+        coordinates = new float[0][];
+        coordinateCounts = new int[0];
+    }
+
+    public void begin(int numberOfSections, float size) {
+        if (coordinates.length < numberOfSections) {
+            float[][] newCoordinates = new float[numberOfSections][];
+            System.arraycopy(coordinates, 0, newCoordinates, 0, coordinates.length);
+            for (int section = coordinates.length; section < numberOfSections; section++) {
+                newCoordinates[section] = new float[INITIAL_CAPACITY];
+            }
+            coordinates = newCoordinates;
+            coordinateCounts = new int[numberOfSections];
+        }
+
+        for (int section = 0; section < numberOfSections; section++) {
+            coordinateCounts[section] = 0;
+        }
+
+        this.numberOfSections = numberOfSections;
+        this.size = size;
+        halfSize = size / 2;
+    }
+
+    public void add(int section, float x, float y) {
+        section = Math.max(0, Math.min(section, numberOfSections - 1));
+
+        final int offset = coordinateCounts[section];
+        float[] buffer = coordinates[section];
+
+        if (offset + COORDINATES_PER_STRIKE > buffer.length) {
+            float[] newBuffer = new float[buffer.length * 2];
+            System.arraycopy(buffer, 0, newBuffer, 0, offset);
+            buffer = newBuffer;
+            coordinates[section] = buffer;
+        }
+
+        buffer[offset] = x - halfSize;
+        buffer[offset + 1] = y;
+        buffer[offset + 2] = x + halfSize;
+        buffer[offset + 3] = y;
+        buffer[offset + 4] = x;
+        buffer[offset + 5] = y - halfSize;
+        buffer[offset + 6] = x;
+        buffer[offset + 7] = y + halfSize;
+
+        coordinateCounts[section] = offset + COORDINATES_PER_STRIKE;
+    }
+
+    public void draw(Canvas canvas, int[] colors) {
+        paint.setStrokeWidth(size / 4);
+
+        for (int section = numberOfSections - 1; section >= 0; section--) {
+            final int count = coordinateCounts[section];
+            if (count > 0) {
+                paint.setColor(colors[Math.min(section, colors.length - 1)]);
+                canvas.drawLines(coordinates[section], 0, count, paint);
+            }
+        }
+    }
+
+    public int getStrikeCount(int section) {
+        return coordinateCounts[section] / COORDINATES_PER_STRIKE;
+    }
+}
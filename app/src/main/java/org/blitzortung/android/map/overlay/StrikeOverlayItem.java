@@ -1,16 +1,10 @@
 package org.blitzortung.android.map.overlay;
 
-import android.graphics.Point;
-import android.graphics.drawable.Drawable;
-import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.Shape;
 import android.location.Location;
 import com.google.android.maps.GeoPoint;
 import com.google.android.maps.OverlayItem;
-import com.google.android.maps.Projection;
 import org.blitzortung.android.data.Coordsys;
 import org.blitzortung.android.data.beans.StrikeAbstract;
-import org.blitzortung.android.data.beans.RasterParameters;
 import org.blitzortung.android.data.beans.Strike;
 
 public class StrikeOverlayItem extends OverlayItem implements Strike {
@@ -19,15 +13,14 @@ public class StrikeOverlayItem extends OverlayItem implements Strike {
 	
 	private final int multiplicity;
 
-    private static final Point center = new Point();
+    private int colorSection;
 
-    private static final Point topLeft = new Point();
+    private double worldX;
 
-    private static final Point bottomRight = new Point();
+    private double worldY;
 
 	public StrikeOverlayItem(StrikeAbstract strike) {
 		super(Coordsys.toMapCoords(strike.getLongitude(), strike.getLatitude()), "", "");
-        super.setMarker(new ShapeDrawable());
 
 		timestamp = strike.getTimestamp();
 		multiplicity = strike.getMultiplicity();
@@ -38,6 +31,16 @@ public class StrikeOverlayItem extends OverlayItem implements Strike {
 		return timestamp;
 	}
 
+    @Override
+    public float getLongitude() {
+        return getPoint().getLongitudeE6() / 1e6f;
+    }
+
+    @Override
+    public float getLatitude() {
+        return getPoint().getLatitudeE6() / 1e6f;
+    }
+
     @Override
     public Location getLocation(Location location) {
         final GeoPoint point = getPoint();
@@ -51,52 +54,25 @@ public class StrikeOverlayItem extends OverlayItem implements Strike {
 		return multiplicity;
 	}
 
-    @Override
-    public void setMarker(Drawable drawable) {
-        throw new IllegalStateException("cannot overwrite marker of strike overlay item");
+    public int getColorSection() {
+        return colorSection;
     }
 
-    private ShapeDrawable getDrawable() {
-        return (ShapeDrawable)getMarker(0);
+    public void setColorSection(int colorSection) {
+        this.colorSection = colorSection;
     }
-    
-    public Shape getShape() {
-        return getDrawable().getShape();
+
+    public void updateWorldPosition(MercatorProjectionCache projectionCache) {
+        final GeoPoint point = getPoint();
+        worldX = projectionCache.toWorldX(point.getLongitudeE6());
+        worldY = projectionCache.toWorldY(point.getLatitudeE6());
     }
-    
-    public void setShape(Shape shape) {
-        getDrawable().setShape(shape);
+
+    public double getWorldX() {
+        return worldX;
     }
 
-    public void updateShape(RasterParameters rasterParameters, Projection projection, int color, int textColor, int zoomLevel) {
-        Shape shape = getShape();
-        if (rasterParameters != null) {
-            if (shape == null) {
-                shape = new RasterShape();
-            }
-            RasterShape rasterShape = (RasterShape)shape;
-
-            float lon_delta = rasterParameters.getLongitudeDelta() / 2.0f * 1e6f;
-            float lat_delta = rasterParameters.getLatitudeDelta() / 2.0f * 1e6f;
-            GeoPoint geoPoint = getPoint();
-            projection.toPixels(geoPoint, center);
-            projection.toPixels(new GeoPoint(
-                    (int) (geoPoint.getLatitudeE6() + lat_delta),
-                    (int) (geoPoint.getLongitudeE6() - lon_delta)), topLeft);
-            projection.toPixels(new GeoPoint(
-                    (int) (geoPoint.getLatitudeE6() - lat_delta),
-                    (int) (geoPoint.getLongitudeE6() + lon_delta)), bottomRight);
-            topLeft.offset(-center.x, -center.y);
-            bottomRight.offset(-center.x, -center.y);
-            rasterShape.update(topLeft, bottomRight, color, getMultiplicity(), textColor);
-        } else {
-            if (shape == null) {
-                shape = new StrikeShape();
-            }
-            StrikeShape strikeShape = (StrikeShape) shape;
-            strikeShape.update(zoomLevel + 1, color);
-
-        }
-        setShape(shape);
+    public double getWorldY() {
+        return worldY;
     }
 }
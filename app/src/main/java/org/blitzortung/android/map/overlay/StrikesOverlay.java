@@ -4,9 +4,11 @@ import android.graphics.*;
 import android.graphics.Paint.Style;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.Shape;
+import android.os.AsyncTask;
+import android.os.Handler;
 import android.text.format.DateFormat;
 import android.util.Log;
+import com.google.android.maps.GeoPoint;
 import com.google.android.maps.MapView;
 import com.google.android.maps.Projection;
 import org.blitzortung.android.app.Main;
@@ -16,19 +18,94 @@ import org.blitzortung.android.data.TimeIntervalWithOffset;
 import org.blitzortung.android.data.beans.StrikeAbstract;
 import org.blitzortung.android.data.beans.RasterParameters;
 import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.data.provider.result.ResultEvent;
 import org.blitzortung.android.map.OwnMapActivity;
 import org.blitzortung.android.map.components.LayerOverlayComponent;
+import org.blitzortung.android.map.index.GeoGridIndex;
 import org.blitzortung.android.map.overlay.color.ColorHandler;
 import org.blitzortung.android.map.overlay.color.StrikeColorHandler;
+import org.blitzortung.android.util.FrameProfiler;
+import org.blitzortung.android.util.FrameTimer;
+import org.blitzortung.android.util.SlidingList;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class StrikesOverlay extends PopupOverlay<StrikeOverlayItem> implements TimeIntervalWithOffset, LayerOverlay {
 
+    private static final int INDEX_CELL_SIZE_E6 = 2000000;
+
+    private static final int DRAW_MARGIN = 20;
+
+    private static final int TAP_RADIUS = 15;
+
+    private static final int CLUSTER_MAX_ZOOM_LEVEL = 6;
+
+    private static final int CLUSTER_CELL_SIZE = 24;
+
+    private static final float CLUSTER_MIN_RADIUS = 3.0f;
+
     // VisibleForTesting
-    protected final ArrayList<StrikeOverlayItem> strikes;
+    protected SlidingList<StrikeOverlayItem> strikes;
+
+    private GeoGridIndex<StrikeOverlayItem> strikeIndex;
+
+    private StrikesRenderModel model;
+
+    private final StrikesRenderModelBuilder modelBuilder;
+
+    private final AtomicReference<StrikesRenderModel> modelBase;
+
+    private final ArrayList<StrikeOverlayItem> visibleStrikes;
+
+    private final StrikeLineRenderer strikeLineRenderer;
+
+    private final StrikeLayerCache strikeLayerCache;
+
+    private final MercatorProjectionCache projectionCache;
+
+    private int projectedCount;
+
+    private final StrikeClusterIndex strikeClusterIndex;
+
+    private int clusteredCount;
+
+    private int clusterZoomLevel = -1;
+
+    private final Paint clusterPaint;
+
+    private final Paint clusterTextPaint;
+
+    private final RectF dataAreaRect = new RectF();
+
+    private final Rect dataAreaClipBounds = new Rect();
+
+    private final Paint dataAreaPaint;
+
+    private int dataVersion;
+
+    private int colorEpoch;
+
+    private final ColorSectionTracker colorSectionTracker;
+
+    private final Handler handler;
+
+    private final Runnable colorTransitionTask = new Runnable() {
+        @Override
+        public void run() {
+            updateColorTransitions();
+        }
+    };
+
+    private final RasterBitmapRenderer rasterBitmapRenderer;
+
+    private final FrameTimer frameTimer = FrameProfiler.getTimer("StrikesOverlay");
+
+    private final Point itemPosition = new Point();
+
+    private final Point tapPosition = new Point();
 
     private final StrikeColorHandler colorHandler;
 
@@ -56,39 +133,208 @@ public class StrikesOverlay extends PopupOverlay<StrikeOverlayItem> implements T
         layerOverlayComponent = new LayerOverlayComponent(mapActivity.getResources().getString(R.string.strikes_layer));
         this.colorHandler = colorHandler;
 
-        strikes = new ArrayList<>();
+        modelBuilder = new StrikesRenderModelBuilder(INDEX_CELL_SIZE_E6);
+        model = modelBuilder.createEmptyModel(parameters, rasterParameters, referenceTime);
+        strikes = model.getStrikes();
+        strikeIndex = model.getStrikeIndex();
+        modelBase = new AtomicReference<>(model);
+        visibleStrikes = new ArrayList<>();
+        strikeLineRenderer = new StrikeLineRenderer();
+        strikeLayerCache = new StrikeLayerCache();
+        projectionCache = new MercatorProjectionCache();
+        colorSectionTracker = new ColorSectionTracker();
+        handler = new Handler();
+        rasterBitmapRenderer = new RasterBitmapRenderer();
+        strikeClusterIndex = new StrikeClusterIndex(CLUSTER_CELL_SIZE);
+
+        clusterPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        clusterPaint.setStyle(Style.FILL);
+        clusterTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        clusterTextPaint.setTextAlign(Paint.Align.CENTER);
+        dataAreaPaint = new Paint();
+        dataAreaPaint.setStyle(Style.STROKE);
 
         populate();
     }
 
+    /**
+     * strikes are drawn and hit tested through the strike index, so ItemizedOverlay does not hold and sort the items
+     */
     @Override
     protected StrikeOverlayItem createItem(int index) {
-        return strikes.get(index);
+        throw new IndexOutOfBoundsException("strike items are not managed by ItemizedOverlay");
     }
 
     @Override
     public int size() {
-        return strikes.size();
+        return 0;
     }
 
     @Override
     public void draw(Canvas canvas, com.google.android.maps.MapView mapView, boolean shadow) {
         if (!shadow) {
-            super.draw(canvas, mapView, false);
+            frameTimer.start();
+            drawVisibleStrikes(canvas, mapView);
 
             if (hasRasterParameters()) {
                 drawDataAreaRect(canvas, mapView);
             }
+            frameTimer.stop();
+        }
+    }
+
+    private void drawVisibleStrikes(Canvas canvas, MapView mapView) {
+        // the zoom level field is updated by the zoom listener after the map has been drawn at the new zoom level
+        final int zoomLevel = mapView.getZoomLevel();
+        if (strikeLayerCache.draw(canvas, mapView, dataVersion, zoomLevel, colorEpoch)) {
+            return;
+        }
+
+        final Canvas layerCanvas = strikeLayerCache.beginRender(mapView, dataVersion, zoomLevel, colorEpoch);
+        if (layerCanvas != null) {
+            renderStrikes(layerCanvas, mapView, strikeLayerCache.getMarginX(), strikeLayerCache.getMarginY());
+            strikeLayerCache.endRender();
+            strikeLayerCache.draw(canvas, mapView, dataVersion, zoomLevel, colorEpoch);
+        } else {
+            renderStrikes(canvas, mapView, 0, 0);
+        }
+    }
+
+    private void renderStrikes(Canvas canvas, MapView mapView, int marginX, int marginY) {
+        final Projection projection = mapView.getProjection();
+        final int zoomLevel = mapView.getZoomLevel();
+
+        updateProjection(projection, zoomLevel);
+
+        if (!hasRasterParameters() && zoomLevel < CLUSTER_MAX_ZOOM_LEVEL) {
+            updateClusters(zoomLevel);
+            drawClusters(canvas, mapView, marginX, marginY);
+            return;
+        } else if (clusterZoomLevel >= 0) {
+            strikeClusterIndex.clear();
+            clusteredCount = 0;
+            clusterZoomLevel = -1;
+        }
+
+        if (hasRasterParameters()) {
+            rasterBitmapRenderer.update(strikes, rasterParameters, colorHandler.getColors(), dataVersion, colorEpoch);
+            rasterBitmapRenderer.draw(canvas, projectionCache, colorHandler.getTextColor(),
+                    -marginX, -marginY, mapView.getWidth() + marginX, mapView.getHeight() + marginY);
+            return;
+        }
+
+        queryVisibleStrikes(mapView, projection, zoomLevel, marginX, marginY, visibleStrikes);
+
+        final int[] colors = colorHandler.getColors();
+        strikeLineRenderer.begin(colors.length, zoomLevel + 1);
+
+        for (int index = 0; index < visibleStrikes.size(); index++) {
+            final StrikeOverlayItem item = visibleStrikes.get(index);
+            strikeLineRenderer.add(item.getColorSection(), projectionCache.toScreenX(item.getWorldX()),
+                    projectionCache.toScreenY(item.getWorldY()));
+        }
+
+        strikeLineRenderer.draw(canvas, colors);
+        visibleStrikes.clear();
+    }
+
+    /**
+     * computes the world coordinates of all strikes after a zoom change or of the added strikes only and updates the pan offset
+     */
+    private void updateProjection(Projection projection, int zoomLevel) {
+        if (projectionCache.update(projection, zoomLevel)) {
+            projectedCount = 0;
+        }
+        for (int index = projectedCount; index < strikes.size(); index++) {
+            strikes.get(index).updateWorldPosition(projectionCache);
+        }
+        projectedCount = strikes.size();
+
+        if (hasRasterParameters()) {
+            projectionCache.updateRaster(getRasterParameters());
+        }
+        projectionCache.updateOffset(projection);
+    }
+
+    private void updateClusters(int zoomLevel) {
+        if (zoomLevel != clusterZoomLevel || !strikeClusterIndex.isConsistent()) {
+            strikeClusterIndex.clear();
+            clusteredCount = 0;
+            clusterZoomLevel = zoomLevel;
+        }
+        for (int index = clusteredCount; index < strikes.size(); index++) {
+            strikeClusterIndex.add(strikes.get(index));
+        }
+        clusteredCount = strikes.size();
+    }
+
+    private void drawClusters(Canvas canvas, MapView mapView, int marginX, int marginY) {
+        final int[] colors = colorHandler.getColors();
+        final float maximumRadius = CLUSTER_CELL_SIZE / 2.0f;
+        final float left = -marginX - maximumRadius;
+        final float top = -marginY - maximumRadius;
+        final float right = mapView.getWidth() + marginX + maximumRadius;
+        final float bottom = mapView.getHeight() + marginY + maximumRadius;
+
+        clusterTextPaint.setColor(colorHandler.getTextColor());
+
+        final List<StrikeClusterIndex.StrikeCluster> clusters = strikeClusterIndex.getClusters();
+        for (int index = 0; index < clusters.size(); index++) {
+            final StrikeClusterIndex.StrikeCluster cluster = clusters.get(index);
+            final float x = projectionCache.toScreenX(cluster.getWorldX());
+            final float y = projectionCache.toScreenY(cluster.getWorldY());
+            if (x < left || x > right || y < top || y > bottom) {
+                continue;
+            }
+
+            final int section = cluster.getNewestItem().getColorSection();
+            final float radius = Math.min(CLUSTER_MIN_RADIUS * (1.0f + (float) Math.log10(cluster.getCount())), maximumRadius);
+
+            clusterPaint.setColor(colors[Math.max(0, Math.min(section, colors.length - 1))]);
+            canvas.drawCircle(x, y, radius, clusterPaint);
+
+            final float textSize = radius * 1.2f;
+            if (cluster.getCount() > 1 && textSize >= 8.0f) {
+                clusterTextPaint.setTextSize(textSize);
+                canvas.drawText(CountLabels.get(cluster.getCount()), x, y + 0.4f * textSize, clusterTextPaint);
+            }
+        }
+    }
+
+    private void queryVisibleStrikes(MapView mapView, Projection projection, int zoomLevel, int marginX, int marginY, List<StrikeOverlayItem> result) {
+        final int margin = DRAW_MARGIN + zoomLevel;
+        final GeoPoint topLeft = projection.fromPixels(-marginX - margin, -marginY - margin);
+        final GeoPoint bottomRight = projection.fromPixels(mapView.getWidth() + marginX + margin, mapView.getHeight() + marginY + margin);
+
+        int latitudeMargin = 0;
+        int longitudeMargin = 0;
+        if (hasRasterParameters()) {
+            latitudeMargin = (int) (rasterParameters.getLatitudeDelta() * 1e6f);
+            longitudeMargin = (int) (rasterParameters.getLongitudeDelta() * 1e6f);
+        }
+
+        final int longitudeSpan = mapView.getLongitudeSpan() + (marginX > 0 ? 2 * mapView.getLongitudeSpan() * marginX / mapView.getWidth() : 0);
+        if (longitudeSpan + 2 * longitudeMargin >= GeoGridIndex.LONGITUDE_RANGE_E6) {
+            strikeIndex.query(bottomRight.getLatitudeE6() - latitudeMargin, -GeoGridIndex.LONGITUDE_RANGE_E6 / 2,
+                    topLeft.getLatitudeE6() + latitudeMargin, GeoGridIndex.LONGITUDE_RANGE_E6 / 2, result);
+        } else {
+            strikeIndex.query(bottomRight.getLatitudeE6() - latitudeMargin, topLeft.getLongitudeE6() - longitudeMargin,
+                    topLeft.getLatitudeE6() + latitudeMargin, bottomRight.getLongitudeE6() + longitudeMargin, result);
         }
     }
 
     private void drawDataAreaRect(Canvas canvas, MapView mapView) {
-        Paint paint = new Paint();
+        final Paint paint = dataAreaPaint;
         paint.setColor(colorHandler.getLineColor());
-        paint.setStyle(Style.STROKE);
 
-        Rect clipBounds = canvas.getClipBounds();
-        RectF rect = getRasterParameters().getRect(mapView.getProjection());
+        final Rect clipBounds = dataAreaClipBounds;
+        canvas.getClipBounds(clipBounds);
+        updateProjection(mapView.getProjection(), mapView.getZoomLevel());
+        final RectF rect = dataAreaRect;
+        rect.set(projectionCache.toScreenX(projectionCache.getLongitudeEdge(0)),
+                projectionCache.toScreenY(projectionCache.getLatitudeEdge(0)),
+                projectionCache.toScreenX(projectionCache.getLongitudeEdge(rasterParameters.getLongitudeCount())),
+                projectionCache.toScreenY(projectionCache.getLatitudeEdge(rasterParameters.getLatitudeCount())));
 
         if (rect.left >= clipBounds.left && rect.left <= clipBounds.right) {
             canvas.drawLine(rect.left, Math.max(rect.top, clipBounds.top), rect.left, Math.min(rect.bottom, clipBounds.bottom), paint);
@@ -104,37 +350,89 @@ public class StrikesOverlay extends PopupOverlay<StrikeOverlayItem> implements T
         }
     }
 
-    public void addStrikes(List<StrikeAbstract> strikes) {
-        Log.v(Main.LOG_TAG, "StrikesOverlay.addStrikes() #" + strikes.size());
-        for (StrikeAbstract strike : strikes) {
-            this.strikes.add(new StrikeOverlayItem(strike));
-        }
-        setLastFocusedIndex(-1);
-        populate();
+    /**
+     * builds the render model for the given result on a worker thread and publishes it on the UI thread
+     */
+    public void updateStrikes(ResultEvent result, Runnable onUpdate) {
+        new BuildRenderModelTask(onUpdate).execute(result);
     }
 
-    public void expireStrikes() {
-        long expireTime = referenceTime - (getIntervalDuration() - getIntervalOffset()) * 60 * 1000;
-        List<StrikeOverlayItem> toRemove = new ArrayList<StrikeOverlayItem>();
+    private class BuildRenderModelTask extends AsyncTask<ResultEvent, Void, StrikesRenderModel> {
 
-        for (StrikeOverlayItem item : strikes) {
-            if (item.getTimestamp() < expireTime) {
-                toRemove.add(item);
-            } else {
-                break;
-            }
+        private final Runnable onUpdate;
+
+        private BuildRenderModelTask(Runnable onUpdate) {
+            this.onUpdate = onUpdate;
+        }
+
+        @Override
+        protected StrikesRenderModel doInBackground(ResultEvent... results) {
+            final StrikesRenderModel base = modelBase.get();
+            final StrikesRenderModel model = modelBuilder.build(base, results[0]);
+
+            return modelBase.compareAndSet(base, model) ? model : null;
         }
 
-        if (toRemove.size() > 0) {
-            strikes.removeAll(toRemove);
+        @Override
+        protected void onPostExecute(StrikesRenderModel model) {
+            if (model != null && modelBase.get() == model) {
+                applyModel(model);
+                if (onUpdate != null) {
+                    onUpdate.run();
+                }
+            }
         }
     }
 
+    public void addStrikes(List<StrikeAbstract> strikes) {
+        Log.v(Main.LOG_TAG, "StrikesOverlay.addStrikes() #" + strikes.size());
+        applyModel(modelBuilder.build(model, StrikesRenderModelBuilder.KEEP_ALL, strikes, parameters, rasterParameters, referenceTime));
+    }
+
+    public void expireStrikes() {
+        long expireTime = referenceTime - (getIntervalDuration() - getIntervalOffset()) * 60 * 1000;
+        applyModel(modelBuilder.build(model, expireTime, null, parameters, rasterParameters, referenceTime));
+    }
+
     public void clear() {
+        stopColorTransitions();
         setLastFocusedIndex(-1);
         clearPopup();
-        strikes.clear();
-        populate();
+        applyModel(modelBuilder.createEmptyModel(parameters, rasterParameters, referenceTime));
+    }
+
+    // VisibleForTesting
+    protected void applyModel(StrikesRenderModel model) {
+        final List<StrikeOverlayItem> previousStrikes = model.getPreviousStrikes();
+        final int expiredCount = model.getExpiredCount();
+        int firstAddedIndex = 0;
+
+        if (previousStrikes == strikes) {
+            for (int index = 0; index < expiredCount && index < clusteredCount; index++) {
+                strikeClusterIndex.remove(previousStrikes.get(index));
+            }
+            colorSectionTracker.onStrikesExpired(expiredCount);
+            projectedCount = Math.max(0, projectedCount - expiredCount);
+            clusteredCount = Math.max(0, clusteredCount - expiredCount);
+            firstAddedIndex = previousStrikes.size() - expiredCount;
+        } else {
+            colorSectionTracker.clear();
+            strikeClusterIndex.clear();
+            projectedCount = 0;
+            clusteredCount = 0;
+        }
+
+        this.model = model;
+        strikes = model.getStrikes();
+        strikeIndex = model.getStrikeIndex();
+        modelBase.set(model);
+        colorSectionTracker.onStrikesAdded(strikes, firstAddedIndex);
+
+        parameters = model.getParameters();
+        referenceTime = model.getReferenceTime();
+        setRasterParameters(model.getRasterParameters());
+
+        dataVersion++;
     }
 
     public void updateZoomLevel(int zoomLevel) {
@@ -148,35 +446,66 @@ public class StrikesOverlay extends PopupOverlay<StrikeOverlayItem> implements T
         return colorHandler;
     }
 
+    public void updateColorTarget() {
+        colorHandler.updateTarget();
+        colorSectionTracker.invalidate();
+        refresh();
+    }
+
     public void refresh() {
         long now = System.currentTimeMillis();
 
-        int current_section = -1;
+        final List<StrikeOverlayItem> changedItems = colorSectionTracker.update(strikes, now, colorHandler, this);
 
-        colorHandler.updateTarget();
+        if (!changedItems.isEmpty()) {
+            colorEpoch++;
+        }
+
+        scheduleNextColorTransition(now);
+    }
 
-        Shape drawable = null;
+    /**
+     * refreshes the color sections when a strike reaches the next section and redraws the map if they have changed
+     */
+    private void updateColorTransitions() {
+        final int previousColorEpoch = colorEpoch;
 
-        for (StrikeOverlayItem item : strikes) {
-            int section = colorHandler.getColorSection(now, item.getTimestamp(), this);
+        refresh();
 
-            if (hasRasterParameters() || current_section != section) {
-                drawable = updateAndReturnDrawable(item, section, colorHandler);
-            } else {
-                item.setShape(drawable);
+        if (colorEpoch != previousColorEpoch) {
+            final MapView mapView = getActivity().getMapView();
+            if (mapView != null) {
+                mapView.invalidate();
             }
         }
     }
 
-    // VisibleForTesting
-    protected Shape updateAndReturnDrawable(StrikeOverlayItem item, int section, ColorHandler colorHandler) {
-        final Projection projection = getActivity().getMapView().getProjection();
-        final int color = colorHandler.getColor(section);
-        final int textColor = colorHandler.getTextColor();
+    private void scheduleNextColorTransition(long now) {
+        handler.removeCallbacks(colorTransitionTask);
+        final long nextTransitionTime = colorSectionTracker.getNextTransitionTime();
+        // transitions not after the time of the update only occur without a valid interval duration
+        if (nextTransitionTime != Long.MAX_VALUE && nextTransitionTime > now) {
+            handler.postDelayed(colorTransitionTask, nextTransitionTime - now);
+        }
+    }
+
+    /**
+     * removes the pending color transition task, which would otherwise keep the overlay and its activity alive
+     */
+    public void stopColorTransitions() {
+        handler.removeCallbacks(colorTransitionTask);
+    }
 
-        item.updateShape(getRasterParameters(), projection, color, textColor, zoomLevel);
+    /**
+     * applies the color transitions which became due while stopped and schedules the next one
+     */
+    public void startColorTransitions() {
+        updateColorTransitions();
+    }
 
-        return item.getShape();
+    // VisibleForTesting
+    protected long getNextColorTransitionTime() {
+        return colorSectionTracker.getNextTransitionTime();
     }
 
     public boolean hasRasterParameters() {
@@ -184,7 +513,11 @@ public class StrikesOverlay extends PopupOverlay<StrikeOverlayItem> implements T
     }
 
     public void setRasterParameters(RasterParameters rasterParameters) {
-        this.rasterParameters = rasterParameters;
+        if (rasterParameters != this.rasterParameters) {
+            this.rasterParameters = rasterParameters;
+            colorSectionTracker.invalidate();
+            dataVersion++;
+        }
     }
 
     public RasterParameters getRasterParameters() {
@@ -196,8 +529,68 @@ public class StrikesOverlay extends PopupOverlay<StrikeOverlayItem> implements T
     }
 
     @Override
-    protected boolean onTap(int index) {
-        StrikeOverlayItem item = strikes.get(index);
+    public boolean onTap(GeoPoint geoPoint, MapView mapView) {
+        final StrikeOverlayItem item = findStrikeAt(geoPoint, mapView);
+
+        if (item != null && showPopupFor(item)) {
+            return true;
+        }
+
+        clearPopup();
+        return false;
+    }
+
+    // VisibleForTesting
+    protected StrikeOverlayItem findStrikeAt(GeoPoint geoPoint, MapView mapView) {
+        final Projection projection = mapView.getProjection();
+        if (projection == null || geoPoint == null) {
+            return null;
+        }
+
+        projection.toPixels(geoPoint, tapPosition);
+        final GeoPoint topLeft = projection.fromPixels(tapPosition.x - TAP_RADIUS, tapPosition.y - TAP_RADIUS);
+        final GeoPoint bottomRight = projection.fromPixels(tapPosition.x + TAP_RADIUS, tapPosition.y + TAP_RADIUS);
+
+        StrikeOverlayItem closestItem = null;
+
+        if (hasRasterParameters()) {
+            final int latitudeDelta = (int) (rasterParameters.getLatitudeDelta() * 1e6f);
+            final int longitudeDelta = (int) (rasterParameters.getLongitudeDelta() * 1e6f);
+            strikeIndex.query(geoPoint.getLatitudeE6() - latitudeDelta, geoPoint.getLongitudeE6() - longitudeDelta,
+                    geoPoint.getLatitudeE6() + latitudeDelta, geoPoint.getLongitudeE6() + longitudeDelta, visibleStrikes);
+
+            for (int index = 0; index < visibleStrikes.size(); index++) {
+                final StrikeOverlayItem item = visibleStrikes.get(index);
+                final GeoPoint point = item.getPoint();
+                if (Math.abs(point.getLatitudeE6() - geoPoint.getLatitudeE6()) <= latitudeDelta / 2
+                        && Math.abs(point.getLongitudeE6() - geoPoint.getLongitudeE6()) <= longitudeDelta / 2) {
+                    closestItem = item;
+                    break;
+                }
+            }
+        } else {
+            strikeIndex.query(bottomRight.getLatitudeE6(), topLeft.getLongitudeE6(),
+                    topLeft.getLatitudeE6(), bottomRight.getLongitudeE6(), visibleStrikes);
+
+            long closestDistance = (long) TAP_RADIUS * TAP_RADIUS;
+            for (int index = 0; index < visibleStrikes.size(); index++) {
+                final StrikeOverlayItem item = visibleStrikes.get(index);
+                projection.toPixels(item.getPoint(), itemPosition);
+                final long deltaX = itemPosition.x - tapPosition.x;
+                final long deltaY = itemPosition.y - tapPosition.y;
+                final long distance = deltaX * deltaX + deltaY * deltaY;
+                if (distance <= closestDistance) {
+                    closestDistance = distance;
+                    closestItem = item;
+                }
+            }
+        }
+        visibleStrikes.clear();
+
+        return closestItem;
+    }
+
+    private boolean showPopupFor(StrikeOverlayItem item) {
         if (item.getPoint() != null && item.getTimestamp() != 0) {
             String result = (String) DateFormat.format("kk:mm:ss", item.getTimestamp());
 
@@ -0,0 +1,70 @@
+package org.blitzortung.android.map.overlay;
+
+import org.blitzortung.android.data.Parameters;
+import org.blitzortung.android.data.beans.RasterParameters;
+import org.blitzortung.android.map.index.GeoGridIndex;
+import org.blitzortung.android.util.SlidingList;
+
+import java.util.List;
+
+/**
+ * immutable snapshot of the strike items and their spatial index which is published to the overlay at once
+ */
+public class StrikesRenderModel {
+
+    private final List<StrikeOverlayItem> previousStrikes;
+
+    private final SlidingList<StrikeOverlayItem> strikes;
+
+    private final GeoGridIndex<StrikeOverlayItem> strikeIndex;
+
+    private final int expiredCount;
+
+    private final Parameters parameters;
+
+    private final RasterParameters rasterParameters;
+
+    private final long referenceTime;
+
+    public StrikesRenderModel(List<StrikeOverlayItem> previousStrikes, SlidingList<StrikeOverlayItem> strikes, GeoGridIndex<StrikeOverlayItem> strikeIndex,
+                              int expiredCount, Parameters parameters, RasterParameters rasterParameters, long referenceTime) {
+        this.previousStrikes = previousStrikes;
+        this.strikes = strikes;
+        this.strikeIndex = strikeIndex;
+        this.expiredCount = expiredCount;
+        this.parameters = parameters;
+        this.rasterParameters = rasterParameters;
+        this.referenceTime = referenceTime;
+    }
+
+    /**
+     * strike list the model was derived from, the model contains its items starting at the expired count
+     */
+    public List<StrikeOverlayItem> getPreviousStrikes() {
+        return previousStrikes;
+    }
+
+    public SlidingList<StrikeOverlayItem> getStrikes() {
+        return strikes;
+    }
+
+    public GeoGridIndex<StrikeOverlayItem> getStrikeIndex() {
+        return strikeIndex;
+    }
+
+    public int getExpiredCount() {
+        return expiredCount;
+    }
+
+    public Parameters getParameters() {
+        return parameters;
+    }
+
+    public RasterParameters getRasterParameters() {
+        return rasterParameters;
+    }
+
+    public long getReferenceTime() {
+        return referenceTime;
+    }
+}
@@ -0,0 +1,94 @@
+package org.blitzortung.android.map.overlay;
+
+import org.blitzortung.android.data.Parameters;
+import org.blitzortung.android.data.beans.RasterParameters;
+import org.blitzortung.android.data.beans.StrikeAbstract;
+import org.blitzortung.android.data.provider.result.ResultEvent;
+import org.blitzortung.android.map.index.GeoGridIndex;
+import org.blitzortung.android.util.SlidingList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * builds render models without touching the state of the overlay, so that it can be used from a worker thread
+ *
+ * a model is derived from the previous one by applying the expired and added strikes to the shared strike list and
+ * index, the previous model is not modified
+ *
+ * the added strikes are ordered by time, so that raster cells, which are delivered in grid order, expire from the front
+ * of the list and change their color sections in order as well
+ */
+public class StrikesRenderModelBuilder {
+
+    public static final long KEEP_ALL = Long.MIN_VALUE;
+
+    private static final Comparator<StrikeOverlayItem> TIMESTAMP_ORDER = new Comparator<StrikeOverlayItem>() {
+        @Override
+        public int compare(StrikeOverlayItem first, StrikeOverlayItem second) {
+            return first.getTimestamp() < second.getTimestamp() ? -1 : (first.getTimestamp() == second.getTimestamp() ? 0 : 1);
+        }
+    };
+
+    private final int indexCellSizeE6;
+
+    public StrikesRenderModelBuilder(int indexCellSizeE6) {
+        this.indexCellSizeE6 = indexCellSizeE6;
+    }
+
+    public StrikesRenderModel createEmptyModel(Parameters parameters, RasterParameters rasterParameters, long referenceTime) {
+        final SlidingList<StrikeOverlayItem> strikes = new SlidingList<>();
+        return new StrikesRenderModel(strikes, strikes, new GeoGridIndex<StrikeOverlayItem>(indexCellSizeE6), 0,
+                parameters, rasterParameters, referenceTime);
+    }
+
+    public StrikesRenderModel build(StrikesRenderModel previousModel, ResultEvent result) {
+        final Parameters parameters = result.getParameters();
+        final long referenceTime = result.getReferenceTime();
+
+        if (result.containsIncrementalData()) {
+            final long expireTime = referenceTime - (parameters.getIntervalDuration() - parameters.getIntervalOffset()) * 60 * 1000;
+            return build(previousModel, expireTime, result.getStrikes(), parameters, result.getRasterParameters(), referenceTime);
+        } else {
+            return build(createEmptyModel(parameters, result.getRasterParameters(), referenceTime), KEEP_ALL,
+                    result.getStrikes(), parameters, result.getRasterParameters(), referenceTime);
+        }
+    }
+
+    /**
+     * drops the leading strikes older than the expire time and appends items for the given strikes
+     */
+    public StrikesRenderModel build(StrikesRenderModel previousModel, long expireTime, List<StrikeAbstract> addedStrikes,
+                                    Parameters parameters, RasterParameters rasterParameters, long referenceTime) {
+        final SlidingList<StrikeOverlayItem> previousStrikes = previousModel.getStrikes();
+        final GeoGridIndex<StrikeOverlayItem> strikeIndex = previousModel.getStrikeIndex().copy();
+
+        int expiredCount = 0;
+        while (expiredCount < previousStrikes.size() && previousStrikes.get(expiredCount).getTimestamp() < expireTime) {
+            strikeIndex.remove(previousStrikes.get(expiredCount));
+            expiredCount++;
+        }
+
+        final int addedCount = addedStrikes != null ? addedStrikes.size() : 0;
+        final ArrayList<StrikeOverlayItem> addedItems = new ArrayList<>(addedCount);
+        boolean chronological = true;
+        for (int index = 0; index < addedCount; index++) {
+            final StrikeOverlayItem item = new StrikeOverlayItem(addedStrikes.get(index));
+            if (index > 0 && item.getTimestamp() < addedItems.get(index - 1).getTimestamp()) {
+                chronological = false;
+            }
+            addedItems.add(item);
+        }
+        if (!chronological) {
+            Collections.sort(addedItems, TIMESTAMP_ORDER);
+        }
+        for (int index = 0; index < addedCount; index++) {
+            strikeIndex.add(addedItems.get(index));
+        }
+
+        return new StrikesRenderModel(previousStrikes, previousStrikes.slide(expiredCount, addedItems), strikeIndex, expiredCount,
+                parameters, rasterParameters, referenceTime);
+    }
+}
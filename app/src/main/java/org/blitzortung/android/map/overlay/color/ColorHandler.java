@@ -13,18 +13,42 @@ public abstract class ColorHandler {
 
     private ColorTarget target;
 
+    // color table of the current scheme and target, built on first use
+    private int[] colors;
+
+    private int[] sectionColors;
+    private long sectionNow;
+    private int sectionIntervalDuration;
+    private int sectionIntervalOffset;
+
+    // end of the youngest color section and duration of a single section in milliseconds
+    private long sectionEpoch;
+    private long sectionDuration;
+
     public ColorHandler(SharedPreferences preferences) {
         this.preferences = preferences;
         updateTarget();
     }
 
+    /**
+     * re-reads the map type and color scheme preferences, the color table is only rebuilt if one of them has changed
+     */
     public void updateTarget() {
-        target = ColorTarget.valueOf(preferences.getString(PreferenceKey.MAP_TYPE.toString(), "SATELLITE"));
-        colorScheme = ColorScheme.valueOf(preferences.getString(PreferenceKey.COLOR_SCHEME.toString(), ColorScheme.BLITZORTUNG.toString()));
+        final ColorTarget target = ColorTarget.valueOf(preferences.getString(PreferenceKey.MAP_TYPE.toString(), "SATELLITE"));
+        final ColorScheme colorScheme = ColorScheme.valueOf(preferences.getString(PreferenceKey.COLOR_SCHEME.toString(), ColorScheme.BLITZORTUNG.toString()));
+
+        if (target != this.target || colorScheme != this.colorScheme) {
+            this.target = target;
+            this.colorScheme = colorScheme;
+            colors = null;
+        }
     }
 
-    public final int[] getColors() {
-        return getColors(target);
+    public int[] getColors() {
+        if (colors == null) {
+            colors = getColors(target);
+        }
+        return colors;
     }
 
     abstract protected int[] getColors(ColorTarget target);
@@ -34,11 +58,24 @@ public abstract class ColorHandler {
     }
 
     private int getColorSection(long now, long eventTime, int intervalDuration, int intervalOffset) {
-        int minutesPerColor = intervalDuration / getColors().length;
-        int section = (int) (now + intervalOffset * 60 * 1000 - eventTime) / 1000 / 60 / minutesPerColor;
-        section = limitIndexToValidRange(section);
+        final int[] colors = getColors();
+        if (colors != sectionColors || now != sectionNow || intervalDuration != sectionIntervalDuration || intervalOffset != sectionIntervalOffset) {
+            updateSectionMapping(colors, now, intervalDuration, intervalOffset);
+        }
+
+        final long section = (sectionEpoch - eventTime) / sectionDuration;
+        return (int) Math.max(0, Math.min(section, colors.length - 1));
+    }
 
-        return section;
+    private void updateSectionMapping(int[] colors, long now, int intervalDuration, int intervalOffset) {
+        sectionColors = colors;
+        sectionNow = now;
+        sectionIntervalDuration = intervalDuration;
+        sectionIntervalOffset = intervalOffset;
+
+        final int minutesPerColor = Math.max(1, intervalDuration / Math.max(1, colors.length));
+        sectionEpoch = now + (long) intervalOffset * 60 * 1000;
+        sectionDuration = (long) minutesPerColor * 60 * 1000;
     }
 
     public ColorScheme getColorScheme() {
@@ -50,14 +87,8 @@ public abstract class ColorHandler {
     }
 
     public int getColor(int section) {
-        section = limitIndexToValidRange(section);
-        return getColors()[section];
-    }
-
-    private int limitIndexToValidRange(int section) {
-        section = Math.min(section, getColors().length - 1);
-        section = Math.max(section, 0);
-        return section;
+        final int[] colors = getColors();
+        return colors[Math.max(0, Math.min(section, colors.length - 1))];
     }
 
     public final int getTextColor() {
@@ -0,0 +1,73 @@
+package org.blitzortung.android.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * registry of the frame timers of all overlays and views, timing is only active while the profiler is enabled
+ */
+public final class FrameProfiler {
+
+    private static final List<FrameTimer> timers = new ArrayList<>();
+
+    private static volatile boolean enabled;
+
+    private FrameProfiler() {
+    }
+
+    public static synchronized FrameTimer getTimer(String name) {
+        for (FrameTimer timer : timers) {
+            if (timer.getName().equals(name)) {
+                return timer;
+            }
+        }
+
+        final FrameTimer timer = new FrameTimer(name);
+        timers.add(timer);
+        return timer;
+    }
+
+    public static synchronized List<FrameTimer> getTimers() {
+        return new ArrayList<>(timers);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        FrameProfiler.enabled = enabled;
+    }
+
+    public static synchronized void reset() {
+        for (FrameTimer timer : timers) {
+            timer.reset();
+        }
+    }
+
+    public static String formatSummary(FrameTimer timer) {
+        return String.format(Locale.US, "%s p50 %.1f p95 %.1f max %.1f ms (%d)", timer.getName(),
+                timer.getPercentile(50) / 1e6, timer.getPercentile(95) / 1e6, timer.getMaximum() / 1e6, timer.getSampleCount());
+    }
+
+    public static synchronized void dump(Writer writer) throws IOException {
+        writer.write("frame times " + new Date() + "\n");
+        for (FrameTimer timer : timers) {
+            writer.write(formatSummary(timer) + "\n");
+
+            final StringBuilder samples = new StringBuilder();
+            for (long sample : timer.getSamples()) {
+                if (samples.length() > 0) {
+                    samples.append(' ');
+                }
+                samples.append(String.format(Locale.US, "%.2f", sample / 1e6));
+            }
+            writer.write("  " + samples + "\n");
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,89 @@
+package org.blitzortung.android.util;
+
+import java.util.Arrays;
+
+/**
+ * measures the duration of draw calls of a single component and keeps a rolling window of the most recent samples
+ */
+public class FrameTimer {
+
+    public static final int WINDOW_SIZE = 120;
+
+    private final String name;
+
+    private final long[] samples = new long[WINDOW_SIZE];
+
+    private final long[] sortedSamples = new long[WINDOW_SIZE];
+
+    private int sampleCount;
+
+    private int nextSampleIndex;
+
+    private long startTime;
+
+    FrameTimer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void start() {
+        startTime = FrameProfiler.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    public void stop() {
+        if (startTime != 0) {
+            addSample(System.nanoTime() - startTime);
+            startTime = 0;
+        }
+    }
+
+    // VisibleForTesting
+    protected void addSample(long duration) {
+        samples[nextSampleIndex] = duration;
+        nextSampleIndex = (nextSampleIndex + 1) % WINDOW_SIZE;
+        sampleCount = Math.min(sampleCount + 1, WINDOW_SIZE);
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * returns the nearest rank percentile of the sampled durations in nanoseconds
+     */
+    public long getPercentile(int percent) {
+        if (sampleCount == 0) {
+            return 0;
+        }
+
+        System.arraycopy(samples, 0, sortedSamples, 0, sampleCount);
+        Arrays.sort(sortedSamples, 0, sampleCount);
+
+        final int rank = (int) Math.ceil(percent / 100.0 * sampleCount);
+        return sortedSamples[Math.max(0, Math.min(rank - 1, sampleCount - 1))];
+    }
+
+    public long getMaximum() {
+        long maximum = 0;
+        for (int index = 0; index < sampleCount; index++) {
+            maximum = Math.max(maximum, samples[index]);
+        }
+        return maximum;
+    }
+
+    public long[] getSamples() {
+        final long[] result = new long[sampleCount];
+        for (int index = 0; index < sampleCount; index++) {
+            result[index] = samples[(nextSampleIndex - sampleCount + index + WINDOW_SIZE) % WINDOW_SIZE];
+        }
+        return result;
+    }
+
+    public void reset() {
+        sampleCount = 0;
+        nextSampleIndex = 0;
+    }
+}
@@ -0,0 +1,234 @@
+package org.blitzortung.android.util;
+
+import android.location.Location;
+
+/**
+ * calculates distance and bearing from a fixed observer location on a sphere, the trigonometric terms of the observer
+ * are computed once, nearby points use an equirectangular approximation and all other points the haversine formula,
+ * distance and bearing are only evaluated when they are read, so that points can be compared by their squared chord
+ * length first
+ */
+public class GeoCalculator {
+
+    // mean earth radius in meters
+    public static final double EARTH_RADIUS = 6371008.8;
+
+    // angular distance in radians (about 60 km) up to which the equirectangular approximation is used
+    private static final double EQUIRECTANGULAR_LIMIT = 0.01;
+
+    private double observerLongitude;
+
+    private double observerLatitude;
+
+    private double sinObserverLatitude;
+
+    private double cosObserverLatitude;
+
+    // relative margin of the bounding box which covers rounding and the approximations of the distance
+    private static final double BOUNDING_BOX_MARGIN = 1.01;
+
+    private double maximumDistance = Double.POSITIVE_INFINITY;
+
+    private double minimumLatitude;
+
+    private double maximumLatitude;
+
+    private double maximumLongitudeDelta;
+
+    private double observerLongitudeDegrees;
+
+    private boolean nearby;
+
+    private double deltaLongitude;
+
+    private double deltaLatitude;
+
+    private double projectedX;
+
+    private double sinMeanLatitude;
+
+    private double sinLatitude;
+
+    private double cosLatitude;
+
+    private double sinHalfDeltaLongitude;
+
+    private double squaredChordLength;
+
+    private boolean distanceValid;
+
+    private float distance;
+
+    private boolean bearingValid;
+
+    private float bearing;
+
+    public void setObserver(Location location) {
+        setObserver(location.getLongitude(), location.getLatitude());
+    }
+
+    public void setObserver(double longitude, double latitude) {
+        observerLongitudeDegrees = longitude;
+        observerLongitude = Math.toRadians(longitude);
+        observerLatitude = Math.toRadians(latitude);
+        sinObserverLatitude = Math.sin(observerLatitude);
+        cosObserverLatitude = Math.cos(observerLatitude);
+        updateBoundingBox();
+    }
+
+    /**
+     * sets the distance in meters beyond which points are rejected by the bounding box check
+     */
+    public void setMaximumDistance(double maximumDistance) {
+        this.maximumDistance = maximumDistance;
+        updateBoundingBox();
+    }
+
+    /**
+     * returns false if the given point is certainly farther away than the maximum distance, this only needs a few
+     * comparisons and should be called before update()
+     */
+    public boolean isWithinBoundingBox(double longitude, double latitude) {
+        if (latitude < minimumLatitude || latitude > maximumLatitude) {
+            return false;
+        }
+        double deltaLongitude = Math.abs(longitude - observerLongitudeDegrees);
+        if (deltaLongitude > 180.0) {
+            deltaLongitude = 360.0 - deltaLongitude;
+        }
+        return deltaLongitude <= maximumLongitudeDelta;
+    }
+
+    public double getMinimumLatitude() {
+        return minimumLatitude;
+    }
+
+    public double getMaximumLatitude() {
+        return maximumLatitude;
+    }
+
+    /**
+     * returns the longitude distance in degrees from the observer covered by the bounding box, 180 if it covers all
+     * longitudes
+     */
+    public double getMaximumLongitudeDelta() {
+        return maximumLongitudeDelta;
+    }
+
+    private void updateBoundingBox() {
+        final double angularDistance = maximumDistance * BOUNDING_BOX_MARGIN / EARTH_RADIUS;
+        if (angularDistance >= Math.PI) {
+            minimumLatitude = -90.0;
+            maximumLatitude = 90.0;
+            maximumLongitudeDelta = 180.0;
+            return;
+        }
+
+        final double latitude = Math.toDegrees(observerLatitude);
+        minimumLatitude = latitude - Math.toDegrees(angularDistance);
+        maximumLatitude = latitude + Math.toDegrees(angularDistance);
+
+        if (minimumLatitude <= -90.0 || maximumLatitude >= 90.0) {
+            // the circle contains a pole, so that all longitudes are reached
+            maximumLongitudeDelta = 180.0;
+        } else {
+            // longitude extent of the circle at the latitude of its tangent points
+            maximumLongitudeDelta = Math.toDegrees(Math.asin(Math.sin(angularDistance) / cosObserverLatitude));
+        }
+    }
+
+    /**
+     * prepares distance and bearing of the given point which are then available through the getters
+     */
+    public void update(double longitude, double latitude) {
+        final double latitudeRadians = Math.toRadians(latitude);
+        deltaLatitude = latitudeRadians - observerLatitude;
+        deltaLongitude = Math.toRadians(longitude) - observerLongitude;
+        if (deltaLongitude > Math.PI) {
+            deltaLongitude -= 2 * Math.PI;
+        } else if (deltaLongitude < -Math.PI) {
+            deltaLongitude += 2 * Math.PI;
+        }
+
+        nearby = Math.abs(deltaLatitude) < EQUIRECTANGULAR_LIMIT && Math.abs(deltaLongitude * cosObserverLatitude) < EQUIRECTANGULAR_LIMIT;
+        if (nearby) {
+            // sine and cosine of the mean latitude by first order expansion around the observer latitude
+            final double cosMeanLatitude = cosObserverLatitude - sinObserverLatitude * deltaLatitude * 0.5;
+            sinMeanLatitude = sinObserverLatitude + cosObserverLatitude * deltaLatitude * 0.5;
+            projectedX = deltaLongitude * cosMeanLatitude;
+
+            // the chord equals the arc up to a relative error below 1e-5 within the approximation limit
+            squaredChordLength = projectedX * projectedX + deltaLatitude * deltaLatitude;
+        } else {
+            sinLatitude = Math.sin(latitudeRadians);
+            cosLatitude = Math.cos(latitudeRadians);
+            final double sinHalfDeltaLatitude = Math.sin(deltaLatitude * 0.5);
+            sinHalfDeltaLongitude = Math.sin(deltaLongitude * 0.5);
+
+            final double haversine = sinHalfDeltaLatitude * sinHalfDeltaLatitude
+                    + cosObserverLatitude * cosLatitude * sinHalfDeltaLongitude * sinHalfDeltaLongitude;
+            squaredChordLength = 4.0 * Math.min(1.0, haversine);
+        }
+        distanceValid = false;
+        bearingValid = false;
+    }
+
+    /**
+     * returns the squared length of the straight line to the last updated point on the unit sphere, it grows
+     * monotonically with the distance and can be compared with thresholds from toSquaredChordLength()
+     */
+    public double getSquaredChordLength() {
+        return squaredChordLength;
+    }
+
+    /**
+     * converts a distance in meters to the squared chord length on the unit sphere
+     */
+    public static double toSquaredChordLength(double distance) {
+        final double angularDistance = distance / EARTH_RADIUS;
+        if (angularDistance >= Math.PI) {
+            return 4.0;
+        }
+        final double chordLength = 2.0 * Math.sin(angularDistance * 0.5);
+        return chordLength * chordLength;
+    }
+
+    /**
+     * returns the distance of the last updated point in meters
+     */
+    public float getDistance() {
+        if (!distanceValid) {
+            if (nearby) {
+                distance = (float) (EARTH_RADIUS * Math.sqrt(squaredChordLength));
+            } else {
+                distance = (float) (2.0 * EARTH_RADIUS * Math.asin(Math.sqrt(squaredChordLength) * 0.5));
+            }
+            distanceValid = true;
+        }
+        return distance;
+    }
+
+    /**
+     * returns the initial bearing to the last updated point in degrees between -180 and 180
+     */
+    public float getBearing() {
+        if (!bearingValid) {
+            if (nearby) {
+                // the initial great circle bearing differs from the mean direction by half the meridian convergence
+                bearing = (float) Math.toDegrees(Math.atan2(projectedX, deltaLatitude) - 0.5 * deltaLongitude * sinMeanLatitude);
+                if (bearing > 180.0f) {
+                    bearing -= 360.0f;
+                } else if (bearing < -180.0f) {
+                    bearing += 360.0f;
+                }
+            } else {
+                // cos(deltaLongitude) = 1 - 2 sin^2(deltaLongitude / 2)
+                final double cosDeltaLongitude = 1.0 - 2.0 * sinHalfDeltaLongitude * sinHalfDeltaLongitude;
+                bearing = (float) Math.toDegrees(Math.atan2(Math.sin(deltaLongitude) * cosLatitude,
+                        cosObserverLatitude * sinLatitude - sinObserverLatitude * cosLatitude * cosDeltaLongitude));
+            }
+            bearingValid = true;
+        }
+        return bearing;
+    }
+}
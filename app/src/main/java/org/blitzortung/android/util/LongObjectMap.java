@@ -0,0 +1,115 @@
+package org.blitzortung.android.util;
+
+import java.util.Arrays;
+
+/**
+ * hash map with primitive long keys and open addressing, lookups and updates of existing keys do not allocate
+ *
+ * android.util.LongSparseArray needs API level 16 and uses binary search with array shifting on insertion
+ */
+public class LongObjectMap<V> {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private int size;
+
+    public LongObjectMap() {
+        keys = new long[MINIMUM_CAPACITY];
+        values = new Object[MINIMUM_CAPACITY];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = getSlot(key, keys.length);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        return null;
+    }
+
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        if (2 * (size + 1) > keys.length) {
+            resize(2 * keys.length);
+        }
+
+        int slot = getSlot(key, keys.length);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        final int mask = keys.length - 1;
+        int slot = getSlot(key, keys.length);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        final V value = (V) values[slot];
+        if (value == null) {
+            return null;
+        }
+
+        // shift the following entries of the probe sequence back, so that no tombstones are needed
+        int emptySlot = slot;
+        int nextSlot = (slot + 1) & mask;
+        while (values[nextSlot] != null) {
+            final int homeSlot = getSlot(keys[nextSlot], keys.length);
+            if (((nextSlot - homeSlot) & mask) >= ((nextSlot - emptySlot) & mask)) {
+                keys[emptySlot] = keys[nextSlot];
+                values[emptySlot] = values[nextSlot];
+                emptySlot = nextSlot;
+            }
+            nextSlot = (nextSlot + 1) & mask;
+        }
+        values[emptySlot] = null;
+        size--;
+        return value;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldValues[slot] != null) {
+                put(oldKeys[slot], (V) oldValues[slot]);
+            }
+        }
+    }
+
+    private static int getSlot(long key, int capacity) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) hash & (capacity - 1);
+    }
+}
@@ -20,4 +20,8 @@ public enum MeasurementSystem {
     public float calculateDistance(final float meters) {
         return meters / factor;
     }
+
+    public float calculateMeters(final float distance) {
+        return distance * factor;
+    }
 }
@@ -0,0 +1,118 @@
+package org.blitzortung.android.util;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * list view on a shared buffer which is derived from other lists by dropping leading and appending trailing elements,
+ * derived lists append in place if no other list has appended to the buffer yet, so that the previous lists stay
+ * unchanged and can still be read from other threads
+ */
+public class SlidingList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private static class Buffer {
+
+        private final Object[] elements;
+
+        // number of slots written by any list using this buffer
+        private int claimed;
+
+        private Buffer(int capacity) {
+            elements = new Object[capacity];
+        }
+
+        private synchronized boolean claim(int end, int count) {
+            if (claimed == end && end + count <= elements.length) {
+                claimed = end + count;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private Buffer buffer;
+
+    private int start;
+
+    private int end;
+
+    public SlidingList() {
+        this(new Buffer(0), 0, 0);
+    }
+
+    private SlidingList(Buffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + (end - start));
+        }
+        return (T) buffer.elements[start + index];
+    }
+
+    @Override
+    public int size() {
+        return end - start;
+    }
+
+    /**
+     * returns a list without the first drop count elements of this list and with the given elements appended, this list
+     * is not modified
+     */
+    public SlidingList<T> slide(int dropCount, List<? extends T> addedElements) {
+        if (dropCount < 0 || dropCount > size()) {
+            throw new IndexOutOfBoundsException("drop count " + dropCount + ", size " + size());
+        }
+        final int addedCount = addedElements.size();
+
+        if (addedCount == 0 || buffer.claim(end, addedCount)) {
+            for (int index = 0; index < addedCount; index++) {
+                buffer.elements[end + index] = addedElements.get(index);
+            }
+            return new SlidingList<T>(buffer, start + dropCount, end + addedCount);
+        }
+
+        final int size = size() - dropCount + addedCount;
+        final Buffer newBuffer = new Buffer(Math.max(MINIMUM_CAPACITY, 2 * size));
+        System.arraycopy(buffer.elements, start + dropCount, newBuffer.elements, 0, end - start - dropCount);
+        for (int index = 0; index < addedCount; index++) {
+            newBuffer.elements[end - start - dropCount + index] = addedElements.get(index);
+        }
+        newBuffer.claimed = size;
+        return new SlidingList<T>(newBuffer, 0, size);
+    }
+
+    /**
+     * returns a list without the first drop count elements of this list, this list is not modified
+     */
+    public SlidingList<T> drop(int dropCount) {
+        if (dropCount < 0 || dropCount > size()) {
+            throw new IndexOutOfBoundsException("drop count " + dropCount + ", size " + size());
+        }
+        return new SlidingList<T>(buffer, start + dropCount, end);
+    }
+
+    /**
+     * appends to this list, lists derived from this list before are not modified
+     */
+    @Override
+    public void add(int index, T element) {
+        if (index != size()) {
+            throw new UnsupportedOperationException("only appending is supported");
+        }
+        final SlidingList<T> appended = slide(0, Collections.singletonList(element));
+        buffer = appended.buffer;
+        start = appended.start;
+        end = appended.end;
+        modCount++;
+    }
+}
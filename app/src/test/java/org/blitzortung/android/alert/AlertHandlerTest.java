@@ -7,16 +7,23 @@ import android.location.Location;
 import android.os.Vibrator;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.blitzortung.android.alert.event.AlertEvent;
 import org.blitzortung.android.alert.event.AlertResultEvent;
 import org.blitzortung.android.alert.factory.AlertObjectFactory;
+import org.blitzortung.android.alert.handler.AlertHistory;
 import org.blitzortung.android.alert.handler.AlertStatusHandler;
+import org.blitzortung.android.alert.handler.WatchPointRegistry;
 import org.blitzortung.android.alert.object.AlertSector;
 import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.alert.object.WatchPoint;
 import org.blitzortung.android.app.controller.NotificationHandler;
 import org.blitzortung.android.app.view.PreferenceKey;
+import org.blitzortung.android.data.Parameters;
 import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.data.beans.StrikeAbstract;
+import org.blitzortung.android.data.provider.result.ResultEvent;
 import org.blitzortung.android.location.LocationEvent;
 import org.blitzortung.android.location.LocationHandler;
 import org.blitzortung.android.protocol.Consumer;
@@ -30,6 +37,8 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.Is.is;
@@ -37,6 +46,8 @@ import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -57,14 +68,29 @@ public class AlertHandlerTest {
     @Mock
     private AlertStatusHandler alertStatusHandler;
 
+    @Mock
+    private AlertHistory alertHistory;
+
     @Mock
     private AlertObjectFactory alertObjectFactory;
 
+    @Mock
+    private WatchPointRegistry watchPointRegistry;
+
+    @Mock
+    private WatchPoint watchPoint;
+
     @Mock
     private LocationHandler locationManager;
 
     @Mock
     private SharedPreferences sharedPreferences;
+
+    @Mock
+    private SharedPreferences historyPreferences;
+
+    @Mock
+    private SharedPreferences.Editor historyEditor;
     
     @Mock
     private Context context;
@@ -98,6 +124,16 @@ public class AlertHandlerTest {
         when(alertParameters.getAlarmInterval()).thenReturn(alarmInterval);
         when(alertObjectFactory.createAlarmStatus(alertParameters)).thenReturn(alertStatus);
         when(alertObjectFactory.createAlarmStatusHandler(alertParameters)).thenReturn(alertStatusHandler);
+        when(alertObjectFactory.createWatchPointRegistry(alertParameters)).thenReturn(watchPointRegistry);
+        when(alertObjectFactory.createAlertExecutor()).thenReturn(MoreExecutors.newDirectExecutorService());
+        when(alertObjectFactory.createResultExecutor()).thenReturn(MoreExecutors.directExecutor());
+        when(alertObjectFactory.createHistoryPreferences(context)).thenReturn(historyPreferences);
+        when(alertStatus.copy()).thenReturn(alertStatus);
+        when(alertStatusHandler.getAlertHistory()).thenReturn(alertHistory);
+        when(historyPreferences.getString("history", null)).thenReturn("encoded");
+        when(historyPreferences.edit()).thenReturn(historyEditor);
+        when(historyEditor.putString("history", "updated")).thenReturn(historyEditor);
+        when(alertHistory.encode()).thenReturn("updated");
         when(sharedPreferences.getBoolean(PreferenceKey.ALERT_ENABLED.toString(), false)).thenReturn(false);
         when(sharedPreferences.getString(PreferenceKey.MEASUREMENT_UNIT.toString(), MeasurementSystem.METRIC.toString())).thenReturn(MeasurementSystem.METRIC.toString());
         when(sharedPreferences.getString(PreferenceKey.ALERT_NOTIFICATION_DISTANCE_LIMIT.toString(), "50")).thenReturn("50");
@@ -185,7 +221,7 @@ public class AlertHandlerTest {
         returnedAlertResult = alertHandler.getAlarmResult();
         
         assertThat(returnedAlertResult, is(sameInstance(alertResult)));
-        verify(alertStatusHandler, times(2)).getCurrentActivity(alertStatus);
+        verify(alertStatusHandler, times(1)).getCurrentActivity(alertStatus);
     }
 
     @Test
@@ -201,6 +237,78 @@ public class AlertHandlerTest {
         assertThat(returnedAlertStatus, is(sameInstance(alertStatus)));
     }
 
+    @Test
+    public void testHistoryIsRestoredAndSavedOnShutdown() {
+        verify(alertHistory, times(1)).decode("encoded");
+        verify(historyEditor, times(0)).apply();
+
+        alertHandler.shutdown();
+
+        verify(historyEditor, times(1)).putString("history", "updated");
+        verify(historyEditor, times(1)).apply();
+    }
+
+    @Test
+    public void testShutdownDetachesHandler() {
+        alertHandler.shutdown();
+
+        verify(sharedPreferences, times(1)).unregisterOnSharedPreferenceChangeListener(alertHandler);
+        verify(locationManager, times(2)).removeUpdates(alertHandler.getLocationEventConsumer());
+
+        alertHandler.onSharedPreferenceChanged(sharedPreferences, PreferenceKey.MEASUREMENT_UNIT.toString());
+        alertHandler.getLocationEventConsumer().consume(new LocationEvent(location));
+        alertHandler.checkStrikes(Lists.<Strike>newArrayList());
+
+        verify(alertStatusHandler, times(0)).checkStrikes(any(AlertStatus.class), any(Collection.class), any(Location.class));
+    }
+
+    @Test
+    public void testHistoryGapFollowsLongestQueryPeriod() {
+        verify(alertHistory, times(1)).setQueryPeriod(0);
+
+        when(sharedPreferences.getString(PreferenceKey.QUERY_PERIOD.toString(), "60")).thenReturn("60");
+        when(sharedPreferences.getString(PreferenceKey.BACKGROUND_QUERY_PERIOD.toString(), "0")).thenReturn("1800");
+        alertHandler.onSharedPreferenceChanged(sharedPreferences, PreferenceKey.BACKGROUND_QUERY_PERIOD.toString());
+
+        verify(alertHistory, times(1)).setQueryPeriod(1800 * 1000L);
+    }
+
+    @Test
+    public void testHistoryIsSavedWhenEntriesWereAdded() {
+        when(alertHistory.hasNewEntries()).thenReturn(true);
+
+        makeAlarmsValid();
+
+        verify(historyEditor, times(1)).putString("history", "updated");
+        verify(historyEditor, times(1)).apply();
+    }
+
+    @Test
+    public void testResultsArePublishedByResultExecutor() {
+        final List<Runnable> postedRunnables = Lists.newArrayList();
+        when(alertObjectFactory.createResultExecutor()).thenReturn(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                postedRunnables.add(runnable);
+            }
+        });
+        alertHandler = new AlertHandler(locationManager, sharedPreferences, context, vibrator, notificationHandler, alertObjectFactory, alertParameters);
+        alertHandler.setAlertEventConsumer(alertEventConsumer);
+
+        makeAlarmsValid();
+
+        verify(alertStatusHandler, times(1)).getCurrentActivity(alertStatus);
+        verify(alertEventConsumer, times(0)).consume(isA(AlertResultEvent.class));
+        assertThat(alertHandler.getAlarmResult(), is(nullValue()));
+
+        for (Runnable runnable : postedRunnables) {
+            runnable.run();
+        }
+
+        verify(alertEventConsumer, times(1)).consume(isA(AlertResultEvent.class));
+        assertThat(alertHandler.getAlarmResult(), is(sameInstance(alertResult)));
+    }
+
     private void makeAlarmsValid() {
         alertHandler.getLocationEventConsumer().consume(new LocationEvent(location));
         enableAlarmInPrefs(true);
@@ -224,7 +332,7 @@ public class AlertHandlerTest {
 
     @Test
     public void testGetAlarmSectors() {
-        final Collection<AlertSector> alertSectors = Lists.newArrayList();
+        final List<AlertSector> alertSectors = Lists.newArrayList();
         when(alertStatus.getSectors()).thenReturn(alertSectors);
 
         final Collection<AlertSector> returnedAlertSectors = alertHandler.getAlarmSectors();
@@ -234,10 +342,64 @@ public class AlertHandlerTest {
     }
     
     @Test
-    public void testGetAlarmParameters() {
+    public void testWatchPointsAreReadFromPreferences() {
+        when(sharedPreferences.getString(PreferenceKey.ALERT_WATCH_POINTS.toString(), "")).thenReturn("home,11.5,48.2;field,12.0,49.0,30,10;broken,x,1");
+        final WatchPoint otherWatchPoint = mock(WatchPoint.class);
+        when(alertObjectFactory.createWatchPoint(alertParameters, "home", 11.5, 48.2, 50f, 25f)).thenReturn(watchPoint);
+        when(alertObjectFactory.createWatchPoint(alertParameters, "field", 12.0, 49.0, 30f, 10f)).thenReturn(otherWatchPoint);
+
+        alertHandler.onSharedPreferenceChanged(sharedPreferences, PreferenceKey.ALERT_WATCH_POINTS.toString());
+
+        verify(watchPointRegistry, times(1)).setWatchPoints(Lists.newArrayList(watchPoint, otherWatchPoint));
+    }
+
+    @Test
+    public void testWatchPointResultsAreBroadcast() {
+        final AlertStatusHandler watchPointStatusHandler = mock(AlertStatusHandler.class);
+        final Consumer<AlertResultEvent> watchPointConsumer = mock(Consumer.class);
+        when(watchPoint.getAlertStatus()).thenReturn(alertStatus);
+        when(watchPoint.getAlertStatusHandler()).thenReturn(watchPointStatusHandler);
+        when(watchPointRegistry.getWatchPoints()).thenReturn(Lists.newArrayList(watchPoint));
+        enableAlarmInPrefs(true);
+        alertHandler.addWatchPointConsumer(watchPointConsumer);
+
+        final ResultEvent resultEvent = new ResultEvent();
+        resultEvent.setParameters(new Parameters());
+        resultEvent.setStrikes(Lists.<StrikeAbstract>newArrayList());
+        alertHandler.getDataEventConsumer().consume(resultEvent);
+
+        verify(watchPointRegistry, times(1)).checkStrikes(resultEvent.getStrikes());
+        verify(watchPointStatusHandler, times(1)).getCurrentActivity(alertStatus);
+        verify(watchPointConsumer, times(1)).consume(any(AlertResultEvent.class));
+    }
+
+    @Test
+    public void testNewWatchPointsAreCheckedWithAllStrikes() {
+        final List<Strike> queuedStrikes = Lists.newArrayList(mock(Strike.class));
+        when(alertStatusHandler.getStrikes()).thenReturn(queuedStrikes);
+        when(watchPointRegistry.getWatchPoints()).thenReturn(Lists.newArrayList(watchPoint));
+        when(watchPoint.getAlertStatus()).thenReturn(alertStatus);
+        when(watchPoint.getAlertStatusHandler()).thenReturn(mock(AlertStatusHandler.class));
+        when(sharedPreferences.getString(PreferenceKey.ALERT_WATCH_POINTS.toString(), "")).thenReturn("home,11.5,48.2");
+        when(alertObjectFactory.createWatchPoint(alertParameters, "home", 11.5, 48.2, 50f, 25f)).thenReturn(watchPoint);
+
+        final ResultEvent resultEvent = new ResultEvent();
+        resultEvent.setParameters(new Parameters());
+        resultEvent.setStrikes(Lists.<StrikeAbstract>newArrayList());
+        alertHandler.getDataEventConsumer().consume(resultEvent);
+        alertHandler.onSharedPreferenceChanged(sharedPreferences, PreferenceKey.ALERT_WATCH_POINTS.toString());
+
+        verify(watchPointRegistry, times(1)).checkStrikes(queuedStrikes);
+    }
+
+    @Test
+    public void testGetAlarmParametersReturnsPublishedSnapshot() {
+        final AlertParameters parametersSnapshot = mock(AlertParameters.class);
+        when(alertStatus.getAlertParameters()).thenReturn(parametersSnapshot);
+
         final AlertParameters returnedAlertParameters = alertHandler.getAlertParameters();
-        
-        assertThat(returnedAlertParameters, is(sameInstance(alertParameters)));
+
+        assertThat(returnedAlertParameters, is(sameInstance(parametersSnapshot)));
     }
     
     
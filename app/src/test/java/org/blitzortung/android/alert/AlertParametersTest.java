@@ -41,6 +41,46 @@ public class AlertParametersTest {
         assertThat(rangeSteps.length, is(6));
     }
     
+    @Test
+    public void testSetSectorCount() {
+        alertParameters.setSectorCount(4);
+
+        assertThat(alertParameters.getSectorLabels(), is(new String[]{"S", "W", "N", "E"}));
+
+        alertParameters.setSectorCount(12);
+
+        final String[] sectorLabels = alertParameters.getSectorLabels();
+        assertThat(sectorLabels.length, is(12));
+        assertThat(sectorLabels[0], is("180°"));
+        assertThat(sectorLabels[1], is("210°"));
+        assertThat(sectorLabels[6], is("0°"));
+    }
+
+    @Test
+    public void testSetRangeSteps() {
+        final float[] rangeSteps = alertParameters.getRangeSteps();
+
+        alertParameters.setRangeSteps(AlertParameters.getDefaultRangeSteps());
+        assertThat(alertParameters.getRangeSteps(), is(rangeSteps));
+
+        alertParameters.setRangeSteps(new float[]{5f, 10f, 20f});
+        assertThat(alertParameters.getRangeSteps(), is(new float[]{5f, 10f, 20f}));
+    }
+
+    @Test
+    public void testCopyIsNotAffectedByLaterChanges() {
+        alertParameters.setMeasurementSystem(MeasurementSystem.METRIC);
+        final AlertParameters copy = alertParameters.copy();
+
+        alertParameters.setMeasurementSystem(MeasurementSystem.IMPERIAL);
+        alertParameters.setSectorCount(4);
+        alertParameters.setRangeSteps(new float[]{5f, 10f});
+
+        assertThat(copy.getMeasurementSystem(), is(MeasurementSystem.METRIC));
+        assertThat(copy.getSectorLabels().length, is(8));
+        assertThat(copy.getRangeSteps(), is(AlertParameters.getDefaultRangeSteps()));
+    }
+
     @Test
     public void testGetSetMeasurementSystem() {
         assertThat(alertParameters.getMeasurementSystem(), is(nullValue()));
@@ -0,0 +1,179 @@
+package org.blitzortung.android.alert.handler;
+
+import org.blitzortung.android.alert.AlertParameters;
+import org.blitzortung.android.alert.factory.AlertObjectFactory;
+import org.blitzortung.android.alert.object.AlertSector;
+import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.util.MeasurementSystem;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class AlertHistoryTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private static final float NONE = Float.POSITIVE_INFINITY;
+
+    @Mock
+    private AlertParameters alertParameters;
+
+    private AlertStatus alertStatus;
+
+    private AlertHistory alertHistory;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        when(alertParameters.getSectorLabels()).thenReturn(new String[]{"S", "W", "N", "E"});
+        when(alertParameters.getRangeSteps()).thenReturn(new float[]{10f, 25f, 50f});
+        alertStatus = new AlertStatus(new AlertObjectFactory(), alertParameters);
+        alertHistory = new AlertHistory();
+    }
+
+    @Test
+    public void testTrends() {
+        for (int minute = 0; minute < 5; minute++) {
+            record(minute * MINUTE, 40f - 5 * minute, 10f + 5 * minute, 20f, NONE);
+        }
+
+        assertThat(alertHistory.getSize()).isEqualTo(5);
+        assertThat((double) alertHistory.getApproachRate(0)).isCloseTo(300.0, within(1e-3));
+        assertThat(alertHistory.getTrend(0)).isEqualTo(AlertHistory.Trend.APPROACHING);
+        assertThat((double) alertHistory.getApproachRate(1)).isCloseTo(-300.0, within(1e-3));
+        assertThat(alertHistory.getTrend(1)).isEqualTo(AlertHistory.Trend.RECEDING);
+        assertThat(alertHistory.getTrend(2)).isEqualTo(AlertHistory.Trend.STEADY);
+        assertThat(alertHistory.getApproachRate(3)).isNaN();
+        assertThat(alertHistory.getTrend(3)).isEqualTo(AlertHistory.Trend.UNKNOWN);
+    }
+
+    @Test
+    public void testTrendIsUnknownForShortHistory() {
+        record(0, 40f, NONE, NONE, NONE);
+        record(MINUTE, 30f, NONE, NONE, NONE);
+
+        assertThat(alertHistory.getTrend(0)).isEqualTo(AlertHistory.Trend.UNKNOWN);
+    }
+
+    @Test
+    public void testChecksWithinMinimumIntervalReplaceNewestEntry() {
+        record(0, 40f, NONE, NONE, NONE);
+        record(20 * 1000, 39f, NONE, NONE, NONE);
+        record(40 * 1000, 38f, NONE, NONE, NONE);
+        record(MINUTE, 37f, NONE, NONE, NONE);
+
+        assertThat(alertHistory.getSize()).isEqualTo(2);
+        assertThat(alertHistory.getTimestamp(1)).isEqualTo(MINUTE);
+        assertThat(alertHistory.getClosestStrikeDistance(1, 0)).isEqualTo(37f);
+
+        record(80 * 1000, 36f, NONE, NONE, NONE);
+
+        assertThat(alertHistory.getSize()).isEqualTo(3);
+    }
+
+    @Test
+    public void testHistoryIsBounded() {
+        for (int minute = 0; minute < AlertHistory.CAPACITY + 10; minute++) {
+            alertStatus.getSectors().get(1).setResults(new int[]{minute, 0, 1}, new long[3], NONE);
+            record(minute * MINUTE, 100f - minute, NONE, NONE, NONE);
+        }
+
+        assertThat(alertHistory.getSize()).isEqualTo(AlertHistory.CAPACITY);
+        assertThat(alertHistory.getTimestamp(0)).isEqualTo(10 * MINUTE);
+        assertThat(alertHistory.getStrikeCount(0, 0)).isEqualTo(10);
+        assertThat(alertHistory.getStrikeCount(0, 2)).isEqualTo(1);
+        assertThat((double) alertHistory.getApproachRate(0)).isCloseTo(60.0, within(1e-3));
+    }
+
+    @Test
+    public void testGapRestartsHistory() {
+        for (int minute = 0; minute < 5; minute++) {
+            record(minute * MINUTE, 40f - 5 * minute, NONE, NONE, NONE);
+        }
+
+        record(4 * MINUTE + AlertHistory.MAXIMUM_GAP + 1, 10f, NONE, NONE, NONE);
+
+        assertThat(alertHistory.getSize()).isEqualTo(1);
+        assertThat(alertHistory.getTrend(0)).isEqualTo(AlertHistory.Trend.UNKNOWN);
+    }
+
+    @Test
+    public void testTrendsWithTenMinuteQueryPeriod() {
+        alertHistory.setQueryPeriod(10 * MINUTE);
+
+        for (int check = 0; check < 5; check++) {
+            // inexact alarms deliver background checks late
+            final long delay = (check % 2) * 4 * MINUTE;
+            record(check * 10 * MINUTE + delay, 60f - 8 * check, NONE, NONE, NONE);
+        }
+
+        assertThat(alertHistory.getMaximumGap()).isEqualTo(30 * MINUTE);
+        assertThat(alertHistory.getSize()).isEqualTo(5);
+        assertThat(alertHistory.getTrend(0)).isEqualTo(AlertHistory.Trend.APPROACHING);
+        assertThat((double) alertHistory.getApproachRate(0)).isGreaterThan(30.0);
+    }
+
+    @Test
+    public void testTenMinuteSpacingRestartsHistoryWithDefaultGap() {
+        for (int check = 0; check < 5; check++) {
+            record(check * 10 * MINUTE, 60f - 8 * check, NONE, NONE, NONE);
+        }
+
+        assertThat(alertHistory.getSize()).isEqualTo(1);
+        assertThat(alertHistory.getTrend(0)).isEqualTo(AlertHistory.Trend.UNKNOWN);
+    }
+
+    @Test
+    public void testEncodeAndDecode() {
+        for (int minute = 0; minute < 5; minute++) {
+            alertStatus.getSectors().get(2).setResults(new int[]{0, minute, 0}, new long[3], NONE);
+            record(minute * MINUTE, 40f - 5 * minute, NONE, NONE, NONE);
+        }
+        assertThat(alertHistory.hasNewEntries()).isTrue();
+
+        final String encoded = alertHistory.encode();
+        assertThat(alertHistory.hasNewEntries()).isFalse();
+
+        final AlertHistory decodedHistory = new AlertHistory();
+        assertThat(decodedHistory.decode(encoded)).isTrue();
+
+        assertThat(decodedHistory.getSize()).isEqualTo(5);
+        assertThat(decodedHistory.getSectorCount()).isEqualTo(4);
+        assertThat(decodedHistory.getRangeCount()).isEqualTo(3);
+        assertThat(decodedHistory.getTimestamp(4)).isEqualTo(4 * MINUTE);
+        assertThat(decodedHistory.getClosestStrikeDistance(4, 0)).isEqualTo(20f);
+        assertThat(decodedHistory.getClosestStrikeDistance(4, 1)).isEqualTo(NONE);
+        assertThat(decodedHistory.getStrikeCount(4, 1)).isEqualTo(4);
+        assertThat(decodedHistory.getApproachRate(0)).isEqualTo(alertHistory.getApproachRate(0));
+        assertThat(decodedHistory.hasNewEntries()).isFalse();
+    }
+
+    @Test
+    public void testDecodeInvalidData() {
+        assertThat(alertHistory.decode(null)).isFalse();
+        assertThat(alertHistory.decode("AQ")).isFalse();
+        assertThat(alertHistory.decode("not base64 !")).isFalse();
+        assertThat(alertHistory.getSize()).isEqualTo(0);
+    }
+
+    private void record(long timestamp, float... closestDistances) {
+        for (int sectorIndex = 0; sectorIndex < closestDistances.length; sectorIndex++) {
+            final AlertSector sector = alertStatus.getSectors().get(sectorIndex);
+            final int[] strikeCounts = new int[3];
+            for (int rangeIndex = 0; rangeIndex < strikeCounts.length; rangeIndex++) {
+                strikeCounts[rangeIndex] = sector.getRanges().get(rangeIndex).getStrikeCount();
+            }
+            sector.setResults(strikeCounts, new long[3], closestDistances[sectorIndex]);
+        }
+        alertHistory.record(alertStatus, MeasurementSystem.METRIC, timestamp);
+    }
+}
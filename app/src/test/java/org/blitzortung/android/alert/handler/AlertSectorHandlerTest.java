@@ -1,11 +1,7 @@
 package org.blitzortung.android.alert.handler;
 
-import android.location.Location;
-import com.google.common.collect.Lists;
 import org.blitzortung.android.alert.AlertParameters;
-import org.blitzortung.android.alert.object.AlertSector;
-import org.blitzortung.android.alert.object.AlertSectorRange;
-import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.alert.object.AlertStatus;
 import org.blitzortung.android.util.MeasurementSystem;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,34 +10,21 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 
-import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @RunWith(RobolectricTestRunner.class)
 public class AlertSectorHandlerTest {
     
-    @Mock
-    private Strike strike;
-    
-    @Mock
-    private Location location;
-
-    @Mock
-    private Location strikeLocation;
+    private final int multiplicity = 2;
 
     private long now;
 
     private long thresholdTime;
 
     @Mock
-    private AlertSector alertSector;
-    
-    @Mock
-    private AlertSectorRange alertSectorRange1;
-
-    @Mock
-    private AlertSectorRange alertSectorRange2;
+    private AlertStatus alertStatus;
     
     @Mock
     private AlertParameters alertParameters;
@@ -60,83 +43,26 @@ public class AlertSectorHandlerTest {
         beforeThresholdTime = thresholdTime - 1;
         
         alertSectorHandler = new AlertSectorHandler(alertParameters);
-        alertSectorHandler.setCheckStrikeParameters(location, thresholdTime);
+        alertSectorHandler.setCheckStrikeParameters(thresholdTime);
         
-        when(alertSector.getRanges()).thenReturn(Lists.newArrayList(alertSectorRange1, alertSectorRange2));
         when(alertParameters.getMeasurementSystem()).thenReturn(measurementSystem);
-        when(alertSectorRange1.getRangeMaximum()).thenReturn(2.5f);
-        when(alertSectorRange2.getRangeMaximum()).thenReturn(5f);
-    }
-    
-    @Test
-    public void testCheckWithNullAsSector()
-    {
-        alertSectorHandler.checkStrike(null, strike);
-        
-        verify(location, times(0)).distanceTo(any(Location.class));
-        verify(alertParameters, times(0)).getMeasurementSystem();
     }
     
     @Test
-    public void testCheckWithinThresholdTimeAndRange1()
+    public void testAddStrikeWithinThresholdTime()
     {
-        when(strike.getTimestamp()).thenReturn(thresholdTime);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.distanceTo(strikeLocation)).thenReturn(2500f);
-        
-        alertSectorHandler.checkStrike(alertSector, strike);
-        
-        verify(alertSector, times(1)).updateClosestStrikeDistance(2.5f);
-        verify(alertSectorRange1, times(1)).getRangeMaximum();
-        verify(alertSectorRange1, times(1)).addStrike(strike);
-        verify(alertSectorRange2, times(0)).getRangeMaximum();
-    }
-
-    @Test
-    public void testCheckWithinThresholdTimeAndOutOfAllRanges()
-    {
-        when(strike.getTimestamp()).thenReturn(thresholdTime);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.distanceTo(strikeLocation)).thenReturn(5000.1f);
-
-        alertSectorHandler.checkStrike(alertSector, strike);
+        alertSectorHandler.addStrike(alertStatus, 3, 0, thresholdTime, multiplicity, 2500f);
 
-        verify(alertSector, times(0)).updateClosestStrikeDistance(anyFloat());
-        verify(alertSectorRange1, times(1)).getRangeMaximum();
-        verify(alertSectorRange1, times(0)).addStrike(any(Strike.class));
-        verify(alertSectorRange2, times(1)).getRangeMaximum();
-        verify(alertSectorRange2, times(0)).addStrike(any(Strike.class));
+        verify(alertStatus, times(1)).addStrike(3, 0, multiplicity, thresholdTime);
+        verify(alertStatus, times(1)).updateClosestStrikeDistance(3, 2.5f);
     }
 
     @Test
-    public void testCheckOutOfThresholdTimeAndWithinRange2()
+    public void testAddStrikeOutOfThresholdTime()
     {
-        when(strike.getTimestamp()).thenReturn(beforeThresholdTime);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.distanceTo(strikeLocation)).thenReturn(2500.1f);
-
-        alertSectorHandler.checkStrike(alertSector, strike);
-
-        verify(alertSector, times(0)).updateClosestStrikeDistance(anyFloat());
-        verify(alertSectorRange1, times(1)).getRangeMaximum();
-        verify(alertSectorRange1, times(0)).addStrike(any(Strike.class));
-        verify(alertSectorRange2, times(1)).getRangeMaximum();
-        verify(alertSectorRange2, times(1)).addStrike(strike);
-    }
-
-    @Test
-    public void testCheckOutOfThresholdTimeAndAllRanges()
-    {
-        when(strike.getTimestamp()).thenReturn(beforeThresholdTime);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.distanceTo(strikeLocation)).thenReturn(5000.1f);
-
-        alertSectorHandler.checkStrike(alertSector, strike);
+        alertSectorHandler.addStrike(alertStatus, 3, 1, beforeThresholdTime, multiplicity, 2500.1f);
 
-        verify(alertSector, times(0)).updateClosestStrikeDistance(anyFloat());
-        verify(alertSectorRange1, times(1)).getRangeMaximum();
-        verify(alertSectorRange1, times(0)).addStrike(any(Strike.class));
-        verify(alertSectorRange2, times(1)).getRangeMaximum();
-        verify(alertSectorRange2, times(0)).addStrike(any(Strike.class));
+        verify(alertStatus, times(1)).addStrike(3, 1, multiplicity, beforeThresholdTime);
+        verify(alertStatus, times(0)).updateClosestStrikeDistance(anyInt(), anyFloat());
     }
 }
@@ -4,19 +4,21 @@ import android.location.Location;
 import com.google.common.collect.Lists;
 import org.blitzortung.android.alert.AlertParameters;
 import org.blitzortung.android.alert.AlertResult;
+import org.blitzortung.android.alert.factory.AlertObjectFactory;
 import org.blitzortung.android.alert.object.AlertSector;
 import org.blitzortung.android.alert.object.AlertStatus;
 import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.util.GeoCalculator;
 import org.blitzortung.android.util.MeasurementSystem;
 import org.junit.Before;
-import org.junit.Rule;
 import org.junit.Test;
-import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.List;
+
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
@@ -24,9 +26,6 @@ import static org.mockito.Mockito.*;
 @RunWith(RobolectricTestRunner.class)
 public class AlertStatusHandlerTest {
 
-    @Rule
-    public ExpectedException expectedException = ExpectedException.none();
-    
     @Mock
     private AlertSectorHandler alertSectorHandler;
 
@@ -45,6 +44,9 @@ public class AlertStatusHandlerTest {
     @Mock
     private Location location;
 
+    @Mock
+    private GeoCalculator geoCalculator;
+
     private MeasurementSystem measurementSystem = MeasurementSystem.METRIC;
     
     private AlertStatusHandler alertStatusHandler;
@@ -53,116 +55,191 @@ public class AlertStatusHandlerTest {
     public void setUp() {
         MockitoAnnotations.initMocks(this);
 
-        alertStatusHandler = new AlertStatusHandler(alertSectorHandler, alertParameters);
+        alertStatusHandler = new AlertStatusHandler(alertSectorHandler, geoCalculator, alertParameters);
 
         when(alertParameters.getAlarmInterval()).thenReturn(10 * 60 * 1000l);
         when(alertParameters.getMeasurementSystem()).thenReturn(measurementSystem);
     }
 
     @Test
-    public void testCheckStrikesWhenBearingIsMinimumBearingOfSector() {
-
-        Location strikeLocation = mock(Location.class);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.bearingTo(strikeLocation)).thenReturn(10.0f);
-        when(alertStatus.getSectors()).thenReturn(Lists.newArrayList(alertSector));
-        when(alertSector.getMinimumSectorBearing()).thenReturn(10.0f);
-        when(alertSector.getMaximumSectorBearing()).thenReturn(15.0f);
+    public void testCheckStrikes() {
+        when(alertParameters.getRangeSteps()).thenReturn(new float[]{10f, 25f, 50f});
+        when(location.getLongitude()).thenReturn(11.5);
+        when(location.getLatitude()).thenReturn(48.5);
+        when(strike.getLongitude()).thenReturn(11.0f);
+        when(strike.getLatitude()).thenReturn(49.0f);
+        when(strike.getTimestamp()).thenReturn(1000L);
+        when(strike.getMultiplicity()).thenReturn(3);
+        when(geoCalculator.isWithinBoundingBox(11.0f, 49.0f)).thenReturn(true);
+        when(geoCalculator.getBearing()).thenReturn(10.0f);
+        when(geoCalculator.getDistance()).thenReturn(2000.0f);
+        when(alertStatus.getSectorIndex(10.0f)).thenReturn(2);
 
         final AlertStatus returnedAlertStatus = alertStatusHandler.checkStrikes(alertStatus, Lists.newArrayList(strike), location);
 
         assertThat(returnedAlertStatus, is(alertStatus));
 
         verify(alertStatus, times(1)).clearResults();
-        verify(alertSectorHandler, times(1)).setCheckStrikeParameters(eq(location), anyLong());
-        verify(alertSectorHandler, times(1)).checkStrike(alertSector, strike);
+        verify(alertSectorHandler, times(1)).setCheckStrikeParameters(anyLong());
+        verify(geoCalculator, times(1)).setObserver(11.5, 48.5);
+        verify(geoCalculator, times(1)).update(11.0f, 49.0f);
+        verify(alertSectorHandler, times(1)).addStrike(alertStatus, 2, 0, 1000L, 3, 2000.0f);
     }
 
     @Test
-    public void testCheckStrikesWhenBearingIsNearMaximumBearingOfSector() {
-
-        Location strikeLocation = mock(Location.class);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.bearingTo(strikeLocation)).thenReturn(14.999999f);
-        when(alertStatus.getSectors()).thenReturn(Lists.newArrayList(alertSector));
-        when(alertSector.getMinimumSectorBearing()).thenReturn(10.0f);
-        when(alertSector.getMaximumSectorBearing()).thenReturn(15.0f);
-
-        final AlertStatus returnedAlertStatus = alertStatusHandler.checkStrikes(alertStatus, Lists.newArrayList(strike), location);
+    public void testCheckStrikesSkipsStrikesOutsideOfBoundingBox() {
+        when(alertParameters.getRangeSteps()).thenReturn(new float[]{10f, 25f, 50f});
+        when(strike.getLongitude()).thenReturn(-80.0f);
+        when(strike.getLatitude()).thenReturn(30.0f);
 
-        assertThat(returnedAlertStatus, is(alertStatus));
+        alertStatusHandler.checkStrikes(alertStatus, Lists.newArrayList(strike), location);
 
-        verify(alertStatus, times(1)).clearResults();
-        verify(alertSectorHandler, times(1)).setCheckStrikeParameters(eq(location), anyLong());
-        verify(alertSectorHandler, times(1)).checkStrike(alertSector, strike);
+        verify(geoCalculator, times(1)).setMaximumDistance(50000.0);
+        verify(geoCalculator, times(0)).update(anyDouble(), anyDouble());
+        verify(alertSectorHandler, times(0)).addStrike(any(AlertStatus.class), anyInt(), anyInt(), anyLong(), anyInt(), anyFloat());
     }
 
     @Test
-    public void testCheckStrikesThrowsExceptionWhenNoSectorIfFoundForBearing() {
-
-        Location strikeLocation = mock(Location.class);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.bearingTo(strikeLocation)).thenReturn(15f);
-        when(alertStatus.getSectors()).thenReturn(Lists.newArrayList(alertSector));
-        when(alertSector.getMinimumSectorBearing()).thenReturn(10.0f);
-        when(alertSector.getMaximumSectorBearing()).thenReturn(15.0f);
+    public void testCheckStrikesSkipsStrikesOutsideOfLargestRange() {
+        final long now = System.currentTimeMillis();
+        final AlertStatus status = createAlertStatus();
+        final AlertStatusHandler handler = createAlertStatusHandler();
 
-        alertStatusHandler.checkStrikes(alertStatus, Lists.newArrayList(strike), location);
+        handler.checkStrikes(status, Lists.newArrayList(createStrike(now - 60 * 1000, 49f), createStrike(now - 60 * 1000, 51f)), location);
 
-        verify(alertSectorHandler, times(1)).checkStrike(null, strike);
+        final AlertSector sector = status.getSectors().get(status.getSectorIndex(0f));
+        assertThat(sector.getRanges().get(2).getStrikeCount(), is(1));
+        assertThat(Math.round(sector.getClosestStrikeDistance()), is(49));
     }
 
     @Test
-    public void testCheckStrikesWhenBearingIsMinimumBearingOfSpecialSector() {
-
-        Location strikeLocation = mock(Location.class);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.bearingTo(strikeLocation)).thenReturn(170f);
-        when(alertStatus.getSectors()).thenReturn(Lists.newArrayList(alertSector));
-        when(alertSector.getMinimumSectorBearing()).thenReturn(170f);
-        when(alertSector.getMaximumSectorBearing()).thenReturn(-170f);
-
-        final AlertStatus returnedAlertStatus = alertStatusHandler.checkStrikes(alertStatus, Lists.newArrayList(strike), location);
+    public void testUpdateLocationClassifiesStrikesAgainWhenGeometryHasChanged() {
+        final long now = System.currentTimeMillis();
+        final AlertStatus status = createAlertStatus();
+        final AlertStatusHandler handler = createAlertStatusHandler();
+
+        handler.checkStrikes(status, Lists.newArrayList(createStrike(now - 60 * 1000, 5f), createStrike(now - 60 * 1000, 30f)), location);
+
+        when(alertParameters.getSectorLabels()).thenReturn(new String[]{"S", "N"});
+        when(alertParameters.getRangeSteps()).thenReturn(new float[]{2f, 4f, 6f, 8f, 10f});
+        handler.updateLocation(status, location);
+
+        assertThat(status.getSectors().size(), is(2));
+        final AlertSector sector = status.getSectors().get(status.getSectorIndex(0f));
+        assertThat(sector.getRanges().size(), is(5));
+        assertThat(sector.getRanges().get(2).getStrikeCount(), is(1));
+        assertThat(Math.round(sector.getClosestStrikeDistance()), is(5));
+    }
 
-        assertThat(returnedAlertStatus, is(alertStatus));
+    @Test
+    public void testUpdateStrikesRetractsExpiredStrikes() {
+        final long now = System.currentTimeMillis();
+        final AlertStatus status = createAlertStatus();
+        final AlertStatusHandler handler = createAlertStatusHandler();
+        final int sectorIndex = status.getSectorIndex(0f);
+
+        handler.checkStrikes(status, Lists.newArrayList(createStrike(now - 20 * 60 * 1000, 5f)), location);
+        assertThat(status.getSectors().get(sectorIndex).getRanges().get(0).getStrikeCount(), is(1));
+
+        handler.updateStrikes(status, Lists.newArrayList(createStrike(now - 60 * 1000, 20f)), now - 15 * 60 * 1000, location);
+
+        final AlertSector sector = status.getSectors().get(sectorIndex);
+        assertThat(sector.getRanges().get(0).getStrikeCount(), is(0));
+        assertThat(sector.getRanges().get(0).getLatestStrikeTimestamp(), is(0L));
+        assertThat(sector.getRanges().get(1).getStrikeCount(), is(1));
+        assertThat(Math.round(sector.getClosestStrikeDistance()), is(20));
+    }
 
-        verify(alertStatus, times(1)).clearResults();
-        verify(alertSectorHandler, times(1)).setCheckStrikeParameters(eq(location), anyLong());
-        verify(alertSectorHandler, times(1)).checkStrike(alertSector, strike);
+    @Test
+    public void testUpdateStrikesKeepsClosestDistanceOfRemainingStrikes() {
+        final long now = System.currentTimeMillis();
+        final AlertStatus status = createAlertStatus();
+        final AlertStatusHandler handler = createAlertStatusHandler();
+        final int sectorIndex = status.getSectorIndex(0f);
+
+        handler.checkStrikes(status, Lists.newArrayList(createStrike(now - 5 * 60 * 1000, 5f), createStrike(now - 2 * 60 * 1000, 30f)), location);
+        handler.updateStrikes(status, Lists.newArrayList(createStrike(now - 60 * 1000, 20f)), now - 15 * 60 * 1000, location);
+
+        final AlertSector sector = status.getSectors().get(sectorIndex);
+        assertThat(sector.getRanges().get(0).getStrikeCount(), is(1));
+        assertThat(sector.getRanges().get(1).getStrikeCount(), is(1));
+        assertThat(sector.getRanges().get(2).getStrikeCount(), is(1));
+        assertThat(Math.round(sector.getClosestStrikeDistance()), is(5));
     }
 
     @Test
-    public void testCheckStrikesWhenBearingIsNearMaximumBearingOfSpecialSector() {
+    public void testUpdateLocationRetiresStrikesLeavingTheAlarmInterval() throws InterruptedException {
+        final long now = System.currentTimeMillis();
+        final AlertStatus status = createAlertStatus();
+        final AlertStatusHandler handler = createAlertStatusHandler();
+        final int sectorIndex = status.getSectorIndex(0f);
 
-        Location strikeLocation = mock(Location.class);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.bearingTo(strikeLocation)).thenReturn(-170.00001f);
-        when(alertStatus.getSectors()).thenReturn(Lists.newArrayList(alertSector));
-        when(alertSector.getMinimumSectorBearing()).thenReturn(170f);
-        when(alertSector.getMaximumSectorBearing()).thenReturn(-170f);
+        handler.checkStrikes(status, Lists.newArrayList(createStrike(now - 10 * 60 * 1000 + 100, 5f), createStrike(now - 60 * 1000, 30f)), location);
+        assertThat(Math.round(status.getSectors().get(sectorIndex).getClosestStrikeDistance()), is(5));
 
-        final AlertStatus returnedAlertStatus = alertStatusHandler.checkStrikes(alertStatus, Lists.newArrayList(strike), location);
+        Thread.sleep(200);
+        handler.updateLocation(status, location);
 
-        assertThat(returnedAlertStatus, is(alertStatus));
+        final AlertSector sector = status.getSectors().get(sectorIndex);
+        assertThat(sector.getRanges().get(0).getStrikeCount(), is(1));
+        assertThat(Math.round(sector.getClosestStrikeDistance()), is(30));
+    }
 
-        verify(alertStatus, times(1)).clearResults();
-        verify(alertSectorHandler, times(1)).setCheckStrikeParameters(eq(location), anyLong());
-        verify(alertSectorHandler, times(1)).checkStrike(alertSector, strike);
+    @Test
+    public void testUpdateLocationClassifiesStrikesAgainWhenObserverHasMoved() {
+        final long now = System.currentTimeMillis();
+        final AlertStatus status = createAlertStatus();
+        final AlertStatusHandler handler = createAlertStatusHandler();
+        final int sectorIndex = status.getSectorIndex(0f);
+
+        handler.checkStrikes(status, Lists.newArrayList(createStrike(now - 60 * 1000, 30f)), location);
+
+        final Location movedLocation = mock(Location.class);
+        when(movedLocation.getLongitude()).thenReturn(11.0);
+        when(movedLocation.getLatitude()).thenReturn(49.0 + 20 / 111.195);
+        handler.updateLocation(status, movedLocation);
+
+        final AlertSector sector = status.getSectors().get(sectorIndex);
+        assertThat(sector.getRanges().get(0).getStrikeCount(), is(1));
+        assertThat(sector.getRanges().get(2).getStrikeCount(), is(0));
+        assertThat(Math.round(sector.getClosestStrikeDistance()), is(10));
     }
 
     @Test
-    public void testCheckStrikesThrowsExceptionWhenNoSectorIfFoundForBearingInCaseOfSpecialSector() {
+    public void testGetStrikesReturnsStrikesOfWindowInTimeOrder() {
+        final long now = System.currentTimeMillis();
+        final AlertStatusHandler handler = createAlertStatusHandler();
+
+        handler.setStrikes(Lists.newArrayList(createStrike(now - 60 * 1000, 5f), createStrike(now - 20 * 60 * 1000, 30f)));
+        handler.addStrikes(Lists.newArrayList(createStrike(now - 2 * 60 * 1000, 20f)), now - 15 * 60 * 1000);
+
+        final List<Strike> strikes = handler.getStrikes();
+        assertThat(strikes.size(), is(2));
+        assertThat(strikes.get(0).getTimestamp(), is(now - 2 * 60 * 1000));
+        assertThat(strikes.get(1).getTimestamp(), is(now - 60 * 1000));
+        assertThat(strikes.get(1).getLatitude(), is((float) (49.0 + 5f / 111.195)));
+        assertThat(strikes.get(1).getMultiplicity(), is(1));
+    }
 
-        Location strikeLocation = mock(Location.class);
-        when(strike.getLocation(any(Location.class))).thenReturn(strikeLocation);
-        when(location.bearingTo(strikeLocation)).thenReturn(-170f);
-        when(alertStatus.getSectors()).thenReturn(Lists.newArrayList(alertSector));
-        when(alertSector.getMinimumSectorBearing()).thenReturn(170f);
-        when(alertSector.getMaximumSectorBearing()).thenReturn(-170f);
+    private AlertStatus createAlertStatus() {
+        when(alertParameters.getSectorLabels()).thenReturn(new String[]{"S", "W", "N", "O"});
+        when(alertParameters.getRangeSteps()).thenReturn(new float[]{10f, 25f, 50f});
+        when(location.getLongitude()).thenReturn(11.0);
+        when(location.getLatitude()).thenReturn(49.0);
+        return new AlertStatus(new AlertObjectFactory(), alertParameters);
+    }
 
-        alertStatusHandler.checkStrikes(alertStatus, Lists.newArrayList(strike), location);
+    private AlertStatusHandler createAlertStatusHandler() {
+        return new AlertStatusHandler(new AlertSectorHandler(alertParameters), new GeoCalculator(), alertParameters);
+    }
 
-        verify(alertSectorHandler, times(1)).checkStrike(null, strike);
+    private Strike createStrike(long timestamp, float kilometersNorth) {
+        final Strike strike = mock(Strike.class);
+        when(strike.getTimestamp()).thenReturn(timestamp);
+        when(strike.getMultiplicity()).thenReturn(1);
+        when(strike.getLongitude()).thenReturn(11.0f);
+        when(strike.getLatitude()).thenReturn((float) (49.0 + kilometersNorth / 111.195));
+        return strike;
     }
 
     @Test
@@ -0,0 +1,73 @@
+package org.blitzortung.android.alert.handler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AlertStrikeQueueTest {
+
+    private AlertStrikeQueue strikeQueue;
+
+    @Before
+    public void setUp() {
+        strikeQueue = new AlertStrikeQueue();
+    }
+
+    @Test
+    public void testAddKeepsTimeOrder() {
+        strikeQueue.add(1000L, 11f, 49f, 1);
+        strikeQueue.add(3000L, 12f, 50f, 2);
+        final int index = strikeQueue.add(2000L, 13f, 51f, 3);
+
+        assertThat(strikeQueue.size()).isEqualTo(3);
+        assertThat(index).isEqualTo(strikeQueue.getStart() + 1);
+        assertThat(strikeQueue.getTimestamp(index)).isEqualTo(2000L);
+        assertThat(strikeQueue.getLongitude(index)).isEqualTo(13f);
+        assertThat(strikeQueue.getLatitude(index)).isEqualTo(51f);
+        assertThat(strikeQueue.getMultiplicity(index)).isEqualTo(3);
+        assertThat(strikeQueue.getTimestamp(index + 1)).isEqualTo(3000L);
+        assertThat(strikeQueue.getMultiplicity(index + 1)).isEqualTo(2);
+    }
+
+    @Test
+    public void testIndexOf() {
+        strikeQueue.add(1000L, 11f, 49f, 1);
+        strikeQueue.add(2000L, 11f, 49f, 1);
+        strikeQueue.add(2000L, 11f, 49f, 1);
+        strikeQueue.add(3000L, 11f, 49f, 1);
+
+        assertThat(strikeQueue.indexOf(0L)).isEqualTo(strikeQueue.getStart());
+        assertThat(strikeQueue.indexOf(2000L)).isEqualTo(strikeQueue.getStart() + 1);
+        assertThat(strikeQueue.indexOf(2500L)).isEqualTo(strikeQueue.getStart() + 3);
+        assertThat(strikeQueue.indexOf(4000L)).isEqualTo(strikeQueue.getEnd());
+    }
+
+    @Test
+    public void testRemoveFirstAndGrow() {
+        for (int count = 0; count < 1000; count++) {
+            final int index = strikeQueue.add(count, 11f, 49f, 1);
+            strikeQueue.setClassification(index, count % 8, count % 3, count);
+            if (count % 2 == 0) {
+                strikeQueue.removeFirst();
+            }
+        }
+
+        assertThat(strikeQueue.size()).isEqualTo(500);
+        final int start = strikeQueue.getStart();
+        assertThat(strikeQueue.getTimestamp(start)).isEqualTo(500L);
+        assertThat(strikeQueue.getSectorIndex(start)).isEqualTo(500 % 8);
+        assertThat(strikeQueue.getRangeIndex(start)).isEqualTo(500 % 3);
+        assertThat(strikeQueue.getDistance(start)).isEqualTo(500f);
+        assertThat(strikeQueue.getTimestamp(strikeQueue.getEnd() - 1)).isEqualTo(999L);
+    }
+
+    @Test
+    public void testClear() {
+        strikeQueue.add(1000L, 11f, 49f, 1);
+
+        strikeQueue.clear();
+
+        assertThat(strikeQueue.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,114 @@
+package org.blitzortung.android.alert.handler;
+
+import android.location.Location;
+import org.blitzortung.android.alert.AlertParameters;
+import org.blitzortung.android.alert.factory.AlertObjectFactory;
+import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.util.MeasurementSystem;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * reports the duration of the strike updates of an alert status with storm cell tracking at the global strike rate,
+ * the benchmark only runs if the system property benchmark is set, e.g. with gradlew test -Dbenchmark=true
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StormCellTrackerBenchmark {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private static final int UPDATES = 120;
+
+    private static final int WARM_UP_UPDATES = 40;
+
+    // about 2000 strikes per minute worldwide of which 10 percent are within the alert range
+    private static final int STRIKES_PER_UPDATE = 2000;
+
+    @Test
+    public void benchmarkUpdateStrikesAtGlobalStrikeRate() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+
+        final AlertParameters alertParameters = mock(AlertParameters.class);
+        when(alertParameters.getSectorLabels()).thenReturn(new String[]{"S", "SW", "W", "NW", "N", "NO", "O", "SO"});
+        when(alertParameters.getRangeSteps()).thenReturn(new float[]{10, 25, 50, 100, 250, 500});
+        when(alertParameters.getAlarmInterval()).thenReturn(10 * MINUTE);
+        when(alertParameters.getMeasurementSystem()).thenReturn(MeasurementSystem.METRIC);
+        final AlertStatus alertStatus = new AlertStatus(new AlertObjectFactory(), alertParameters);
+        final AlertStatusHandler alertStatusHandler = new AlertObjectFactory().createAlarmStatusHandler(alertParameters);
+        final Location location = new Location("");
+        location.setLongitude(11.0);
+        location.setLatitude(49.0);
+
+        final Random random = new Random(0);
+        final long start = System.currentTimeMillis() - UPDATES * MINUTE;
+        alertStatusHandler.checkStrikes(alertStatus, new ArrayList<Strike>(), location);
+
+        long duration = 0;
+        long maximumDuration = 0;
+        for (int update = 0; update < UPDATES; update++) {
+            final List<Strike> strikes = new ArrayList<Strike>(STRIKES_PER_UPDATE);
+            for (int count = 0; count < STRIKES_PER_UPDATE; count++) {
+                final long timestamp = start + update * MINUTE + random.nextInt((int) MINUTE);
+                if (count % 10 == 0) {
+                    strikes.add(createStrike(timestamp, 8f + 6f * random.nextFloat(), 47f + 4f * random.nextFloat()));
+                } else {
+                    strikes.add(createStrike(timestamp, -180f + 360f * random.nextFloat(), -60f + 120f * random.nextFloat()));
+                }
+            }
+
+            final long updateStart = System.nanoTime();
+            alertStatusHandler.updateStrikes(alertStatus, strikes, start + (update - 30) * MINUTE, location);
+            final long updateDuration = System.nanoTime() - updateStart;
+            if (update >= WARM_UP_UPDATES) {
+                duration += updateDuration;
+                maximumDuration = Math.max(maximumDuration, updateDuration);
+            }
+        }
+
+        System.out.println(String.format(Locale.US, "StormCellTrackerBenchmark: %d strikes per update, average %.2f ms, maximum %.2f ms, %d cells",
+                STRIKES_PER_UPDATE, duration / 1e6 / (UPDATES - WARM_UP_UPDATES), maximumDuration / 1e6,
+                alertStatusHandler.getStormCells().size()));
+    }
+
+    private Strike createStrike(final long timestamp, final float longitude, final float latitude) {
+        return new Strike() {
+            @Override
+            public long getTimestamp() {
+                return timestamp;
+            }
+
+            @Override
+            public float getLongitude() {
+                return longitude;
+            }
+
+            @Override
+            public float getLatitude() {
+                return latitude;
+            }
+
+            @Override
+            public Location getLocation(Location location) {
+                location.setLongitude(longitude);
+                location.setLatitude(latitude);
+                return location;
+            }
+
+            @Override
+            public int getMultiplicity() {
+                return 1;
+            }
+        };
+    }
+}
@@ -0,0 +1,233 @@
+package org.blitzortung.android.alert.handler;
+
+import android.location.Location;
+import org.blitzortung.android.alert.AlertParameters;
+import org.blitzortung.android.alert.factory.AlertObjectFactory;
+import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.alert.object.StormCell;
+import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.util.MeasurementSystem;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class StormCellTrackerTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private StormCellTracker stormCellTracker;
+
+    private long now;
+
+    @Before
+    public void setUp() {
+        stormCellTracker = new StormCellTracker();
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    public void testDenseStrikesFormCell() {
+        addCluster(11.0f, 48.0f, now - 5 * MINUTE, 12);
+        stormCellTracker.add(now, 15.0f, 45.0f, 1);
+        stormCellTracker.add(now, 16.0f, 45.0f, 1);
+
+        final List<StormCell> stormCells = stormCellTracker.update(11.0, 49.0, now);
+
+        assertThat(stormCells).hasSize(1);
+        final StormCell stormCell = stormCells.get(0);
+        assertThat(stormCell.getStrikeCount()).isEqualTo(12);
+        assertThat((double) stormCell.getLongitude()).isCloseTo(11.0, within(0.02));
+        assertThat((double) stormCell.getLatitude()).isCloseTo(48.0, within(0.02));
+        assertThat(stormCell.isVelocityKnown()).isFalse();
+        assertThat(stormCell.isApproaching()).isFalse();
+        assertThat((double) stormCell.getDistance()).isCloseTo(111195.0, within(3000.0));
+        assertThat((double) stormCell.getBearing()).isCloseTo(180.0, within(1.0));
+    }
+
+    @Test
+    public void testRemovedStrikesDissolveCell() {
+        addCluster(11.0f, 48.0f, now - 5 * MINUTE, 12);
+        removeCluster(11.0f, 48.0f, now - 5 * MINUTE, 12);
+
+        assertThat(stormCellTracker.update(11.0, 49.0, now)).isEmpty();
+        assertThat(stormCellTracker.getBinCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testCellAcrossDateLine() {
+        addCluster(179.98f, -17.0f, now - 5 * MINUTE, 6);
+        addCluster(-179.98f, -17.0f, now - 5 * MINUTE, 6);
+
+        final List<StormCell> stormCells = stormCellTracker.update(179.0, -17.0, now);
+
+        assertThat(stormCells).hasSize(1);
+        assertThat(Math.abs(stormCells.get(0).getLongitude())).isGreaterThan(179.9f);
+    }
+
+    @Test
+    public void testMovingCellIsTracked() {
+        addCluster(11.0f, 48.0f, now - 15 * MINUTE, 12);
+        stormCellTracker.update(11.0, 49.0, now - 10 * MINUTE);
+
+        removeCluster(11.0f, 48.0f, now - 15 * MINUTE, 12);
+        addCluster(11.0f, 48.1f, now - 5 * MINUTE, 12);
+        final List<StormCell> stormCells = stormCellTracker.update(11.0, 49.0, now);
+
+        assertThat(stormCells).hasSize(1);
+        final StormCell stormCell = stormCells.get(0);
+        assertThat(stormCell.isVelocityKnown()).isTrue();
+        // 0.1 degree to the north within 10 minutes
+        assertThat((double) stormCell.getVelocityNorth()).isCloseTo(18.5, within(0.5));
+        assertThat((double) stormCell.getVelocityEast()).isCloseTo(0.0, within(0.5));
+        assertThat(stormCell.isApproaching()).isTrue();
+        assertThat((double) stormCell.getClosestApproachDistance()).isLessThan(1000.0);
+        // 0.9 degree left at the centroid time, 5 minutes of which have passed
+        assertThat((double) stormCell.getTimeToClosestApproach()).isCloseTo(85 * MINUTE, within((double) MINUTE));
+    }
+
+    @Test
+    public void testReceedingCellIsNotApproaching() {
+        addCluster(11.0f, 48.1f, now - 15 * MINUTE, 12);
+        stormCellTracker.update(11.0, 49.0, now - 10 * MINUTE);
+
+        removeCluster(11.0f, 48.1f, now - 15 * MINUTE, 12);
+        addCluster(11.0f, 48.0f, now - 5 * MINUTE, 12);
+        final StormCell stormCell = stormCellTracker.update(11.0, 49.0, now).get(0);
+
+        assertThat(stormCell.isVelocityKnown()).isTrue();
+        assertThat(stormCell.isApproaching()).isFalse();
+        assertThat(stormCell.getTimeToClosestApproach()).isEqualTo(-1L);
+    }
+
+    @Test
+    public void testUnchangedCellKeepsVelocity() {
+        addCluster(11.0f, 48.0f, now - 15 * MINUTE, 12);
+        stormCellTracker.update(11.0, 49.0, now - 10 * MINUTE);
+        removeCluster(11.0f, 48.0f, now - 15 * MINUTE, 12);
+        addCluster(11.0f, 48.1f, now - 5 * MINUTE, 12);
+        final StormCell movingCell = stormCellTracker.update(11.0, 49.0, now).get(0);
+
+        addCluster(14.0f, 46.0f, now, 10);
+        final List<StormCell> stormCells = stormCellTracker.update(11.0, 49.0, now);
+
+        assertThat(stormCells).hasSize(2);
+        final StormCell stormCell = stormCells.get(0);
+        assertThat(stormCell).isNotSameAs(movingCell);
+        assertThat(stormCell.getStrikeCount()).isEqualTo(12);
+        assertThat(stormCell.getVelocityNorth()).isEqualTo(movingCell.getVelocityNorth());
+        assertThat(stormCells.get(1).isVelocityKnown()).isFalse();
+    }
+
+    @Test
+    public void testChangedBinJoinsAndSplitsCells() {
+        addCluster(11.0f, 48.0f, now - 5 * MINUTE, 12);
+        addCluster(11.3f, 48.0f, now - 5 * MINUTE, 10);
+        assertThat(stormCellTracker.update(11.0, 49.0, now)).hasSize(2);
+
+        stormCellTracker.add(now, 11.15f, 48.005f, 1);
+        stormCellTracker.add(now, 11.15f, 48.005f, 1);
+        final List<StormCell> joinedCells = stormCellTracker.update(11.0, 49.0, now);
+
+        assertThat(joinedCells).hasSize(1);
+        assertThat(joinedCells.get(0).getStrikeCount()).isEqualTo(24);
+
+        stormCellTracker.remove(now, 11.15f, 48.005f, 1);
+        final List<StormCell> splitCells = stormCellTracker.update(11.0, 49.0, now);
+
+        assertThat(splitCells).hasSize(2);
+        assertThat(splitCells.get(0).getStrikeCount()).isEqualTo(12);
+        assertThat(splitCells.get(1).getStrikeCount()).isEqualTo(10);
+    }
+
+    @Test
+    public void testStormCellCountIsBoundedAtGlobalStrikeRate() {
+        final AlertParameters alertParameters = mock(AlertParameters.class);
+        when(alertParameters.getSectorLabels()).thenReturn(new String[]{"S", "SW", "W", "NW", "N", "NO", "O", "SO"});
+        when(alertParameters.getRangeSteps()).thenReturn(new float[]{10, 25, 50, 100, 250, 500});
+        when(alertParameters.getAlarmInterval()).thenReturn(10 * MINUTE);
+        when(alertParameters.getMeasurementSystem()).thenReturn(MeasurementSystem.METRIC);
+        final AlertStatus alertStatus = new AlertStatus(new AlertObjectFactory(), alertParameters);
+        final AlertStatusHandler alertStatusHandler = new AlertObjectFactory().createAlarmStatusHandler(alertParameters);
+        final Location location = new Location("");
+        location.setLongitude(11.0);
+        location.setLatitude(49.0);
+
+        // about 2000 strikes per minute worldwide of which 10 percent are within the alert range
+        final Random random = new Random(0);
+        final int updates = 60;
+        final int strikesPerUpdate = 2000;
+        final long start = now - updates * MINUTE;
+        alertStatusHandler.checkStrikes(alertStatus, new ArrayList<Strike>(), location);
+
+        for (int update = 0; update < updates; update++) {
+            final List<Strike> strikes = new ArrayList<Strike>(strikesPerUpdate);
+            for (int count = 0; count < strikesPerUpdate; count++) {
+                final long timestamp = start + update * MINUTE + random.nextInt((int) MINUTE);
+                if (count % 10 == 0) {
+                    strikes.add(createStrike(timestamp, 8f + 6f * random.nextFloat(), 47f + 4f * random.nextFloat()));
+                } else {
+                    strikes.add(createStrike(timestamp, -180f + 360f * random.nextFloat(), -60f + 120f * random.nextFloat()));
+                }
+            }
+
+            alertStatusHandler.updateStrikes(alertStatus, strikes, start + (update - 30) * MINUTE, location);
+        }
+
+        assertThat(alertStatusHandler.getStormCells()).isNotEmpty();
+        assertThat(alertStatusHandler.getStormCells().size()).isLessThanOrEqualTo(StormCellTracker.MAX_STORM_CELLS);
+    }
+
+    private void addCluster(float longitude, float latitude, long timestamp, int count) {
+        for (int index = 0; index < count; index++) {
+            stormCellTracker.add(timestamp, longitude + (index % 3 - 1) * 0.01f, latitude + (index % 2) * 0.01f, 1);
+        }
+    }
+
+    private void removeCluster(float longitude, float latitude, long timestamp, int count) {
+        for (int index = 0; index < count; index++) {
+            stormCellTracker.remove(timestamp, longitude + (index % 3 - 1) * 0.01f, latitude + (index % 2) * 0.01f, 1);
+        }
+    }
+
+    private Strike createStrike(final long timestamp, final float longitude, final float latitude) {
+        return new Strike() {
+            @Override
+            public long getTimestamp() {
+                return timestamp;
+            }
+
+            @Override
+            public float getLongitude() {
+                return longitude;
+            }
+
+            @Override
+            public float getLatitude() {
+                return latitude;
+            }
+
+            @Override
+            public Location getLocation(Location location) {
+                location.setLongitude(longitude);
+                location.setLatitude(latitude);
+                return location;
+            }
+
+            @Override
+            public int getMultiplicity() {
+                return 1;
+            }
+        };
+    }
+}
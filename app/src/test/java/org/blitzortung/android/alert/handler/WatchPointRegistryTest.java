@@ -0,0 +1,108 @@
+package org.blitzortung.android.alert.handler;
+
+import com.google.common.collect.Lists;
+import org.blitzortung.android.alert.AlertParameters;
+import org.blitzortung.android.alert.factory.AlertObjectFactory;
+import org.blitzortung.android.alert.object.AlertSector;
+import org.blitzortung.android.alert.object.WatchPoint;
+import org.blitzortung.android.data.beans.Strike;
+import org.blitzortung.android.util.MeasurementSystem;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class WatchPointRegistryTest {
+
+    @Mock
+    private AlertParameters alertParameters;
+
+    private AlertObjectFactory alertObjectFactory;
+
+    private WatchPointRegistry watchPointRegistry;
+
+    private WatchPoint home;
+
+    private WatchPoint field;
+
+    private WatchPoint island;
+
+    private long now;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        when(alertParameters.getSectorLabels()).thenReturn(new String[]{"S", "W", "N", "O"});
+        when(alertParameters.getRangeSteps()).thenReturn(new float[]{10f, 25f, 50f});
+        when(alertParameters.getAlarmInterval()).thenReturn(10 * 60 * 1000L);
+        when(alertParameters.getMeasurementSystem()).thenReturn(MeasurementSystem.METRIC);
+
+        alertObjectFactory = new AlertObjectFactory();
+        watchPointRegistry = new WatchPointRegistry(alertParameters);
+
+        home = alertObjectFactory.createWatchPoint(alertParameters, "home", 11.0, 49.0, 50f, 25f);
+        field = alertObjectFactory.createWatchPoint(alertParameters, "field", 11.0, 49.3, 50f, 25f);
+        island = alertObjectFactory.createWatchPoint(alertParameters, "island", 179.9, -17.0, 50f, 25f);
+        watchPointRegistry.setWatchPoints(Lists.newArrayList(home, field, island));
+
+        now = System.currentTimeMillis();
+    }
+
+    @Test
+    public void testCheckStrikesEvaluatesAllWatchPoints() {
+        watchPointRegistry.checkStrikes(Lists.newArrayList(createStrike(11.0f, 49.1f), createStrike(-179.9f, -17.0f), createStrike(-80f, 30f)));
+
+        assertThat(getStrikeCount(home)).isEqualTo(1);
+        assertThat(getStrikeCount(field)).isEqualTo(1);
+        assertThat(getStrikeCount(island)).isEqualTo(1);
+        assertThat(home.getPendingStrikes()).isEmpty();
+    }
+
+    @Test
+    public void testUpdateStrikesAddsToNearbyWatchPointsOnly() {
+        watchPointRegistry.checkStrikes(Lists.<Strike>newArrayList());
+
+        watchPointRegistry.updateStrikes(Lists.newArrayList(createStrike(11.0f, 49.15f)), now - 60 * 60 * 1000);
+
+        assertThat(getStrikeCount(home)).isEqualTo(1);
+        assertThat(getStrikeCount(field)).isEqualTo(1);
+        assertThat(getStrikeCount(island)).isEqualTo(0);
+    }
+
+    @Test
+    public void testWatchPointsCanBeReplaced() {
+        watchPointRegistry.setWatchPoints(Lists.newArrayList(island));
+
+        watchPointRegistry.checkStrikes(Lists.newArrayList(createStrike(11.0f, 49.1f)));
+
+        assertThat(watchPointRegistry.getWatchPoints()).containsExactly(island);
+        assertThat(getStrikeCount(home)).isEqualTo(0);
+        assertThat(home.getPendingStrikes()).isEmpty();
+    }
+
+    private int getStrikeCount(WatchPoint watchPoint) {
+        int strikeCount = 0;
+        for (AlertSector sector : watchPoint.getAlertStatus().getSectors()) {
+            strikeCount += sector.getRanges().get(0).getStrikeCount() + sector.getRanges().get(1).getStrikeCount()
+                    + sector.getRanges().get(2).getStrikeCount();
+        }
+        return strikeCount;
+    }
+
+    private Strike createStrike(float longitude, float latitude) {
+        final Strike strike = mock(Strike.class);
+        when(strike.getTimestamp()).thenReturn(now - 60 * 1000);
+        when(strike.getMultiplicity()).thenReturn(1);
+        when(strike.getLongitude()).thenReturn(longitude);
+        when(strike.getLatitude()).thenReturn(latitude);
+        return strike;
+    }
+}
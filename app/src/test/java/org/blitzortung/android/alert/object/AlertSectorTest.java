@@ -1,6 +1,5 @@
 package org.blitzortung.android.alert.object;
 
-import org.blitzortung.android.alert.AlertParameters;
 import org.blitzortung.android.alert.factory.AlertObjectFactory;
 import org.junit.Before;
 import org.junit.Test;
@@ -22,9 +21,6 @@ public class AlertSectorTest {
     @Mock
     private AlertObjectFactory alertObjectFactory;
 
-    @Mock
-    private AlertParameters alertParameters;
-
     private final String sectorLabel = "foo";
 
     @Mock
@@ -43,12 +39,10 @@ public class AlertSectorTest {
     public void setUp() {
         MockitoAnnotations.initMocks(this);
 
-        when(alertParameters.getSectorLabels()).thenReturn(new String[]{"eins", "zwei"});
-        when(alertParameters.getRangeSteps()).thenReturn(new float[]{10f, 20f});
         when(alertObjectFactory.createAlarmSectorRange(0.0f, 10.0f)).thenReturn(alertSectorRange1);
         when(alertObjectFactory.createAlarmSectorRange(10.0f, 20.0f)).thenReturn(alertSectorRange2);
 
-        alertSector = new AlertSector(alertObjectFactory, alertParameters, sectorLabel, minimumBearing, maximumBearing);
+        alertSector = new AlertSector(alertObjectFactory, new float[]{10f, 20f}, sectorLabel, minimumBearing, maximumBearing);
     }
 
     @Test
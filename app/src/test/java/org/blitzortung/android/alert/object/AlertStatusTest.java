@@ -29,6 +29,8 @@ public class AlertStatusTest {
     @Mock
     private AlertSector alertSector2;
 
+    private final float[] rangeSteps = new float[]{10f, 25f, 50f};
+
     private AlertStatus alertStatus;
 
     @Before
@@ -36,24 +38,94 @@ public class AlertStatusTest {
         MockitoAnnotations.initMocks(this);
 
         when(alertParameters.getSectorLabels()).thenReturn(new String[]{"foo", "bar"});
-        when(alertObjectFactory.createAlarmSector(alertParameters, "foo", 90f, -90f)).thenReturn(alertSector1);
-        when(alertObjectFactory.createAlarmSector(alertParameters, "bar", -90f, 90f)).thenReturn(alertSector2);
+        when(alertParameters.getRangeSteps()).thenReturn(rangeSteps);
+        when(alertObjectFactory.createAlarmSector(rangeSteps, "foo", 90f, -90f)).thenReturn(alertSector1);
+        when(alertObjectFactory.createAlarmSector(rangeSteps, "bar", -90f, 90f)).thenReturn(alertSector2);
 
         alertStatus = new AlertStatus(alertObjectFactory, alertParameters);
     }
     
     @Test
     public void testConstruct() {
-        verify(alertObjectFactory, times(1)).createAlarmSector(alertParameters, "foo", 90f, -90f);
-        verify(alertObjectFactory, times(1)).createAlarmSector(alertParameters, "bar", -90f, 90f);
+        verify(alertObjectFactory, times(1)).createAlarmSector(rangeSteps, "foo", 90f, -90f);
+        verify(alertObjectFactory, times(1)).createAlarmSector(rangeSteps, "bar", -90f, 90f);
     }
 
     @Test
     public void testClearResults() {
+        alertStatus.addStrike(1, 2, 3, 1000L);
+        alertStatus.updateClosestStrikeDistance(1, 30f);
+
         alertStatus.clearResults();
+        alertStatus.getSectors();
+
+        verify(alertSector2, times(1)).setResults(new int[]{0, 0, 0}, new long[]{0, 0, 0}, Float.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void testResultsAreCopiedWhenSectorsAreRead() {
+        alertStatus.addStrike(1, 2, 3, 1000L);
+        alertStatus.addStrike(1, 2, 1, 500L);
+        alertStatus.addStrike(1, 0, 1, 700L);
+        alertStatus.updateClosestStrikeDistance(1, 30f);
+        alertStatus.updateClosestStrikeDistance(1, 5f);
+
+        verify(alertSector2, times(0)).setResults(any(int[].class), any(long[].class), anyFloat());
+
+        alertStatus.getSectors();
+        alertStatus.getSectors();
+
+        verify(alertSector2, times(1)).setResults(new int[]{1, 0, 4}, new long[]{700L, 0, 1000L}, 5f);
+        verify(alertSector1, times(1)).setResults(new int[]{0, 0, 0}, new long[]{0, 0, 0}, Float.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void testRemoveStrike() {
+        alertStatus.addStrike(1, 2, 3, 500L);
+        alertStatus.addStrike(1, 2, 1, 1000L);
+        alertStatus.addStrike(1, 0, 2, 700L);
+
+        alertStatus.removeStrike(1, 2, 3);
+        alertStatus.removeStrike(1, 0, 2);
+        alertStatus.getSectors();
+
+        verify(alertSector2, times(1)).setResults(new int[]{0, 0, 1}, new long[]{0, 0, 1000L}, Float.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void testSetClosestStrikeDistance() {
+        alertStatus.updateClosestStrikeDistance(1, 5f);
+        alertStatus.setClosestStrikeDistance(1, 30f);
+
+        assertThat(alertStatus.getClosestStrikeDistance(1)).isEqualTo(30f);
+        assertThat(alertStatus.getClosestStrikeDistance(0)).isEqualTo(Float.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void testGetSectorIndex() {
+        assertThat(alertStatus.getSectorIndex(-90f)).isEqualTo(1);
+        assertThat(alertStatus.getSectorIndex(0f)).isEqualTo(1);
+        assertThat(alertStatus.getSectorIndex(89.999f)).isEqualTo(1);
+        assertThat(alertStatus.getSectorIndex(90f)).isEqualTo(0);
+        assertThat(alertStatus.getSectorIndex(180f)).isEqualTo(0);
+        assertThat(alertStatus.getSectorIndex(-180f)).isEqualTo(0);
+        assertThat(alertStatus.getSectorIndex(-90.001f)).isEqualTo(0);
+    }
+
+    @Test
+    public void testUpdateGeometry() {
+        assertThat(alertStatus.isGeometryOutdated()).isFalse();
+
+        when(alertParameters.getSectorLabels()).thenReturn(new String[]{"a", "b", "c", "d"});
+        when(alertParameters.getRangeSteps()).thenReturn(new float[]{5f, 10f});
+        assertThat(alertStatus.isGeometryOutdated()).isTrue();
+
+        alertStatus.updateGeometry();
 
-        verify(alertSector1, times(1)).clearResults();
-        verify(alertSector2, times(1)).clearResults();
+        assertThat(alertStatus.isGeometryOutdated()).isFalse();
+        assertThat(alertStatus.getSectorCount()).isEqualTo(4);
+        assertThat(alertStatus.getRangeSteps()).containsExactly(5f, 10f);
+        verify(alertObjectFactory, times(1)).createAlarmSector(new float[]{5f, 10f}, "c", -45f, 45f);
     }
 
     @Test
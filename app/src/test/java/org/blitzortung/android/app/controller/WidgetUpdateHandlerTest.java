@@ -0,0 +1,119 @@
+package org.blitzortung.android.app.controller;
+
+import android.os.Handler;
+import android.preference.PreferenceManager;
+import org.blitzortung.android.alert.AlertHandler;
+import org.blitzortung.android.alert.AlertParameters;
+import org.blitzortung.android.alert.event.AlertResultEvent;
+import org.blitzortung.android.alert.factory.AlertObjectFactory;
+import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.data.DataHandler;
+import org.blitzortung.android.data.beans.Strike;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class WidgetUpdateHandlerTest {
+
+    private static final int INTERVAL_DURATION = 60;
+
+    @Mock
+    private Handler handler;
+
+    @Mock
+    private DataHandler dataHandler;
+
+    @Mock
+    private Strike strike;
+
+    private AlertStatus alertStatus;
+
+    private long now;
+
+    private WidgetUpdateHandler widgetUpdateHandler;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        AlertParameters alertParameters = new AlertParameters();
+        alertParameters.updateSectorLabels(RuntimeEnvironment.application);
+        alertStatus = new AlertStatus(new AlertObjectFactory(), alertParameters);
+
+        now = System.currentTimeMillis();
+        when(strike.getTimestamp()).thenReturn(now - 5 * 60 * 1000);
+        when(strike.getMultiplicity()).thenReturn(1);
+        when(dataHandler.getIntervalDuration()).thenReturn(INTERVAL_DURATION);
+
+        widgetUpdateHandler = spy(new WidgetUpdateHandler(RuntimeEnvironment.application,
+                PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.application), handler, dataHandler));
+    }
+
+    @Test
+    public void testFingerprintOfUnchangedState() {
+        final long fingerprint = widgetUpdateHandler.getFingerprint(new AlertResultEvent(alertStatus, null), now, INTERVAL_DURATION);
+
+        assertThat(widgetUpdateHandler.getFingerprint(new AlertResultEvent(alertStatus, null), now + 1000, INTERVAL_DURATION)).isEqualTo(fingerprint);
+    }
+
+    @Test
+    public void testFingerprintChangesWithSectorRanges() {
+        final long fingerprint = widgetUpdateHandler.getFingerprint(new AlertResultEvent(alertStatus, null), now, INTERVAL_DURATION);
+
+        alertStatus.addStrike(0, 1, strike.getMultiplicity(), strike.getTimestamp());
+
+        assertThat(widgetUpdateHandler.getFingerprint(new AlertResultEvent(alertStatus, null), now, INTERVAL_DURATION)).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    public void testFingerprintOfCancelEvent() {
+        assertThat(widgetUpdateHandler.getFingerprint(AlertHandler.ALERT_CANCEL_EVENT, now, INTERVAL_DURATION)).isEqualTo(0);
+    }
+
+    @Test
+    public void testAlertEventSchedulesUpdate() {
+        widgetUpdateHandler.getAlertEventConsumer().consume(new AlertResultEvent(alertStatus, null));
+
+        verify(handler, times(1)).postDelayed(any(Runnable.class), eq(0L));
+    }
+
+    @Test
+    public void testShutdownRemovesPendingUpdate() {
+        // the consumer refers to the handler itself and not to the spy
+        final WidgetUpdateHandler widgetUpdateHandler = new WidgetUpdateHandler(RuntimeEnvironment.application,
+                PreferenceManager.getDefaultSharedPreferences(RuntimeEnvironment.application), handler, dataHandler);
+        widgetUpdateHandler.getAlertEventConsumer().consume(new AlertResultEvent(alertStatus, null));
+
+        widgetUpdateHandler.shutdown();
+        widgetUpdateHandler.getAlertEventConsumer().consume(new AlertResultEvent(alertStatus, null));
+
+        verify(handler, times(3)).removeCallbacks(any(Runnable.class));
+        verify(handler, times(1)).postDelayed(any(Runnable.class), anyLong());
+    }
+
+    @Test
+    public void testStartUpdateAfterShutdownDoesNotRender() {
+        widgetUpdateHandler.shutdown();
+
+        widgetUpdateHandler.startUpdate(now);
+
+        verify(widgetUpdateHandler, never()).render();
+    }
+
+    @Test
+    public void testStartUpdateWithoutWidgetsDoesNotRender() {
+        widgetUpdateHandler.getAlertEventConsumer().consume(new AlertResultEvent(alertStatus, null));
+
+        widgetUpdateHandler.startUpdate(now);
+
+        verify(widgetUpdateHandler, never()).render();
+    }
+}
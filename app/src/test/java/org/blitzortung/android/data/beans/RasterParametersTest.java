@@ -62,6 +62,18 @@ public class RasterParametersTest {
         assertThat(rasterParameters.getCenterLatitude(lat_count - 1), is(lat_start - (0.5f + lat_count - 1) * lat_delta));
     }
 
+    @Test
+    public void testGetCellIndex()
+    {
+        assertThat(rasterParameters.getLongitudeCellIndex(rasterParameters.getCenterLongitude(0)), is(0));
+        assertThat(rasterParameters.getLongitudeCellIndex(rasterParameters.getCenterLongitude(17)), is(17));
+        assertThat(rasterParameters.getLongitudeCellIndex(lon_start + 100), is(lon_count - 1));
+
+        assertThat(rasterParameters.getLatitudeCellIndex(rasterParameters.getCenterLatitude(0)), is(0));
+        assertThat(rasterParameters.getLatitudeCellIndex(rasterParameters.getCenterLatitude(12)), is(12));
+        assertThat(rasterParameters.getLatitudeCellIndex(lat_start + 10), is(0));
+    }
+
     @Test
     public void testGetLongitudeDelta()
     {
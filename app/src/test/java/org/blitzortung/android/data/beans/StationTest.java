@@ -46,4 +46,28 @@ public class StationTest {
 
         assertThat(station.getState(), is(Station.State.ON));
     }
+
+    @Test
+    public void testGetStateAtTime()
+    {
+        final long minute = 60 * 1000;
+
+        assertThat(Station.getState(Station.OFFLINE_SINCE_NOT_SET, currentTime), is(Station.State.ON));
+        assertThat(Station.getState(currentTime - 16 * minute + 1, currentTime), is(Station.State.ON));
+        assertThat(Station.getState(currentTime - 16 * minute, currentTime), is(Station.State.DELAYED));
+        assertThat(Station.getState(currentTime - 1441 * minute + 1, currentTime), is(Station.State.DELAYED));
+        assertThat(Station.getState(currentTime - 1441 * minute, currentTime), is(Station.State.OFF));
+    }
+
+    @Test
+    public void testGetNextStateTransitionTime()
+    {
+        final long minute = 60 * 1000;
+        final long offlineSince = currentTime - 10 * minute;
+
+        assertThat(Station.getNextStateTransitionTime(Station.OFFLINE_SINCE_NOT_SET, currentTime), is(Long.MAX_VALUE));
+        assertThat(Station.getNextStateTransitionTime(offlineSince, currentTime), is(offlineSince + 16 * minute));
+        assertThat(Station.getNextStateTransitionTime(offlineSince, offlineSince + 16 * minute), is(offlineSince + 1441 * minute));
+        assertThat(Station.getNextStateTransitionTime(offlineSince, offlineSince + 1441 * minute), is(Long.MAX_VALUE));
+    }
 }
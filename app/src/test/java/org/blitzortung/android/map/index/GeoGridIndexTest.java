@@ -0,0 +1,147 @@
+package org.blitzortung.android.map.index;
+
+import com.google.android.maps.GeoPoint;
+import com.google.android.maps.OverlayItem;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class GeoGridIndexTest {
+
+    private GeoGridIndex<OverlayItem> geoGridIndex;
+
+    private List<OverlayItem> result;
+
+    @Before
+    public void setUp() {
+        geoGridIndex = new GeoGridIndex<>(2000000);
+        result = Lists.newArrayList();
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        final OverlayItem item = createItem(49000000, 11000000);
+
+        geoGridIndex.add(item);
+        assertThat(geoGridIndex.size()).isEqualTo(1);
+
+        assertThat(geoGridIndex.remove(item)).isTrue();
+        assertThat(geoGridIndex.size()).isEqualTo(0);
+
+        assertThat(geoGridIndex.remove(item)).isFalse();
+    }
+
+    @Test
+    public void testQueryReturnsOnlyItemsOfNearbyCells() {
+        final OverlayItem munich = createItem(48100000, 11600000);
+        final OverlayItem sydney = createItem(-33900000, 151200000);
+        geoGridIndex.add(munich);
+        geoGridIndex.add(sydney);
+
+        geoGridIndex.query(47000000, 10000000, 49000000, 13000000, result);
+
+        assertThat(result).containsExactly(munich);
+    }
+
+    @Test
+    public void testQueryAcrossDateLine() {
+        final OverlayItem fiji = createItem(-17700000, 178000000);
+        final OverlayItem samoa = createItem(-13800000, -172000000);
+        final OverlayItem chile = createItem(-33400000, -70600000);
+        geoGridIndex.add(fiji);
+        geoGridIndex.add(samoa);
+        geoGridIndex.add(chile);
+
+        geoGridIndex.query(-20000000, 170000000, -10000000, -170000000, result);
+
+        assertThat(result).containsOnly(fiji, samoa);
+    }
+
+    @Test
+    public void testQueryFullLongitudeRange() {
+        final OverlayItem first = createItem(10000000, -179000000);
+        final OverlayItem second = createItem(10000000, 179000000);
+        geoGridIndex.add(first);
+        geoGridIndex.add(second);
+
+        geoGridIndex.query(0, -200000000, 20000000, 200000000, result);
+
+        assertThat(result).containsOnly(first, second);
+    }
+
+    @Test
+    public void testQueryClearsPreviousResult() {
+        geoGridIndex.add(createItem(0, 0));
+        result.add(createItem(80000000, 80000000));
+
+        geoGridIndex.query(-1000000, -1000000, 1000000, 1000000, result);
+
+        assertThat(result).hasSize(1);
+    }
+
+    @Test
+    public void testClear() {
+        geoGridIndex.add(createItem(0, 0));
+        geoGridIndex.add(createItem(89999999, 179999999));
+
+        geoGridIndex.clear();
+
+        geoGridIndex.queryAll(result);
+        assertThat(geoGridIndex.size()).isEqualTo(0);
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    public void testRemoveItemsInAnyOrder() {
+        final OverlayItem first = createItem(49000000, 11000000);
+        final OverlayItem second = createItem(49100000, 11100000);
+        final OverlayItem third = createItem(49200000, 11200000);
+        geoGridIndex.add(first);
+        geoGridIndex.add(second);
+        geoGridIndex.add(third);
+
+        assertThat(geoGridIndex.remove(second)).isTrue();
+        assertThat(geoGridIndex.remove(first)).isTrue();
+
+        geoGridIndex.queryAll(result);
+        assertThat(result).containsExactly(third);
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        final OverlayItem first = createItem(49000000, 11000000);
+        final OverlayItem second = createItem(49100000, 11100000);
+        geoGridIndex.add(first);
+
+        final GeoGridIndex<OverlayItem> copy = geoGridIndex.copy();
+        copy.add(second);
+        copy.remove(first);
+        geoGridIndex.add(createItem(-33900000, 151200000));
+
+        copy.queryAll(result);
+        assertThat(result).containsExactly(second);
+        assertThat(copy.size()).isEqualTo(1);
+
+        geoGridIndex.query(47000000, 10000000, 50000000, 13000000, result);
+        assertThat(result).containsExactly(first);
+        assertThat(geoGridIndex.size()).isEqualTo(2);
+    }
+
+    private OverlayItem createItem(int latitudeE6, int longitudeE6) {
+        final OverlayItem item = mock(OverlayItem.class);
+        final GeoPoint point = mock(GeoPoint.class);
+        when(point.getLatitudeE6()).thenReturn(latitudeE6);
+        when(point.getLongitudeE6()).thenReturn(longitudeE6);
+        when(item.getPoint()).thenReturn(point);
+        return item;
+    }
+}
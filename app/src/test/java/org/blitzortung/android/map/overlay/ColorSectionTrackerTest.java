@@ -0,0 +1,161 @@
+package org.blitzortung.android.map.overlay;
+
+import android.content.SharedPreferences;
+import org.blitzortung.android.app.view.PreferenceKey;
+import org.blitzortung.android.data.TimeIntervalWithOffset;
+import org.blitzortung.android.data.beans.StrikeAbstract;
+import org.blitzortung.android.map.overlay.color.ColorHandler;
+import org.blitzortung.android.map.overlay.color.ColorScheme;
+import org.blitzortung.android.map.overlay.color.ColorTarget;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class ColorSectionTrackerTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private final int[] colors = new int[]{1, 2, 3};
+
+    @Mock
+    private SharedPreferences sharedPreferences;
+
+    @Mock
+    private TimeIntervalWithOffset interval;
+
+    private ColorHandler colorHandler;
+
+    private ColorSectionTracker colorSectionTracker;
+
+    private List<StrikeOverlayItem> strikes;
+
+    private long now;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        when(sharedPreferences.getString(PreferenceKey.MAP_TYPE.toString(), ColorTarget.SATELLITE.toString())).thenReturn(ColorTarget.SATELLITE.toString());
+        when(sharedPreferences.getString(PreferenceKey.COLOR_SCHEME.toString(), ColorScheme.BLITZORTUNG.toString())).thenReturn(ColorScheme.BLITZORTUNG.toString());
+
+        colorHandler = new ColorHandler(sharedPreferences) {
+            @Override
+            protected int[] getColors(ColorTarget target) {
+                return colors;
+            }
+        };
+
+        when(interval.getIntervalDuration()).thenReturn(30);
+        when(interval.getIntervalOffset()).thenReturn(0);
+
+        colorSectionTracker = new ColorSectionTracker();
+        strikes = new ArrayList<>();
+        now = 1000 * MINUTE;
+
+        addStrikes(now - 25 * MINUTE, now - 15 * MINUTE, now - 5 * MINUTE);
+    }
+
+    @Test
+    public void testInitialUpdateColorsAllStrikes() {
+        assertThat(colorSectionTracker.update(strikes, now, colorHandler, interval)).hasSize(3);
+
+        assertThat(strikes.get(0).getColorSection()).isEqualTo(2);
+        assertThat(strikes.get(1).getColorSection()).isEqualTo(1);
+        assertThat(strikes.get(2).getColorSection()).isEqualTo(0);
+        assertThat(colorSectionTracker.getNextTransitionTime()).isEqualTo(now + 5 * MINUTE);
+    }
+
+    @Test
+    public void testUpdateWithoutTransition() {
+        colorSectionTracker.update(strikes, now, colorHandler, interval);
+
+        assertThat(colorSectionTracker.update(strikes, now + 4 * MINUTE, colorHandler, interval)).isEmpty();
+    }
+
+    @Test
+    public void testUpdateOnlyTouchesStrikesCrossingBoundaries() {
+        colorSectionTracker.update(strikes, now, colorHandler, interval);
+
+        List<StrikeOverlayItem> changedItems = colorSectionTracker.update(strikes, now + 6 * MINUTE, colorHandler, interval);
+
+        assertThat(changedItems).containsExactly(strikes.get(1), strikes.get(2));
+        assertThat(strikes.get(1).getColorSection()).isEqualTo(2);
+        assertThat(strikes.get(2).getColorSection()).isEqualTo(1);
+        assertThat(colorSectionTracker.getNextTransitionTime()).isEqualTo(now + 15 * MINUTE);
+    }
+
+    @Test
+    public void testUpdateReturnsAddedStrikes() {
+        colorSectionTracker.update(strikes, now, colorHandler, interval);
+
+        addStrikes(now - MINUTE);
+
+        List<StrikeOverlayItem> changedItems = colorSectionTracker.update(strikes, now, colorHandler, interval);
+
+        assertThat(changedItems).containsExactly(strikes.get(3));
+        assertThat(strikes.get(3).getColorSection()).isEqualTo(0);
+    }
+
+    @Test
+    public void testUpdateAfterExpiry() {
+        colorSectionTracker.update(strikes, now, colorHandler, interval);
+
+        strikes.remove(0);
+        colorSectionTracker.onStrikesExpired(1);
+
+        List<StrikeOverlayItem> changedItems = colorSectionTracker.update(strikes, now + 6 * MINUTE, colorHandler, interval);
+
+        assertThat(changedItems).containsExactly(strikes.get(0), strikes.get(1));
+    }
+
+    @Test
+    public void testUnorderedStrikesFallBackToFullUpdate() {
+        colorSectionTracker.update(strikes, now, colorHandler, interval);
+
+        addStrikes(now - 20 * MINUTE);
+
+        assertThat(colorSectionTracker.update(strikes, now, colorHandler, interval)).hasSize(4);
+        assertThat(colorSectionTracker.update(strikes, now, colorHandler, interval)).hasSize(4);
+        assertThat(colorSectionTracker.getNextTransitionTime()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testChangedIntervalFallsBackToFullUpdate() {
+        colorSectionTracker.update(strikes, now, colorHandler, interval);
+
+        when(interval.getIntervalDuration()).thenReturn(60);
+
+        assertThat(colorSectionTracker.update(strikes, now, colorHandler, interval)).hasSize(3);
+        assertThat(strikes.get(0).getColorSection()).isEqualTo(1);
+    }
+
+    @Test
+    public void testInvalidate() {
+        colorSectionTracker.update(strikes, now, colorHandler, interval);
+
+        colorSectionTracker.invalidate();
+
+        assertThat(colorSectionTracker.update(strikes, now, colorHandler, interval)).hasSize(3);
+    }
+
+    private void addStrikes(long... timestamps) {
+        final int firstIndex = strikes.size();
+        for (long timestamp : timestamps) {
+            StrikeAbstract strike = mock(StrikeAbstract.class);
+            when(strike.getTimestamp()).thenReturn(timestamp);
+            strikes.add(new StrikeOverlayItem(strike));
+        }
+        colorSectionTracker.onStrikesAdded(strikes, firstIndex);
+    }
+}
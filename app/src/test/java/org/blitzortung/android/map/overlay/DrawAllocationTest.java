@@ -0,0 +1,640 @@
+package org.blitzortung.android.map.overlay;
+
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.View;
+import com.google.android.maps.GeoPoint;
+import com.google.android.maps.Projection;
+import com.google.common.collect.Lists;
+import org.blitzortung.android.alert.AlertParameters;
+import org.blitzortung.android.alert.AlertResult;
+import org.blitzortung.android.alert.event.AlertResultEvent;
+import org.blitzortung.android.alert.factory.AlertObjectFactory;
+import org.blitzortung.android.alert.object.AlertStatus;
+import org.blitzortung.android.alert.object.StormCell;
+import org.blitzortung.android.app.view.AlertView;
+import org.blitzortung.android.app.view.HistogramView;
+import org.blitzortung.android.app.view.LegendView;
+import org.blitzortung.android.app.view.PreferenceKey;
+import org.blitzortung.android.data.beans.RasterParameters;
+import org.blitzortung.android.data.beans.Station;
+import org.blitzortung.android.data.beans.StrikeAbstract;
+import org.blitzortung.android.data.provider.result.ResultEvent;
+import org.blitzortung.android.map.OwnMapActivity;
+import org.blitzortung.android.map.OwnMapView;
+import org.blitzortung.android.map.overlay.color.ColorHandler;
+import org.blitzortung.android.map.overlay.color.ColorScheme;
+import org.blitzortung.android.map.overlay.color.ColorTarget;
+import org.blitzortung.android.map.overlay.color.ParticipantColorHandler;
+import org.blitzortung.android.map.overlay.color.StrikeColorHandler;
+import org.blitzortung.android.util.AllocationCounter;
+import org.blitzortung.android.util.LongObjectMap;
+import org.blitzortung.android.util.MeasurementSystem;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.objenesis.ObjenesisStd;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class DrawAllocationTest {
+
+    // robolectric boxes the arguments of every call into a shadowed paint or canvas, so the drawing code is measured
+    // with paints and canvases which do not call the framework and any object allocated per frame exceeds the budget
+    private static final long FRAME_BUDGET = 0;
+
+    private static final int MEASUREMENTS = 3;
+
+    private static final long MINUTE = 60 * 1000;
+
+    private static class NoopCanvas extends Canvas {
+
+        @Override
+        public boolean getClipBounds(Rect bounds) {
+            bounds.set(0, 0, 800, 400);
+            return true;
+        }
+
+        @Override
+        public int save() {
+            return 1;
+        }
+
+        @Override
+        public int saveLayerAlpha(float left, float top, float right, float bottom, int alpha, int saveFlags) {
+            return 1;
+        }
+
+        @Override
+        public void restore() {
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        }
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        }
+
+        @Override
+        public void drawRect(Rect rect, Paint paint) {
+        }
+
+        @Override
+        public void drawRect(RectF rect, Paint paint) {
+        }
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        }
+
+        @Override
+        public void drawLines(float[] pts, int offset, int count, Paint paint) {
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        }
+
+        @Override
+        public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
+        }
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+        }
+    }
+
+    private static class NoopPaint extends Paint {
+
+        private int alpha = 0xff;
+
+        @Override
+        public void setColor(int color) {
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+            this.alpha = alpha;
+        }
+
+        @Override
+        public int getAlpha() {
+            return alpha;
+        }
+
+        @Override
+        public Style getStyle() {
+            return Style.FILL;
+        }
+
+        @Override
+        public void setStyle(Style style) {
+        }
+
+        @Override
+        public void setStrokeWidth(float width) {
+        }
+
+        @Override
+        public void setTextSize(float textSize) {
+        }
+
+        @Override
+        public void setTextAlign(Align align) {
+        }
+
+        @Override
+        public float measureText(String text) {
+            return 10 * text.length();
+        }
+
+        @Override
+        public float getFontMetrics(FontMetrics metrics) {
+            return 10;
+        }
+    }
+
+    /**
+     * linear projection with 1000 E6 units per pixel, the points returned by fromPixels are kept as the projection of
+     * the maps library allocates a new point in every call
+     */
+    private static class LinearProjection implements Projection {
+
+        private final LongObjectMap<GeoPoint> points = new LongObjectMap<>();
+
+        @Override
+        public Point toPixels(GeoPoint in, Point out) {
+            out.set(in.getLongitudeE6() / 1000 - 10000, 50000 - in.getLatitudeE6() / 1000);
+            return out;
+        }
+
+        @Override
+        public GeoPoint fromPixels(int x, int y) {
+            final long key = ((long) x << 32) | (y & 0xffffffffL);
+            GeoPoint point = points.get(key);
+            if (point == null) {
+                point = new GeoPoint((50000 - y) * 1000, (x + 10000) * 1000);
+                points.put(key, point);
+            }
+            return point;
+        }
+
+        @Override
+        public float metersToEquatorPixels(float meters) {
+            return meters / 100;
+        }
+    }
+
+    /**
+     * map view which is created without running the constructors, mock invocations allocate and would be measured
+     */
+    private static class FixedMapView extends OwnMapView {
+
+        private Projection projection;
+
+        private int zoomLevel;
+
+        private FixedMapView() {
+            super(null, (AttributeSet) null);
+        }
+
+        static FixedMapView create(Projection projection, int width, int height) {
+            final FixedMapView mapView = new ObjenesisStd().newInstance(FixedMapView.class);
+            mapView.projection = projection;
+            try {
+                final Field right = View.class.getDeclaredField("mRight");
+                right.setAccessible(true);
+                right.setInt(mapView, width);
+                final Field bottom = View.class.getDeclaredField("mBottom");
+                bottom.setAccessible(true);
+                bottom.setInt(mapView, height);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+            return mapView;
+        }
+
+        @Override
+        public Projection getProjection() {
+            return projection;
+        }
+
+        @Override
+        public int getZoomLevel() {
+            return zoomLevel;
+        }
+
+        @Override
+        public int getLongitudeSpan() {
+            return getWidth() * 1000;
+        }
+
+        @Override
+        public int getLatitudeSpan() {
+            return getHeight() * 1000;
+        }
+    }
+
+    public static class DrawableAlertView extends AlertView {
+
+        public DrawableAlertView() {
+            super(RuntimeEnvironment.application);
+        }
+
+        public void drawFrame(Canvas canvas) {
+            onDraw(canvas);
+        }
+    }
+
+    @Mock
+    private SharedPreferences sharedPreferences;
+
+    @Mock
+    private OwnMapActivity mapActivity;
+
+    private final Canvas canvas = new NoopCanvas();
+
+    private final Paint paint = new NoopPaint();
+
+    private final Projection projection = new LinearProjection();
+
+    private FixedMapView mapView;
+
+    private AllocationCounter allocationCounter;
+
+    private ColorHandler colorHandler;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        when(sharedPreferences.getString(eq(PreferenceKey.MAP_TYPE.toString()), anyString())).thenReturn(ColorTarget.STREETMAP.toString());
+        when(sharedPreferences.getString(eq(PreferenceKey.COLOR_SCHEME.toString()), anyString())).thenReturn(ColorScheme.BLITZORTUNG.toString());
+        colorHandler = new StrikeColorHandler(sharedPreferences);
+
+        when(mapActivity.getResources()).thenReturn(mock(Resources.class));
+
+        mapView = FixedMapView.create(projection, 800, 400);
+
+        allocationCounter = new AllocationCounter();
+    }
+
+    @Test
+    public void testFadeOverlayDraw() {
+        final FadeOverlay fadeOverlay = withNoopGraphics(new FadeOverlay(colorHandler));
+        fadeOverlay.setAlpha(100);
+
+        assertDrawIsAllocationFree("FadeOverlay", new Runnable() {
+            @Override
+            public void run() {
+                fadeOverlay.draw(canvas, null, false);
+            }
+        });
+    }
+
+    @Test
+    public void testStrikeShapeDraw() {
+        final StrikeShape strikeShape = new StrikeShape();
+        strikeShape.update(6, 0xff00ff00);
+
+        assertDrawIsAllocationFree("StrikeShape", new Runnable() {
+            @Override
+            public void run() {
+                strikeShape.draw(canvas, paint);
+            }
+        });
+    }
+
+    @Test
+    public void testParticipantShapeDraw() {
+        final ParticipantShape participantShape = new ParticipantShape();
+        participantShape.update(10, 0xff00ff00);
+
+        assertDrawIsAllocationFree("ParticipantShape", new Runnable() {
+            @Override
+            public void run() {
+                participantShape.draw(canvas, paint);
+            }
+        });
+    }
+
+    @Test
+    public void testOwnLocationShapeDraw() {
+        final OwnLocationShape ownLocationShape = new OwnLocationShape(10);
+
+        assertDrawIsAllocationFree("OwnLocationShape", new Runnable() {
+            @Override
+            public void run() {
+                ownLocationShape.draw(canvas, paint);
+            }
+        });
+    }
+
+    @Test
+    public void testStrikeLineRendererDraw() {
+        final StrikeLineRenderer strikeLineRenderer = withNoopGraphics(new StrikeLineRenderer());
+
+        assertDrawIsAllocationFree("StrikeLineRenderer", new Runnable() {
+            @Override
+            public void run() {
+                strikeLineRenderer.begin(3, 6);
+                for (int index = 0; index < 100; index++) {
+                    strikeLineRenderer.add(index % 3, index, index);
+                }
+                strikeLineRenderer.draw(canvas, colorHandler.getColors());
+            }
+        });
+    }
+
+    @Test
+    public void testStrikesOverlayDrawFromLayerCache() {
+        final StrikesOverlay strikesOverlay = createStrikesOverlay(null);
+        mapView.zoomLevel = 8;
+
+        strikesOverlay.draw(canvas, mapView, false);
+        withNoopGraphics(strikesOverlay);
+
+        assertDrawIsAllocationFree("StrikesOverlay with cached layer", new Runnable() {
+            @Override
+            public void run() {
+                strikesOverlay.draw(canvas, mapView, false);
+            }
+        });
+    }
+
+    @Test
+    public void testStrikesOverlayDrawStrikes() {
+        assertStrikesOverlayRenderingIsAllocationFree("StrikesOverlay strikes", null, 8);
+    }
+
+    @Test
+    public void testStrikesOverlayDrawClusters() {
+        assertStrikesOverlayRenderingIsAllocationFree("StrikesOverlay clusters", null, 3);
+    }
+
+    @Test
+    public void testStrikesOverlayDrawRasterBitmap() throws JSONException {
+        final JSONObject jsonObject = new JSONObject();
+        jsonObject.put("x0", 10.0);
+        jsonObject.put("y1", 50.0);
+        jsonObject.put("xd", 0.1);
+        jsonObject.put("yd", 0.1);
+        jsonObject.put("xc", 40);
+        jsonObject.put("yc", 40);
+
+        assertStrikesOverlayRenderingIsAllocationFree("StrikesOverlay raster", new RasterParameters(jsonObject), 8);
+    }
+
+    @Test
+    public void testParticipantsOverlayDrawClusters() {
+        final ParticipantsOverlay participantsOverlay = new ParticipantsOverlay(mapActivity, new ParticipantColorHandler(sharedPreferences));
+        final List<Station> stations = Lists.newArrayList();
+        for (int index = 0; index < 200; index++) {
+            stations.add(new Station("station" + index, 10.0f + (index % 20) * 0.2f, 50.0f - (index / 20) * 0.2f,
+                    index % 3 == 0 ? System.currentTimeMillis() - 30 * MINUTE : 0));
+        }
+        participantsOverlay.setParticipants(stations);
+        participantsOverlay.stopStateTransitions();
+        withNoopGraphics(participantsOverlay);
+
+        assertDrawIsAllocationFree("ParticipantsOverlay clusters", new Runnable() {
+            @Override
+            public void run() {
+                mapView.zoomLevel = mapView.zoomLevel == 4 ? 5 : 4;
+                participantsOverlay.draw(canvas, mapView, false);
+            }
+        });
+    }
+
+    @Test
+    public void testAlertViewDraw() {
+        final AlertParameters alertParameters = new AlertParameters();
+        alertParameters.setMeasurementSystem(MeasurementSystem.METRIC);
+        alertParameters.updateSectorLabels(RuntimeEnvironment.application);
+        final AlertStatus alertStatus = new AlertStatus(new AlertObjectFactory(), alertParameters);
+        final long now = System.currentTimeMillis();
+        for (int sectorIndex = 0; sectorIndex < alertStatus.getSectorCount(); sectorIndex++) {
+            alertStatus.addStrike(sectorIndex, sectorIndex % 3, 1, now - sectorIndex * MINUTE);
+        }
+        final StormCell stormCell = new StormCell(11.0f, 49.0f, now, 10);
+        stormCell.setObserverRelation(20000f, 45f, 5000f, 25 * MINUTE);
+
+        final DrawableAlertView alertView = withNoopGraphics(new DrawableAlertView());
+        alertView.setColorHandler(colorHandler, 60);
+        alertView.layout(0, 0, 400, 400);
+        alertView.getAlertEventConsumer().consume(new AlertResultEvent(alertStatus,
+                new AlertResult(alertStatus.getSectors().get(0), "km", stormCell)));
+
+        alertView.drawFrame(canvas);
+        withNoopGraphics(alertView);
+
+        assertDrawIsAllocationFree("AlertView", new Runnable() {
+            @Override
+            public void run() {
+                alertView.drawFrame(canvas);
+            }
+        });
+    }
+
+    @Test
+    public void testHistogramViewDraw() {
+        final StrikesOverlay strikesOverlay = createStrikesOverlay(null);
+        final ResultEvent result = new ResultEvent();
+        result.setHistogram(new int[]{1, 4, 2, 8, 5, 7, 3, 0, 2, 6, 9, 1});
+
+        final HistogramView histogramView = withNoopGraphics(new HistogramView(RuntimeEnvironment.application));
+        histogramView.setStrikesOverlay(strikesOverlay);
+        histogramView.getDataConsumer().consume(result);
+        histogramView.measure(View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(100, View.MeasureSpec.EXACTLY));
+
+        assertDrawIsAllocationFree("HistogramView", new Runnable() {
+            @Override
+            public void run() {
+                histogramView.onDraw(canvas);
+            }
+        });
+    }
+
+    @Test
+    public void testLegendViewDraw() {
+        final StrikesOverlay strikesOverlay = createStrikesOverlay(null);
+
+        final LegendView legendView = withNoopGraphics(new LegendView(RuntimeEnvironment.application));
+        legendView.setStrikesOverlay(strikesOverlay);
+        legendView.measure(View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.AT_MOST));
+
+        assertDrawIsAllocationFree("LegendView", new Runnable() {
+            @Override
+            public void run() {
+                legendView.onDraw(canvas);
+            }
+        });
+    }
+
+    @Test
+    public void testStreetmapColorsAreReused() {
+        final int[] colors = colorHandler.getColors();
+
+        assertThat(colorHandler.getColors()).isSameAs(colors);
+        assertThat(allocationCounter.getBytesPerRun(new Runnable() {
+            @Override
+            public void run() {
+                colorHandler.getColors();
+            }
+        })).isEqualTo(0);
+    }
+
+    @Test
+    public void testCountLabelsAreReused() {
+        assertThat(CountLabels.get(42)).isEqualTo("42").isSameAs(CountLabels.get(42));
+        assertThat(CountLabels.get(-1)).isEqualTo("-1");
+        assertThat(CountLabels.get(100000)).isEqualTo("100000");
+    }
+
+    /**
+     * renders the strike layer in every frame by alternating the zoom level, as happens while zooming
+     *
+     * the layer bitmap cannot be replaced, so the cost of erasing it in the shadowed bitmap is allowed per frame
+     */
+    private void assertStrikesOverlayRenderingIsAllocationFree(String description, RasterParameters rasterParameters, final int zoomLevel) {
+        final StrikesOverlay strikesOverlay = createStrikesOverlay(rasterParameters);
+
+        mapView.zoomLevel = zoomLevel;
+        strikesOverlay.draw(canvas, mapView, false);
+        mapView.zoomLevel = zoomLevel + 1;
+        strikesOverlay.draw(canvas, mapView, false);
+        withNoopGraphics(strikesOverlay);
+
+        final Bitmap bitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+        final long eraseBytes = getBytesPerFrame(new Runnable() {
+            @Override
+            public void run() {
+                bitmap.eraseColor(Color.TRANSPARENT);
+            }
+        });
+
+        final long bytesPerFrame = getBytesPerFrame(new Runnable() {
+            @Override
+            public void run() {
+                mapView.zoomLevel = mapView.zoomLevel == zoomLevel ? zoomLevel + 1 : zoomLevel;
+                strikesOverlay.draw(canvas, mapView, false);
+            }
+        });
+
+        assertThat(bytesPerFrame).as(description + " allocation per frame").isLessThanOrEqualTo(FRAME_BUDGET + eraseBytes);
+    }
+
+    private StrikesOverlay createStrikesOverlay(RasterParameters rasterParameters) {
+        final StrikesOverlay strikesOverlay = new StrikesOverlay(mapActivity, (StrikeColorHandler) colorHandler);
+        strikesOverlay.stopColorTransitions();
+        strikesOverlay.getParameters().setIntervalDuration(60);
+        strikesOverlay.setReferenceTime(System.currentTimeMillis());
+        strikesOverlay.setRasterParameters(rasterParameters);
+
+        final long now = System.currentTimeMillis();
+        final List<StrikeAbstract> strikes = Lists.newArrayList();
+        for (int index = 0; index < 400; index++) {
+            final StrikeAbstract strike = mock(StrikeAbstract.class);
+            when(strike.getLongitude()).thenReturn(10.05f + (index % 20) * 0.2f);
+            when(strike.getLatitude()).thenReturn(49.95f - (index / 20) * 0.2f);
+            when(strike.getTimestamp()).thenReturn(now - (400 - index) * 8000L);
+            when(strike.getMultiplicity()).thenReturn(1 + index % 5);
+            strikes.add(strike);
+        }
+        strikesOverlay.addStrikes(strikes);
+        strikesOverlay.refresh();
+        strikesOverlay.stopColorTransitions();
+        return strikesOverlay;
+    }
+
+    private void assertDrawIsAllocationFree(String description, Runnable draw) {
+        final long bytesPerFrame = getBytesPerFrame(draw);
+
+        assertThat(bytesPerFrame).as(description + " allocation per frame").isLessThanOrEqualTo(FRAME_BUDGET);
+    }
+
+    /**
+     * returns the smallest of several measurements, calls into the instrumented framework classes occasionally allocate
+     * while they are compiled again
+     */
+    private long getBytesPerFrame(Runnable draw) {
+        long bytesPerFrame = Long.MAX_VALUE;
+        for (int measurement = 0; measurement < MEASUREMENTS; measurement++) {
+            bytesPerFrame = Math.min(bytesPerFrame, allocationCounter.getBytesPerRun(draw));
+        }
+        return bytesPerFrame;
+    }
+
+    /**
+     * replaces the paints and canvases held by the given object and the app objects it references
+     */
+    private static <T> T withNoopGraphics(T target) {
+        replaceGraphics(target, Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()));
+        return target;
+    }
+
+    private static void replaceGraphics(Object target, Set<Object> visited) {
+        if (!visited.add(target)) {
+            return;
+        }
+        for (Class<?> type = target.getClass(); type != null && type.getName().startsWith("org.blitzortung"); type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    final Object value = field.get(target);
+                    if (value instanceof Paint) {
+                        field.set(target, new NoopPaint());
+                    } else if (value instanceof Canvas) {
+                        field.set(target, new NoopCanvas());
+                    } else if (value != null && value.getClass().getName().startsWith("org.blitzortung")) {
+                        replaceGraphics(value, visited);
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.blitzortung.android.map.overlay;
+
+import android.graphics.Point;
+import com.google.android.maps.GeoPoint;
+import com.google.android.maps.Projection;
+import org.blitzortung.android.data.beans.RasterParameters;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class MercatorProjectionCacheTest {
+
+    private static final double WORLD_SIZE = 256 * 1024;
+
+    private MercatorProjectionCache projectionCache;
+
+    private Projection projection;
+
+    private int panX;
+
+    private int panY;
+
+    @Before
+    public void setUp() {
+        projection = createProjection();
+
+        projectionCache = new MercatorProjectionCache();
+    }
+
+    @Test
+    public void testUpdateCalibratesOncePerZoomLevel() {
+        assertThat(projectionCache.update(projection, 10)).isTrue();
+        assertThat(projectionCache.update(projection, 10)).isFalse();
+        assertThat(projectionCache.update(projection, 11)).isTrue();
+
+        projectionCache.invalidate();
+
+        assertThat(projectionCache.update(projection, 11)).isTrue();
+    }
+
+    @Test
+    public void testScreenCoordinatesMatchProjection() {
+        projectionCache.update(projection, 10);
+
+        panX = 1234;
+        panY = -567;
+        projectionCache.updateOffset(projection);
+
+        Point expected = projection.toPixels(new GeoPoint(49500000, 11250000), new Point());
+
+        assertThat(projectionCache.toScreenX(projectionCache.toWorldX(11250000))).isCloseTo(expected.x, within(1.0f));
+        assertThat(projectionCache.toScreenY(projectionCache.toWorldY(49500000))).isCloseTo(expected.y, within(1.0f));
+    }
+
+    @Test
+    public void testRasterEdges() {
+        RasterParameters rasterParameters = mock(RasterParameters.class);
+        when(rasterParameters.getLongitudeStart()).thenReturn(10.0f);
+        when(rasterParameters.getLatitudeStart()).thenReturn(50.0f);
+        when(rasterParameters.getLongitudeDelta()).thenReturn(0.5f);
+        when(rasterParameters.getLatitudeDelta()).thenReturn(0.5f);
+        when(rasterParameters.getLongitudeCount()).thenReturn(4);
+        when(rasterParameters.getLatitudeCount()).thenReturn(2);
+
+        projectionCache.update(projection, 10);
+        projectionCache.updateRaster(rasterParameters);
+
+        assertThat(projectionCache.getLongitudeEdge(0)).isEqualTo(projectionCache.toWorldX(10000000), within(1e-6));
+        assertThat(projectionCache.getLongitudeEdge(4)).isEqualTo(projectionCache.toWorldX(12000000), within(1e-6));
+        assertThat(projectionCache.getLatitudeEdge(0)).isEqualTo(projectionCache.toWorldY(50000000), within(1e-6));
+        assertThat(projectionCache.getLatitudeEdge(2)).isEqualTo(projectionCache.toWorldY(49000000), within(1e-6));
+        assertThat(projectionCache.getLatitudeEdge(2)).isGreaterThan(projectionCache.getLatitudeEdge(0));
+    }
+
+    private Projection createProjection() {
+        Projection projection = mock(Projection.class);
+        when(projection.toPixels(any(GeoPoint.class), any(Point.class))).thenAnswer(new Answer<Point>() {
+            @Override
+            public Point answer(InvocationOnMock invocation) throws Throwable {
+                GeoPoint geoPoint = (GeoPoint) invocation.getArguments()[0];
+                Point point = (Point) invocation.getArguments()[1];
+                double latitude = Math.toRadians(geoPoint.getLatitudeE6() / 1e6);
+                double x = geoPoint.getLongitudeE6() / 1e6 / 360 * WORLD_SIZE;
+                double y = -Math.log(Math.tan(Math.PI / 4 + latitude / 2)) / (2 * Math.PI) * WORLD_SIZE;
+                point.set((int) Math.round(x) + panX, (int) Math.round(y) + panY);
+                return point;
+            }
+        });
+        return projection;
+    }
+}
@@ -0,0 +1,99 @@
+package org.blitzortung.android.map.overlay;
+
+import org.blitzortung.android.data.beans.Station;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@RunWith(RobolectricTestRunner.class)
+public class ParticipantClusterIndexTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private long now;
+
+    private ParticipantClusterIndex clusterIndex;
+
+    @Before
+    public void setUp() {
+        now = System.currentTimeMillis();
+        clusterIndex = new ParticipantClusterIndex(8);
+    }
+
+    @Test
+    public void testAddCountsStatesPerCell() {
+        clusterIndex.add(createItem(10.1f, 45.1f, Station.OFFLINE_SINCE_NOT_SET));
+        clusterIndex.add(createItem(10.3f, 45.3f, now - 30 * MINUTE));
+        clusterIndex.add(createItem(-70.0f, 45.0f, now - 2 * 24 * 60 * MINUTE));
+
+        assertThat(clusterIndex.getClusters(8)).hasSize(2);
+
+        ParticipantClusterIndex.ParticipantCluster cluster = clusterIndex.getClusters(8).get(0);
+        assertThat(cluster.getCount()).isEqualTo(2);
+        assertThat(cluster.getCount(Station.State.ON)).isEqualTo(1);
+        assertThat(cluster.getCount(Station.State.DELAYED)).isEqualTo(1);
+        assertThat(cluster.getCount(Station.State.OFF)).isEqualTo(0);
+        assertThat(cluster.getLongitudeE6()).isCloseTo(10.2e6, within(10.0));
+        assertThat(cluster.getLatitudeE6()).isCloseTo(45.2e6, within(10.0));
+    }
+
+    @Test
+    public void testCoarserLevelsAreMergedOnDemand() {
+        clusterIndex.add(createItem(10.1f, 45.1f, Station.OFFLINE_SINCE_NOT_SET));
+        clusterIndex.add(createItem(12.0f, 46.0f, Station.OFFLINE_SINCE_NOT_SET));
+
+        assertThat(clusterIndex.isLevelBuilt(4)).isFalse();
+        assertThat(clusterIndex.getClusters(8)).hasSize(2);
+
+        assertThat(clusterIndex.getClusters(4)).hasSize(1);
+        assertThat(clusterIndex.getClusters(4).get(0).getCount()).isEqualTo(2);
+        assertThat(clusterIndex.isLevelBuilt(4)).isTrue();
+        assertThat(clusterIndex.isLevelBuilt(5)).isTrue();
+        assertThat(clusterIndex.isLevelBuilt(3)).isFalse();
+    }
+
+    @Test
+    public void testBuiltLevelsAreUpdatedIncrementally() {
+        final ParticipantOverlayItem first = createItem(10.1f, 45.1f, Station.OFFLINE_SINCE_NOT_SET);
+        final ParticipantOverlayItem second = createItem(12.0f, 46.0f, now - 10 * MINUTE);
+        clusterIndex.add(first);
+        clusterIndex.add(second);
+        clusterIndex.getClusters(4);
+
+        final Station.State previousState = second.getParticipantState();
+        second.updateState(now + 10 * MINUTE);
+        clusterIndex.updateState(second, previousState);
+        clusterIndex.remove(first);
+
+        assertThat(clusterIndex.getClusters(4)).hasSize(1);
+        ParticipantClusterIndex.ParticipantCluster cluster = clusterIndex.getClusters(4).get(0);
+        assertThat(cluster.getCount()).isEqualTo(1);
+        assertThat(cluster.getCount(Station.State.ON)).isEqualTo(0);
+        assertThat(cluster.getCount(Station.State.DELAYED)).isEqualTo(1);
+
+        clusterIndex.remove(second);
+
+        assertThat(clusterIndex.getClusters(4)).isEmpty();
+        assertThat(clusterIndex.getClusters(8)).isEmpty();
+    }
+
+    @Test
+    public void testClear() {
+        clusterIndex.add(createItem(10.1f, 45.1f, Station.OFFLINE_SINCE_NOT_SET));
+        clusterIndex.getClusters(2);
+
+        clusterIndex.clear();
+
+        assertThat(clusterIndex.isLevelBuilt(2)).isFalse();
+        assertThat(clusterIndex.getClusters(8)).isEmpty();
+        assertThat(clusterIndex.getClusters(2)).isEmpty();
+    }
+
+    private ParticipantOverlayItem createItem(float longitude, float latitude, long offlineSince) {
+        return new ParticipantOverlayItem(new Station("station", longitude, latitude, offlineSince), now);
+    }
+}
@@ -0,0 +1,103 @@
+package org.blitzortung.android.map.overlay;
+
+import org.blitzortung.android.data.beans.Station;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+public class ParticipantTransitionQueueTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private long now;
+
+    private ParticipantTransitionQueue queue;
+
+    @Before
+    public void setUp() {
+        now = System.currentTimeMillis();
+        queue = new ParticipantTransitionQueue();
+    }
+
+    @Test
+    public void testItemsArePolledInTransitionOrder() {
+        final Random random = new Random(42);
+        for (int index = 0; index < 100; index++) {
+            queue.update(createItem(now - random.nextInt(10) * MINUTE));
+        }
+
+        assertThat(queue.size()).isEqualTo(100);
+
+        long previousTime = Long.MIN_VALUE;
+        while (!queue.isEmpty()) {
+            final ParticipantOverlayItem item = queue.poll();
+            assertThat(item.getNextTransitionTime()).isGreaterThanOrEqualTo(previousTime);
+            assertThat(item.getTransitionQueueIndex()).isEqualTo(-1);
+            previousTime = item.getNextTransitionTime();
+        }
+    }
+
+    @Test
+    public void testUpdateMovesChangedItems() {
+        final List<ParticipantOverlayItem> items = new ArrayList<ParticipantOverlayItem>();
+        for (int index = 0; index < 10; index++) {
+            final ParticipantOverlayItem item = createItem(now - index * MINUTE);
+            items.add(item);
+            queue.update(item);
+        }
+
+        assertThat(queue.peek()).isSameAs(items.get(9));
+
+        final ParticipantOverlayItem item = items.get(9);
+        item.update(new Station("station", 10f, 45f, now), now);
+        queue.update(item);
+
+        assertThat(queue.peek()).isSameAs(items.get(8));
+        assertThat(queue.size()).isEqualTo(10);
+    }
+
+    @Test
+    public void testItemsWithoutTransitionsAreNotQueued() {
+        final ParticipantOverlayItem item = createItem(now - 10 * MINUTE);
+        queue.update(item);
+
+        assertThat(queue.size()).isEqualTo(1);
+
+        item.update(new Station("station", 10f, 45f, now - 2 * 24 * 60 * MINUTE), now);
+        queue.update(item);
+
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(item.getTransitionQueueIndex()).isEqualTo(-1);
+    }
+
+    @Test
+    public void testRemove() {
+        final ParticipantOverlayItem first = createItem(now - 10 * MINUTE);
+        final ParticipantOverlayItem second = createItem(now - 5 * MINUTE);
+        queue.update(first);
+        queue.update(second);
+
+        queue.remove(first);
+        queue.remove(first);
+
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.peek()).isSameAs(second);
+
+        queue.clear();
+
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(second.getTransitionQueueIndex()).isEqualTo(-1);
+    }
+
+    private ParticipantOverlayItem createItem(long offlineSince) {
+        return new ParticipantOverlayItem(new Station("station", 10f, 45f, offlineSince), now);
+    }
+}
@@ -17,6 +17,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -24,6 +25,8 @@ import org.robolectric.annotation.Implements;
 import java.util.List;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
@@ -131,11 +134,176 @@ public class ParticipantsOverlayTest {
         participantsOverlay.refresh();
 
         verify(colorHandler, times(1)).getColors();
-        //verify(participantsOverlay, times(1)).getDrawable(colors[0]);
-        //verify(participantsOverlay, times(1)).getDrawable(colors[1]);
-        //verify(participantsOverlay, times(1)).getDrawable(colors[2]);
-        verify(participantOverlayItem, times(1)).getParticipantState();
-        verify(participantOverlayItem, times(1)).setMarker(any(Drawable.class));
+        verify(participantOverlayItem, never()).setMarker(any(Drawable.class));
+    }
+
+    @Test
+    public void testSetParticipantsKeepsUnchangedItems()
+    {
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("a", 10f), createStation("b", 20f)));
+        final ParticipantOverlayItem itemA = participantsOverlay.participants.get(0);
+        final ParticipantOverlayItem itemB = participantsOverlay.participants.get(1);
+        final Drawable markerA = itemA.getMarker(0);
+
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("a", 10f), createStation("b", 20f)));
+
+        assertThat(participantsOverlay.size(), is(2));
+        assertThat(participantsOverlay.participants.get(0), is(sameInstance(itemA)));
+        assertThat(participantsOverlay.participants.get(1), is(sameInstance(itemB)));
+        assertThat(itemA.getMarker(0), is(sameInstance(markerA)));
+    }
+
+    @Test
+    public void testSetParticipantsAddsAndRemovesItems()
+    {
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("a", 10f), createStation("b", 20f)));
+        final ParticipantOverlayItem itemB = participantsOverlay.participants.get(1);
+
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("b", 20f), createStation("c", 30f)));
+
+        assertThat(participantsOverlay.size(), is(2));
+        assertThat(participantsOverlay.participants.get(0), is(sameInstance(itemB)));
+        assertThat(participantsOverlay.participants.get(1).getTitle(), is("c"));
+    }
+
+    @Test
+    public void testSetParticipantsReplacesMovedStation()
+    {
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("a", 10f)));
+        final ParticipantOverlayItem itemA = participantsOverlay.participants.get(0);
+
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("a", 11f)));
+
+        assertThat(participantsOverlay.size(), is(1));
+        assertThat(participantsOverlay.participants.get(0), is(not(sameInstance(itemA))));
+        assertThat(participantsOverlay.participants.get(0).getPoint().getLongitudeE6(), is(11000000));
+    }
+
+    @Test
+    public void testSetParticipantsUpdatesChangedState()
+    {
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("a", 10f)));
+        final ParticipantOverlayItem itemA = participantsOverlay.participants.get(0);
+        final Drawable markerOn = itemA.getMarker(0);
+
+        final long offlineSince = System.currentTimeMillis() - 2 * 24 * 3600 * 1000L;
+        participantsOverlay.setParticipants(Lists.newArrayList(new Station("a", 10f, 45f, offlineSince)));
+
+        assertThat(participantsOverlay.participants.get(0), is(sameInstance(itemA)));
+        assertThat(itemA.getParticipantState(), is(Station.State.OFF));
+        assertThat(itemA.getLastDataTime(), is(offlineSince));
+        assertThat(itemA.getMarker(0), is(not(sameInstance(markerOn))));
+    }
+
+    @Test
+    public void testStateTransitionsAreScheduled()
+    {
+        final long minute = 60 * 1000;
+        final long offlineSince = System.currentTimeMillis() - 10 * minute;
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("a", 10f), new Station("b", 20f, 45f, offlineSince)));
+        final ParticipantOverlayItem itemA = participantsOverlay.participants.get(0);
+        final ParticipantOverlayItem itemB = participantsOverlay.participants.get(1);
+        final Drawable markerA = itemA.getMarker(0);
+        final Drawable markerOn = itemB.getMarker(0);
+
+        assertThat(itemB.getParticipantState(), is(Station.State.ON));
+        assertThat(participantsOverlay.getNextStateTransitionTime(), is(offlineSince + 16 * minute));
+
+        participantsOverlay.updateStateTransitions(offlineSince + 16 * minute - 1);
+
+        assertThat(itemB.getParticipantState(), is(Station.State.ON));
+
+        participantsOverlay.updateStateTransitions(offlineSince + 16 * minute);
+
+        assertThat(itemB.getParticipantState(), is(Station.State.DELAYED));
+        assertThat(itemB.getMarker(0), is(not(sameInstance(markerOn))));
+        assertThat(itemA.getMarker(0), is(sameInstance(markerA)));
+        assertThat(participantsOverlay.getNextStateTransitionTime(), is(offlineSince + 1441 * minute));
+
+        participantsOverlay.updateStateTransitions(offlineSince + 1441 * minute);
+
+        assertThat(itemB.getParticipantState(), is(Station.State.OFF));
+        assertThat(participantsOverlay.getNextStateTransitionTime(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testStateTransitionsFollowRefreshedParticipants()
+    {
+        final long minute = 60 * 1000;
+        final long offlineSince = System.currentTimeMillis() - 10 * minute;
+        participantsOverlay.setParticipants(Lists.newArrayList(new Station("a", 10f, 45f, offlineSince - minute), new Station("b", 20f, 45f, offlineSince)));
+
+        assertThat(participantsOverlay.getNextStateTransitionTime(), is(offlineSince + 15 * minute));
+
+        participantsOverlay.setParticipants(Lists.newArrayList(new Station("a", 10f, 45f, offlineSince + 2 * minute), new Station("b", 20f, 45f, offlineSince)));
+
+        assertThat(participantsOverlay.getNextStateTransitionTime(), is(offlineSince + 16 * minute));
+
+        participantsOverlay.setParticipants(Lists.newArrayList(new Station("a", 10f, 45f, offlineSince + 2 * minute)));
+
+        assertThat(participantsOverlay.getNextStateTransitionTime(), is(offlineSince + 18 * minute));
+    }
+
+    @Test
+    public void testStopAndStartStateTransitions()
+    {
+        final long minute = 60 * 1000;
+        final long offlineSince = System.currentTimeMillis() - 10 * minute;
+        participantsOverlay.setParticipants(Lists.newArrayList(new Station("b", 20f, 45f, offlineSince)));
+
+        assertThat(Robolectric.getForegroundThreadScheduler().size(), is(1));
+
+        participantsOverlay.stopStateTransitions();
+
+        assertThat(Robolectric.getForegroundThreadScheduler().size(), is(0));
+
+        participantsOverlay.startStateTransitions();
+
+        assertThat(Robolectric.getForegroundThreadScheduler().size(), is(1));
+        assertThat(participantsOverlay.getNextStateTransitionTime(), is(offlineSince + 16 * minute));
+    }
+
+    @Test
+    public void testClusterIndexFollowsParticipants()
+    {
+        final long minute = 60 * 1000;
+        final long offlineSince = System.currentTimeMillis() - 10 * minute;
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("a", 10f), new Station("b", 10.1f, 45f, offlineSince)));
+
+        ParticipantClusterIndex.ParticipantCluster cluster = participantsOverlay.clusterIndex.getClusters(4).get(0);
+        assertThat(cluster.getCount(), is(2));
+        assertThat(cluster.getCount(Station.State.ON), is(2));
+
+        participantsOverlay.updateStateTransitions(offlineSince + 16 * minute);
+
+        assertThat(cluster.getCount(Station.State.ON), is(1));
+        assertThat(cluster.getCount(Station.State.DELAYED), is(1));
+
+        participantsOverlay.setParticipants(Lists.newArrayList(createStation("a", 10f)));
+
+        assertThat(cluster.getCount(), is(1));
+    }
+
+    private Station createStation(String name, float longitude)
+    {
+        return new Station(name, longitude, 45f, Station.OFFLINE_SINCE_NOT_SET);
+    }
+
+    @Test
+    public void testRefreshDoesNotReadColorPreferences()
+    {
+        participantsOverlay.refresh();
+
+        verify(colorHandler, never()).updateTarget();
+    }
+
+    @Test
+    public void testUpdateColorTarget()
+    {
+        participantsOverlay.updateColorTarget();
+
+        verify(colorHandler, times(1)).updateTarget();
+        verify(participantsOverlay, times(1)).refresh();
     }
 
     @Test
@@ -172,4 +340,17 @@ public class ParticipantsOverlayTest {
 
         verify(participantsOverlay, times(1)).clearPopup();
     }
+
+    @Test
+    public void testOnTapDoesNotHitTestItemsAtClusterZoomLevel()
+    {
+        final MapView mapView = mock(MapView.class);
+        when(mapView.getZoomLevel()).thenReturn(4);
+        doReturn(false).when(participantsOverlay).clearPopup();
+
+        assertThat(participantsOverlay.onTap(new GeoPoint(49000000, 11000000), mapView), is(false));
+
+        verify(participantsOverlay, never()).onTap(anyInt());
+        verify(participantsOverlay, times(1)).clearPopup();
+    }
 }
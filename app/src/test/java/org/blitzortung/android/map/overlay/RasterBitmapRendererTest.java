@@ -0,0 +1,150 @@
+package org.blitzortung.android.map.overlay;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import com.google.common.collect.Lists;
+import org.blitzortung.android.data.beans.RasterParameters;
+import org.blitzortung.android.data.beans.StrikeAbstract;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class RasterBitmapRendererTest {
+
+    @Mock
+    private Canvas canvas;
+
+    @Mock
+    private MercatorProjectionCache projectionCache;
+
+    private RasterBitmapRenderer rasterBitmapRenderer;
+
+    private RasterParameters rasterParameters;
+
+    private final int[] colors = new int[]{0xff0000ff, 0xff00ff00, 0xffff0000};
+
+    @Before
+    public void setUp() throws JSONException {
+        MockitoAnnotations.initMocks(this);
+
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("x0", 10.0);
+        jsonObject.put("y1", 50.0);
+        jsonObject.put("xd", 1.0);
+        jsonObject.put("yd", 1.0);
+        jsonObject.put("xc", 4);
+        jsonObject.put("yc", 3);
+        rasterParameters = new RasterParameters(jsonObject);
+
+        rasterBitmapRenderer = new RasterBitmapRenderer();
+    }
+
+    @Test
+    public void testUpdateWritesCells() {
+        List<StrikeOverlayItem> strikes = Lists.newArrayList(
+                createItem(rasterParameters.getCenterLongitude(1), rasterParameters.getCenterLatitude(2), 5, 1),
+                createItem(rasterParameters.getCenterLongitude(3), rasterParameters.getCenterLatitude(0), 2, 2));
+
+        rasterBitmapRenderer.update(strikes, rasterParameters, colors, 1, 1);
+
+        assertThat(rasterBitmapRenderer.getMultiplicity(1, 2)).isEqualTo(5);
+        assertThat(rasterBitmapRenderer.getPixel(1, 2)).isEqualTo(colors[1]);
+        assertThat(rasterBitmapRenderer.getMultiplicity(3, 0)).isEqualTo(2);
+        assertThat(rasterBitmapRenderer.getPixel(3, 0)).isEqualTo(colors[2]);
+        assertThat(rasterBitmapRenderer.getMultiplicity(0, 0)).isEqualTo(0);
+        assertThat(rasterBitmapRenderer.getPixel(0, 0)).isEqualTo(0);
+    }
+
+    @Test
+    public void testUpdateIsSkippedWithoutChanges() {
+        List<StrikeOverlayItem> strikes = Lists.newArrayList(
+                createItem(rasterParameters.getCenterLongitude(1), rasterParameters.getCenterLatitude(2), 5, 1));
+        rasterBitmapRenderer.update(strikes, rasterParameters, colors, 1, 1);
+
+        strikes.clear();
+        rasterBitmapRenderer.update(strikes, rasterParameters, colors, 1, 1);
+
+        assertThat(rasterBitmapRenderer.getMultiplicity(1, 2)).isEqualTo(5);
+
+        rasterBitmapRenderer.update(strikes, rasterParameters, colors, 2, 1);
+
+        assertThat(rasterBitmapRenderer.getMultiplicity(1, 2)).isEqualTo(0);
+    }
+
+    @Test
+    public void testDrawOneBitmapCallPerVisibleRow() {
+        rasterBitmapRenderer.update(Lists.newArrayList(
+                createItem(rasterParameters.getCenterLongitude(1), rasterParameters.getCenterLatitude(2), 5, 1)),
+                rasterParameters, colors, 1, 1);
+
+        setupCellSize(10.0f);
+
+        rasterBitmapRenderer.draw(canvas, projectionCache, 0xffffffff, 0, 0, 100, 100);
+
+        verify(canvas, times(3)).drawBitmap(any(Bitmap.class), any(Rect.class), any(RectF.class), any(Paint.class));
+        verify(canvas, never()).drawText(anyString(), anyFloat(), anyFloat(), any(Paint.class));
+    }
+
+    @Test
+    public void testDrawLabelsForLargeCells() {
+        rasterBitmapRenderer.update(Lists.newArrayList(
+                createItem(rasterParameters.getCenterLongitude(1), rasterParameters.getCenterLatitude(2), 5, 1)),
+                rasterParameters, colors, 1, 1);
+
+        setupCellSize(40.0f);
+
+        rasterBitmapRenderer.draw(canvas, projectionCache, 0xffffffff, 0, 0, 1000, 1000);
+
+        verify(canvas, times(1)).drawText(eq("5"), anyFloat(), anyFloat(), any(Paint.class));
+    }
+
+    private void setupCellSize(float cellSize) {
+        for (int index = 0; index <= 4; index++) {
+            when(projectionCache.getLongitudeEdge(index)).thenReturn((double) (index * cellSize));
+            when(projectionCache.getLatitudeEdge(index)).thenReturn((double) (index * cellSize));
+        }
+        when(projectionCache.toScreenX(anyDouble())).thenAnswer(new Answer<Float>() {
+            @Override
+            public Float answer(InvocationOnMock invocation) throws Throwable {
+                return ((Double) invocation.getArguments()[0]).floatValue();
+            }
+        });
+        when(projectionCache.toScreenY(anyDouble())).thenAnswer(new Answer<Float>() {
+            @Override
+            public Float answer(InvocationOnMock invocation) throws Throwable {
+                return ((Double) invocation.getArguments()[0]).floatValue();
+            }
+        });
+    }
+
+    private StrikeOverlayItem createItem(float longitude, float latitude, int multiplicity, int section) {
+        StrikeAbstract strike = mock(StrikeAbstract.class);
+        when(strike.getLongitude()).thenReturn(longitude);
+        when(strike.getLatitude()).thenReturn(latitude);
+        when(strike.getMultiplicity()).thenReturn(multiplicity);
+        StrikeOverlayItem item = new StrikeOverlayItem(strike);
+        item.setColorSection(section);
+        return item;
+    }
+}
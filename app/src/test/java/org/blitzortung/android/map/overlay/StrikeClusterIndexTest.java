@@ -0,0 +1,115 @@
+package org.blitzortung.android.map.overlay;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class StrikeClusterIndexTest {
+
+    private StrikeClusterIndex strikeClusterIndex;
+
+    @Before
+    public void setUp() {
+        strikeClusterIndex = new StrikeClusterIndex(20);
+    }
+
+    @Test
+    public void testAddMergesStrikesOfSameCell() {
+        StrikeOverlayItem first = createItem(1.0, 2.0, 1000);
+        StrikeOverlayItem second = createItem(11.0, 12.0, 2000);
+
+        strikeClusterIndex.add(first);
+        strikeClusterIndex.add(second);
+        strikeClusterIndex.add(createItem(-5.0, 2.0, 1500));
+
+        assertThat(strikeClusterIndex.getClusters()).hasSize(2);
+
+        StrikeClusterIndex.StrikeCluster cluster = strikeClusterIndex.getClusters().get(0);
+        assertThat(cluster.getCount()).isEqualTo(2);
+        assertThat(cluster.getWorldX()).isCloseTo(6.0, within(1e-9));
+        assertThat(cluster.getWorldY()).isCloseTo(7.0, within(1e-9));
+        assertThat(cluster.getNewestItem()).isSameAs(second);
+    }
+
+    @Test
+    public void testRemoveClusterKeepsOtherClusters() {
+        StrikeOverlayItem first = createItem(1.0, 2.0, 1000);
+        StrikeOverlayItem second = createItem(41.0, 2.0, 2000);
+        StrikeOverlayItem third = createItem(81.0, 2.0, 3000);
+        strikeClusterIndex.add(first);
+        strikeClusterIndex.add(second);
+        strikeClusterIndex.add(third);
+
+        strikeClusterIndex.remove(first);
+
+        assertThat(strikeClusterIndex.getClusters()).hasSize(2);
+        assertThat(strikeClusterIndex.getClusters().get(0).getNewestItem()).isSameAs(third);
+        assertThat(strikeClusterIndex.getClusters().get(1).getNewestItem()).isSameAs(second);
+
+        strikeClusterIndex.remove(second);
+        strikeClusterIndex.add(first);
+
+        assertThat(strikeClusterIndex.getClusters()).hasSize(2);
+        assertThat(strikeClusterIndex.getClusters().get(1).getNewestItem()).isSameAs(first);
+        assertThat(strikeClusterIndex.getClusters().get(1).getCount()).isEqualTo(1);
+        assertThat(strikeClusterIndex.getClusters().get(1).getWorldX()).isCloseTo(1.0, within(1e-9));
+
+        strikeClusterIndex.remove(third);
+        strikeClusterIndex.remove(first);
+
+        assertThat(strikeClusterIndex.getClusters()).isEmpty();
+        assertThat(strikeClusterIndex.isConsistent()).isTrue();
+    }
+
+    @Test
+    public void testRemoveOldestStrike() {
+        StrikeOverlayItem first = createItem(1.0, 2.0, 1000);
+        StrikeOverlayItem second = createItem(11.0, 12.0, 2000);
+        strikeClusterIndex.add(first);
+        strikeClusterIndex.add(second);
+
+        strikeClusterIndex.remove(first);
+
+        StrikeClusterIndex.StrikeCluster cluster = strikeClusterIndex.getClusters().get(0);
+        assertThat(cluster.getCount()).isEqualTo(1);
+        assertThat(cluster.getWorldX()).isCloseTo(11.0, within(1e-9));
+        assertThat(strikeClusterIndex.isConsistent()).isTrue();
+
+        strikeClusterIndex.remove(second);
+
+        assertThat(strikeClusterIndex.getClusters()).isEmpty();
+    }
+
+    @Test
+    public void testRemoveNewestStrikeOfClusterIsInconsistent() {
+        StrikeOverlayItem first = createItem(1.0, 2.0, 1000);
+        StrikeOverlayItem second = createItem(11.0, 12.0, 2000);
+        strikeClusterIndex.add(first);
+        strikeClusterIndex.add(second);
+
+        strikeClusterIndex.remove(second);
+
+        assertThat(strikeClusterIndex.isConsistent()).isFalse();
+
+        strikeClusterIndex.clear();
+
+        assertThat(strikeClusterIndex.isConsistent()).isTrue();
+        assertThat(strikeClusterIndex.getClusters()).isEmpty();
+    }
+
+    private StrikeOverlayItem createItem(double worldX, double worldY, long timestamp) {
+        StrikeOverlayItem item = mock(StrikeOverlayItem.class);
+        when(item.getWorldX()).thenReturn(worldX);
+        when(item.getWorldY()).thenReturn(worldY);
+        when(item.getTimestamp()).thenReturn(timestamp);
+        when(item.getMultiplicity()).thenReturn(1);
+        return item;
+    }
+}
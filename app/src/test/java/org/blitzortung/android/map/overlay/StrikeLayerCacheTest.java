@@ -0,0 +1,141 @@
+package org.blitzortung.android.map.overlay;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Point;
+import com.google.android.maps.GeoPoint;
+import com.google.android.maps.MapView;
+import com.google.android.maps.Projection;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class StrikeLayerCacheTest {
+
+    @Mock
+    private MapView mapView;
+
+    @Mock
+    private Canvas canvas;
+
+    private StrikeLayerCache strikeLayerCache;
+
+    private int panX;
+
+    private int panY;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        when(mapView.getWidth()).thenReturn(800);
+        when(mapView.getHeight()).thenReturn(400);
+        Projection projection = createProjection();
+        when(mapView.getProjection()).thenReturn(projection);
+
+        strikeLayerCache = new StrikeLayerCache();
+    }
+
+    @Test
+    public void testDrawWithoutRendering() {
+        assertThat(strikeLayerCache.draw(canvas, mapView, 1, 5, 1)).isFalse();
+    }
+
+    @Test
+    public void testDrawAfterRendering() {
+        render(1, 5, 1);
+
+        assertThat(strikeLayerCache.getMarginX()).isEqualTo(100);
+        assertThat(strikeLayerCache.getMarginY()).isEqualTo(50);
+
+        assertThat(strikeLayerCache.draw(canvas, mapView, 1, 5, 1)).isTrue();
+
+        verify(canvas, times(1)).drawBitmap(any(Bitmap.class), eq(-100.0f), eq(-50.0f), any(Paint.class));
+    }
+
+    @Test
+    public void testDrawTranslatesWhilePanning() {
+        render(1, 5, 1);
+
+        panX = 30;
+        panY = -20;
+
+        assertThat(strikeLayerCache.draw(canvas, mapView, 1, 5, 1)).isTrue();
+
+        verify(canvas, times(1)).drawBitmap(any(Bitmap.class), eq(-70.0f), eq(-70.0f), any(Paint.class));
+    }
+
+    @Test
+    public void testPanningBeyondMarginRequiresRendering() {
+        render(1, 5, 1);
+
+        panX = 120;
+
+        assertThat(strikeLayerCache.draw(canvas, mapView, 1, 5, 1)).isFalse();
+    }
+
+    @Test
+    public void testChangedKeysRequireRendering() {
+        render(1, 5, 1);
+
+        assertThat(strikeLayerCache.draw(canvas, mapView, 2, 5, 1)).isFalse();
+        assertThat(strikeLayerCache.draw(canvas, mapView, 1, 6, 1)).isFalse();
+        assertThat(strikeLayerCache.draw(canvas, mapView, 1, 5, 2)).isFalse();
+    }
+
+    @Test
+    public void testInvalidate() {
+        render(1, 5, 1);
+
+        strikeLayerCache.invalidate();
+
+        assertThat(strikeLayerCache.draw(canvas, mapView, 1, 5, 1)).isFalse();
+    }
+
+    @Test
+    public void testBeginRenderWithoutSize() {
+        when(mapView.getWidth()).thenReturn(0);
+
+        assertThat(strikeLayerCache.beginRender(mapView, 1, 5, 1)).isNull();
+    }
+
+    private void render(int dataVersion, int zoomLevel, int colorEpoch) {
+        assertThat(strikeLayerCache.beginRender(mapView, dataVersion, zoomLevel, colorEpoch)).isNotNull();
+        strikeLayerCache.endRender();
+    }
+
+    private Projection createProjection() {
+        Projection projection = mock(Projection.class);
+        when(projection.toPixels(any(GeoPoint.class), any(Point.class))).thenAnswer(new Answer<Point>() {
+            @Override
+            public Point answer(InvocationOnMock invocation) throws Throwable {
+                GeoPoint geoPoint = (GeoPoint) invocation.getArguments()[0];
+                Point point = (Point) invocation.getArguments()[1];
+                point.set(geoPoint.getLongitudeE6() / 1000 + panX, -geoPoint.getLatitudeE6() / 1000 + panY);
+                return point;
+            }
+        });
+        when(projection.fromPixels(anyInt(), anyInt())).thenAnswer(new Answer<GeoPoint>() {
+            @Override
+            public GeoPoint answer(InvocationOnMock invocation) throws Throwable {
+                int x = (Integer) invocation.getArguments()[0] - panX;
+                int y = (Integer) invocation.getArguments()[1] - panY;
+                return new GeoPoint(-y * 1000, x * 1000);
+            }
+        });
+        return projection;
+    }
+}
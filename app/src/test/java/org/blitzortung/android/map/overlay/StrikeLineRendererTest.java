@@ -0,0 +1,142 @@
+package org.blitzortung.android.map.overlay;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(RobolectricTestRunner.class)
+public class StrikeLineRendererTest {
+
+    private static class CountingCanvas extends Canvas {
+        private int drawCalls;
+
+        @Override
+        public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public void drawLines(float[] pts, int offset, int count, Paint paint) {
+            drawCalls++;
+        }
+
+        @Override
+        public int save() {
+            return 0;
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+        }
+
+        @Override
+        public void restore() {
+        }
+    }
+
+    @Mock
+    private Canvas canvas;
+
+    private StrikeLineRenderer strikeLineRenderer;
+
+    private final int[] colors = new int[]{0x10, 0x20, 0x30};
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        strikeLineRenderer = new StrikeLineRenderer();
+    }
+
+    @Test
+    public void testDrawIssuesOneCallPerSection() {
+        strikeLineRenderer.begin(colors.length, 8);
+        strikeLineRenderer.add(0, 10, 10);
+        strikeLineRenderer.add(0, 20, 20);
+        strikeLineRenderer.add(2, 30, 30);
+
+        strikeLineRenderer.draw(canvas, colors);
+
+        verify(canvas, times(1)).drawLines(any(float[].class), eq(0), eq(16), any(Paint.class));
+        verify(canvas, times(1)).drawLines(any(float[].class), eq(0), eq(8), any(Paint.class));
+        verify(canvas, never()).drawLine(anyFloat(), anyFloat(), anyFloat(), anyFloat(), any(Paint.class));
+    }
+
+    @Test
+    public void testBeginResetsSections() {
+        strikeLineRenderer.begin(colors.length, 8);
+        strikeLineRenderer.add(1, 10, 10);
+
+        assertThat(strikeLineRenderer.getStrikeCount(1)).isEqualTo(1);
+
+        strikeLineRenderer.begin(colors.length, 8);
+
+        assertThat(strikeLineRenderer.getStrikeCount(1)).isEqualTo(0);
+    }
+
+    @Test
+    public void testAddGrowsBufferAndClampsSection() {
+        strikeLineRenderer.begin(colors.length, 8);
+
+        for (int index = 0; index < 1000; index++) {
+            strikeLineRenderer.add(5, index, index);
+        }
+
+        assertThat(strikeLineRenderer.getStrikeCount(2)).isEqualTo(1000);
+    }
+
+    @Test
+    public void testDrawCallsComparedToShapePerStrike() {
+        final Random random = new Random(1);
+        final int strikeCount = 200;
+
+        final float[] x = new float[strikeCount];
+        final float[] y = new float[strikeCount];
+        final int[] sections = new int[strikeCount];
+        for (int index = 0; index < strikeCount; index++) {
+            x[index] = random.nextFloat() * 1000;
+            y[index] = random.nextFloat() * 1000;
+            sections[index] = random.nextInt(colors.length);
+        }
+
+        final StrikeShape[] shapes = new StrikeShape[colors.length];
+        for (int section = 0; section < colors.length; section++) {
+            shapes[section] = new StrikeShape();
+            shapes[section].update(6, colors[section]);
+        }
+        final Paint paint = new Paint();
+
+        final CountingCanvas shapeCanvas = new CountingCanvas();
+        for (int index = 0; index < strikeCount; index++) {
+            shapeCanvas.save();
+            shapeCanvas.translate(x[index], y[index]);
+            shapes[sections[index]].draw(shapeCanvas, paint);
+            shapeCanvas.restore();
+        }
+
+        final CountingCanvas batchCanvas = new CountingCanvas();
+        strikeLineRenderer.begin(colors.length, 6);
+        for (int index = 0; index < strikeCount; index++) {
+            strikeLineRenderer.add(sections[index], x[index], y[index]);
+        }
+        strikeLineRenderer.draw(batchCanvas, colors);
+
+        assertThat(shapeCanvas.drawCalls).isEqualTo(2 * strikeCount);
+        assertThat(batchCanvas.drawCalls).isEqualTo(colors.length);
+    }
+}
@@ -4,10 +4,8 @@ package org.blitzortung.android.map.overlay;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.res.Resources;
+import android.graphics.Canvas;
 import android.graphics.Point;
-import android.graphics.drawable.Drawable;
-import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.Shape;
 import android.preference.PreferenceManager;
 import com.google.android.maps.GeoPoint;
 import com.google.android.maps.MapView;
@@ -18,13 +16,15 @@ import org.blitzortung.android.data.beans.StrikeAbstract;
 import org.blitzortung.android.data.beans.RasterParameters;
 import org.blitzortung.android.map.OwnMapActivity;
 import org.blitzortung.android.map.OwnMapView;
-import org.blitzortung.android.map.overlay.color.ColorHandler;
 import org.blitzortung.android.map.overlay.color.StrikeColorHandler;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -79,28 +79,28 @@ public class StrikesOverlayTest {
 
     @Test
     public void testConstruct() {
-        assertThat(strikesOverlay.size()).isEqualTo(0);
+        assertThat(strikesOverlay.getStrikes()).isEmpty();
     }
 
     @Test
     public void testAddAndExpireStrikes() {
         List<StrikeAbstract> strikes = Lists.newArrayList();
 
-        strikesOverlay.setIntervalDuration(1);
+        strikesOverlay.getParameters().setIntervalDuration(1);
         strikesOverlay.addStrikes(strikes);
 
-        assertThat(strikesOverlay.size()).isEqualTo(0);
+        assertThat(strikesOverlay.getStrikes()).isEmpty();
 
         strikes.add(mock(StrikeAbstract.class));
         strikes.add(mock(StrikeAbstract.class));
 
         strikesOverlay.addStrikes(strikes);
 
-        assertThat(strikesOverlay.size()).isEqualTo(2);
+        assertThat(strikesOverlay.getStrikes()).hasSize(2);
 
         strikesOverlay.addStrikes(strikes);
 
-        assertThat(strikesOverlay.size()).isEqualTo(4);
+        assertThat(strikesOverlay.getStrikes()).hasSize(4);
     }
 
     @Test
@@ -111,7 +111,7 @@ public class StrikesOverlayTest {
 
         strikesOverlay.clear();
 
-        assertThat(strikesOverlay.size()).isEqualTo(0);
+        assertThat(strikesOverlay.getStrikes()).isEmpty();
     }
 
     @Test
@@ -122,104 +122,93 @@ public class StrikesOverlayTest {
 
     @Test
     public void testRefresh() {
-        doReturn(mock(Drawable.class)).when(strikesOverlay).updateAndReturnDrawable(any(StrikeOverlayItem.class), anyInt(), any(ColorHandler.class));
-
         StrikeOverlayItem strikeOverlayItem = mock(StrikeOverlayItem.class);
 
         strikesOverlay.strikes.add(strikeOverlayItem);
 
         when(strikeOverlayItem.getTimestamp()).thenReturn(System.currentTimeMillis());
+        when(colorHandler.getColorSection(anyLong(), anyLong(), any(TimeIntervalWithOffset.class))).thenReturn(1);
 
         strikesOverlay.refresh();
 
-        verify(colorHandler, times(1)).updateTarget();
+        verify(colorHandler, never()).updateTarget();
         verify(colorHandler, times(1)).getColorSection(anyLong(), anyLong(), any(TimeIntervalWithOffset.class));
 
-        verify(strikesOverlay, times(1)).updateAndReturnDrawable(eq(strikeOverlayItem), anyInt(), eq(colorHandler));
-        verify(strikeOverlayItem, times(1)).setMarker(any(Drawable.class));
+        verify(strikeOverlayItem, times(1)).setColorSection(1);
     }
 
     @Test
-    public void testGetDrawable() {
-        StrikeOverlayItem strikeOverlayItem = mock(StrikeOverlayItem.class);
+    public void testRefreshWithRasterParameters() {
+        strikesOverlay.setRasterParameters(createRasterParameters());
 
-        int section = 2;
-        int color = 1234;
+        StrikeOverlayItem strikeOverlayItem = mock(StrikeOverlayItem.class);
+        strikesOverlay.strikes.add(strikeOverlayItem);
 
-        when(colorHandler.getColor(section)).thenReturn(color);
+        when(strikeOverlayItem.getTimestamp()).thenReturn(System.currentTimeMillis());
+        when(colorHandler.getColorSection(anyLong(), anyLong(), any(TimeIntervalWithOffset.class))).thenReturn(1);
 
-        Shape drawable = strikesOverlay.updateAndReturnDrawable(strikeOverlayItem, section, colorHandler);
+        strikesOverlay.refresh();
 
-        assertThat(drawable).isNotNull();
+        verify(strikeOverlayItem, times(1)).setColorSection(1);
+        verify(ownMapView, never()).getProjection();
     }
 
     @Test
-    public void testGetDrawableForRaster() {
-        Projection projection = mock(Projection.class);
-        when(ownMapView.getProjection()).thenReturn(projection);
-
-        RasterParameters rasterParameters = mock(RasterParameters.class);
+    public void testUpdateColorTarget() {
+        strikesOverlay.updateColorTarget();
 
-        StrikeOverlayItem strikeOverlayItem = mock(StrikeOverlayItem.class);
-
-        GeoPoint center = mock(GeoPoint.class);
-        when(center.getLatitudeE6()).thenReturn(49000000);
-        when(center.getLongitudeE6()).thenReturn(11000000);
+        verify(colorHandler, times(1)).updateTarget();
+        verify(strikesOverlay, times(1)).refresh();
+    }
 
-        Point centerPoint = mock(Point.class);
-        Point topLeftPoint = mock(Point.class);
-        Point bottomRightPoint = mock(Point.class);
-        when(projection.toPixels(any(GeoPoint.class), any(Point.class)))
-                .thenReturn(centerPoint)
-                .thenReturn(topLeftPoint)
-                .thenReturn(bottomRightPoint);
+    @Test
+    public void testRefreshSchedulesNextColorTransition() {
+        final long minute = 60 * 1000;
+        final long timestamp = System.currentTimeMillis() - 5 * minute;
+        strikesOverlay.getParameters().setIntervalDuration(60);
+        StrikeAbstract strike = createStrike(11.0f, 49.0f);
+        when(strike.getTimestamp()).thenReturn(timestamp);
+        strikesOverlay.addStrikes(Lists.<StrikeAbstract>newArrayList(strike));
 
-        when(strikeOverlayItem.getPoint()).thenReturn(center);
-        when(strikesOverlay.hasRasterParameters()).thenReturn(true);
-        when(strikesOverlay.getRasterParameters()).thenReturn(rasterParameters);
+        strikesOverlay.refresh();
 
-        int section = 2;
-        int color = 1234;
+        assertThat(Robolectric.getForegroundThreadScheduler().size()).isEqualTo(1);
+        assertThat(strikesOverlay.getNextColorTransitionTime()).isEqualTo(timestamp + 20 * minute);
 
-        when(colorHandler.getColor(section)).thenReturn(color);
+        strikesOverlay.stopColorTransitions();
 
-        Shape drawable = strikesOverlay.updateAndReturnDrawable(strikeOverlayItem, section, colorHandler);
+        assertThat(Robolectric.getForegroundThreadScheduler().size()).isEqualTo(0);
 
-        verify(projection, times(1)).toPixels(eq(center), any(Point.class));
-        verify(projection, times(3)).toPixels(any(GeoPoint.class), any(Point.class));
+        strikesOverlay.startColorTransitions();
 
-        assertThat(drawable).isInstanceOf(ShapeDrawable.class);
+        assertThat(Robolectric.getForegroundThreadScheduler().size()).isEqualTo(1);
     }
 
-
     @Test
-    public void testCreateItem() {
-        strikesOverlay.setIntervalDuration(100);
+    public void testItemsAreNotManagedByItemizedOverlay() {
+        strikesOverlay.getParameters().setIntervalDuration(100);
         strikesOverlay.addStrikes(Lists.newArrayList(mock(StrikeAbstract.class)));
 
-        assertThat(strikesOverlay.size()).isEqualTo(1);
-        assertThat(strikesOverlay.createItem(0)).isNotNull();
+        assertThat(strikesOverlay.getStrikes()).hasSize(1);
+        assertThat(strikesOverlay.size()).isEqualTo(0);
     }
 
     @Test
     public void testOnTapItem() {
-        long currentTime = System.currentTimeMillis();
-        StrikeOverlayItem strikeOverlayItem = mock(StrikeOverlayItem.class);
-        GeoPoint point = new GeoPoint(11000000, 49000000);
-        when(strikeOverlayItem.getPoint()).thenReturn(point);
-        when(strikeOverlayItem.getTimestamp()).thenReturn(currentTime);
-        when(strikeOverlayItem.getMultiplicity()).thenReturn(1);
-        when(strikeOverlayItem.getTitle()).thenReturn("<title>");
+        MapView mapView = mock(MapView.class);
+        Projection projection = createProjection();
+        when(mapView.getProjection()).thenReturn(projection);
 
-        strikesOverlay.strikes.add(strikeOverlayItem);
+        strikesOverlay.getParameters().setIntervalDuration(100);
+        strikesOverlay.addStrikes(Lists.newArrayList(createStrike(11.0f, 49.0f)));
+        GeoPoint point = strikesOverlay.strikes.get(0).getPoint();
 
         doNothing().when(strikesOverlay).showPopup(any(GeoPoint.class), any(String.class));
 
         doReturn(false).when(strikesOverlay).clearPopup();
 
-        strikesOverlay.onTap(0);
-        // TODO returned title is <null>, as DateFormat returns a null Value here
-        verify(strikesOverlay, times(1)).showPopup(point, null);
+        assertThat(strikesOverlay.onTap(new GeoPoint(49000000, 11000000), mapView)).isTrue();
+        verify(strikesOverlay, times(1)).showPopup(eq(point), any(String.class));
     }
 
     @Test
@@ -230,4 +219,96 @@ public class StrikesOverlayTest {
 
         verify(strikesOverlay, times(1)).clearPopup();
     }
+
+    @Test
+    public void testFindStrikeAtTapPosition() {
+        MapView mapView = mock(MapView.class);
+        Projection projection = createProjection();
+        when(mapView.getProjection()).thenReturn(projection);
+
+        strikesOverlay.getParameters().setIntervalDuration(100);
+        strikesOverlay.addStrikes(Lists.newArrayList(createStrike(11.0f, 49.0f), createStrike(11.5f, 49.0f)));
+
+        StrikeOverlayItem item = strikesOverlay.findStrikeAt(new GeoPoint(49000000, 11500500), mapView);
+
+        assertThat(item).isNotNull();
+        assertThat(item.getPoint().getLongitudeE6()).isEqualTo(11500000);
+    }
+
+    @Test
+    public void testFindStrikeAtTapPositionWithoutStrikeNearby() {
+        MapView mapView = mock(MapView.class);
+        Projection projection = createProjection();
+        when(mapView.getProjection()).thenReturn(projection);
+
+        strikesOverlay.getParameters().setIntervalDuration(100);
+        strikesOverlay.addStrikes(Lists.newArrayList(createStrike(11.0f, 49.0f)));
+
+        assertThat(strikesOverlay.findStrikeAt(new GeoPoint(49000000, 11500000), mapView)).isNull();
+    }
+
+    @Test
+    public void testLayerIsRenderedAgainWhenMapZoomChangesBeforeZoomListener() {
+        MapView mapView = mock(MapView.class);
+        Projection projection = createProjection();
+        when(mapView.getProjection()).thenReturn(projection);
+        when(mapView.getWidth()).thenReturn(800);
+        when(mapView.getHeight()).thenReturn(400);
+        when(mapView.getZoomLevel()).thenReturn(8);
+
+        strikesOverlay.getParameters().setIntervalDuration(100);
+        strikesOverlay.addStrikes(Lists.newArrayList(createStrike(11.0f, 49.0f)));
+        Canvas canvas = mock(Canvas.class);
+
+        strikesOverlay.draw(canvas, mapView, false);
+        strikesOverlay.draw(canvas, mapView, false);
+
+        verify(projection, times(3)).fromPixels(anyInt(), anyInt());
+
+        when(mapView.getZoomLevel()).thenReturn(9);
+        strikesOverlay.draw(canvas, mapView, false);
+
+        verify(projection, times(6)).fromPixels(anyInt(), anyInt());
+    }
+
+    private StrikeAbstract createStrike(float longitude, float latitude) {
+        StrikeAbstract strike = mock(StrikeAbstract.class);
+        when(strike.getLongitude()).thenReturn(longitude);
+        when(strike.getLatitude()).thenReturn(latitude);
+        when(strike.getTimestamp()).thenReturn(System.currentTimeMillis());
+        return strike;
+    }
+
+    private RasterParameters createRasterParameters() {
+        RasterParameters rasterParameters = mock(RasterParameters.class);
+        when(rasterParameters.getLongitudeStart()).thenReturn(10.0f);
+        when(rasterParameters.getLatitudeStart()).thenReturn(50.0f);
+        when(rasterParameters.getLongitudeDelta()).thenReturn(0.5f);
+        when(rasterParameters.getLatitudeDelta()).thenReturn(0.5f);
+        when(rasterParameters.getLongitudeCount()).thenReturn(10);
+        when(rasterParameters.getLatitudeCount()).thenReturn(10);
+        return rasterParameters;
+    }
+
+    private Projection createProjection() {
+        Projection projection = mock(Projection.class);
+        when(projection.toPixels(any(GeoPoint.class), any(Point.class))).thenAnswer(new Answer<Point>() {
+            @Override
+            public Point answer(InvocationOnMock invocation) throws Throwable {
+                GeoPoint geoPoint = (GeoPoint) invocation.getArguments()[0];
+                Point point = (Point) invocation.getArguments()[1];
+                point.set(geoPoint.getLongitudeE6() / 1000, -geoPoint.getLatitudeE6() / 1000);
+                return point;
+            }
+        });
+        when(projection.fromPixels(anyInt(), anyInt())).thenAnswer(new Answer<GeoPoint>() {
+            @Override
+            public GeoPoint answer(InvocationOnMock invocation) throws Throwable {
+                int x = (Integer) invocation.getArguments()[0];
+                int y = (Integer) invocation.getArguments()[1];
+                return new GeoPoint(-y * 1000, x * 1000);
+            }
+        });
+        return projection;
+    }
 }
@@ -0,0 +1,157 @@
+package org.blitzortung.android.map.overlay;
+
+import com.google.common.collect.Lists;
+import org.blitzortung.android.data.Parameters;
+import org.blitzortung.android.data.beans.StrikeAbstract;
+import org.blitzortung.android.data.provider.result.ResultEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class StrikesRenderModelBuilderTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private StrikesRenderModelBuilder builder;
+
+    private Parameters parameters;
+
+    private final long referenceTime = 1000 * MINUTE;
+
+    @Before
+    public void setUp() {
+        builder = new StrikesRenderModelBuilder(2000000);
+
+        parameters = new Parameters();
+        parameters.setIntervalDuration(60);
+    }
+
+    @Test
+    public void testBuildAddsItems() {
+        StrikesRenderModel model = builder.build(builder.createEmptyModel(parameters, null, referenceTime), StrikesRenderModelBuilder.KEEP_ALL,
+                Lists.newArrayList(createStrike(referenceTime), createStrike(referenceTime)), parameters, null, referenceTime);
+
+        assertThat(model.getStrikes()).hasSize(2);
+        assertThat(model.getStrikeIndex().size()).isEqualTo(2);
+        assertThat(model.getExpiredCount()).isEqualTo(0);
+        assertThat(model.getParameters()).isSameAs(parameters);
+        assertThat(model.getReferenceTime()).isEqualTo(referenceTime);
+    }
+
+    @Test
+    public void testBuildExpiresLeadingItemsWithoutModifyingPreviousModel() {
+        StrikesRenderModel previous = createModel(referenceTime - 90 * MINUTE, referenceTime - 30 * MINUTE);
+
+        StrikesRenderModel model = builder.build(previous, referenceTime - 60 * MINUTE,
+                Lists.newArrayList(createStrike(referenceTime)), parameters, null, referenceTime);
+
+        assertThat(model.getExpiredCount()).isEqualTo(1);
+        assertThat(model.getStrikes()).hasSize(2);
+        assertThat(model.getStrikes().get(0)).isSameAs(previous.getStrikes().get(1));
+        assertThat(model.getStrikeIndex().size()).isEqualTo(2);
+        assertThat(model.getPreviousStrikes()).isSameAs(previous.getStrikes());
+        assertThat(previous.getStrikes()).hasSize(2);
+        assertThat(previous.getStrikeIndex().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testBuildKeepsPreviousIndexQueryable() {
+        StrikesRenderModel previous = createModel(referenceTime - 90 * MINUTE, referenceTime - 30 * MINUTE);
+
+        StrikesRenderModel model = builder.build(previous, referenceTime - 60 * MINUTE,
+                Lists.newArrayList(createStrike(referenceTime)), parameters, null, referenceTime);
+
+        List<StrikeOverlayItem> result = Lists.newArrayList();
+        previous.getStrikeIndex().queryAll(result);
+        assertThat(result).containsExactly(previous.getStrikes().get(0), previous.getStrikes().get(1));
+
+        model.getStrikeIndex().queryAll(result);
+        assertThat(result).containsExactly(model.getStrikes().get(0), model.getStrikes().get(1));
+    }
+
+    @Test
+    public void testConsecutiveBuildsFromSameModel() {
+        StrikesRenderModel previous = createModel(referenceTime - 30 * MINUTE);
+
+        StrikesRenderModel first = builder.build(previous, StrikesRenderModelBuilder.KEEP_ALL,
+                Lists.newArrayList(createStrike(referenceTime)), parameters, null, referenceTime);
+        StrikesRenderModel second = builder.build(previous, StrikesRenderModelBuilder.KEEP_ALL,
+                Lists.newArrayList(createStrike(referenceTime), createStrike(referenceTime)), parameters, null, referenceTime);
+
+        assertThat(previous.getStrikes()).hasSize(1);
+        assertThat(first.getStrikes()).hasSize(2);
+        assertThat(second.getStrikes()).hasSize(3);
+        assertThat(first.getStrikes().get(1)).isNotSameAs(second.getStrikes().get(1));
+        assertThat(first.getStrikeIndex().size()).isEqualTo(2);
+        assertThat(second.getStrikeIndex().size()).isEqualTo(3);
+    }
+
+    @Test
+    public void testBuildOrdersAddedItemsByTime() {
+        StrikesRenderModel model = createModel(referenceTime - 10 * MINUTE, referenceTime - 50 * MINUTE, referenceTime - 30 * MINUTE);
+
+        assertThat(model.getStrikes().get(0).getTimestamp()).isEqualTo(referenceTime - 50 * MINUTE);
+        assertThat(model.getStrikes().get(1).getTimestamp()).isEqualTo(referenceTime - 30 * MINUTE);
+        assertThat(model.getStrikes().get(2).getTimestamp()).isEqualTo(referenceTime - 10 * MINUTE);
+
+        StrikesRenderModel expiredModel = builder.build(model, referenceTime - 40 * MINUTE, null, parameters, null, referenceTime);
+
+        assertThat(expiredModel.getExpiredCount()).isEqualTo(1);
+        assertThat(expiredModel.getStrikeIndex().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testBuildFromIncrementalResult() {
+        StrikesRenderModel previous = createModel(referenceTime - 90 * MINUTE, referenceTime - 30 * MINUTE);
+
+        ResultEvent result = createResult();
+        result.setContainsIncrementalData();
+
+        StrikesRenderModel model = builder.build(previous, result);
+
+        assertThat(model.getExpiredCount()).isEqualTo(1);
+        assertThat(model.getStrikes()).hasSize(2);
+    }
+
+    @Test
+    public void testBuildFromFullResult() {
+        StrikesRenderModel previous = createModel(referenceTime - 30 * MINUTE);
+
+        StrikesRenderModel model = builder.build(previous, createResult());
+
+        assertThat(model.getPreviousStrikes()).isNotSameAs(previous.getStrikes());
+        assertThat(model.getStrikes()).hasSize(1);
+        assertThat(model.getStrikeIndex().size()).isEqualTo(1);
+    }
+
+    private StrikesRenderModel createModel(long... timestamps) {
+        List<StrikeAbstract> strikes = Lists.newArrayList();
+        for (long timestamp : timestamps) {
+            strikes.add(createStrike(timestamp));
+        }
+        return builder.build(builder.createEmptyModel(parameters, null, referenceTime), StrikesRenderModelBuilder.KEEP_ALL,
+                strikes, parameters, null, referenceTime);
+    }
+
+    private ResultEvent createResult() {
+        ResultEvent result = new ResultEvent();
+        result.setParameters(parameters);
+        result.setReferenceTime(referenceTime);
+        result.setStrikes(Lists.newArrayList(createStrike(referenceTime)));
+        return result;
+    }
+
+    private StrikeAbstract createStrike(long timestamp) {
+        StrikeAbstract strike = mock(StrikeAbstract.class);
+        when(strike.getTimestamp()).thenReturn(timestamp);
+        return strike;
+    }
+}
@@ -52,8 +52,9 @@ public class ColorHandlerTest {
     public void testGetColors()
     {
         int[] colors = new int[]{1, 2, 3, 4, 5};
-        when(colorHandler.getColors()).thenReturn(colors);
+        doReturn(colors).when(colorHandler).getColors(ColorTarget.SATELLITE);
 
+        assertThat(colorHandler.getColors(), is(colors));
         assertThat(colorHandler.getColors(), is(colors));
 
         verify(colorHandler, times(1)).getColors(ColorTarget.SATELLITE);
@@ -66,13 +67,40 @@ public class ColorHandlerTest {
         colorHandler = spy(new ColorHandlerForTest(sharedPreferences));
 
         int[] colors = new int[]{1, 2, 3, 4, 5};
-        when(colorHandler.getColors()).thenReturn(colors);
+        doReturn(colors).when(colorHandler).getColors(ColorTarget.STREETMAP);
 
         assertThat(colorHandler.getColors(), is(colors));
 
         verify(colorHandler, times(1)).getColors(ColorTarget.STREETMAP);
     }
 
+    @Test
+    public void testUpdateTargetKeepsColorsWithoutPreferenceChange()
+    {
+        doReturn(new int[]{1, 2, 3}).when(colorHandler).getColors(ColorTarget.SATELLITE);
+        colorHandler.getColors();
+
+        colorHandler.updateTarget();
+        colorHandler.getColors();
+
+        verify(colorHandler, times(1)).getColors(ColorTarget.SATELLITE);
+    }
+
+    @Test
+    public void testUpdateTargetRebuildsColorsAfterPreferenceChange()
+    {
+        int[] mapColors = new int[]{4, 5, 6};
+        doReturn(new int[]{1, 2, 3}).when(colorHandler).getColors(ColorTarget.SATELLITE);
+        doReturn(mapColors).when(colorHandler).getColors(ColorTarget.STREETMAP);
+        colorHandler.getColors();
+
+        when(sharedPreferences.getString("map_mode", ColorTarget.SATELLITE.toString())).thenReturn(ColorTarget.STREETMAP.toString());
+        colorHandler.updateTarget();
+
+        assertThat(colorHandler.getColors(), is(mapColors));
+        verify(colorHandler, times(1)).getColors(ColorTarget.STREETMAP);
+    }
+
     @Test
     public void testGetColor()
     {
@@ -102,6 +130,26 @@ public class ColorHandlerTest {
         assertThat(colorHandler.getColor(now, now - 5 * timePerColor, intervalDuration), is(5));
     }
 
+    @Test
+    public void testGetColorSection()
+    {
+        doReturn(new int[]{1, 2, 3, 4, 5}).when(colorHandler).getColors(ColorTarget.SATELLITE);
+        when(timeIntervalWithOffset.getIntervalDuration()).thenReturn(60);
+        when(timeIntervalWithOffset.getIntervalOffset()).thenReturn(-30);
+
+        long now = System.currentTimeMillis();
+        long timePerColor = 12 * 60 * 1000;
+        long offset = -30 * 60 * 1000;
+
+        assertThat(colorHandler.getColorSection(now, now + offset + 1000, timeIntervalWithOffset), is(0));
+        assertThat(colorHandler.getColorSection(now, now + offset, timeIntervalWithOffset), is(0));
+        assertThat(colorHandler.getColorSection(now, now + offset - timePerColor + 1, timeIntervalWithOffset), is(0));
+        assertThat(colorHandler.getColorSection(now, now + offset - timePerColor, timeIntervalWithOffset), is(1));
+        assertThat(colorHandler.getColorSection(now, now + offset - 4 * timePerColor, timeIntervalWithOffset), is(4));
+        assertThat(colorHandler.getColorSection(now, now + offset - 40 * timePerColor, timeIntervalWithOffset), is(4));
+        assertThat(colorHandler.getColorSection(now, now - 60L * 24 * 3600 * 1000, timeIntervalWithOffset), is(4));
+    }
+
     @Test
     public void testGetTextColor()
     {
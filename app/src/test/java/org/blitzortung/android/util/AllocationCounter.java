@@ -0,0 +1,38 @@
+package org.blitzortung.android.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * measures the heap allocation of repeated calls on the current thread after a warm up phase
+ */
+public class AllocationCounter {
+
+    private static final int WARM_UP_RUNS = 200;
+
+    private static final int MEASURED_RUNS = 1000;
+
+    private final com.sun.management.ThreadMXBean threadMXBean;
+
+    public AllocationCounter() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            throw new IllegalStateException("thread allocation counting is not supported by this JVM");
+        }
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    public long getBytesPerRun(Runnable runnable) {
+        for (int run = 0; run < WARM_UP_RUNS; run++) {
+            runnable.run();
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            runnable.run();
+        }
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - start) / MEASURED_RUNS;
+    }
+}
@@ -0,0 +1,43 @@
+package org.blitzortung.android.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrameProfilerTest {
+
+    @Test
+    public void testGetTimerReturnsSameTimerForName() {
+        final FrameTimer timer = FrameProfiler.getTimer("FrameProfilerTest.same");
+
+        assertThat(FrameProfiler.getTimer("FrameProfilerTest.same")).isSameAs(timer);
+        assertThat(FrameProfiler.getTimer("FrameProfilerTest.other")).isNotSameAs(timer);
+        assertThat(FrameProfiler.getTimers()).contains(timer);
+    }
+
+    @Test
+    public void testFormatSummary() {
+        final FrameTimer timer = new FrameTimer("Overlay");
+        timer.addSample(1000000);
+        timer.addSample(3000000);
+
+        assertThat(FrameProfiler.formatSummary(timer)).isEqualTo("Overlay p50 1.0 p95 3.0 max 3.0 ms (2)");
+    }
+
+    @Test
+    public void testDump() throws IOException {
+        final FrameTimer timer = FrameProfiler.getTimer("FrameProfilerTest.dump");
+        timer.reset();
+        timer.addSample(1500000);
+        timer.addSample(2500000);
+
+        final StringWriter writer = new StringWriter();
+        FrameProfiler.dump(writer);
+
+        assertThat(writer.toString()).startsWith("frame times ")
+                .contains("FrameProfilerTest.dump p50 1.5 p95 2.5 max 2.5 ms (2)\n  1.50 2.50\n");
+    }
+}
@@ -0,0 +1,86 @@
+package org.blitzortung.android.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrameTimerTest {
+
+    private FrameTimer frameTimer;
+
+    @Before
+    public void setUp() {
+        frameTimer = new FrameTimer("test");
+    }
+
+    @After
+    public void tearDown() {
+        FrameProfiler.setEnabled(false);
+    }
+
+    @Test
+    public void testEmptyTimer() {
+        assertThat(frameTimer.getSampleCount()).isEqualTo(0);
+        assertThat(frameTimer.getPercentile(50)).isEqualTo(0);
+        assertThat(frameTimer.getMaximum()).isEqualTo(0);
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (int sample = 100; sample >= 1; sample--) {
+            frameTimer.addSample(sample);
+        }
+
+        assertThat(frameTimer.getSampleCount()).isEqualTo(100);
+        assertThat(frameTimer.getPercentile(50)).isEqualTo(50);
+        assertThat(frameTimer.getPercentile(95)).isEqualTo(95);
+        assertThat(frameTimer.getPercentile(100)).isEqualTo(100);
+        assertThat(frameTimer.getMaximum()).isEqualTo(100);
+    }
+
+    @Test
+    public void testRollingWindow() {
+        for (int sample = 1; sample <= FrameTimer.WINDOW_SIZE + 10; sample++) {
+            frameTimer.addSample(sample);
+        }
+
+        assertThat(frameTimer.getSampleCount()).isEqualTo(FrameTimer.WINDOW_SIZE);
+        final long[] samples = frameTimer.getSamples();
+        assertThat(samples[0]).isEqualTo(11);
+        assertThat(samples[FrameTimer.WINDOW_SIZE - 1]).isEqualTo(FrameTimer.WINDOW_SIZE + 10);
+        assertThat(frameTimer.getPercentile(0)).isEqualTo(11);
+    }
+
+    @Test
+    public void testStartAndStopWhileDisabled() {
+        FrameProfiler.setEnabled(false);
+
+        frameTimer.start();
+        frameTimer.stop();
+
+        assertThat(frameTimer.getSampleCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testStartAndStopWhileEnabled() {
+        FrameProfiler.setEnabled(true);
+
+        frameTimer.start();
+        frameTimer.stop();
+        frameTimer.stop();
+
+        assertThat(frameTimer.getSampleCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReset() {
+        frameTimer.addSample(10);
+
+        frameTimer.reset();
+
+        assertThat(frameTimer.getSampleCount()).isEqualTo(0);
+        assertThat(frameTimer.getSamples()).isEmpty();
+    }
+}
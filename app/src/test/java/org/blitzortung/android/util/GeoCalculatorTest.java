@@ -0,0 +1,172 @@
+package org.blitzortung.android.util;
+
+import android.location.Location;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@RunWith(RobolectricTestRunner.class)
+public class GeoCalculatorTest {
+
+    // the spherical model deviates from the WGS84 ellipsoid used by Location by up to half a percent
+    private static final double MAXIMUM_RELATIVE_DISTANCE_ERROR = 0.005;
+
+    private static final double MAXIMUM_BEARING_ERROR = 0.3;
+
+    private GeoCalculator geoCalculator;
+
+    @Before
+    public void setUp() {
+        geoCalculator = new GeoCalculator();
+    }
+
+    @Test
+    public void testMatchesLocationNearby() {
+        assertMatchesLocation(11.0, 49.0, new double[]{0.01, 0.05, 0.1, 0.3});
+    }
+
+    @Test
+    public void testMatchesLocationFarAway() {
+        assertMatchesLocation(11.0, 49.0, new double[]{0.8, 2.0, 5.0, 10.0});
+    }
+
+    @Test
+    public void testMatchesLocationAtHighLatitudes() {
+        assertMatchesLocation(25.0, 68.0, new double[]{0.05, 0.3, 2.0});
+        assertMatchesLocation(-70.0, -52.0, new double[]{0.05, 0.3, 2.0});
+    }
+
+    @Test
+    public void testMatchesLocationAcrossDateLine() {
+        assertMatchesLocation(179.9, -17.0, new double[]{0.05, 0.3, 2.0});
+    }
+
+    @Test
+    public void testBearingsOfCardinalDirections() {
+        geoCalculator.setObserver(11.0, 49.0);
+
+        geoCalculator.update(11.0, 49.1);
+        assertThat((double) geoCalculator.getBearing()).isCloseTo(0.0, within(1e-3));
+
+        geoCalculator.update(11.0, 48.0);
+        assertThat((double) geoCalculator.getBearing()).isCloseTo(180.0, within(1e-3));
+
+        geoCalculator.update(10.9, 49.0);
+        assertThat((double) geoCalculator.getBearing()).isCloseTo(-90.0, within(0.1));
+    }
+
+    @Test
+    public void testSquaredChordLengthMatchesDistance() {
+        geoCalculator.setObserver(11.0, 49.0);
+
+        for (double offset : new double[]{0.01, 0.3, 2.0, 10.0}) {
+            geoCalculator.update(11.0 + offset, 49.0 + offset);
+            final double squaredChordLength = geoCalculator.getSquaredChordLength();
+            final double distance = geoCalculator.getDistance();
+
+            assertThat(squaredChordLength).isCloseTo(GeoCalculator.toSquaredChordLength(distance), within(squaredChordLength * 1e-4));
+            assertThat(squaredChordLength).isGreaterThan(GeoCalculator.toSquaredChordLength(distance * 0.999));
+            assertThat(squaredChordLength).isLessThan(GeoCalculator.toSquaredChordLength(distance * 1.001));
+        }
+    }
+
+    @Test
+    public void testSamePoint() {
+        geoCalculator.setObserver(11.0, 49.0);
+
+        geoCalculator.update(11.0, 49.0);
+
+        assertThat(geoCalculator.getDistance()).isEqualTo(0.0f);
+    }
+
+    private void assertMatchesLocation(double longitude, double latitude, double[] offsets) {
+        final Location observer = createLocation(longitude, latitude);
+        geoCalculator.setObserver(observer);
+
+        for (double offset : offsets) {
+            for (int direction = 0; direction < 16; direction++) {
+                final double angle = direction * Math.PI / 8;
+                double targetLongitude = longitude + offset * Math.sin(angle) / Math.cos(Math.toRadians(latitude));
+                if (targetLongitude > 180.0) {
+                    targetLongitude -= 360.0;
+                }
+                final double targetLatitude = latitude + offset * Math.cos(angle);
+                final Location target = createLocation(targetLongitude, targetLatitude);
+
+                geoCalculator.update(targetLongitude, targetLatitude);
+
+                final double expectedDistance = observer.distanceTo(target);
+                assertThat((double) geoCalculator.getDistance()).isCloseTo(expectedDistance, within(expectedDistance * MAXIMUM_RELATIVE_DISTANCE_ERROR));
+
+                double bearingError = Math.abs(geoCalculator.getBearing() - observer.bearingTo(target));
+                bearingError = Math.min(bearingError, 360.0 - bearingError);
+                assertThat(bearingError).isLessThan(MAXIMUM_BEARING_ERROR);
+            }
+        }
+    }
+
+    @Test
+    public void testBoundingBox() {
+        geoCalculator.setMaximumDistance(500000.0);
+        geoCalculator.setObserver(11.0, 49.0);
+
+        assertThat(geoCalculator.isWithinBoundingBox(11.0, 53.4)).isTrue();
+        assertThat(geoCalculator.isWithinBoundingBox(11.0, 53.6)).isFalse();
+        assertThat(geoCalculator.isWithinBoundingBox(17.8, 49.0)).isTrue();
+        assertThat(geoCalculator.isWithinBoundingBox(18.0, 49.0)).isFalse();
+        assertThat(geoCalculator.isWithinBoundingBox(-80.0, 30.0)).isFalse();
+    }
+
+    @Test
+    public void testBoundingBoxContainsAllPointsWithinMaximumDistance() {
+        geoCalculator.setMaximumDistance(500000.0);
+        geoCalculator.setObserver(11.0, 49.0);
+
+        for (int bearing = -180; bearing < 180; bearing += 5) {
+            final double radians = Math.toRadians(bearing);
+            final double longitude = 11.0 + 4.45 * Math.sin(radians) / Math.cos(Math.toRadians(49.0 + 4.45 * Math.cos(radians)));
+            final double latitude = 49.0 + 4.45 * Math.cos(radians);
+            geoCalculator.update(longitude, latitude);
+            if (geoCalculator.getDistance() <= 500000f) {
+                assertThat(geoCalculator.isWithinBoundingBox(longitude, latitude)).isTrue();
+            }
+        }
+    }
+
+    @Test
+    public void testBoundingBoxAcrossDateLine() {
+        geoCalculator.setMaximumDistance(500000.0);
+        geoCalculator.setObserver(179.0, -17.0);
+
+        assertThat(geoCalculator.isWithinBoundingBox(-178.0, -17.0)).isTrue();
+        assertThat(geoCalculator.isWithinBoundingBox(174.5, -17.0)).isTrue();
+        assertThat(geoCalculator.isWithinBoundingBox(-170.0, -17.0)).isFalse();
+    }
+
+    @Test
+    public void testBoundingBoxContainingPole() {
+        geoCalculator.setMaximumDistance(500000.0);
+        geoCalculator.setObserver(20.0, 87.0);
+
+        assertThat(geoCalculator.isWithinBoundingBox(-160.0, 88.0)).isTrue();
+        assertThat(geoCalculator.isWithinBoundingBox(-160.0, 80.0)).isFalse();
+    }
+
+    @Test
+    public void testBoundingBoxWithoutMaximumDistance() {
+        geoCalculator.setObserver(11.0, 49.0);
+
+        assertThat(geoCalculator.isWithinBoundingBox(-169.0, -49.0)).isTrue();
+    }
+
+    private Location createLocation(double longitude, double latitude) {
+        final Location location = new Location("");
+        location.setLongitude(longitude);
+        location.setLatitude(latitude);
+        return location;
+    }
+}
@@ -0,0 +1,67 @@
+package org.blitzortung.android.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongObjectMapTest {
+
+    private LongObjectMap<String> map;
+
+    @Before
+    public void setUp() {
+        map = new LongObjectMap<>();
+    }
+
+    @Test
+    public void testPutGetAndRemove() {
+        map.put(1L, "one");
+        map.put(-1L, "minus one");
+        map.put(1L << 40, "large");
+
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get(1L)).isEqualTo("one");
+        assertThat(map.get(-1L)).isEqualTo("minus one");
+        assertThat(map.get(1L << 40)).isEqualTo("large");
+        assertThat(map.get(2L)).isNull();
+
+        map.put(1L, "replaced");
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get(1L)).isEqualTo("replaced");
+
+        assertThat(map.remove(-1L)).isEqualTo("minus one");
+        assertThat(map.remove(-1L)).isNull();
+        assertThat(map.size()).isEqualTo(2);
+
+        map.clear();
+        assertThat(map.size()).isEqualTo(0);
+        assertThat(map.get(1L)).isNull();
+    }
+
+    @Test
+    public void testMatchesHashMapForRandomOperations() {
+        final Map<Long, String> reference = new HashMap<>();
+        final Random random = new Random(42);
+
+        for (int operation = 0; operation < 20000; operation++) {
+            final long key = random.nextInt(500) - 250;
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(reference.remove(key));
+            } else {
+                final String value = String.valueOf(operation);
+                map.put(key, value);
+                reference.put(key, value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(reference.size());
+        for (long key = -250; key < 250; key++) {
+            assertThat(map.get(key)).isEqualTo(reference.get(key));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.blitzortung.android.util;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlidingListTest {
+
+    @Test
+    public void testSlideKeepsPreviousList() {
+        final SlidingList<Integer> first = new SlidingList<Integer>().slide(0, Lists.newArrayList(1, 2, 3));
+
+        final SlidingList<Integer> second = first.slide(2, Lists.newArrayList(4, 5));
+
+        assertThat(first).containsExactly(1, 2, 3);
+        assertThat(second).containsExactly(3, 4, 5);
+    }
+
+    @Test
+    public void testListsDerivedFromSameListDoNotOverwriteEachOther() {
+        final SlidingList<Integer> base = new SlidingList<Integer>().slide(0, Lists.newArrayList(1));
+
+        final SlidingList<Integer> first = base.slide(0, Lists.newArrayList(2));
+        final SlidingList<Integer> second = base.slide(0, Lists.newArrayList(3));
+
+        assertThat(base).containsExactly(1);
+        assertThat(first).containsExactly(1, 2);
+        assertThat(second).containsExactly(1, 3);
+    }
+
+    @Test
+    public void testSlidingOverManyUpdates() {
+        SlidingList<Integer> list = new SlidingList<>();
+        for (int value = 0; value < 1000; value++) {
+            list = list.slide(list.size() >= 10 ? 1 : 0, Collections.singletonList(value));
+        }
+
+        assertThat(list).hasSize(10);
+        assertThat(list.get(0)).isEqualTo(990);
+        assertThat(list.get(9)).isEqualTo(999);
+    }
+
+    @Test
+    public void testDropAndAdd() {
+        final SlidingList<Integer> list = new SlidingList<Integer>().slide(0, Lists.newArrayList(1, 2));
+        final SlidingList<Integer> dropped = list.drop(1);
+
+        list.add(3);
+
+        assertThat(list).containsExactly(1, 2, 3);
+        assertThat(dropped).containsExactly(2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        new SlidingList<Integer>().slide(0, Lists.newArrayList(1, 2)).drop(1).get(1);
+    }
+}